@@ -36,6 +36,7 @@ public class InventoryEvent<L> {
     private final Optional<ResourceTypeManager<L>> resourceTypeManager;
     private final List<Resource<L>> addedOrModified;
     private final List<Resource<L>> removed;
+    private final boolean restored;
 
     /**
      * Creates an inventory event.
@@ -47,12 +48,14 @@ public class InventoryEvent<L> {
      *                           needed
      * @param addedOrModified list of added or modified resources
      * @param removed         list of removed resources
+     * @param restored        true if the added resources were restored from a local snapshot rather than discovered
      */
     private InventoryEvent(SamplingService<L> samplingService,
                           ResourceManager<L> resourceManager,
                           Optional<ResourceTypeManager<L>> resourceTypeManager,
                           List<Resource<L>> addedOrModified,
-                          List<Resource<L>> removed) {
+                          List<Resource<L>> removed,
+                          boolean restored) {
         if (samplingService == null) {
             throw new IllegalArgumentException("Sampling service cannot be null");
         }
@@ -70,6 +73,7 @@ public class InventoryEvent<L> {
         this.resourceTypeManager = resourceTypeManager;
         this.addedOrModified = addedOrModified;
         this.removed = removed;
+        this.restored = restored;
     }
 
     /**
@@ -83,7 +87,8 @@ public class InventoryEvent<L> {
     public static <L> InventoryEvent<L> removed(SamplingService<L> samplingService,
                                               ResourceManager<L> resourceManager,
                                               List<Resource<L>> removed) {
-        return new InventoryEvent<>(samplingService, resourceManager, Optional.empty(), new ArrayList<>(), removed);
+        return new InventoryEvent<>(samplingService, resourceManager, Optional.empty(), new ArrayList<>(), removed,
+                false);
     }
 
     /**
@@ -97,7 +102,8 @@ public class InventoryEvent<L> {
     public static <L> InventoryEvent<L> addedOrModified(SamplingService<L> samplingService,
                                               ResourceManager<L> resourceManager,
                                               List<Resource<L>> addedOrModified) {
-        return new InventoryEvent<>(samplingService, resourceManager, Optional.empty(), addedOrModified, new ArrayList<>());
+        return new InventoryEvent<>(samplingService, resourceManager, Optional.empty(), addedOrModified,
+                new ArrayList<>(), false);
     }
 
     /**
@@ -120,7 +126,24 @@ public class InventoryEvent<L> {
                 resourceManager,
                 Optional.of(resourceTypeManager),
                 addedOrModified,
-                removed);
+                removed,
+                false);
+    }
+
+    /**
+     * Build an {@link InventoryEvent} for resources that were restored from a snapshot of a previous agent run.
+     * These resources are already known to the storage, so they only need to be monitored again.
+     * @param samplingService a service that provides details such as feed ID and endpoint information that helps
+     *                        identify the resources in the event, plus has methods that can be used to monitor
+     *                        the resources in the event.
+     * @param resourceManager the resources associated with the event
+     * @param restored        list of restored resources
+     */
+    public static <L> InventoryEvent<L> restored(SamplingService<L> samplingService,
+                                              ResourceManager<L> resourceManager,
+                                              List<Resource<L>> restored) {
+        return new InventoryEvent<>(samplingService, resourceManager, Optional.empty(), restored, new ArrayList<>(),
+                true);
     }
 
     private static <T> Resource<T> getRootResource(Resource<T> resource) {
@@ -165,4 +188,12 @@ public class InventoryEvent<L> {
     public List<Resource<L>> getRemoved() {
         return removed;
     }
+
+    /**
+     * @return true if the {@link #getAddedOrModified() added resources} were not discovered but restored from a
+     *         snapshot of a previous agent run - the storage already knows about them
+     */
+    public boolean isRestored() {
+        return restored;
+    }
 }
@@ -50,6 +50,24 @@ public class AgentCoreEngineConfiguration {
         STORAGE // stores the diagnostics as metrics to the storage adapter
     }
 
+    public enum CollectionPhaseSpreading {
+        NONE, // all collections with the same interval are due on the same second boundary
+        HASH, // each resource gets a fixed phase within the interval derived from a hash of its ID
+        RANDOM // each resource gets a random phase within the interval when it is scheduled
+    }
+
+    public enum CollectionOverrunPolicy {
+        SKIP, // a collection that is late by a whole interval or more is skipped until its next regular round
+        COALESCE, // a late collection is made once and the next one is scheduled one interval from now
+        CATCH_UP // missed rounds are collected back to back, but no more than a limited number of rounds
+    }
+
+    public enum DispatcherDropPolicy {
+        DROP_OLDEST, // when the buffer is full, the oldest buffered data points make room for new ones
+        DROP_NEWEST, // when the buffer is full, new data points are dropped and not even collected
+        SAMPLE // when the buffer is full, only a sample of the new data points is kept, each replacing the oldest
+    }
+
     /**
      * If feed ID is expicitly set to this value, it means the feed ID should be autogenerated at runtime.
      */
@@ -73,6 +91,10 @@ public class AgentCoreEngineConfiguration {
         private final String securityRealm;
         private final int connectTimeoutSeconds;
         private final int readTimeoutSeconds;
+        private final int dataReadTimeoutSeconds;
+        private final int inventoryReadTimeoutSeconds;
+        private final boolean http2;
+        private final int keepAliveIntervalSeconds;
 
         public StorageAdapterConfiguration(
                 StorageReportTo type,
@@ -91,7 +113,11 @@ public class AgentCoreEngineConfiguration {
                 String keystorePassword,
                 String securityRealm,
                 int connectTimeoutSeconds,
-                int readTimeoutSeconds) {
+                int readTimeoutSeconds,
+                int dataReadTimeoutSeconds,
+                int inventoryReadTimeoutSeconds,
+                boolean http2,
+                int keepAliveIntervalSeconds) {
             super();
             this.type = type;
             this.username = username;
@@ -110,6 +136,10 @@ public class AgentCoreEngineConfiguration {
             this.securityRealm = securityRealm;
             this.connectTimeoutSeconds = connectTimeoutSeconds;
             this.readTimeoutSeconds = readTimeoutSeconds;
+            this.dataReadTimeoutSeconds = dataReadTimeoutSeconds;
+            this.inventoryReadTimeoutSeconds = inventoryReadTimeoutSeconds;
+            this.http2 = http2;
+            this.keepAliveIntervalSeconds = keepAliveIntervalSeconds;
         }
 
         public StorageReportTo getType() {
@@ -188,6 +218,34 @@ public class AgentCoreEngineConfiguration {
             return readTimeoutSeconds;
         }
 
+        /**
+         * @return the read timeout of requests that store metric and availability data
+         */
+        public int getDataReadTimeoutSeconds() {
+            return dataReadTimeoutSeconds;
+        }
+
+        /**
+         * @return the read timeout of requests that import or delete inventory
+         */
+        public int getInventoryReadTimeoutSeconds() {
+            return inventoryReadTimeoutSeconds;
+        }
+
+        /**
+         * @return true if HTTP/2 is to be used when the server supports it
+         */
+        public boolean isHttp2() {
+            return http2;
+        }
+
+        /**
+         * @return the number of seconds between requests that keep idle connections open (0 if there are none)
+         */
+        public int getKeepAliveIntervalSeconds() {
+            return keepAliveIntervalSeconds;
+        }
+
     }
 
     public static class DiagnosticsConfiguration {
@@ -230,6 +288,8 @@ public class AgentCoreEngineConfiguration {
         private final boolean inContainer;
         private final String apiJndi;
         private final int autoDiscoveryScanPeriodSeconds;
+        private final int autoDiscoveryScanPeriodMinSeconds;
+        private final int autoDiscoveryScanPeriodMaxSeconds;
         private final int minCollectionIntervalSeconds;
         private final int numDmrSchedulerThreads;
         private final int metricDispatcherBufferSize;
@@ -237,17 +297,43 @@ public class AgentCoreEngineConfiguration {
         private final int availDispatcherBufferSize;
         private final int availDispatcherMaxBatchSize;
         private final int pingDispatcherPeriodSeconds;
+        private final int maxConcurrentDiscoveryScans;
+        private final String inventorySnapshotDir;
+        private final boolean fastStart;
+        private final boolean virtualThreads;
+        private final CollectionPhaseSpreading phaseSpreading;
+        private final CollectionOverrunPolicy metricOverrunPolicy;
+        private final CollectionOverrunPolicy availOverrunPolicy;
+        private final int maxCatchUpRounds;
+        private final int requestTimeoutSeconds;
+        private final int circuitBreakerFailures;
+        private final int circuitBreakerOpenSeconds;
+        private final DispatcherDropPolicy metricDispatcherDropPolicy;
+        private final DispatcherDropPolicy availDispatcherDropPolicy;
+        private final int metricDispatcherLingerMillis;
+        private final int availDispatcherLingerMillis;
+        private final int dispatcherTargetLatencyMillis;
 
         public GlobalConfiguration(boolean subsystemEnabled, boolean immutable, boolean inContainer, String apiJndi,
-                int autoDiscoveryScanPeriodSeconds, int minCollectionIntervalSeconds, int numDmrSchedulerThreads,
+                int autoDiscoveryScanPeriodSeconds, int autoDiscoveryScanPeriodMinSeconds,
+                int autoDiscoveryScanPeriodMaxSeconds, int minCollectionIntervalSeconds, int numDmrSchedulerThreads,
                 int metricDispatcherBufferSize, int metricDispatcherMaxBatchSize, int availDispatcherBufferSize,
-                int availDispatcherMaxBatchSize, int pingDispatcherPeriodSeconds) {
+                int availDispatcherMaxBatchSize, int pingDispatcherPeriodSeconds, int maxConcurrentDiscoveryScans,
+                String inventorySnapshotDir, boolean fastStart, boolean virtualThreads,
+                CollectionPhaseSpreading phaseSpreading, CollectionOverrunPolicy metricOverrunPolicy,
+                CollectionOverrunPolicy availOverrunPolicy, int maxCatchUpRounds, int requestTimeoutSeconds,
+                int circuitBreakerFailures, int circuitBreakerOpenSeconds,
+                DispatcherDropPolicy metricDispatcherDropPolicy, DispatcherDropPolicy availDispatcherDropPolicy,
+                int metricDispatcherLingerMillis, int availDispatcherLingerMillis,
+                int dispatcherTargetLatencyMillis) {
             super();
             this.subsystemEnabled = subsystemEnabled;
             this.immutable = immutable;
             this.inContainer = inContainer;
             this.apiJndi = apiJndi;
             this.autoDiscoveryScanPeriodSeconds = autoDiscoveryScanPeriodSeconds;
+            this.autoDiscoveryScanPeriodMinSeconds = autoDiscoveryScanPeriodMinSeconds;
+            this.autoDiscoveryScanPeriodMaxSeconds = autoDiscoveryScanPeriodMaxSeconds;
             this.minCollectionIntervalSeconds = minCollectionIntervalSeconds;
             this.numDmrSchedulerThreads = numDmrSchedulerThreads;
             this.metricDispatcherBufferSize = metricDispatcherBufferSize;
@@ -255,6 +341,22 @@ public class AgentCoreEngineConfiguration {
             this.availDispatcherBufferSize = availDispatcherBufferSize;
             this.availDispatcherMaxBatchSize = availDispatcherMaxBatchSize;
             this.pingDispatcherPeriodSeconds = pingDispatcherPeriodSeconds;
+            this.maxConcurrentDiscoveryScans = maxConcurrentDiscoveryScans;
+            this.inventorySnapshotDir = inventorySnapshotDir;
+            this.fastStart = fastStart;
+            this.virtualThreads = virtualThreads;
+            this.phaseSpreading = phaseSpreading;
+            this.metricOverrunPolicy = metricOverrunPolicy;
+            this.availOverrunPolicy = availOverrunPolicy;
+            this.maxCatchUpRounds = maxCatchUpRounds;
+            this.requestTimeoutSeconds = requestTimeoutSeconds;
+            this.circuitBreakerFailures = circuitBreakerFailures;
+            this.circuitBreakerOpenSeconds = circuitBreakerOpenSeconds;
+            this.metricDispatcherDropPolicy = metricDispatcherDropPolicy;
+            this.availDispatcherDropPolicy = availDispatcherDropPolicy;
+            this.metricDispatcherLingerMillis = metricDispatcherLingerMillis;
+            this.availDispatcherLingerMillis = availDispatcherLingerMillis;
+            this.dispatcherTargetLatencyMillis = dispatcherTargetLatencyMillis;
         }
 
         public boolean isSubsystemEnabled() {
@@ -277,10 +379,22 @@ public class AgentCoreEngineConfiguration {
             return autoDiscoveryScanPeriodSeconds;
         }
 
+        public int getAutoDiscoveryScanPeriodMinSeconds() {
+            return autoDiscoveryScanPeriodMinSeconds;
+        }
+
+        public int getAutoDiscoveryScanPeriodMaxSeconds() {
+            return autoDiscoveryScanPeriodMaxSeconds;
+        }
+
         public int getMinCollectionIntervalSeconds() {
             return minCollectionIntervalSeconds;
         }
 
+        /**
+         * @return the number of threads that collect metrics and check avails of all endpoints,
+         *         whatever their protocol
+         */
         public int getNumDmrSchedulerThreads() {
             return numDmrSchedulerThreads;
         }
@@ -304,6 +418,120 @@ public class AgentCoreEngineConfiguration {
         public int getPingDispatcherPeriodSeconds() {
             return pingDispatcherPeriodSeconds;
         }
+
+        public int getMaxConcurrentDiscoveryScans() {
+            return maxConcurrentDiscoveryScans;
+        }
+
+        /**
+         * @return the directory where inventory snapshots are kept for warm restarts; if null, no snapshots are kept
+         *         and the agent always starts with an empty inventory
+         */
+        public String getInventorySnapshotDir() {
+            return inventorySnapshotDir;
+        }
+
+        /**
+         * @return if true, the agent starts discovering and collecting right away and buffers what it collects
+         *         until the Hawkular server is ready; if false, the agent waits for the server before it starts
+         */
+        public boolean isFastStart() {
+            return fastStart;
+        }
+
+        /**
+         * @return if true, threads that are mostly blocked on I/O (collectors, discovery, management clients)
+         *         are virtual threads if the JVM supports them (Java 21+)
+         */
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        /**
+         * @return how the collections of different resources are spread across their collection intervals
+         */
+        public CollectionPhaseSpreading getPhaseSpreading() {
+            return phaseSpreading;
+        }
+
+        /**
+         * @return what the metric scheduler does with collections that are running behind their schedule
+         */
+        public CollectionOverrunPolicy getMetricOverrunPolicy() {
+            return metricOverrunPolicy;
+        }
+
+        /**
+         * @return what the avail scheduler does with avail checks that are running behind their schedule
+         */
+        public CollectionOverrunPolicy getAvailOverrunPolicy() {
+            return availOverrunPolicy;
+        }
+
+        /**
+         * @return the maximum number of missed rounds that are collected afterwards if the overrun policy
+         *         is {@link CollectionOverrunPolicy#CATCH_UP}
+         */
+        public int getMaxCatchUpRounds() {
+            return maxCatchUpRounds;
+        }
+
+        /**
+         * @return how long a single request to a remote endpoint may take before it is given up
+         */
+        public int getRequestTimeoutSeconds() {
+            return requestTimeoutSeconds;
+        }
+
+        /**
+         * @return the number of connection failures in a row after which a remote endpoint is not contacted
+         *         for {@link #getCircuitBreakerOpenSeconds()}; if not positive, endpoints are always contacted
+         */
+        public int getCircuitBreakerFailures() {
+            return circuitBreakerFailures;
+        }
+
+        /**
+         * @return how long an unreachable remote endpoint is not contacted before it is tried again
+         */
+        public int getCircuitBreakerOpenSeconds() {
+            return circuitBreakerOpenSeconds;
+        }
+
+        /**
+         * @return what the metric dispatcher does with collected metrics when its buffer is full
+         */
+        public DispatcherDropPolicy getMetricDispatcherDropPolicy() {
+            return metricDispatcherDropPolicy;
+        }
+
+        /**
+         * @return what the avail dispatcher does with checked avails when its buffer is full
+         */
+        public DispatcherDropPolicy getAvailDispatcherDropPolicy() {
+            return availDispatcherDropPolicy;
+        }
+
+        /**
+         * @return how long the metric dispatcher waits for a batch to fill up before it sends the batch anyway
+         */
+        public int getMetricDispatcherLingerMillis() {
+            return metricDispatcherLingerMillis;
+        }
+
+        /**
+         * @return how long the avail dispatcher waits for a batch to fill up before it sends the batch anyway
+         */
+        public int getAvailDispatcherLingerMillis() {
+            return availDispatcherLingerMillis;
+        }
+
+        /**
+         * @return storage requests that take longer than this make the dispatchers send smaller batches
+         */
+        public int getDispatcherTargetLatencyMillis() {
+            return dispatcherTargetLatencyMillis;
+        }
     }
 
     public static class ProtocolConfiguration<L> {
@@ -17,6 +17,7 @@
 package org.hawkular.agent.monitor.diagnostics;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
@@ -60,6 +61,22 @@ public interface Diagnostics {
      */
     Counter getAvailStorageBufferSize();
 
+    /**
+     * @return tracks how many metric data points were dropped (or not even collected) because the buffer was
+     *         full or the endpoint could not be reached
+     */
+    Counter getMetricsDropped();
+
+    /**
+     * @return tracks how many availability statuses were dropped (or not even checked) because the buffer was full
+     */
+    Counter getAvailsDropped();
+
+    /**
+     * @return tracks the number of inventory changes waiting to get stored
+     */
+    Counter getInventoryStorageBufferSize();
+
     /**
      * @return tracks the number of metrics that have been stored
      */
@@ -79,4 +96,45 @@ public interface Diagnostics {
      * @return time it takes to execute inventory storage requests
      */
     Timer getInventoryStorageRequestTimer();
+
+    /**
+     * @return tracks how often inventory storage requests had to be retried
+     */
+    Meter getInventoryStorageRetryRate();
+
+    /**
+     * @return time it took from the start of the agent until its first metric data point was stored
+     */
+    Timer getTimeToFirstDataPoint();
+
+    /**
+     * @return tracks how many connections to the Hawkular server were opened and how long it took to set them up
+     */
+    Timer getStorageConnectionSetupTimer();
+
+    /**
+     * @param endpointName the name of the monitored endpoint
+     * @return tracks how late (in milliseconds) metric collections of the endpoint start compared to their schedule
+     */
+    Histogram getMetricCollectionLateness(String endpointName);
+
+    /**
+     * @param endpointName the name of the monitored endpoint
+     * @return tracks how many metric collection rounds of the endpoint were missed because collections fell behind
+     *         or were skipped altogether
+     */
+    Counter getMetricMissedRounds(String endpointName);
+
+    /**
+     * @param endpointName the name of the monitored endpoint
+     * @return tracks how late (in milliseconds) avail checks of the endpoint start compared to their schedule
+     */
+    Histogram getAvailCollectionLateness(String endpointName);
+
+    /**
+     * @param endpointName the name of the monitored endpoint
+     * @return tracks how many avail check rounds of the endpoint were missed because avail checks fell behind
+     *         or were skipped altogether
+     */
+    Counter getAvailMissedRounds(String endpointName);
 }
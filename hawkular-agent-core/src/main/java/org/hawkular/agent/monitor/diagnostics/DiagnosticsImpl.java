@@ -19,6 +19,7 @@ package org.hawkular.agent.monitor.diagnostics;
 import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
@@ -33,9 +34,16 @@ public class DiagnosticsImpl implements Diagnostics {
     private final Counter metricsStorageBuffer;
     private final Meter metricRate;
     private final Counter availStorageBuffer;
+    private final Counter metricsDropped;
+    private final Counter availsDropped;
     private final Meter availRate;
+    private final Counter inventoryStorageBuffer;
     private final Meter inventoryRate;
     private final Timer inventoryStorageRequestTimer;
+    private final Meter inventoryStorageRetryRate;
+    private final Timer timeToFirstDataPoint;
+    private final Timer storageConnectionSetupTimer;
+    private final String feedId;
 
     public static String name(String feedId, String name) {
         return MetricRegistry.name(feedId + ".diagnostics." + name);
@@ -53,17 +61,26 @@ public class DiagnosticsImpl implements Diagnostics {
         metricRate = registry.meter(name(feedId, "metric.rate"));
         availStorageBuffer = registry.counter(name(feedId, "avail.storage-buffer-size"));
         availRate = registry.meter(name(feedId, "avail.rate"));
+        metricsDropped = registry.counter(name(feedId, "metrics.dropped"));
+        availsDropped = registry.counter(name(feedId, "avail.dropped"));
+        inventoryStorageBuffer = registry.counter(name(feedId, "inventory.storage-buffer-size"));
         inventoryRate = registry.meter(name(feedId, "inventory.rate"));
         inventoryStorageRequestTimer = registry.timer(name(feedId, "inventory.storage-request-timer"));
+        inventoryStorageRetryRate = registry.meter(name(feedId, "inventory.storage-retry-rate"));
+        timeToFirstDataPoint = registry.timer(name(feedId, "startup.time-to-first-datapoint"));
+        storageConnectionSetupTimer = registry.timer(name(feedId, "storage.connection-setup-timer"));
 
         this.metricsRegistry = registry;
+        this.feedId = feedId;
     }
 
     private static ProtocolDiagnostics newDiagnostics(String prefix, String feedId, MetricRegistry registry) {
         return new ProtocolDiagnostics(
                 registry.timer(name(feedId, prefix + ".request-timer")),
                 registry.meter(name(feedId, prefix + ".error-rate")),
-                registry.timer(name(feedId, prefix + ".full-discovery-scan-timer")));
+                registry.timer(name(feedId, prefix + ".full-discovery-scan-timer")),
+                registry,
+                name(feedId, prefix + ".metric-type-failures"));
     }
 
     @Override
@@ -111,6 +128,21 @@ public class DiagnosticsImpl implements Diagnostics {
         return availRate;
     }
 
+    @Override
+    public Counter getMetricsDropped() {
+        return metricsDropped;
+    }
+
+    @Override
+    public Counter getAvailsDropped() {
+        return availsDropped;
+    }
+
+    @Override
+    public Counter getInventoryStorageBufferSize() {
+        return inventoryStorageBuffer;
+    }
+
     @Override
     public Meter getInventoryRate() {
         return inventoryRate;
@@ -120,4 +152,39 @@ public class DiagnosticsImpl implements Diagnostics {
     public Timer getInventoryStorageRequestTimer() {
         return inventoryStorageRequestTimer;
     }
+
+    @Override
+    public Meter getInventoryStorageRetryRate() {
+        return inventoryStorageRetryRate;
+    }
+
+    @Override
+    public Timer getTimeToFirstDataPoint() {
+        return timeToFirstDataPoint;
+    }
+
+    @Override
+    public Timer getStorageConnectionSetupTimer() {
+        return storageConnectionSetupTimer;
+    }
+
+    @Override
+    public Histogram getMetricCollectionLateness(String endpointName) {
+        return metricsRegistry.histogram(name(feedId, "metric.collection-lateness." + endpointName));
+    }
+
+    @Override
+    public Counter getMetricMissedRounds(String endpointName) {
+        return metricsRegistry.counter(name(feedId, "metric.missed-rounds." + endpointName));
+    }
+
+    @Override
+    public Histogram getAvailCollectionLateness(String endpointName) {
+        return metricsRegistry.histogram(name(feedId, "avail.collection-lateness." + endpointName));
+    }
+
+    @Override
+    public Counter getAvailMissedRounds(String endpointName) {
+        return metricsRegistry.counter(name(feedId, "avail.missed-rounds." + endpointName));
+    }
 }
@@ -16,7 +16,9 @@
  */
 package org.hawkular.agent.monitor.diagnostics;
 
+import com.codahale.metrics.Counter;
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 
 /**
@@ -28,12 +30,17 @@ public final class ProtocolDiagnostics {
     private final Meter errorRate;
     private final Timer requestTimer;
     private final Timer fullDiscoveryScanTimer;
+    private final MetricRegistry registry;
+    private final String metricTypeFailuresName;
 
-    public ProtocolDiagnostics(Timer requestTimer, Meter errorRate, Timer fullDiscoveryScanTimer) {
+    public ProtocolDiagnostics(Timer requestTimer, Meter errorRate, Timer fullDiscoveryScanTimer,
+            MetricRegistry registry, String metricTypeFailuresName) {
         super();
         this.requestTimer = requestTimer;
         this.errorRate = errorRate;
         this.fullDiscoveryScanTimer = fullDiscoveryScanTimer;
+        this.registry = registry;
+        this.metricTypeFailuresName = metricTypeFailuresName;
     }
 
     /**
@@ -56,4 +63,12 @@ public final class ProtocolDiagnostics {
     public Timer getFullDiscoveryScanTimer() {
         return fullDiscoveryScanTimer;
     }
+
+    /**
+     * @param metricTypeId the ID of the metric type
+     * @return tracks how often metrics of the given type could not be collected
+     */
+    public Counter getMetricTypeFailures(String metricTypeId) {
+        return registry.counter(MetricRegistry.name(metricTypeFailuresName, metricTypeId));
+    }
 }
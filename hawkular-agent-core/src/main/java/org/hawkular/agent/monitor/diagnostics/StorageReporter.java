@@ -127,6 +127,21 @@ public class StorageReporter extends ScheduledReporter {
             storageAdapter.storeMetrics(samples, 0);
         }
 
+        if (!histograms.isEmpty()) {
+            Set<MetricDataPoint> samples = new HashSet<>(histograms.size());
+            for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+                Histogram histogram = entry.getValue();
+                String key = feedId + "." + ourName + "." + entry.getKey();
+                samples.add(new NumericMetricDataPoint(
+                        key,
+                        System.currentTimeMillis(),
+                        histogram.getSnapshot().get75thPercentile(),
+                        MetricType.GAUGE,
+                        null));
+            }
+            storageAdapter.storeMetrics(samples, 0);
+        }
+
         if (!timers.isEmpty()) {
             Set<MetricDataPoint> samples = new HashSet<>(timers.size());
             for (Map.Entry<String, Timer> entry : timers.entrySet()) {
@@ -25,14 +25,16 @@ package org.hawkular.agent.monitor.inventory;
  */
 public final class AttributeLocation<L> implements Comparable<AttributeLocation<L>> {
     private final String attribute;
-    private final String fullPath;
     private final L location;
 
     public AttributeLocation(L location, String attribute) {
         super();
+        if (location == null) {
+            throw new IllegalArgumentException(
+                    "Cannot create a new [" + getClass().getName() + "] with a null location");
+        }
         this.location = location;
         this.attribute = attribute;
-        this.fullPath = location.toString() + "#" + attribute;
     }
 
     /**
@@ -89,9 +91,13 @@ public final class AttributeLocation<L> implements Comparable<AttributeLocation<
         return new AttributeLocation<L>(newLocation, this.attribute);
     }
 
+    /**
+     * The full path is built on demand - there are as many attribute locations as there are measurement instances
+     * so we do not want each of them to hold on to a copy of its location string.
+     */
     @Override
     public String toString() {
-        return fullPath;
+        return location.toString() + "#" + attribute;
     }
 
     @Override
@@ -30,7 +30,7 @@ import java.util.Map;
 public abstract class IDObject {
 
     private final ID id;
-    private final Map<String, Object> properties = new HashMap<>();
+    private Map<String, Object> properties; // most objects never get properties so this is created lazily
     private long persistedTime = 0;
 
     public IDObject(String id) {
@@ -55,7 +55,7 @@ public abstract class IDObject {
      * @return a read-only map of the optional properties for this object.
      */
     public Map<String, Object> getProperties() {
-        return Collections.unmodifiableMap(properties);
+        return (properties == null) ? Collections.emptyMap() : Collections.unmodifiableMap(properties);
     }
 
     /**
@@ -68,6 +68,9 @@ public abstract class IDObject {
      */
     public void addProperty(String name, Object value) {
         if (value != null) {
+            if (properties == null) {
+                properties = new HashMap<>(4);
+            }
             properties.put(name, value);
         } else {
             removeProperty(name);
@@ -75,7 +78,9 @@ public abstract class IDObject {
     }
 
     public void removeProperty(String name) {
-        properties.remove(name);
+        if (properties != null) {
+            properties.remove(name);
+        }
     }
 
     public boolean isPersisted() {
@@ -30,7 +30,7 @@ import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration.EndpointCo
 public class MeasurementType<L> extends AttributeLocationProvider<L> {
 
     private final org.hawkular.metrics.client.common.MetricType metricType;
-    private final Interval interval;
+    private volatile Interval interval;
     private final String metricIdTemplate;
     private final Map<String, String> metricTags;
 
@@ -55,6 +55,21 @@ public class MeasurementType<L> extends AttributeLocationProvider<L> {
         return interval;
     }
 
+    /**
+     * Changes how often instances of this type are measured. Schedules that already exist for instances of
+     * this type are not affected - the caller needs to reschedule them.
+     *
+     * @param interval the new interval
+     *
+     * @see org.hawkular.agent.monitor.scheduler.SchedulerService#reschedule
+     */
+    public void setInterval(Interval interval) {
+        if (interval == null) {
+            throw new IllegalArgumentException("interval is null");
+        }
+        this.interval = interval;
+    }
+
     /**
      * @return true if collection is disabled for this MeasurementType
      */
@@ -110,6 +110,7 @@ public final class Resource<L> extends NodeLocationProvider<L> {
     private final Set<MeasurementInstance<L, MetricType<L>>> metrics;
     private final Set<MeasurementInstance<L, AvailType<L>>> avails;
     private final Set<ResourceConfigurationPropertyInstance<L>> resourceConfigurationProperties;
+    private final long fingerprint;
 
     private Resource(ID id,
             Name name,
@@ -128,6 +129,7 @@ public final class Resource<L> extends NodeLocationProvider<L> {
         assignToThisResource(this.metrics);
         assignToThisResource(this.avails);
         assignToThisResource(this.resourceConfigurationProperties);
+        this.fingerprint = computeFingerprint();
     }
 
     private void assignToThisResource(Collection<? extends Instance<L, ?>> instances) {
@@ -158,6 +160,64 @@ public final class Resource<L> extends NodeLocationProvider<L> {
         return resourceConfigurationProperties;
     }
 
+    /**
+     * Returns a 64-bit hash over the content of this resource that, if changed, warrants the inventory to be updated:
+     * its ID, type, name, resource configuration (names and values) and the IDs of its metrics and avails.
+     * The fingerprint is computed once when the resource is built so comparing two resources for changes
+     * costs the same no matter how much content the resources have.
+     *
+     * @return the content fingerprint of this resource
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    private long computeFingerprint() {
+        long hash = mix(hash(getID().getIDString()));
+        hash = mix(hash * 31 + ((resourceType != null) ? hash(resourceType.getID().getIDString()) : 0L));
+        hash = mix(hash * 31 + hash(getName().getNameString()));
+
+        // these are sets so their element hashes are combined in an order-independent way
+        long confHash = 0L;
+        for (ResourceConfigurationPropertyInstance<L> conf : resourceConfigurationProperties) {
+            confHash += mix(hash(conf.getID().getIDString()) * 31 + hash(conf.getValue()));
+        }
+        long measurementHash = 0L;
+        for (MeasurementInstance<L, MetricType<L>> metric : metrics) {
+            measurementHash += mix(hash(metric.getID().getIDString()));
+        }
+        for (MeasurementInstance<L, AvailType<L>> avail : avails) {
+            measurementHash += mix(hash(avail.getID().getIDString()));
+        }
+
+        hash = mix(hash * 31 + confHash);
+        hash = mix(hash * 31 + measurementHash);
+        return hash;
+    }
+
+    // 64-bit FNV-1a
+    private static long hash(String s) {
+        if (s == null) {
+            return 0L;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // the MurmurHash3 finalizer - spreads the bits so sums of element hashes do not easily collide
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
     @Override
     public String toString() {
         return String.format("%s=[type=%s]", super.toString(), this.resourceType);
@@ -23,12 +23,16 @@ package org.hawkular.agent.monitor.inventory;
  */
 public final class ResourceConfigurationPropertyInstance<L> extends Instance<L, ResourceConfigurationPropertyType<L>> {
 
+    // Resource configuration values are very repetitive across resources of the same type (think "true", "ACTIVE"
+    // or port numbers) so we deduplicate short values; long ones are likely to be unique so they are left alone.
+    private static final int MAX_DEDUPLICATED_VALUE_LENGTH = 64;
+
     private final String value;
 
     public ResourceConfigurationPropertyInstance(ID id, Name name, AttributeLocation<L> attributeLocation,
             ResourceConfigurationPropertyType<L> type, String value) {
         super(id, name, attributeLocation, type);
-        this.value = value;
+        this.value = (value != null && value.length() <= MAX_DEDUPLICATED_VALUE_LENGTH) ? value.intern() : value;
     }
 
     // copy-constructor
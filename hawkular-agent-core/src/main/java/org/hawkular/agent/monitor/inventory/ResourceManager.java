@@ -22,35 +22,37 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import org.hawkular.agent.monitor.log.AgentLoggers;
 import org.hawkular.agent.monitor.log.MsgLogger;
 import org.hawkular.agent.monitor.protocol.LocationResolver;
-import org.jgrapht.alg.DirectedNeighborIndex;
-import org.jgrapht.event.GraphVertexChangeEvent;
-import org.jgrapht.event.VertexSetListener;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.ListenableDirectedGraph;
-import org.jgrapht.traverse.BreadthFirstIterator;
-import org.jgrapht.traverse.DepthFirstIterator;
-import org.jgrapht.traverse.GraphIterator;
 
 /**
  * Holds the graph of resources. The graph itself is never exposed externally - {@link ResourceManager} rather provides
  * methods to retrieve data from the graph and to change the data in the graph.
  * <p>
+ * The graph is a forest (each resource has at most one parent) so it is stored in a few plain maps keyed by resource
+ * ID rather than in a general purpose graph library, which keeps the per-resource memory overhead low.
+ * <p>
  * Concurrency:
  * <ul>
  * <li>All data and collections returned from {@link ResourceManager} is immutable
- * <li>{@link ResourceManager} uses a {@link ReadWriteLock} internally so that all public read and write operations can
+ * <li>{@link ResourceManager} uses a {@link Lock} internally so that all public write operations can
  * be performed from concurrent threads
+ * <li>All public read operations are served from an immutable snapshot of the graph and never block. A new snapshot
+ * is published after every write operation, unless the writing thread is within a batch (see
+ * {@link #beginBatch()}) in which case the snapshot is published once at the end of the batch. Readers therefore
+ * never wait on (nor slow down) long running discovery scans, but they will not see the results of a scan
+ * until the scan is done.
+ * </ul>
  *
  * @author John Mazzitelli
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
@@ -91,26 +93,10 @@ public final class ResourceManager<L> {
         }
     }
 
-    /**
-     * This class listens for resources getting added and removed from the graph and updates its internal cache to
-     * reflect the changes. The internal cache lets us retrieve resources quickly by resource ID.
-     */
-    private class VertexCacheListener implements VertexSetListener<Resource<L>> {
-        @Override
-        public void vertexAdded(GraphVertexChangeEvent<Resource<L>> e) {
-            resourceCache.put(e.getVertex().getID(), e.getVertex());
-        }
-
-        @Override
-        public void vertexRemoved(GraphVertexChangeEvent<Resource<L>> e) {
-            resourceCache.remove(e.getVertex().getID());
-        }
-    }
-
     /**
      * This is used to see if a new resource is actually the same as a resource already
      * in inventory. This only checks those things that, if changed, warrant the inventory to
-     * be updated.
+     * be updated - those are all covered by the {@link Resource#getFingerprint() resource fingerprint}.
      */
     private class ResourceComparator implements Comparator<Resource<L>> {
 
@@ -122,33 +108,12 @@ public final class ResourceManager<L> {
                 return c;
             }
 
-            // see if the names changed
-            c = r1.getName().compareTo(r2.getName());
+            // see if the type, name, resource configuration or measurements changed
+            c = Long.compare(r1.getFingerprint(), r2.getFingerprint());
             if (c != 0) {
                 return c;
             }
 
-            // see if the resource configuration property values are the same
-            Collection<ResourceConfigurationPropertyInstance<L>> rcp1 = r1.getResourceConfigurationProperties();
-            Collection<ResourceConfigurationPropertyInstance<L>> rcp2 = r2.getResourceConfigurationProperties();
-            if (rcp1.size() == rcp2.size()) {
-                if (!rcp1.isEmpty()) {
-                    Map<ResourceConfigurationPropertyInstance<L>, String> rcp1Map = new HashMap<>(rcp1.size());
-                    for (ResourceConfigurationPropertyInstance<L> rcp1Item : rcp1) {
-                        rcp1Map.put(rcp1Item, rcp1Item.getValue());
-                    }
-                    Map<ResourceConfigurationPropertyInstance<L>, String> rcp2Map = new HashMap<>(rcp2.size());
-                    for (ResourceConfigurationPropertyInstance<L> rcp2Item : rcp2) {
-                        rcp2Map.put(rcp2Item, rcp2Item.getValue());
-                    }
-                    if (!rcp1Map.equals(rcp2Map)) {
-                        return rcp1Map.hashCode() < rcp2Map.hashCode() ? -1 : 1;
-                    }
-                }
-            } else {
-                return rcp1.size() < rcp2.size() ? -1 : 1;
-            }
-
             // see if the general properties are the same
             if (!r1.getProperties().equals(r2.getProperties())) {
                 return r1.getProperties().hashCode() < r2.getProperties().hashCode() ? -1 : 1;
@@ -159,24 +124,91 @@ public final class ResourceManager<L> {
         }
     }
 
+    /**
+     * An immutable view of the graph that is handed to readers.
+     */
+    private static final class Snapshot<L> {
+        private final Map<ID, Resource<L>> resources;
+        private final Map<ID, Set<Resource<L>>> children;
+        private final Map<ID, Resource<L>> parents;
+        private final Set<Resource<L>> roots;
+        private final List<Resource<L>> breadthFirst;
+
+        private Snapshot(Map<ID, Resource<L>> resources, Map<ID, Set<Resource<L>>> children,
+                Map<ID, Resource<L>> parents, Set<Resource<L>> roots, List<Resource<L>> breadthFirst) {
+            this.resources = resources;
+            this.children = children;
+            this.parents = parents;
+            this.roots = roots;
+            this.breadthFirst = breadthFirst;
+        }
+    }
+
     private static final MsgLogger log = AgentLoggers.getLogger(ResourceManager.class);
-    private final ReadWriteLock graphLock = new ReentrantReadWriteLock(true);
-    private final Lock graphLockRead = graphLock.readLock();
-    private final Lock graphLockWrite = graphLock.writeLock();
-    private volatile DirectedNeighborIndex<Resource<L>, DefaultEdge> neighborIndex;
-    private volatile Map<ID, Resource<L>> resourceCache;
+    // only writers lock this, readers use the snapshot
+    private final Lock graphLock = new ReentrantLock();
+
+    // the live graph - only ever accessed with graphLock locked
+    private Map<ID, Resource<L>> resourceCache;
+    private Map<ID, Resource<L>> parentCache;
+    private Map<ID, Set<Resource<L>>> childrenCache;
+
+    private volatile Snapshot<L> snapshot;
 
-    private volatile ListenableDirectedGraph<Resource<L>, DefaultEdge> resourcesGraph;
+    // how deeply the current thread has nested batches; 0 (or no value) means it is not in a batch
+    private final ThreadLocal<Integer> batchDepth = new ThreadLocal<>();
 
     public ResourceManager() {
-        reinitializeIfNecessary();
+        graphLock.lock();
+        try {
+            reinitializeIfNecessary();
+            publishSnapshot();
+        } finally {
+            graphLock.unlock();
+        }
+    }
+
+    /**
+     * Starts a batch of write operations. Until the batch is {@link #endBatch() ended}, changes are not published
+     * to readers, which saves rebuilding the read snapshot after every single change (e.g. during a discovery scan).
+     * Every call to this method must be followed by a call to {@link #endBatch()} on the same thread, typically in
+     * a finally block. Batches belong to the thread that began them and may be nested - the changes are published
+     * when the outermost one ends. Writes of other threads that are not in a batch are published right away
+     * (along with whatever the batching threads have changed so far).
+     */
+    public void beginBatch() {
+        Integer depth = batchDepth.get();
+        batchDepth.set((depth == null) ? 1 : depth + 1);
+    }
+
+    /**
+     * Ends a batch of write operations started with {@link #beginBatch()}. If this ends the outermost batch of
+     * the current thread, all changes are published to readers.
+     */
+    public void endBatch() {
+        Integer depth = batchDepth.get();
+        if (depth == null) {
+            throw new IllegalStateException("endBatch() called without a matching beginBatch()");
+        }
+        if (depth > 1) {
+            batchDepth.set(depth - 1);
+            return;
+        }
+        batchDepth.remove();
+
+        graphLock.lock();
+        try {
+            publishSnapshot();
+        } finally {
+            graphLock.unlock();
+        }
     }
 
     /**
      * @return the total number of resources currently in the graph.
      */
     public int size() {
-        return resourceCache.size();
+        return snapshot.resources.size();
     }
 
     /**
@@ -184,18 +216,20 @@ public final class ResourceManager<L> {
      *         it counts that resource and all of its descendants).
      */
     public int size(Resource<L> relativeTo) {
-        graphLockRead.lock();
-        try {
-            if (getResource(relativeTo.getID()) == null) {
-                return 0; // the resource doesn't even exist
-            } else {
-                List<Resource<L>> descendants = new ArrayList<>();
-                getAllDescendants(relativeTo, descendants);
-                return 1 + descendants.size();
-            }
-        } finally {
-            graphLockRead.unlock();
+        Snapshot<L> current = snapshot;
+        if (!current.resources.containsKey(relativeTo.getID())) {
+            return 0; // the resource doesn't even exist
         }
+
+        int count = 0;
+        List<Resource<L>> todo = new ArrayList<>();
+        todo.add(relativeTo);
+        while (!todo.isEmpty()) {
+            Resource<L> next = todo.remove(todo.size() - 1);
+            count++;
+            todo.addAll(current.children.getOrDefault(next.getID(), Collections.emptySet()));
+        }
+        return count;
     }
 
     /**
@@ -223,14 +257,14 @@ public final class ResourceManager<L> {
     public AddResult<L> addResource(Resource<L> newResource) throws IllegalArgumentException {
         AddResult<L> result;
 
-        graphLockWrite.lock();
+        graphLock.lock();
         try {
             // Need to make sure we keep our resources consistent. If the newResource has a parent,
             // and that parent is not the same instance we have in our graph, we need to recreate the
             // newResource such that it refers to our instance of the parent.
             // Do this BEFORE we attempt to add the new resource to the graph.
             if (newResource.getParent() != null) {
-                Resource<L> parentInGraph = getResource(newResource.getParent().getID());
+                Resource<L> parentInGraph = resourceCache.get(newResource.getParent().getID());
                 if (parentInGraph == null) {
                     throw new IllegalArgumentException(
                             String.format("The new resource [%s] has a parent [%s] that has not been added yet",
@@ -243,20 +277,20 @@ public final class ResourceManager<L> {
                 }
             }
 
-            boolean added = this.resourcesGraph.addVertex(newResource);
+            boolean added = addVertex(newResource);
 
             if (!added) {
                 // Looks like this resource already exists.
                 // If the resource changed, we want to replace it but keep all edges intact.
                 // If the resource did not change, we don't do anything.
-                Resource<L> oldResource = getResource(newResource.getID());
+                Resource<L> oldResource = resourceCache.get(newResource.getID());
 
                 if (new ResourceComparator().compare(oldResource, newResource) != 0) {
-                    Set<Resource<L>> children = getChildren(oldResource);
-                    this.resourcesGraph.removeVertex(oldResource); // removes all edges! remember to put parent back
-                    this.resourcesGraph.addVertex(newResource);
+                    Set<Resource<L>> children = new LinkedHashSet<>(liveChildren(oldResource));
+                    removeVertex(oldResource); // removes all edges! remember to put parent back
+                    addVertex(newResource);
                     for (Resource<L> child : children) {
-                        ResourceManager.this.resourcesGraph.addEdge(newResource, child);
+                        addEdge(newResource, child);
                     }
                     result = new AddResult<>(AddResult.Effect.MODIFIED, newResource);
                 } else {
@@ -267,40 +301,45 @@ public final class ResourceManager<L> {
             }
 
             if ((result.getEffect() != AddResult.Effect.UNCHANGED) && (newResource.getParent() != null)) {
-                this.resourcesGraph.addEdge(newResource.getParent(), newResource);
+                addEdge(newResource.getParent(), newResource);
+            }
+
+            if (result.getEffect() != AddResult.Effect.UNCHANGED) {
+                publishSnapshotIfNotBatching();
             }
 
             return result;
 
         } finally {
-            graphLockWrite.unlock();
+            graphLock.unlock();
         }
     }
 
     /**
-     * Remove the resource from {@link #resourcesGraph}, including all its descendants.
+     * Remove the resource from the graph, including all its descendants.
      *
      * @param doomedResource the resource to remove
      * @return an unmodifiable list of {@link Resources} that were removed by this method
      */
     public List<Resource<L>> removeResource(Resource<L> doomedResource) {
-        graphLockWrite.lock();
+        graphLock.lock();
         try {
             List<Resource<L>> removedResources = new ArrayList<Resource<L>>();
-            Resource<L> resourceToRemove = getResource(doomedResource.getID());
+            Resource<L> resourceToRemove = resourceCache.get(doomedResource.getID());
             if (resourceToRemove != null) {
                 getAllDescendants(resourceToRemove, removedResources);
                 removedResources.add(resourceToRemove);
-                removedResources.forEach(r -> this.resourcesGraph.removeVertex(r));
+                removedResources.forEach(r -> removeVertex(r));
+                publishSnapshotIfNotBatching();
             }
             return Collections.unmodifiableList(removedResources);
         } finally {
-            graphLockWrite.unlock();
+            graphLock.unlock();
         }
     }
 
     /**
-     * Find the resources in {@link #resourcesGraph} matching the given {@code query}.
+     * Find the resources in the graph matching the given {@code query}.
      *
      * @param query a location eventually containing wildcards
      * @param locationResolver the {@link LocationResolver} to perform the matching of graph nodes against the given
@@ -308,21 +347,13 @@ public final class ResourceManager<L> {
      * @return an unmodifiable list of {@link Resources} that match the given {@code query}
      */
     public List<Resource<L>> findResources(L query, LocationResolver<L> locationResolver) {
-        graphLockRead.lock();
-        try {
-            List<Resource<L>> result = new ArrayList<Resource<L>>();
-            GraphIterator<Resource<L>, DefaultEdge> it = new BreadthFirstIterator<Resource<L>, DefaultEdge>(
-                    this.resourcesGraph);
-            while (it.hasNext()) {
-                Resource<L> resource = it.next();
-                if (locationResolver.matches(query, resource.getLocation())) {
-                    result.add(resource);
-                }
+        List<Resource<L>> result = new ArrayList<Resource<L>>();
+        for (Resource<L> resource : snapshot.breadthFirst) {
+            if (locationResolver.matches(query, resource.getLocation())) {
+                result.add(resource);
             }
-            return Collections.unmodifiableList(result);
-        } finally {
-            graphLockRead.unlock();
         }
+        return Collections.unmodifiableList(result);
     }
 
     /**
@@ -333,13 +364,7 @@ public final class ResourceManager<L> {
      * @return a {@link Set} if direct children of the given resource
      */
     public Set<Resource<L>> getChildren(Resource<L> resource) {
-        graphLockRead.lock();
-        try {
-            Set<Resource<L>> directChildren = neighborIndex.successorsOf(resource);
-            return Collections.unmodifiableSet(new HashSet<>(directChildren));
-        } finally {
-            graphLockRead.unlock();
-        }
+        return snapshot.children.getOrDefault(resource.getID(), Collections.emptySet());
     }
 
     /**
@@ -354,16 +379,11 @@ public final class ResourceManager<L> {
      */
     public Resource<L> getParent(Resource<L> resource) {
         // do NOT call resource.getParent(), we want the one in our graph, not the one in the resource object
-        graphLockRead.lock();
-        try {
-            Set<Resource<L>> directParents = neighborIndex.predecessorsOf(resource);
-            if (directParents.isEmpty()) {
-                return null;
-            }
-            return directParents.iterator().next();
-        } finally {
-            graphLockRead.unlock();
+        Snapshot<L> current = snapshot;
+        if (!current.resources.containsKey(resource.getID())) {
+            throw new IllegalArgumentException("Resource is not in inventory: " + resource);
         }
+        return current.parents.get(resource.getID());
     }
 
     /**
@@ -374,45 +394,17 @@ public final class ResourceManager<L> {
      * @return the resource as found in the internal graph or <code>null</code>
      */
     public Resource<L> getResource(ID resourceId) {
-        graphLockRead.lock();
-        try {
-            return resourceCache.get(resourceId);
-        } finally {
-            graphLockRead.unlock();
-        }
+        return snapshot.resources.get(resourceId);
     }
 
     /**
-     * Returns an immutable {@link List} of all {@link Resource}s contained in {@link #resourcesGraph} in breadth-first
+     * Returns an immutable {@link List} of all {@link Resource}s contained in the graph in breadth-first
      * order.
      *
      * @return the list of all {@link Resource}s
      */
     public List<Resource<L>> getResourcesBreadthFirst() {
-        graphLockRead.lock();
-        try {
-            List<Resource<L>> result = new ArrayList<Resource<L>>();
-
-            Set<Resource<L>> roots = getRootResources();
-            if (roots.isEmpty()) {
-                return Collections.emptyList();
-            }
-
-            // loop over each root resource and traverse their tree hierarchy breadth-first
-            // roots.forEach(root -> new BreadthFirstIterator<>(ResourceManager.this.resourcesGraph, root)
-            //     .forEachRemaining(it -> result.add(it)));
-            for (Resource<L> root : roots) {
-                GraphIterator<Resource<L>, DefaultEdge> it = new BreadthFirstIterator<Resource<L>, DefaultEdge>(
-                        ResourceManager.this.resourcesGraph, root);
-                while (it.hasNext()) {
-                    result.add(it.next());
-                }
-            }
-
-            return Collections.unmodifiableList(result);
-        } finally {
-            graphLockRead.unlock();
-        }
+        return snapshot.breadthFirst;
     }
 
     /**
@@ -423,19 +415,15 @@ public final class ResourceManager<L> {
      *         DO NOT THINK THIS RETURNS ONLY THOSE RESOURCES WHOSE IDS MATCH THOSE IN FILTER, IT IS THE OPPOSITE.
      */
     public List<Resource<L>> getAllResources(Collection<ID> filter) {
-        graphLockRead.lock();
-        try {
-            Set<ID> resultIds = new HashSet<>(this.resourceCache.keySet());
-            if (filter != null) {
-                resultIds.removeAll(filter);
-            }
-            return resultIds
-                    .stream()
-                    .map(i -> getResource(i))
-                    .collect(Collectors.toList());
-        } finally {
-            graphLockRead.unlock();
+        Snapshot<L> current = snapshot;
+        Set<ID> resultIds = new HashSet<>(current.resources.keySet());
+        if (filter != null) {
+            resultIds.removeAll(filter);
         }
+        return resultIds
+                .stream()
+                .map(i -> current.resources.get(i))
+                .collect(Collectors.toList());
     }
 
     /**
@@ -445,19 +433,7 @@ public final class ResourceManager<L> {
      * @return a {@link Set} of root {@link Resource}s
      */
     public Set<Resource<L>> getRootResources() {
-        graphLockRead.lock();
-        try {
-            Set<Resource<L>> roots = new HashSet<>();
-            Set<Resource<L>> allResources = resourcesGraph.vertexSet();
-            for (Resource<L> resource : allResources) {
-                if (neighborIndex.predecessorsOf(resource).isEmpty()) {
-                    roots.add(resource);
-                }
-            }
-            return Collections.unmodifiableSet(roots);
-        } finally {
-            graphLockRead.unlock();
-        }
+        return snapshot.roots;
     }
 
     public void logTreeGraph(String logMsg, long duration) {
@@ -487,7 +463,7 @@ public final class ResourceManager<L> {
     }
 
     /**
-     * Remove the resources from {@link #resourcesGraph} matching the given {@code query} including all direct and
+     * Remove the resources from the graph matching the given {@code query} including all direct and
      * indirect descendants.
      *
      * @param query a location eventually containing wildcards
@@ -496,46 +472,158 @@ public final class ResourceManager<L> {
      * @return an unmodifiable list of {@link Resources} that were removed by this method
      */
     public List<Resource<L>> removeResources(L query, LocationResolver<L> locationResolver) {
-        graphLockWrite.lock();
+        graphLock.lock();
         try {
             List<Resource<L>> doomedResources = new ArrayList<Resource<L>>();
-            GraphIterator<Resource<L>, DefaultEdge> it = new DepthFirstIterator<>(this.resourcesGraph);
-            while (it.hasNext()) {
-                Resource<L> resource = it.next();
-                if (locationResolver.matches(query, resource.getLocation())) {
-                    getAllDescendants(resource, doomedResources);
-                    doomedResources.add(resource);
+            Set<Resource<L>> doomedSet = new HashSet<>();
+            // ancestors are visited before their descendants, so a matching descendant is already doomed by then
+            for (Resource<L> resource : liveBreadthFirst()) {
+                if (!doomedSet.contains(resource) && locationResolver.matches(query, resource.getLocation())) {
+                    List<Resource<L>> subtree = new ArrayList<>();
+                    getAllDescendants(resource, subtree);
+                    subtree.add(resource);
+                    doomedResources.addAll(subtree);
+                    doomedSet.addAll(subtree);
                 }
             }
 
             // we couldn't do this while iterating (a ConcurrentModificationException would have resulted)
             // but now that we have the doomed resources, we can remove them from the graph now
             for (Resource<L> doomedResource : doomedResources) {
-                this.resourcesGraph.removeVertex(doomedResource);
+                removeVertex(doomedResource);
+            }
+
+            if (!doomedResources.isEmpty()) {
+                publishSnapshotIfNotBatching();
             }
 
             return Collections.unmodifiableList(doomedResources);
         } finally {
-            graphLockWrite.unlock();
+            graphLock.unlock();
         }
     }
 
     /**
-     * Always call with {@link #graphLockWrite} locked.
+     * Always call with {@link #graphLock} locked.
      */
     private void reinitializeIfNecessary() {
         if (this.resourceCache == null || this.resourceCache.size() > 0) {
-            this.resourcesGraph = new ListenableDirectedGraph<>(DefaultEdge.class);
-            this.neighborIndex = new DirectedNeighborIndex<>(this.resourcesGraph);
-            this.resourcesGraph.addGraphListener(neighborIndex);
-            this.resourceCache = new HashMap<>();
-            this.resourcesGraph.addVertexSetListener(new VertexCacheListener());
+            this.resourceCache = new LinkedHashMap<>();
+            this.parentCache = new HashMap<>();
+            this.childrenCache = new HashMap<>();
+        }
+    }
+
+    /**
+     * Adds the resource to the graph, without any edges.
+     * Always call with {@link #graphLock} locked.
+     *
+     * @return false if a resource with the same ID already is in the graph (in which case nothing is done)
+     */
+    private boolean addVertex(Resource<L> resource) {
+        return resourceCache.putIfAbsent(resource.getID(), resource) == null;
+    }
+
+    /**
+     * Removes the resource from the graph along with the edges to its parent and children.
+     * Always call with {@link #graphLock} locked.
+     */
+    private void removeVertex(Resource<L> resource) {
+        ID id = resource.getID();
+        resourceCache.remove(id);
+        Resource<L> parent = parentCache.remove(id);
+        if (parent != null) {
+            Set<Resource<L>> siblings = childrenCache.get(parent.getID());
+            if (siblings != null) {
+                siblings.remove(resource);
+                if (siblings.isEmpty()) {
+                    childrenCache.remove(parent.getID());
+                }
+            }
         }
+        Set<Resource<L>> children = childrenCache.remove(id);
+        if (children != null) {
+            for (Resource<L> child : children) {
+                parentCache.remove(child.getID());
+            }
+        }
+    }
+
+    /**
+     * Makes the given child a child of the given parent.
+     * Always call with {@link #graphLock} locked.
+     */
+    private void addEdge(Resource<L> parent, Resource<L> child) {
+        parentCache.put(child.getID(), parent);
+        childrenCache.computeIfAbsent(parent.getID(), id -> new LinkedHashSet<>()).add(child);
+    }
+
+    /**
+     * Returns the children of the given resource as currently found in the graph (not the published snapshot).
+     * Always call with {@link #graphLock} locked.
+     */
+    private Set<Resource<L>> liveChildren(Resource<L> resource) {
+        return childrenCache.getOrDefault(resource.getID(), Collections.emptySet());
+    }
+
+    /**
+     * Returns all resources currently found in the graph (not the published snapshot), roots first followed by
+     * their descendants in breadth-first order.
+     * Always call with {@link #graphLock} locked.
+     */
+    private List<Resource<L>> liveBreadthFirst() {
+        List<Resource<L>> breadthFirst = new ArrayList<>(resourceCache.size());
+        for (Resource<L> resource : resourceCache.values()) {
+            if (!parentCache.containsKey(resource.getID())) {
+                int next = breadthFirst.size();
+                breadthFirst.add(resource);
+                while (next < breadthFirst.size()) {
+                    breadthFirst.addAll(liveChildren(breadthFirst.get(next++)));
+                }
+            }
+        }
+        return breadthFirst;
+    }
+
+    /**
+     * Publishes a new snapshot unless the current thread is in the middle of a batch of writes.
+     * Always call with {@link #graphLock} locked.
+     */
+    private void publishSnapshotIfNotBatching() {
+        if (batchDepth.get() == null) {
+            publishSnapshot();
+        }
+    }
+
+    /**
+     * Builds an immutable copy of the graph and hands it over to the readers.
+     * Always call with {@link #graphLock} locked.
+     */
+    private void publishSnapshot() {
+        Map<ID, Set<Resource<L>>> children = new HashMap<>(childrenCache.size());
+        for (Map.Entry<ID, Set<Resource<L>>> entry : childrenCache.entrySet()) {
+            // keep the order in which the children were added so breadth-first traversals are predictable
+            children.put(entry.getKey(), Collections.unmodifiableSet(new LinkedHashSet<>(entry.getValue())));
+        }
+
+        Set<Resource<L>> roots = new HashSet<>();
+        for (Resource<L> resource : resourceCache.values()) {
+            if (!parentCache.containsKey(resource.getID())) {
+                roots.add(resource);
+            }
+        }
+
+        this.snapshot = new Snapshot<>(
+                Collections.unmodifiableMap(new HashMap<>(resourceCache)),
+                Collections.unmodifiableMap(children),
+                Collections.unmodifiableMap(new HashMap<>(parentCache)),
+                Collections.unmodifiableSet(roots),
+                Collections.unmodifiableList(liveBreadthFirst()));
     }
 
-    // make sure you call this with a graph lock - either read or write
+    // make sure you call this with the graph lock
     private void getAllDescendants(Resource<L> parent, List<Resource<L>> descendants) {
-        for (Resource<L> child : getChildren(parent)) {
+        for (Resource<L> child : new HashSet<>(liveChildren(parent))) {
             if (!descendants.contains(child)) {
                 getAllDescendants(child, descendants);
                 descendants.add(child);
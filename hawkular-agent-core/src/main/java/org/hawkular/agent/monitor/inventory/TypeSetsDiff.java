@@ -0,0 +1,219 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.inventory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * The differences between two {@link TypeSets} of the same protocol, typically the type sets that the agent is
+ * currently running with and the type sets of a reloaded configuration.
+ *
+ * Differences are split into two kinds:
+ * <ul>
+ * <li>interval changes - a metric or avail type exists in both type sets and only its collection interval differs.
+ * These can be applied to the running types in place followed by a reschedule of the affected measurements.</li>
+ * <li>structural changes - anything else (types or sets added or removed, different locations, operations, etc.).
+ * These are reported as the names of the resource type sets that are affected, either directly or because they
+ * refer to a changed metric or avail set. Endpoints using those resource type sets need to be rebuilt.</li>
+ * </ul>
+ *
+ * @param <L> the type of the protocol specific location, typically a subclass of {@link NodeLocation}
+ */
+public final class TypeSetsDiff<L> {
+
+    /**
+     * Compares the two given type sets.
+     *
+     * @param oldTypeSets the type sets currently in use
+     * @param newTypeSets the type sets that should be used from now on
+     * @return the differences
+     */
+    public static <L> TypeSetsDiff<L> compare(TypeSets<L> oldTypeSets, TypeSets<L> newTypeSets) {
+        Map<ID, Interval> metricIntervals = new HashMap<>();
+        Map<ID, Interval> availIntervals = new HashMap<>();
+        Set<Name> changedMeasurementSets = new HashSet<>();
+        Set<Name> changedResourceTypeSets = new HashSet<>();
+
+        if (oldTypeSets.isEnabled() != newTypeSets.isEnabled()) {
+            changedResourceTypeSets.addAll(oldTypeSets.getResourceTypeSets().keySet());
+            changedResourceTypeSets.addAll(newTypeSets.getResourceTypeSets().keySet());
+        }
+
+        compareMeasurementSets(oldTypeSets.getMetricTypeSets(), newTypeSets.getMetricTypeSets(),
+                (o, n) -> sameMeasurementType(o, n) && Objects.equals(o.getMetricUnits(), n.getMetricUnits()),
+                metricIntervals, changedMeasurementSets);
+        compareMeasurementSets(oldTypeSets.getAvailTypeSets(), newTypeSets.getAvailTypeSets(),
+                (o, n) -> sameMeasurementType(o, n) && samePattern(o, n),
+                availIntervals, changedMeasurementSets);
+
+        Map<Name, TypeSet<ResourceType<L>>> oldSets = oldTypeSets.getResourceTypeSets();
+        Map<Name, TypeSet<ResourceType<L>>> newSets = newTypeSets.getResourceTypeSets();
+        for (Name setName : union(oldSets.keySet(), newSets.keySet())) {
+            TypeSet<ResourceType<L>> oldSet = oldSets.get(setName);
+            TypeSet<ResourceType<L>> newSet = newSets.get(setName);
+            if (oldSet == null || newSet == null || oldSet.isEnabled() != newSet.isEnabled()
+                    || !oldSet.getTypeMap().keySet().equals(newSet.getTypeMap().keySet())) {
+                changedResourceTypeSets.add(setName);
+                continue;
+            }
+            for (Map.Entry<Name, ResourceType<L>> entry : oldSet.getTypeMap().entrySet()) {
+                ResourceType<L> oldType = entry.getValue();
+                ResourceType<L> newType = newSet.getTypeMap().get(entry.getKey());
+                if (!sameResourceType(oldType, newType)
+                        || !Collections.disjoint(newType.getMetricSets(), changedMeasurementSets)
+                        || !Collections.disjoint(newType.getAvailSets(), changedMeasurementSets)) {
+                    changedResourceTypeSets.add(setName);
+                    break;
+                }
+            }
+        }
+
+        return new TypeSetsDiff<>(metricIntervals, availIntervals, changedResourceTypeSets);
+    }
+
+    private static <T extends MeasurementType<?>> void compareMeasurementSets(Map<Name, TypeSet<T>> oldSets,
+            Map<Name, TypeSet<T>> newSets, BiPredicate<T, T> sameType, Map<ID, Interval> changedIntervals,
+            Set<Name> changedSets) {
+
+        for (Name setName : union(oldSets.keySet(), newSets.keySet())) {
+            TypeSet<T> oldSet = oldSets.get(setName);
+            TypeSet<T> newSet = newSets.get(setName);
+            if (oldSet == null || newSet == null || oldSet.isEnabled() != newSet.isEnabled()
+                    || !oldSet.getTypeMap().keySet().equals(newSet.getTypeMap().keySet())) {
+                changedSets.add(setName);
+                continue;
+            }
+            for (Map.Entry<Name, T> entry : oldSet.getTypeMap().entrySet()) {
+                T oldType = entry.getValue();
+                T newType = newSet.getTypeMap().get(entry.getKey());
+                if (!sameType.test(oldType, newType)) {
+                    changedSets.add(setName);
+                } else if (!oldType.getInterval().equals(newType.getInterval())) {
+                    changedIntervals.put(newType.getID(), newType.getInterval());
+                }
+            }
+        }
+    }
+
+    private static boolean sameMeasurementType(MeasurementType<?> o, MeasurementType<?> n) {
+        return o.getID().equals(n.getID())
+                && o.getMetricType() == n.getMetricType()
+                && Objects.equals(o.getAttributeLocation(), n.getAttributeLocation())
+                && Objects.equals(o.getMetricIdTemplate(), n.getMetricIdTemplate())
+                && o.getMetricTags().equals(n.getMetricTags());
+    }
+
+    private static boolean samePattern(AvailType<?> o, AvailType<?> n) {
+        String oldPattern = (o.getUpPattern() != null) ? o.getUpPattern().pattern() : null;
+        String newPattern = (n.getUpPattern() != null) ? n.getUpPattern().pattern() : null;
+        return Objects.equals(oldPattern, newPattern);
+    }
+
+    private static boolean sameResourceType(ResourceType<?> o, ResourceType<?> n) {
+        return o.getID().equals(n.getID())
+                && Objects.equals(o.getResourceNameTemplate(), n.getResourceNameTemplate())
+                && sameElements(o.getParents(), n.getParents())
+                && sameElements(o.getMetricSets(), n.getMetricSets())
+                && sameElements(o.getAvailSets(), n.getAvailSets())
+                && sameElements(o.getNotifications(), n.getNotifications())
+                && sameElements(signatures(o.getOperations()), signatures(n.getOperations()))
+                && sameElements(signatures(o.getResourceConfigurationPropertyTypes()),
+                        signatures(n.getResourceConfigurationPropertyTypes()));
+    }
+
+    private static Set<String> signatures(Collection<?> types) {
+        return types.stream().map(t -> {
+            if (t instanceof Operation) {
+                Operation<?> op = (Operation<?>) t;
+                List<String> params = op.getParameters().stream()
+                        .map(p -> p.getName() + ":" + p.getType() + ":" + p.getDefaultValue())
+                        .collect(Collectors.toList());
+                return op.getID() + "|" + op.getInternalName() + "|" + op.getModifies() + "|"
+                        + op.getLocation() + "|" + params;
+            } else if (t instanceof ResourceConfigurationPropertyType) {
+                ResourceConfigurationPropertyType<?> prop = (ResourceConfigurationPropertyType<?>) t;
+                return prop.getID() + "|" + prop.getAttributeLocation();
+            }
+            return String.valueOf(t);
+        }).collect(Collectors.toSet());
+    }
+
+    private static <E> boolean sameElements(Collection<E> o, Collection<E> n) {
+        return new HashSet<>(o).equals(new HashSet<>(n));
+    }
+
+    private static Set<Name> union(Set<Name> a, Set<Name> b) {
+        Set<Name> union = new HashSet<>(a);
+        union.addAll(b);
+        return union;
+    }
+
+    private final Map<ID, Interval> changedMetricIntervals;
+    private final Map<ID, Interval> changedAvailIntervals;
+    private final Set<Name> changedResourceTypeSets;
+
+    private TypeSetsDiff(Map<ID, Interval> changedMetricIntervals, Map<ID, Interval> changedAvailIntervals,
+            Set<Name> changedResourceTypeSets) {
+        this.changedMetricIntervals = Collections.unmodifiableMap(changedMetricIntervals);
+        this.changedAvailIntervals = Collections.unmodifiableMap(changedAvailIntervals);
+        this.changedResourceTypeSets = Collections.unmodifiableSet(changedResourceTypeSets);
+    }
+
+    /**
+     * @return the new intervals of the metric types whose interval (and nothing else) has changed, keyed by type ID
+     */
+    public Map<ID, Interval> getChangedMetricIntervals() {
+        return changedMetricIntervals;
+    }
+
+    /**
+     * @return the new intervals of the avail types whose interval (and nothing else) has changed, keyed by type ID
+     */
+    public Map<ID, Interval> getChangedAvailIntervals() {
+        return changedAvailIntervals;
+    }
+
+    /**
+     * @return the names of the resource type sets that changed structurally
+     */
+    public Set<Name> getChangedResourceTypeSets() {
+        return changedResourceTypeSets;
+    }
+
+    /**
+     * @return true if the compared type sets are equivalent
+     */
+    public boolean isEmpty() {
+        return changedMetricIntervals.isEmpty() && changedAvailIntervals.isEmpty()
+                && changedResourceTypeSets.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("metric intervals=%s, avail intervals=%s, resource type sets=%s",
+                changedMetricIntervals, changedAvailIntervals, changedResourceTypeSets);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.protocol;
+
+/**
+ * Tracks how often the full discovery scans of an endpoint detect changes (that is, added, modified or
+ * removed resources) and derives from that how often the endpoint should be scanned. The more often scans
+ * find changes, the closer the period gets to the minimum; endpoints whose scans keep finding nothing drift
+ * towards the maximum.
+ *
+ * The change rate is an exponentially weighted moving average of the scan outcomes (1 if a scan found changes,
+ * 0 if not) so the most recent scans count the most. It starts at the value that corresponds to the initial
+ * period so an endpoint starts out being scanned as often as configured.
+ */
+public class AdaptiveDiscoveryPeriod {
+
+    /**
+     * The weight of the latest scan outcome in the change rate.
+     */
+    static final double SMOOTHING_FACTOR = 0.3;
+
+    private final long minPeriodMillis;
+    private final long maxPeriodMillis;
+    private double changeRate; // guarded by this
+
+    /**
+     * @param minPeriodMillis the period used when every scan detects changes
+     * @param initialPeriodMillis the period to start with; it is adjusted to be within the bounds
+     * @param maxPeriodMillis the period used when scans never detect changes
+     */
+    public AdaptiveDiscoveryPeriod(long minPeriodMillis, long initialPeriodMillis, long maxPeriodMillis) {
+        if (minPeriodMillis <= 0) {
+            throw new IllegalArgumentException("minPeriodMillis must be greater than 0");
+        }
+        if (maxPeriodMillis < minPeriodMillis) {
+            throw new IllegalArgumentException("maxPeriodMillis must not be less than minPeriodMillis");
+        }
+        this.minPeriodMillis = minPeriodMillis;
+        this.maxPeriodMillis = maxPeriodMillis;
+
+        long initial = Math.max(minPeriodMillis, Math.min(maxPeriodMillis, initialPeriodMillis));
+        this.changeRate = (maxPeriodMillis == minPeriodMillis) ? 0.0
+                : (double) (maxPeriodMillis - initial) / (maxPeriodMillis - minPeriodMillis);
+    }
+
+    /**
+     * Records the outcome of a successfully completed full discovery scan.
+     *
+     * @param changed <code>true</code> if the scan detected added, modified or removed resources
+     */
+    public synchronized void scanFinished(boolean changed) {
+        changeRate = (SMOOTHING_FACTOR * (changed ? 1.0 : 0.0)) + ((1.0 - SMOOTHING_FACTOR) * changeRate);
+    }
+
+    /**
+     * @return a value between 0 and 1 indicating how often recent scans detected changes
+     */
+    public synchronized double getChangeRate() {
+        return changeRate;
+    }
+
+    /**
+     * @return how long to wait between the start of one full discovery scan and the start of the next
+     */
+    public synchronized long getPeriodMillis() {
+        return minPeriodMillis + Math.round((1.0 - changeRate) * (maxPeriodMillis - minPeriodMillis));
+    }
+
+    public long getMinPeriodMillis() {
+        return minPeriodMillis;
+    }
+
+    public long getMaxPeriodMillis() {
+        return maxPeriodMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AdaptiveDiscoveryPeriod[period=%dms, changeRate=%.3f, bounds=[%d..%d]ms]",
+                getPeriodMillis(), getChangeRate(), minPeriodMillis, maxPeriodMillis);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.protocol;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps an endpoint that cannot be reached from tying up agent threads. After a number of connection failures
+ * in a row the breaker opens and no requests are sent to the endpoint for a while. Once that time is up, a single
+ * probe request is let through (the breaker is half-open); if it succeeds the breaker closes again, if it fails
+ * the breaker opens for another period.
+ *
+ * Only failures to talk to the endpoint at all (see {@link #isConnectionFailure(Throwable)}) should be recorded -
+ * an endpoint that answers with an error for a single attribute is perfectly reachable.
+ */
+public class CircuitBreaker {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    public static final long DEFAULT_OPEN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    public enum State {
+        /** requests are sent to the endpoint */
+        CLOSED,
+        /** no requests are sent to the endpoint */
+        OPEN,
+        /** a single probe request has been let through to see if the endpoint is back */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long stateChangeTime = 0L;
+
+    /**
+     * @param failureThreshold the number of connection failures in a row that open the breaker;
+     *        if not positive, the breaker never opens
+     * @param openMillis how long the breaker stays open before a probe request is let through
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = Math.max(openMillis, 0L);
+    }
+
+    /**
+     * Asks whether a request may be sent to the endpoint. If this returns <code>true</code>, the caller must report
+     * the outcome via {@link #recordSuccess()} or {@link #recordFailure(long)}.
+     *
+     * @param now the current time
+     * @return <code>true</code> if the request may be sent, <code>false</code> if the endpoint should be
+     *         considered unreachable without trying
+     */
+    public synchronized boolean allowRequest(long now) {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+            case HALF_OPEN:
+                // a probe whose outcome was never reported must not keep the breaker half-open forever
+                if (now - stateChangeTime >= openMillis) {
+                    state = State.HALF_OPEN;
+                    stateChangeTime = now;
+                    return true;
+                }
+                return false;
+            default:
+                throw new IllegalStateException("Bad state; report this bug: " + state);
+        }
+    }
+
+    /**
+     * Records that the endpoint could be talked to. This closes the breaker.
+     */
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Records that the endpoint could not be talked to.
+     *
+     * @param now the current time
+     * @return <code>true</code> if this failure opened the breaker
+     */
+    public synchronized boolean recordFailure(long now) {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failureThreshold > 0
+                && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            stateChangeTime = now;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return the number of connection failures in a row recorded so far
+     */
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @param t the error a request to the endpoint failed with
+     * @return <code>true</code> if the error means the endpoint could not be talked to at all (an I/O error or
+     *         a request that did not complete in time), as opposed to the endpoint answering with an error
+     */
+    public static boolean isConnectionFailure(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
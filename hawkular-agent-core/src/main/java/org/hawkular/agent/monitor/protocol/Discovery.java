@@ -67,11 +67,45 @@ public final class Discovery<L> {
             SamplingService<L> samplingService,
             Consumer<Resource<L>> resourceConsumer) {
 
-        try {
+        L parentLocation = parent != null ? parent.getLocation() : null;
+        log.debugf("Discovering children of [%s] of type [%s]", parent, childType);
+        final L childQuery = session.getLocationResolver().absolutize(parentLocation, childType.getLocation());
+        discover(parent, childType, childQuery, session, samplingService, resourceConsumer);
+    }
 
-            L parentLocation = parent != null ? parent.getLocation() : null;
-            log.debugf("Discovering children of [%s] of type [%s]", parent, childType);
-            final L childQuery = session.getLocationResolver().absolutize(parentLocation, childType.getLocation());
+    /**
+     * Discovers the single resource of the given type found at the given location, along with all of its descendants.
+     * This is used when the managed endpoint told us a resource came into existence so a full discovery scan
+     * is not necessary to find it.
+     *
+     * @param parent the parent of the resource (if null, the resource is a root resource)
+     * @param type the type of the resource
+     * @param location the concrete location of the resource
+     * @param session session used to query the managed endpoint
+     * @param samplingService the service that collects measurements - this is used here just to generate metric IDs
+     * @param resourceConsumer if not null, will be a listener that gets notified when resources are discovered
+     */
+    public void discoverResource(
+            Resource<L> parent,
+            ResourceType<L> type,
+            L location,
+            Session<L> session,
+            SamplingService<L> samplingService,
+            Consumer<Resource<L>> resourceConsumer) {
+
+        log.debugf("Discovering resource [%s] of type [%s] under parent [%s]", location, type, parent);
+        discover(parent, type, location, session, samplingService, resourceConsumer);
+    }
+
+    private <N> void discover(
+            Resource<L> parent,
+            ResourceType<L> childType,
+            L childQuery,
+            Session<L> session,
+            SamplingService<L> samplingService,
+            Consumer<Resource<L>> resourceConsumer) {
+
+        try {
             Map<L, N> nativeResources = session.getDriver().fetchNodes(childQuery);
 
             for (Map.Entry<L, N> entry : nativeResources.entrySet()) {
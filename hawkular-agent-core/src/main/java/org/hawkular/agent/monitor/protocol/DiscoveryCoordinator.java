@@ -0,0 +1,243 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.protocol;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.hawkular.agent.monitor.log.AgentLoggers;
+import org.hawkular.agent.monitor.log.MsgLogger;
+import org.hawkular.agent.monitor.service.ServiceStatus;
+import org.hawkular.agent.monitor.util.ThreadFactoryGenerator;
+
+/**
+ * Periodically triggers full discovery scans on all managed endpoints.
+ *
+ * Each endpoint is scanned according to its own {@link AdaptiveDiscoveryPeriod}, which lies between the configured
+ * minimum and maximum periods depending on how often the endpoint's scans detect changes. The coordinator wakes
+ * up once every minimum period and collects the endpoints that are due before it wakes up again.
+ *
+ * Rather than scanning all those endpoints at the same instant, the coordinator spreads their scans evenly across
+ * that time window (with some random jitter) and never runs more than a fixed number of scans at the same time
+ * agent-wide. Endpoints whose last scan failed or detected changes are scanned first. A scan that does not finish
+ * within the maximum period is cancelled so it cannot hold on to its share of the concurrency limit.
+ *
+ * Endpoints that have never been scanned (e.g. all endpoints right after the coordinator starts) are not spread
+ * out - they are scanned as soon as possible (still subject to the concurrency limit) so their inventory is
+ * available quickly.
+ */
+public class DiscoveryCoordinator {
+    private static final MsgLogger log = AgentLoggers.getLogger(DiscoveryCoordinator.class);
+
+    /**
+     * The fraction of its time slot by which the start of an endpoint scan may randomly be delayed.
+     * This is less than 1 so the scans keep their priority order.
+     */
+    static final double JITTER_FRACTION = 0.5;
+
+    private final Supplier<? extends Collection<? extends EndpointService<?, ?>>> endpointsSupplier;
+    private final long periodMillis;
+    private final long minPeriodMillis;
+    private final long maxPeriodMillis;
+    private final int maxConcurrentScans;
+
+    // endpoints whose scan has been scheduled but not finished yet; they are skipped in the next round
+    private final Set<EndpointService<?, ?>> pendingScans = ConcurrentHashMap.newKeySet();
+
+    // when each endpoint is next due to be scanned; endpoints not in here have never been scanned
+    private final Map<EndpointService<?, ?>, Long> nextScanTimes = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService roundExecutor;
+    private ExecutorService scanExecutor;
+
+    /**
+     * @param endpointsSupplier supplies the endpoints to scan; asked at the start of each round so endpoints
+     *        added or removed at runtime are picked up
+     * @param periodSecs how often each endpoint is scanned until its change rate says otherwise
+     * @param minPeriodSecs the shortest period an endpoint can adapt to; lowered to periodSecs if larger
+     * @param maxPeriodSecs the longest period an endpoint can adapt to; raised to periodSecs if smaller
+     * @param maxConcurrentScans the maximum number of scans allowed to run at the same time
+     */
+    public DiscoveryCoordinator(Supplier<? extends Collection<? extends EndpointService<?, ?>>> endpointsSupplier,
+            int periodSecs, int minPeriodSecs, int maxPeriodSecs, int maxConcurrentScans) {
+        if (periodSecs <= 0) {
+            throw new IllegalArgumentException("periodSecs must be greater than 0");
+        }
+        if (minPeriodSecs <= 0) {
+            throw new IllegalArgumentException("minPeriodSecs must be greater than 0");
+        }
+        if (maxConcurrentScans <= 0) {
+            throw new IllegalArgumentException("maxConcurrentScans must be greater than 0");
+        }
+        this.endpointsSupplier = endpointsSupplier;
+        this.periodMillis = TimeUnit.SECONDS.toMillis(periodSecs);
+        this.minPeriodMillis = TimeUnit.SECONDS.toMillis(Math.min(minPeriodSecs, periodSecs));
+        this.maxPeriodMillis = TimeUnit.SECONDS.toMillis(Math.max(maxPeriodSecs, periodSecs));
+        this.maxConcurrentScans = maxConcurrentScans;
+    }
+
+    public void start() {
+        this.roundExecutor = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryGenerator.generateFactory(true, "Hawkular WildFly Agent Auto-Discovery Scan"));
+        this.scanExecutor = Executors.newFixedThreadPool(maxConcurrentScans,
+                ThreadFactoryGenerator.generateBlockingIOFactory("Hawkular WildFly Agent Auto-Discovery Worker"));
+
+        // perform an initial discovery now, and then periodically thereafter
+        this.roundExecutor.scheduleAtFixedRate(this::startRound, 0, minPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (this.roundExecutor != null) {
+            this.roundExecutor.shutdownNow();
+            this.roundExecutor = null;
+        }
+        if (this.scanExecutor != null) {
+            this.scanExecutor.shutdownNow();
+            this.scanExecutor = null;
+        }
+        this.pendingScans.clear();
+        this.nextScanTimes.clear();
+    }
+
+    private void startRound() {
+        // make sure we don't let exceptions bubble out - that would stop all future rounds from executing
+        try {
+            long now = System.currentTimeMillis();
+            long windowEnd = now + minPeriodMillis;
+
+            Set<EndpointService<?, ?>> endpoints = new LinkedHashSet<>(endpointsSupplier.get());
+            nextScanTimes.keySet().retainAll(endpoints); // forget about endpoints that have been removed
+
+            List<EndpointService<?, ?>> neverScanned = new ArrayList<>();
+            List<EndpointService<?, ?>> due = new ArrayList<>();
+            for (EndpointService<?, ?> endpoint : endpoints) {
+                if (endpoint.getAdaptiveDiscoveryPeriod() == null) {
+                    endpoint.setAdaptiveDiscoveryPeriod(
+                            new AdaptiveDiscoveryPeriod(minPeriodMillis, periodMillis, maxPeriodMillis));
+                }
+                Long nextScanTime = nextScanTimes.get(endpoint);
+                if (nextScanTime == null) {
+                    neverScanned.add(endpoint);
+                } else if (nextScanTime < windowEnd) {
+                    due.add(endpoint);
+                }
+            }
+
+            log.debugf("Starting auto-discovery round: [%d] endpoints never scanned, [%d] endpoints due",
+                    neverScanned.size(), due.size());
+
+            schedule(prioritize(neverScanned), new long[neverScanned.size()]);
+            schedule(prioritize(due), computeOffsets(due.size(), minPeriodMillis, ThreadLocalRandom.current()));
+        } catch (Throwable t) {
+            log.errorAutoDiscoveryFailed(t);
+        }
+    }
+
+    private void schedule(List<EndpointService<?, ?>> endpoints, long[] offsets) {
+        final ScheduledExecutorService rounds = this.roundExecutor;
+        final ExecutorService scans = this.scanExecutor;
+        for (int i = 0; i < endpoints.size(); i++) {
+            EndpointService<?, ?> endpoint = endpoints.get(i);
+            if (!pendingScans.add(endpoint)) {
+                log.debugf("Previous auto-discovery scan of [%s] is still pending; skipping it this round", endpoint);
+                continue;
+            }
+            rounds.schedule(() -> scans.execute(() -> scan(endpoint)), offsets[i], TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void scan(EndpointService<?, ?> endpoint) {
+        long start = System.currentTimeMillis();
+        try {
+            // the endpoint may have been removed since the round started
+            if (endpoint.getStatus() == ServiceStatus.RUNNING) {
+                Future<?> scan = endpoint.discoverAll();
+                if (scan != null) {
+                    // hold on to our slot until the scan is done so the concurrency limit is honored, but not
+                    // forever - a scan that takes longer than the longest period is considered hung
+                    try {
+                        scan.get(maxPeriodMillis, TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException te) {
+                        scan.cancel(true);
+                        log.warnf("Auto-discovery scan of [%s] did not finish within [%d] ms; cancelled it",
+                                endpoint, maxPeriodMillis);
+                    }
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            log.errorAutoDiscoveryFailed(t);
+        } finally {
+            // the scan has updated the change rate by now, so this reflects the endpoint's latest period
+            AdaptiveDiscoveryPeriod period = endpoint.getAdaptiveDiscoveryPeriod();
+            long nextScanTime = start + (period != null ? period.getPeriodMillis() : periodMillis);
+            nextScanTimes.put(endpoint, nextScanTime);
+            pendingScans.remove(endpoint);
+            log.tracef("Next auto-discovery scan of [%s] is due in [%d] ms", endpoint, nextScanTime - start);
+        }
+    }
+
+    /**
+     * Orders the endpoints such that those whose last scan failed or detected changes come first.
+     * Otherwise the order of the given endpoints is kept.
+     *
+     * @param endpoints the endpoints to order
+     * @return the new ordered list
+     */
+    static List<EndpointService<?, ?>> prioritize(Collection<? extends EndpointService<?, ?>> endpoints) {
+        List<EndpointService<?, ?>> prioritized = new ArrayList<>(endpoints);
+        prioritized.sort(Comparator.comparing(e -> !(e.isLastDiscoveryFailed() || e.isLastDiscoveryChanged())));
+        return prioritized;
+    }
+
+    /**
+     * Splits the period into one equally sized slot per scan and places each scan at the start of its slot,
+     * delayed by a random jitter of up to {@link #JITTER_FRACTION} of the slot.
+     *
+     * @param count the number of scans
+     * @param periodMillis the period to spread the scans across
+     * @param random used to compute the jitter
+     * @return the start offsets in milliseconds, in ascending order and each less than the period
+     */
+    static long[] computeOffsets(int count, long periodMillis, Random random) {
+        long[] offsets = new long[count];
+        if (count == 0) {
+            return offsets;
+        }
+        double slotMillis = (double) periodMillis / count;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = (long) (i * slotMillis + random.nextDouble() * slotMillis * JITTER_FRACTION);
+        }
+        return offsets;
+    }
+}
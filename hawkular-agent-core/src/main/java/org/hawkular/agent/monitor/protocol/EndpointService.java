@@ -22,16 +22,20 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
 
@@ -105,6 +109,42 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
             }
         }
 
+        public void fireResourcesAddedOrModified(List<Resource<L>> resources) {
+            if (!resources.isEmpty()) {
+                inventoryListenerRWLock.readLock().lock();
+                try {
+                    LOG.debugf("Firing inventory event for [%d] added or modified resources", resources.size());
+                    InventoryEvent<L> event = InventoryEvent.addedOrModified(
+                            EndpointService.this,
+                            getResourceManager(),
+                            resources);
+                    for (InventoryListener inventoryListener : inventoryListeners) {
+                        inventoryListener.receivedEvent(event);
+                    }
+                } finally {
+                    inventoryListenerRWLock.readLock().unlock();
+                }
+            }
+        }
+
+        public void fireResourcesRestored(List<Resource<L>> resources) {
+            if (!resources.isEmpty()) {
+                inventoryListenerRWLock.readLock().lock();
+                try {
+                    LOG.debugf("Firing inventory event for [%d] restored resources", resources.size());
+                    InventoryEvent<L> event = InventoryEvent.restored(
+                            EndpointService.this,
+                            getResourceManager(),
+                            resources);
+                    for (InventoryListener inventoryListener : inventoryListeners) {
+                        inventoryListener.receivedEvent(event);
+                    }
+                } finally {
+                    inventoryListenerRWLock.readLock().unlock();
+                }
+            }
+        }
+
         public void fireDiscoveryComplete(List<Resource<L>> addedOrModified, List<Resource<L>> removed) {
             inventoryListenerRWLock.readLock().lock();
             try {
@@ -194,8 +234,28 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
             // resource manager - we need to remove them internally and fire the removed event.
             List<Resource<L>> removedResources = getResourceManager().getAllResources(discoveredResourceIds);
 
+            // remember how this scan went so the discovery coordinator can prioritize us in the next round
+            lastDiscoveryFailed = !errors.isEmpty();
+            lastDiscoveryChanged = !newOrModifiedResources.isEmpty() || !removedResources.isEmpty();
+
+            // attributes of changed resources get another chance and those of removed resources are not needed
+            // anymore; attributes of unchanged resources that keep failing keep backing off
+            failedMetricAttributes.forget(newOrModifiedResources);
+            failedMetricAttributes.forget(removedResources);
+
+            // a failed scan might have missed resources so it tells us nothing about how often things change
+            AdaptiveDiscoveryPeriod period = adaptiveDiscoveryPeriod;
+            if (period != null && errors.isEmpty()) {
+                period.scanFinished(lastDiscoveryChanged);
+            }
+
             // remove them from the resource manager itself
-            removedResources.forEach(r -> getResourceManager().removeResource(r));
+            getResourceManager().beginBatch();
+            try {
+                removedResources.forEach(r -> getResourceManager().removeResource(r));
+            } finally {
+                getResourceManager().endBatch();
+            }
 
             // do not fire a discovery complete event if errors occurred since we might be missing resources
             // that really do exist - we don't want to permanently delete those during an inventory sync
@@ -207,6 +267,17 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
         }
     }
 
+    /** A resource type along with a parent under which resources of that type may be found. */
+    private static class DiscoveryTarget<L> {
+        private final Resource<L> parent; // null for root resources
+        private final ResourceType<L> type;
+
+        DiscoveryTarget(Resource<L> parent, ResourceType<L> type) {
+            this.parent = parent;
+            this.type = type;
+        }
+    }
+
     private class AvailMeasurementResults {
         private final Map<MeasurementInstance<L, AvailType<L>>, Avail> startingAvails = new HashMap<>();
         private final Map<MeasurementInstance<L, AvailType<L>>, Avail> modifiedAvails = new HashMap<>();
@@ -244,6 +315,15 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
     private final LocationResolver<L> locationResolver;
     private final ProtocolDiagnostics diagnostics;
     private final ExecutorService fullDiscoveryScanThreadPool;
+    // full and incremental discovery must not run at the same time - a full scan would remove resources
+    // that were incrementally added while it was running because it did not discover them itself
+    private final Lock discoveryLock = new ReentrantLock();
+    private final FailedAttributeCache<L> failedMetricAttributes = new FailedAttributeCache<>();
+    private volatile CircuitBreaker circuitBreaker = new CircuitBreaker(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD,
+            CircuitBreaker.DEFAULT_OPEN_MILLIS);
+    private volatile boolean lastDiscoveryFailed = false;
+    private volatile boolean lastDiscoveryChanged = false;
+    private volatile AdaptiveDiscoveryPeriod adaptiveDiscoveryPeriod = null;
 
     protected volatile ServiceStatus status = ServiceStatus.INITIAL;
 
@@ -265,7 +345,7 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
         // At most one full discovery scan is being performed at a single time, with at most one other full
         // discovery request queued up. Any other full discovery scan requests will be rejected because they are
         // not needed - the queued discovery scan will do it. This minimizes redundant scans being performed.
-        ThreadFactory threadFactory = ThreadFactoryGenerator.generateFactory(true,
+        ThreadFactory threadFactory = ThreadFactoryGenerator.generateBlockingIOFactory(
                 "Hawkular WildFly Agent Full Discovery Scan-" + endpoint.getName());
         this.fullDiscoveryScanThreadPool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
                 new LinkedBlockingQueue<Runnable>(1), threadFactory);
@@ -280,6 +360,10 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
         return endpoint;
     }
 
+    public ServiceStatus getStatus() {
+        return status;
+    }
+
     public ResourceManager<L> getResourceManager() {
         return resourceManager;
     }
@@ -300,6 +384,43 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
         return diagnostics;
     }
 
+    /**
+     * @return the attribute locations of metrics that failed recently and are skipped for a while
+     */
+    public FailedAttributeCache<L> getFailedMetricAttributes() {
+        return failedMetricAttributes;
+    }
+
+    /**
+     * @return the breaker that keeps this service from talking to the endpoint while it cannot be reached
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Records the outcome of talking to the endpoint with the {@link #getCircuitBreaker() circuit breaker}.
+     *
+     * @param error the error talking to the endpoint failed with or <code>null</code> if it succeeded
+     * @return <code>true</code> if the error means the endpoint could not be reached
+     */
+    private boolean recordEndpointCall(Throwable error) {
+        if (error == null || !CircuitBreaker.isConnectionFailure(error)) {
+            // the endpoint answered, even if with an error
+            circuitBreaker.recordSuccess();
+            return false;
+        }
+        if (circuitBreaker.recordFailure(System.currentTimeMillis())) {
+            LOG.warnf("Endpoint [%s] cannot be reached, will not contact it for a while: %s", getMonitoredEndpoint(),
+                    error);
+        }
+        return true;
+    }
+
     /**
      * Works only before {@link #start()} or after {@link #stop()}.
      *
@@ -379,43 +500,120 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
      * as defined by {@link ResourceTypeManager#getRootResourceTypes()} and then obtain all their
      * children (recursively down to all descendents). Effectively, this discovers the full
      * resource hierarchy.
+     *
+     * The scan itself is performed asynchronously.
+     *
+     * @return the future that completes when the scan is done, or <code>null</code> if a full discovery scan
+     *         is already pending for this endpoint and so this request was ignored
      */
-    public void discoverAll() {
+    public Future<?> discoverAll() {
         status.assertRunning(getClass(), "discoverAll()");
 
         Runnable runnable = new Runnable() {
             @Override
             public void run() {
-                DiscoveryResults discoveryResults = new DiscoveryResults();
-
-                LOG.infoDiscoveryRequested(getMonitoredEndpoint());
-                long duration = -1;
-                try (S session = openSession()) {
-                    Set<ResourceType<L>> rootTypes = getResourceTypeManager().getRootResourceTypes();
-                    Context timer = getDiagnostics().getFullDiscoveryScanTimer().time();
-                    for (ResourceType<L> rootType : rootTypes) {
-                        discoverChildren(null, rootType, session, discoveryResults);
+                discoveryLock.lock();
+                try {
+                    // keep what we know about the endpoint until it can be reached again
+                    if (!circuitBreaker.allowRequest(System.currentTimeMillis())) {
+                        LOG.debugf("Endpoint [%s] cannot be reached - skipping full discovery scan",
+                                getMonitoredEndpoint());
+                        lastDiscoveryFailed = true;
+                        return;
                     }
-                    long nanos = timer.stop();
-                    duration = TimeUnit.MILLISECONDS.convert(nanos, TimeUnit.NANOSECONDS);
-                } catch (Exception e) {
-                    LOG.errorCouldNotAccess(EndpointService.this, e);
-                    discoveryResults.error(e);
-                }
 
-                getResourceManager().logTreeGraph("Discovered all resources for: " + getMonitoredEndpoint(), duration);
+                    DiscoveryResults discoveryResults = new DiscoveryResults();
+
+                    LOG.infoDiscoveryRequested(getMonitoredEndpoint());
+                    long duration = -1;
+                    // readers keep seeing the inventory as it was before the scan until the scan is done
+                    getResourceManager().beginBatch();
+                    try (S session = openSession()) {
+                        Set<ResourceType<L>> rootTypes = getResourceTypeManager().getRootResourceTypes();
+                        Context timer = getDiagnostics().getFullDiscoveryScanTimer().time();
+                        for (ResourceType<L> rootType : rootTypes) {
+                            discoverChildren(null, rootType, session, discoveryResults);
+                        }
+                        long nanos = timer.stop();
+                        duration = TimeUnit.MILLISECONDS.convert(nanos, TimeUnit.NANOSECONDS);
+                    } catch (Exception e) {
+                        LOG.errorCouldNotAccess(EndpointService.this, e);
+                        discoveryResults.error(e);
+                    } finally {
+                        getResourceManager().endBatch();
+                    }
+
+                    Throwable connectionFailure = discoveryResults.errors.stream()
+                            .filter(CircuitBreaker::isConnectionFailure).findFirst().orElse(null);
+                    recordEndpointCall(connectionFailure);
+
+                    getResourceManager().logTreeGraph("Discovered all resources for: " + getMonitoredEndpoint(),
+                            duration);
 
-                discoveryResults.discoveryFinished();
+                    discoveryResults.discoveryFinished();
+                } finally {
+                    discoveryLock.unlock();
+                }
             }
         };
 
         try {
-            this.fullDiscoveryScanThreadPool.execute(runnable);
+            return this.fullDiscoveryScanThreadPool.submit(runnable);
         } catch (RejectedExecutionException ree) {
             LOG.debugf("Redundant full discovery scan will be ignored for endpoint [%s]", getMonitoredEndpoint());
+            return null;
         }
     }
 
+    /**
+     * @return <code>true</code> if errors occurred during the last full discovery scan
+     */
+    public boolean isLastDiscoveryFailed() {
+        return lastDiscoveryFailed;
+    }
+
+    /**
+     * @return <code>true</code> if the last full discovery scan found added, modified or removed resources
+     */
+    public boolean isLastDiscoveryChanged() {
+        return lastDiscoveryChanged;
+    }
+
+    /**
+     * @return tracks how often full discovery scans of this endpoint detect changes and how often this endpoint
+     *         should therefore be scanned; <code>null</code> if periodic auto-discovery is not enabled
+     */
+    public AdaptiveDiscoveryPeriod getAdaptiveDiscoveryPeriod() {
+        return adaptiveDiscoveryPeriod;
+    }
+
+    public void setAdaptiveDiscoveryPeriod(AdaptiveDiscoveryPeriod adaptiveDiscoveryPeriod) {
+        this.adaptiveDiscoveryPeriod = adaptiveDiscoveryPeriod;
+    }
+
+    /**
+     * Puts resources that were restored from a snapshot of a previous agent run (see {@link InventorySnapshots})
+     * into the resource manager and notifies the listeners so the resources are monitored right away, without
+     * waiting for the first discovery scan to finish. That scan will still verify them.
+     *
+     * @param resources the restored resources, parents before their children
+     */
+    public void restoreResources(List<Resource<L>> resources) {
+        status.assertRunning(getClass(), "restoreResources()");
+
+        List<Resource<L>> restored = new ArrayList<>(resources.size());
+        getResourceManager().beginBatch();
+        try {
+            for (Resource<L> resource : resources) {
+                restored.add(getResourceManager().addResource(resource).getResource());
+            }
+        } finally {
+            getResourceManager().endBatch();
+        }
+
+        inventoryListenerSupport.fireResourcesRestored(restored);
+    }
+
     /**
      * Discovers child resources of the given {@code parentLocation}, puts them to {@link #resourceManager} and triggers
      * {@link InventoryListener#receivedEvent(InventoryEvent)}.
@@ -488,6 +686,110 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
         }
     }
 
+    /**
+     * Discovers the resources that have come into existence at the given locations (along with their descendants)
+     * and removes the resources that used to live at the given removed locations (along with their descendants).
+     * Unlike {@link #discoverAll()} this does not scan the entire endpoint - it is meant for protocols whose
+     * endpoints can tell us when individual resources come and go. Locations that do not match the location of any
+     * known resource type are ignored. Listeners are notified of the added/modified and removed resources.
+     * If a full discovery scan is running, this waits for it to finish.
+     *
+     * @param addedLocations concrete locations of resources that have been created
+     * @param removedLocations concrete locations of resources that have gone away
+     */
+    protected void discoverIncrementally(Collection<L> addedLocations, Collection<L> removedLocations) {
+        status.assertRunning(getClass(), "discoverIncrementally()");
+
+        discoveryLock.lock();
+        try (S session = openSession()) {
+            LocationResolver<L> resolver = session.getLocationResolver();
+
+            // process removals first - if a resource was removed and then added back, we want it to end up added
+            if (!removedLocations.isEmpty()) {
+                List<Resource<L>> removed = new ArrayList<>();
+                getResourceManager().beginBatch();
+                try {
+                    for (L location : removedLocations) {
+                        removed.addAll(getResourceManager().removeResources(location, resolver));
+                    }
+                } finally {
+                    getResourceManager().endBatch();
+                }
+                inventoryListenerSupport.fireResourcesRemoved(removed);
+            }
+
+            if (!addedLocations.isEmpty()) {
+                // group the known resources by type so we can quickly find the possible parents of a new resource
+                Map<ResourceType<L>, List<Resource<L>>> resourcesByType = new HashMap<>();
+                for (Resource<L> resource : getResourceManager().getResourcesBreadthFirst()) {
+                    resourcesByType.computeIfAbsent(resource.getResourceType(), t -> new ArrayList<>()).add(resource);
+                }
+
+                List<Resource<L>> addedOrModified = new ArrayList<>();
+                Consumer<Resource<L>> consumer = new Consumer<Resource<L>>() {
+                    @Override
+                    public void accept(Resource<L> resource) {
+                        AddResult<L> addResult = getResourceManager().addResource(resource);
+                        if (addResult.getEffect() != AddResult.Effect.UNCHANGED) {
+                            addedOrModified.add(addResult.getResource());
+                        }
+                    }
+
+                    @Override
+                    public void report(Throwable t) {
+                        LOG.errorCouldNotAccess(EndpointService.this, t);
+                    }
+                };
+
+                // index the types and their possible parents by the absolute location pattern they can be found at;
+                // the patterns do not depend on the added locations, so each is built only once per batch
+                Map<L, List<DiscoveryTarget<L>>> targetsByQuery = new LinkedHashMap<>();
+                for (ResourceType<L> type : getResourceTypeManager().getResourceTypesBreadthFirst()) {
+                    List<Resource<L>> parents = new ArrayList<>();
+                    Set<ResourceType<L>> parentTypes = getResourceTypeManager().getParents(type);
+                    if (parentTypes.isEmpty()) {
+                        parents.add(null);
+                    } else {
+                        for (ResourceType<L> parentType : parentTypes) {
+                            parents.addAll(resourcesByType.getOrDefault(parentType, Collections.emptyList()));
+                        }
+                    }
+                    for (Resource<L> parent : parents) {
+                        L parentLocation = (parent != null) ? parent.getLocation() : null;
+                        L query = resolver.absolutize(parentLocation, type.getLocation());
+                        if (query != null) {
+                            targetsByQuery.computeIfAbsent(query, q -> new ArrayList<>())
+                                    .add(new DiscoveryTarget<>(parent, type));
+                        }
+                    }
+                }
+
+                Discovery<L> discovery = new Discovery<>();
+                getResourceManager().beginBatch();
+                try {
+                    for (L location : addedLocations) {
+                        for (Map.Entry<L, List<DiscoveryTarget<L>>> entry : targetsByQuery.entrySet()) {
+                            if (resolver.matches(entry.getKey(), location)) {
+                                for (DiscoveryTarget<L> target : entry.getValue()) {
+                                    discovery.discoverResource(target.parent, target.type, location, session, this,
+                                            consumer);
+                                }
+                            }
+                        }
+                    }
+                } finally {
+                    getResourceManager().endBatch();
+                }
+
+                inventoryListenerSupport.fireResourcesAddedOrModified(addedOrModified);
+            }
+        } catch (Exception e) {
+            LOG.errorCouldNotAccess(this, e);
+        } finally {
+            discoveryLock.unlock();
+        }
+    }
+
     @Override
     public void measureAvails(Collection<MeasurementInstance<L, AvailType<L>>> instances,
             Consumer<AvailDataPoint> consumer) {
@@ -499,11 +801,18 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
         S session = null;
         Driver<L> driver = null;
 
-        try {
-            session = openSession();
-            driver = session.getDriver();
-        } catch (Exception e) {
-            LOG.errorCouldNotAccess(this, e);
+        // while the endpoint cannot be reached, all its avails are down - no need to wait for it to tell us so
+        if (circuitBreaker.allowRequest(System.currentTimeMillis())) {
+            try {
+                session = openSession();
+                driver = session.getDriver();
+            } catch (Exception e) {
+                recordEndpointCall(e);
+                LOG.errorCouldNotAccess(this, e);
+            }
+        } else {
+            LOG.debugf("Endpoint [%s] cannot be reached - reporting its [%d] avails as down", getMonitoredEndpoint(),
+                    instances.size());
         }
 
         try {
@@ -529,9 +838,14 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
                         } else {
                             avail = toAvail(instance.getType().getUpPattern(), o);
                         }
+                        recordEndpointCall(null);
                     } catch (Exception e) {
                         LOG.errorAvailCheckFailed(e);
                         avail = Avail.DOWN;
+                        if (recordEndpointCall(e)) {
+                            // do not wait for the unreachable endpoint again for each of the remaining avails
+                            driver = null;
+                        }
                     }
                 } else {
                     avail = Avail.DOWN;
@@ -579,41 +893,67 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
 
         LOG.debugf("Collecting [%d] metrics for endpoint [%s]", instances.size(), getMonitoredEndpoint());
 
+        if (!circuitBreaker.allowRequest(System.currentTimeMillis())) {
+            LOG.debugf("Endpoint [%s] cannot be reached - skipping [%d] metrics", getMonitoredEndpoint(),
+                    instances.size());
+            consumer.dropped(instances.size());
+            return;
+        }
+
         try (S session = openSession()) {
             Driver<L> driver = session.getDriver();
+            long now = System.currentTimeMillis();
+            int skipped = 0;
+            boolean answered = false;
+            int remaining = instances.size();
             for (MeasurementInstance<L, MetricType<L>> instance : instances) {
+                // do not bother fetching what would just be dropped because the storage cannot keep up
+                if (!consumer.hasCapacity()) {
+                    LOG.debugf("Storage buffer is full - not collecting the remaining [%d] metrics of endpoint [%s]",
+                            remaining, getMonitoredEndpoint());
+                    consumer.dropped(remaining);
+                    break;
+                }
+                remaining--;
                 AttributeLocation<L> location = instance.getAttributeLocation();
-                Object o = driver.fetchAttribute(location);
+                if (failedMetricAttributes.isBackingOff(location, now)) {
+                    skipped++;
+                    continue;
+                }
+
+                // a failure of one metric must not keep the other metrics from being collected
                 Object metricValue; // will be either a String or Double
-                if (instance.getType().getMetricType() == org.hawkular.metrics.client.common.MetricType.STRING) {
-                    StringBuilder svalue = new StringBuilder();
-                    if (o instanceof List<?>) {
-                        /* aggregate */
-                        List<?> list = (List<?>) o;
-                        for (Object item : list) {
-                            if (svalue.length() > 0) {
-                                svalue.append(",");
-                            }
-                            svalue.append(String.valueOf(item));
+                try {
+                    Object o = driver.fetchAttribute(location);
+                    metricValue = toMetricValue(instance, o);
+                } catch (Exception e) {
+                    if (CircuitBreaker.isConnectionFailure(e)) {
+                        // the endpoint is at fault, not the attribute - give up on this round altogether
+                        if (answered) {
+                            recordEndpointCall(null); // it did answer before, so this is its first failure
+                            answered = false;
                         }
-                    } else {
-                        svalue.append(String.valueOf(o));
+                        recordEndpointCall(e);
+                        LOG.debugf(e, "Endpoint [%s] cannot be reached - aborting metric collection",
+                                getMonitoredEndpoint());
+                        consumer.dropped(remaining + 1);
+                        break;
                     }
-                    metricValue = svalue.toString();
-                } else {
-                    double dvalue = 0;
-                    if (o instanceof List<?>) {
-                        /* aggregate */
-                        List<?> list = (List<?>) o;
-                        for (Object item : list) {
-                            double num = toDouble(item);
-                            dvalue += num;
-                        }
+                    answered = true;
+                    int failures = failedMetricAttributes.failed(location, instance.getType().getInterval().millis(),
+                            now);
+                    getDiagnostics().getMetricTypeFailures(instance.getType().getID().getIDString()).inc();
+                    if (failures == 1) {
+                        LOG.warnf("Failed to collect metric [%s] of endpoint [%s], will back off: %s",
+                                instance.getID(), getMonitoredEndpoint(), e);
                     } else {
-                        dvalue = toDouble(o);
+                        LOG.debugf(e, "Failed to collect metric [%s] of endpoint [%s] [%d] times in a row",
+                                instance.getID(), getMonitoredEndpoint(), failures);
                     }
-                    metricValue = Double.valueOf(dvalue);
+                    continue;
                 }
+                failedMetricAttributes.succeeded(location);
+                answered = true;
 
                 long ts = System.currentTimeMillis();
                 String key = instance.getAssociatedMetricId();
@@ -628,12 +968,61 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
                 }
                 consumer.accept(dataPoint);
             }
+            if (answered) {
+                // once per round is enough, the breaker does not need to be told (and locked) for every metric
+                recordEndpointCall(null);
+            }
+            if (skipped > 0) {
+                LOG.debugf("Skipped [%d] metrics of endpoint [%s] that failed recently", skipped,
+                        getMonitoredEndpoint());
+            }
         } catch (Exception e) {
+            recordEndpointCall(e);
             LOG.errorCouldNotAccess(this, e);
         }
 
     }
 
+    /**
+     * Converts a fetched attribute value to the value of the given metric. Aggregate values (lists) are summed up
+     * for numeric metrics and joined with commas for string metrics.
+     *
+     * @param instance the metric the value was fetched for
+     * @param o the fetched attribute value
+     * @return either a String or a Double
+     */
+    private Object toMetricValue(MeasurementInstance<L, MetricType<L>> instance, Object o) {
+        if (instance.getType().getMetricType() == org.hawkular.metrics.client.common.MetricType.STRING) {
+            StringBuilder svalue = new StringBuilder();
+            if (o instanceof List<?>) {
+                /* aggregate */
+                List<?> list = (List<?>) o;
+                for (Object item : list) {
+                    if (svalue.length() > 0) {
+                        svalue.append(",");
+                    }
+                    svalue.append(String.valueOf(item));
+                }
+            } else {
+                svalue.append(String.valueOf(o));
+            }
+            return svalue.toString();
+        } else {
+            double dvalue = 0;
+            if (o instanceof List<?>) {
+                /* aggregate */
+                List<?> list = (List<?>) o;
+                for (Object item : list) {
+                    double num = toDouble(item);
+                    dvalue += num;
+                }
+            } else {
+                dvalue = toDouble(o);
+            }
+            return Double.valueOf(dvalue);
+        }
+    }
+
     @Override
     public String generateAssociatedMetricId(MeasurementInstance<L, ? extends MeasurementType<L>> instance) {
         // the user can configure a metric's ID in one of two places - either in the metric definition itself or
@@ -736,9 +1125,18 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
 
         status = ServiceStatus.RUNNING;
 
+        afterStart();
+
         LOG.debugf("Started [%s]", toString());
     }
 
+    /**
+     * Called by {@link #start()} once the endpoint is ready and this service is running. Subclasses can override
+     * this to start protocol specific activities; this implementation does nothing.
+     */
+    protected void afterStart() {
+    }
+
     public void stop() {
         status.assertRunning(getClass(), "stop()");
         status = ServiceStatus.STOPPING;
@@ -754,6 +1152,10 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
         // Even if just one wait-for resource does not exist, we assume the endpoint is NOT ready.
         List<WaitFor> waitForResources = this.getMonitoredEndpoint().getEndpointConfiguration().getWaitForResources();
         if (!waitForResources.isEmpty()) {
+            if (!circuitBreaker.allowRequest(System.currentTimeMillis())) {
+                LOG.debugf("Endpoint [%s] is not yet ready - it cannot be reached", this);
+                return false;
+            }
             try (S s = openSession()) {
                 Driver<L> driver = s.getDriver();
                 Map<L, Object> results;
@@ -763,12 +1165,15 @@ public abstract class EndpointService<L, S extends Session<L>> implements Sampli
                     if (results.isEmpty()) {
                         LOG.debugf("Endpoint [%s] is not yet ready - resource [%s] is missing",
                                 this, waitFor.getResource());
+                        recordEndpointCall(null);
                         return false;
                     } else {
                         LOG.tracef("Endpoint [%s] wait-for resource [%s] is ready", this, waitFor.getResource());
                     }
                 }
+                recordEndpointCall(null);
             } catch (Exception e) {
+                recordEndpointCall(e);
                 LOG.debugf("Endpoint [%s] is not yet ready [%s]", this, e.toString());
                 return false;
             }
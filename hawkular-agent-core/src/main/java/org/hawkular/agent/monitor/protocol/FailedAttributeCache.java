@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.protocol;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.agent.monitor.inventory.AttributeLocation;
+import org.hawkular.agent.monitor.inventory.MeasurementInstance;
+import org.hawkular.agent.monitor.inventory.MetricType;
+import org.hawkular.agent.monitor.inventory.Resource;
+
+/**
+ * A negative cache of attribute locations that could not be fetched, so a broken attribute (such as one of
+ * an MBean or DMR address that no longer exists) is not fetched again at full cost every collection interval.
+ *
+ * After a failure the location is skipped for two collection intervals; every further failure in a row
+ * doubles that time, up to {@link #MAX_BACKOFF_MILLIS}. A location is forgotten as soon as it is fetched
+ * successfully or when discovery finds that its resource changed or is gone.
+ *
+ * @param <L> the type of the protocol specific location
+ */
+public class FailedAttributeCache<L> {
+
+    /**
+     * The longest time a failed location is skipped, unless its collection interval is even longer.
+     */
+    public static final long MAX_BACKOFF_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final class Failure {
+        private final int count;
+        private final long retryTime;
+
+        private Failure(int count, long retryTime) {
+            this.count = count;
+            this.retryTime = retryTime;
+        }
+    }
+
+    private final ConcurrentMap<AttributeLocation<L>, Failure> failures = new ConcurrentHashMap<>();
+
+    /**
+     * @param location the location to be fetched
+     * @param now the current time
+     * @return <code>true</code> if the location failed recently and should not be fetched yet
+     */
+    public boolean isBackingOff(AttributeLocation<L> location, long now) {
+        Failure failure = failures.get(location);
+        return failure != null && failure.retryTime > now;
+    }
+
+    /**
+     * Records that the given location could not be fetched.
+     *
+     * @param location the location that failed
+     * @param intervalMillis the collection interval of the location
+     * @param now the current time
+     * @return the number of times in a row the location failed
+     */
+    public int failed(AttributeLocation<L> location, long intervalMillis, long now) {
+        Failure failure = failures.compute(location, (l, previous) -> {
+            int count = (previous == null) ? 1 : previous.count + 1;
+            long maxBackoff = Math.max(MAX_BACKOFF_MILLIS, intervalMillis);
+            long backoff = Math.min(Math.max(intervalMillis, 1L) << Math.min(count, 20), maxBackoff);
+            return new Failure(count, now + backoff);
+        });
+        return failure.count;
+    }
+
+    /**
+     * Records that the given location was fetched, which forgets any earlier failures of it.
+     *
+     * @param location the location that was fetched
+     */
+    public void succeeded(AttributeLocation<L> location) {
+        failures.remove(location);
+    }
+
+    /**
+     * Forgets the failures of the metric locations of the given resources, for example because discovery found
+     * the resources changed (so the locations might work now) or removed.
+     *
+     * @param resources the resources whose metric locations are to be forgotten
+     */
+    public void forget(Collection<Resource<L>> resources) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        for (Resource<L> resource : resources) {
+            for (MeasurementInstance<L, MetricType<L>> metric : resource.getMetrics()) {
+                failures.remove(metric.getAttributeLocation());
+            }
+        }
+    }
+
+    /**
+     * Forgets all failures, for example because the endpoint was rediscovered and the locations might work now.
+     */
+    public void clear() {
+        failures.clear();
+    }
+
+    /**
+     * @return the number of locations that failed the last time they were fetched
+     */
+    public int size() {
+        return failures.size();
+    }
+}
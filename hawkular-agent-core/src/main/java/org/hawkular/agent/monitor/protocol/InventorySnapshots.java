@@ -0,0 +1,615 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.protocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.hawkular.agent.monitor.api.InventoryEvent;
+import org.hawkular.agent.monitor.api.InventoryListener;
+import org.hawkular.agent.monitor.inventory.AvailType;
+import org.hawkular.agent.monitor.inventory.ID;
+import org.hawkular.agent.monitor.inventory.InventoryIdUtil;
+import org.hawkular.agent.monitor.inventory.MeasurementInstance;
+import org.hawkular.agent.monitor.inventory.MetricType;
+import org.hawkular.agent.monitor.inventory.Name;
+import org.hawkular.agent.monitor.inventory.Operation;
+import org.hawkular.agent.monitor.inventory.OperationParam;
+import org.hawkular.agent.monitor.inventory.Resource;
+import org.hawkular.agent.monitor.inventory.ResourceConfigurationPropertyInstance;
+import org.hawkular.agent.monitor.inventory.ResourceConfigurationPropertyType;
+import org.hawkular.agent.monitor.inventory.ResourceType;
+import org.hawkular.agent.monitor.log.AgentLoggers;
+import org.hawkular.agent.monitor.log.MsgLogger;
+import org.hawkular.agent.monitor.service.ServiceStatus;
+import org.hawkular.agent.monitor.util.ThreadFactoryGenerator;
+
+/**
+ * Keeps a compact binary snapshot of the inventory of each endpoint on disk so a restarted agent does not have to
+ * start from nothing. A snapshot is written in the background once the inventory storage has stored what a complete
+ * discovery scan found, and when the agent stops - but only if the inventory changed since the last snapshot.
+ * <p>
+ * On startup the snapshot is used to rebuild the resources of the endpoint without talking to it, so their
+ * measurements can be scheduled right away. The resources are marked as already stored so they are neither
+ * imported into inventory again nor have their metric tags sent again. The first discovery scan then verifies the
+ * restored inventory in the background and, like any other scan, only reports the resources that differ.
+ * <p>
+ * Anything that no longer matches the current configuration (unknown types, changed resource fingerprints,
+ * metric IDs or metric tags) is not restored at all; such resources are simply found again by that discovery scan.
+ */
+public class InventorySnapshots implements InventoryListener {
+    private static final MsgLogger log = AgentLoggers.getLogger(InventorySnapshots.class);
+
+    private static final int MAGIC = 0x48414953;
+    private static final int VERSION = 1;
+    private static final String FILE_SUFFIX = ".inventory";
+
+    static final class TypeRecord {
+        final long fingerprint;
+        final long persistedTime;
+
+        TypeRecord(long fingerprint, long persistedTime) {
+            this.fingerprint = fingerprint;
+            this.persistedTime = persistedTime;
+        }
+    }
+
+    static final class ResourceRecord {
+        String id;
+        String name;
+        String location;
+        String typeId;
+        String parentId; // null for root resources
+        long fingerprint;
+        long persistedTime;
+        long metricHash;
+        Map<String, String> properties = new HashMap<>();
+        Map<String, String> config = new HashMap<>(); // values may be null
+        Map<String, Map<String, String>> metrics = new HashMap<>(); // keyed by metric type ID
+        Map<String, Map<String, String>> avails = new HashMap<>(); // keyed by avail type ID
+    }
+
+    static final class Snapshot {
+        final String feedId;
+        final String endpointName;
+        final Map<String, TypeRecord> types = new HashMap<>();
+        final List<ResourceRecord> resources = new ArrayList<>(); // parents always come before their children
+
+        Snapshot(String feedId, String endpointName) {
+            this.feedId = feedId;
+            this.endpointName = endpointName;
+        }
+    }
+
+    /**
+     * How long to wait after a discovery scan before saving, and then again each time while the inventory storage
+     * is still importing what the scan found.
+     */
+    static final long SAVE_DELAY_MILLIS = 10_000L;
+
+    /**
+     * The longest to wait for the inventory storage after a discovery scan; resources that are not stored by then
+     * are left out of the snapshot.
+     */
+    static final long MAX_SAVE_DELAY_MILLIS = 300_000L;
+
+    private final String feedId;
+    private final File directory;
+    private final ScheduledExecutorService saver;
+    private final Map<String, ScheduledFuture<?>> pendingSaves = new HashMap<>(); // keyed by endpoint name
+    private final Map<String, Long> savedContentHashes = new HashMap<>(); // keyed by endpoint name
+
+    public InventorySnapshots(String feedId, File directory) {
+        this.feedId = feedId;
+        this.directory = directory;
+        this.saver = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryGenerator.generateFactory(true, "Hawkular-WildFly-Agent-Inventory-Snapshots"));
+    }
+
+    /**
+     * Cancels saves that are still pending. Snapshots can still be {@link #save(EndpointService) saved} directly.
+     */
+    public void shutdown() {
+        synchronized (pendingSaves) {
+            pendingSaves.values().forEach(f -> f.cancel(false));
+            pendingSaves.clear();
+        }
+        saver.shutdownNow();
+    }
+
+    @Override
+    public <L> void receivedEvent(InventoryEvent<L> event) {
+        // only events of complete discovery scans carry the resource types
+        if (event.getResourceTypeManager().isPresent() && event.getSamplingService() instanceof EndpointService) {
+            scheduleSave((EndpointService<L, ?>) event.getSamplingService());
+        }
+    }
+
+    /**
+     * Saves the inventory of the given endpoint in the background once the inventory storage has stored what the
+     * last discovery scan found - only stored resources make it into the snapshot. Several scans in a row result
+     * in one save.
+     */
+    private <L> void scheduleSave(EndpointService<L, ?> service) {
+        String endpointName = service.getMonitoredEndpoint().getName();
+        long deadline = System.currentTimeMillis() + MAX_SAVE_DELAY_MILLIS;
+        synchronized (pendingSaves) {
+            if (!pendingSaves.containsKey(endpointName)) {
+                schedulePendingSave(service, endpointName, deadline);
+            }
+        }
+    }
+
+    // must be called while synchronized on pendingSaves
+    private <L> void schedulePendingSave(EndpointService<L, ?> service, String endpointName, long deadline) {
+        try {
+            pendingSaves.put(endpointName, saver.schedule(() -> {
+                synchronized (pendingSaves) {
+                    pendingSaves.remove(endpointName);
+                    if (service.getStatus() != ServiceStatus.RUNNING) {
+                        return;
+                    }
+                    if (System.currentTimeMillis() < deadline && hasUnstoredResources(service)) {
+                        schedulePendingSave(service, endpointName, deadline);
+                        return;
+                    }
+                }
+                save(service);
+            }, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS));
+        } catch (RejectedExecutionException e) {
+            log.debugf("Not saving inventory snapshot of endpoint [%s] - shutting down", endpointName);
+        }
+    }
+
+    private static <L> boolean hasUnstoredResources(EndpointService<L, ?> service) {
+        for (Resource<L> resource : service.getResourceManager().getResourcesBreadthFirst()) {
+            if (!resource.isPersisted()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the current inventory of the given endpoint to its snapshot file unless it is the same as the one
+     * saved last. Resources that the server has not confirmed storing (yet) are left out so they will be found and
+     * stored after a restart.
+     *
+     * @param service the endpoint whose inventory is to be saved
+     */
+    public synchronized <L> void save(EndpointService<L, ?> service) {
+        String endpointName = service.getMonitoredEndpoint().getName();
+        Snapshot snapshot = new Snapshot(feedId, endpointName);
+
+        for (ResourceType<L> type : service.getResourceTypeManager().getResourceTypesBreadthFirst()) {
+            if (type.isPersisted()) {
+                snapshot.types.put(type.getID().getIDString(),
+                        new TypeRecord(getFingerprint(type), type.getPersistedTime()));
+            }
+        }
+
+        Set<String> savedIds = new HashSet<>();
+        for (Resource<L> resource : service.getResourceManager().getResourcesBreadthFirst()) {
+            String parentId = (resource.getParent() != null) ? resource.getParent().getID().getIDString() : null;
+            if (!resource.isPersisted() || (parentId != null && !savedIds.contains(parentId))) {
+                continue;
+            }
+            snapshot.resources.add(toRecord(resource, service));
+            savedIds.add(resource.getID().getIDString());
+        }
+
+        File file = getFile(endpointName);
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(content)) {
+                write(snapshot, out);
+            }
+            long contentHash = hash(content.toByteArray());
+            Long savedContentHash = savedContentHashes.get(endpointName);
+            if (savedContentHash != null && savedContentHash == contentHash && file.isFile()) {
+                log.debugf("Inventory snapshot of endpoint [%s] is unchanged - not saving it", endpointName);
+                return;
+            }
+
+            Files.createDirectories(directory.toPath());
+            try (OutputStream out = new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmpFile)))) {
+                content.writeTo(out);
+            }
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            savedContentHashes.put(endpointName, contentHash);
+            log.debugf("Saved inventory snapshot of [%d] resources for endpoint [%s] to [%s]",
+                    snapshot.resources.size(), endpointName, file);
+        } catch (Exception e) {
+            log.warnf(e, "Failed to save inventory snapshot for endpoint [%s] to [%s]", endpointName, file);
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Restores the inventory of the given endpoint from its snapshot file, if there is one. The restored resources
+     * are {@link EndpointService#restoreResources(List) handed to the endpoint service}.
+     *
+     * @param service the endpoint whose inventory is to be restored; it must be running
+     * @return the number of restored resources
+     */
+    public <L> int restore(EndpointService<L, ?> service) {
+        String endpointName = service.getMonitoredEndpoint().getName();
+        File file = getFile(endpointName);
+        if (!file.isFile()) {
+            return 0;
+        }
+
+        Snapshot snapshot;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+            snapshot = read(in);
+        } catch (Exception e) {
+            log.warnf(e, "Ignoring unreadable inventory snapshot [%s]", file);
+            return 0;
+        }
+
+        if (!feedId.equals(snapshot.feedId) || !endpointName.equals(snapshot.endpointName)) {
+            log.debugf("Ignoring inventory snapshot [%s] of feed [%s] endpoint [%s]", file, snapshot.feedId,
+                    snapshot.endpointName);
+            return 0;
+        }
+
+        // types are not restored - they come from the configuration - but we need not store them again if unchanged
+        Map<String, ResourceType<L>> types = new HashMap<>();
+        for (ResourceType<L> type : service.getResourceTypeManager().getResourceTypesBreadthFirst()) {
+            types.put(type.getID().getIDString(), type);
+            TypeRecord typeRecord = snapshot.types.get(type.getID().getIDString());
+            if (typeRecord != null && !type.isPersisted() && typeRecord.fingerprint == getFingerprint(type)) {
+                type.setPersistedTime(typeRecord.persistedTime);
+            }
+        }
+
+        Map<String, Resource<L>> restored = new LinkedHashMap<>();
+        for (ResourceRecord record : snapshot.resources) {
+            try {
+                Resource<L> resource = toResource(record, types, restored, service);
+                if (resource != null) {
+                    restored.put(record.id, resource);
+                } else {
+                    log.debugf("Resource [%s] no longer matches the configuration - not restoring it", record.id);
+                }
+            } catch (UnsupportedOperationException e) {
+                log.debugf("Endpoint [%s] does not support restoring its inventory: %s", endpointName, e);
+                return 0;
+            } catch (Exception e) {
+                log.debugf("Cannot restore resource [%s]: %s", record.id, e);
+            }
+        }
+
+        service.restoreResources(new ArrayList<>(restored.values()));
+        log.infof("Restored [%d] of [%d] resources of endpoint [%s] from inventory snapshot", restored.size(),
+                snapshot.resources.size(), endpointName);
+        return restored.size();
+    }
+
+    private File getFile(String endpointName) {
+        return new File(directory, endpointName.replaceAll("[^A-Za-z0-9._-]", "_") + FILE_SUFFIX);
+    }
+
+    private <L> ResourceRecord toRecord(Resource<L> resource, EndpointService<L, ?> service) {
+        ResourceRecord record = new ResourceRecord();
+        record.id = resource.getID().getIDString();
+        record.name = resource.getName().getNameString();
+        record.location = resource.getLocation().toString();
+        record.typeId = resource.getResourceType().getID().getIDString();
+        record.parentId = (resource.getParent() != null) ? resource.getParent().getID().getIDString() : null;
+        record.fingerprint = resource.getFingerprint();
+        record.persistedTime = resource.getPersistedTime();
+        record.metricHash = getMetricHash(resource, service);
+        resource.getProperties().forEach((k, v) -> record.properties.put(k, v.toString()));
+        for (ResourceConfigurationPropertyInstance<L> conf : resource.getResourceConfigurationProperties()) {
+            record.config.put(conf.getName().getNameString(), conf.getValue());
+        }
+        for (MeasurementInstance<L, MetricType<L>> metric : resource.getMetrics()) {
+            record.metrics.put(metric.getType().getID().getIDString(), toStrings(metric.getProperties()));
+        }
+        for (MeasurementInstance<L, AvailType<L>> avail : resource.getAvails()) {
+            record.avails.put(avail.getType().getID().getIDString(), toStrings(avail.getProperties()));
+        }
+        return record;
+    }
+
+    private <L> Resource<L> toResource(ResourceRecord record, Map<String, ResourceType<L>> types,
+            Map<String, Resource<L>> restored, EndpointService<L, ?> service) throws Exception {
+
+        ResourceType<L> type = types.get(record.typeId);
+        Resource<L> parent = (record.parentId != null) ? restored.get(record.parentId) : null;
+        if (type == null || (record.parentId != null && parent == null)) {
+            return null;
+        }
+
+        LocationResolver<L> locationResolver = service.getLocationResolver();
+        L location = locationResolver.buildLocation(record.location);
+        ID id = new ID(record.id);
+        Resource.Builder<L> builder = Resource.<L> builder()
+                .id(id)
+                .name(new Name(record.name))
+                .location(location)
+                .type(type)
+                .parent(parent);
+
+        for (ResourceConfigurationPropertyType<L> confType : type.getResourceConfigurationPropertyTypes()) {
+            String confName = confType.getName().getNameString();
+            if (record.config.containsKey(confName)) {
+                builder.resourceConfigurationProperty(new ResourceConfigurationPropertyInstance<>(ID.NULL_ID,
+                        confType.getName(), locationResolver.absolutize(location, confType.getAttributeLocation()),
+                        confType, record.config.get(confName)));
+            }
+        }
+
+        for (MetricType<L> metricType : type.getMetricTypes()) {
+            Map<String, String> properties = record.metrics.get(metricType.getID().getIDString());
+            if (properties != null) {
+                MeasurementInstance<L, MetricType<L>> metric = new MeasurementInstance<>(
+                        InventoryIdUtil.generateMetricInstanceId(feedId, id, metricType), metricType.getName(),
+                        locationResolver.absolutize(location, metricType.getAttributeLocation()), metricType);
+                properties.forEach(metric::addProperty);
+                builder.metric(metric);
+            }
+        }
+
+        for (AvailType<L> availType : type.getAvailTypes()) {
+            Map<String, String> properties = record.avails.get(availType.getID().getIDString());
+            if (properties != null) {
+                MeasurementInstance<L, AvailType<L>> avail = new MeasurementInstance<>(
+                        InventoryIdUtil.generateAvailInstanceId(feedId, id, availType), availType.getName(),
+                        locationResolver.absolutize(location, availType.getAttributeLocation()), availType);
+                properties.forEach(avail::addProperty);
+                builder.avail(avail);
+            }
+        }
+
+        Resource<L> resource = builder.build();
+        if (resource.getFingerprint() != record.fingerprint) {
+            return null;
+        }
+
+        // just like discovery does, the metric IDs are generated once the measurements are assigned to the resource
+        for (MeasurementInstance<L, MetricType<L>> metric : resource.getMetrics()) {
+            metric.setAssociatedMetricId(service.generateAssociatedMetricId(metric));
+        }
+        for (MeasurementInstance<L, AvailType<L>> avail : resource.getAvails()) {
+            avail.setAssociatedMetricId(service.generateAssociatedMetricId(avail));
+        }
+        if (getMetricHash(resource, service) != record.metricHash) {
+            return null;
+        }
+
+        record.properties.forEach(resource::addProperty);
+        resource.setPersistedTime(record.persistedTime);
+        return resource;
+    }
+
+    /**
+     * @return a hash over the metric IDs and metric tags of all measurements of the resource - if this changes
+     *         the metric tags must be sent again
+     */
+    private static <L> long getMetricHash(Resource<L> resource, EndpointService<L, ?> service) {
+        List<String> measurements = new ArrayList<>();
+        for (MeasurementInstance<L, MetricType<L>> metric : resource.getMetrics()) {
+            measurements.add(metric.getAssociatedMetricId() + new TreeMap<>(
+                    service.generateAssociatedMetricTags(metric)));
+        }
+        for (MeasurementInstance<L, AvailType<L>> avail : resource.getAvails()) {
+            measurements.add(avail.getAssociatedMetricId() + new TreeMap<>(
+                    service.generateAssociatedMetricTags(avail)));
+        }
+        Collections.sort(measurements);
+        return hash(measurements);
+    }
+
+    /**
+     * @return a hash over what the inventory stores of a resource type - if this changes the type must be stored
+     *         again
+     */
+    private static <L> long getFingerprint(ResourceType<L> type) {
+        List<String> parts = new ArrayList<>();
+        parts.add(type.getID().getIDString());
+        parts.add(new TreeMap<>(toStrings(type.getProperties())).toString());
+        for (Operation<L> op : type.getOperations()) {
+            StringBuilder str = new StringBuilder(op.getName().getNameString());
+            for (OperationParam param : op.getParameters()) {
+                str.append('|').append(param.getName()).append(',').append(param.getType()).append(',')
+                        .append(param.getDescription()).append(',').append(param.getDefaultValue());
+            }
+            parts.add(str.toString());
+        }
+        Collections.sort(parts.subList(2, parts.size()));
+        return hash(parts);
+    }
+
+    // 64-bit FNV-1a over all the strings
+    private static long hash(List<String> strings) {
+        long hash = 0xcbf29ce484222325L;
+        for (String s : strings) {
+            for (int i = 0; i < s.length(); i++) {
+                hash ^= s.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= s.length(); // so that ["ab","c"] and ["a","bc"] hash differently
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // 64-bit FNV-1a over the bytes
+    private static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static Map<String, String> toStrings(Map<String, Object> map) {
+        Map<String, String> strings = new HashMap<>(map.size());
+        map.forEach((k, v) -> strings.put(k, String.valueOf(v)));
+        return strings;
+    }
+
+    static void write(Snapshot snapshot, DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, snapshot.feedId);
+        writeString(out, snapshot.endpointName);
+
+        out.writeInt(snapshot.types.size());
+        for (Map.Entry<String, TypeRecord> type : snapshot.types.entrySet()) {
+            writeString(out, type.getKey());
+            out.writeLong(type.getValue().fingerprint);
+            out.writeLong(type.getValue().persistedTime);
+        }
+
+        out.writeInt(snapshot.resources.size());
+        for (ResourceRecord record : snapshot.resources) {
+            writeString(out, record.id);
+            writeString(out, record.name);
+            writeString(out, record.location);
+            writeString(out, record.typeId);
+            writeString(out, record.parentId);
+            out.writeLong(record.fingerprint);
+            out.writeLong(record.persistedTime);
+            out.writeLong(record.metricHash);
+            writeMap(out, record.properties);
+            writeMap(out, record.config);
+            out.writeInt(record.metrics.size());
+            for (Map.Entry<String, Map<String, String>> metric : record.metrics.entrySet()) {
+                writeString(out, metric.getKey());
+                writeMap(out, metric.getValue());
+            }
+            out.writeInt(record.avails.size());
+            for (Map.Entry<String, Map<String, String>> avail : record.avails.entrySet()) {
+                writeString(out, avail.getKey());
+                writeMap(out, avail.getValue());
+            }
+        }
+    }
+
+    static Snapshot read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an inventory snapshot");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported inventory snapshot version [" + version + "]");
+        }
+        Snapshot snapshot = new Snapshot(readString(in), readString(in));
+
+        int typeCount = in.readInt();
+        for (int i = 0; i < typeCount; i++) {
+            snapshot.types.put(readString(in), new TypeRecord(in.readLong(), in.readLong()));
+        }
+
+        int resourceCount = in.readInt();
+        for (int i = 0; i < resourceCount; i++) {
+            ResourceRecord record = new ResourceRecord();
+            record.id = readString(in);
+            record.name = readString(in);
+            record.location = readString(in);
+            record.typeId = readString(in);
+            record.parentId = readString(in);
+            record.fingerprint = in.readLong();
+            record.persistedTime = in.readLong();
+            record.metricHash = in.readLong();
+            record.properties = readMap(in);
+            record.config = readMap(in);
+            int metricCount = in.readInt();
+            for (int j = 0; j < metricCount; j++) {
+                record.metrics.put(readString(in), readMap(in));
+            }
+            int availCount = in.readInt();
+            for (int j = 0; j < availCount; j++) {
+                record.avails.put(readString(in), readMap(in));
+            }
+            snapshot.resources.add(record);
+        }
+        return snapshot;
+    }
+
+    private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static Map<String, String> readMap(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, String> map = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readString(in));
+        }
+        return map;
+    }
+
+    // unlike writeUTF() this has no 64K limit, which resource configuration values could exceed
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
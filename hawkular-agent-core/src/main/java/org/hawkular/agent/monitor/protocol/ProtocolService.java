@@ -25,7 +25,6 @@ import java.util.Map;
 import org.hawkular.agent.monitor.api.AvailListener;
 import org.hawkular.agent.monitor.api.InventoryListener;
 import org.hawkular.agent.monitor.inventory.NodeLocation;
-import org.hawkular.agent.monitor.inventory.Resource;
 import org.hawkular.agent.monitor.log.AgentLoggers;
 import org.hawkular.agent.monitor.log.MsgLogger;
 import org.hawkular.agent.monitor.scheduler.SchedulerService;
@@ -184,8 +183,7 @@ public class ProtocolService<L, S extends Session<L>> {
         if (service != null) {
             service.stop();
 
-            List<Resource<L>> allResources = service.getResourceManager().getResourcesBreadthFirst();
-            scheduler.unschedule(service, allResources);
+            scheduler.removeEndpoint(service);
 
             log.infoRemovedEndpointService(service.toString());
         }
@@ -16,13 +16,13 @@
  */
 package org.hawkular.agent.monitor.protocol;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
@@ -46,20 +46,25 @@ import org.hawkular.agent.monitor.protocol.jmx.JMXSession;
 import org.hawkular.agent.monitor.protocol.platform.PlatformEndpointService;
 import org.hawkular.agent.monitor.protocol.platform.PlatformNodeLocation;
 import org.hawkular.agent.monitor.protocol.platform.PlatformSession;
-import org.hawkular.agent.monitor.util.ThreadFactoryGenerator;
+import org.hawkular.agent.monitor.service.ServiceStatus;
+import org.hawkular.agent.monitor.service.StartupPhases;
 
 /**
  * This object contains all the {@link ProtocolService}s and their inventories (that is, all the managed
  * DMR endpoints, platform endpoint, etc).
  *
  * This object will also periodically trigger auto-discovery scans on all managed endpoints to help
- * keep the inventory up-to-date.
+ * keep the inventory up-to-date. See {@link DiscoveryCoordinator} for how those scans are spread out.
  *
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  * @author John Mazzitelli
  */
 public class ProtocolServices {
     public static final int DEFAULT_AUTO_DISCOVERY_SCAN_PERIOD_SECS = 600;
+    public static final int DEFAULT_AUTO_DISCOVERY_SCAN_PERIOD_MIN_SECS = 60;
+    public static final int DEFAULT_AUTO_DISCOVERY_SCAN_PERIOD_MAX_SECS = 3600;
+    public static final int DEFAULT_MAX_CONCURRENT_DISCOVERY_SCANS = 4;
+    public static final int DEFAULT_REQUEST_TIMEOUT_SECS = 30;
 
     public static class Builder {
         private final String feedId;
@@ -69,17 +74,31 @@ public class ProtocolServices {
         private final Map<String, SSLContext> sslContexts;
         private final Diagnostics diagnostics;
         private int autoDiscoveryScanPeriodSecs;
+        private int autoDiscoveryScanPeriodMinSecs;
+        private int autoDiscoveryScanPeriodMaxSecs;
+        private int maxConcurrentDiscoveryScans;
+        private InventorySnapshots inventorySnapshots;
+        private int requestTimeoutSecs;
+        private int circuitBreakerFailures;
+        private int circuitBreakerOpenSecs;
 
         public Builder(String feedId, Map<String, SSLContext> sslContexts, Diagnostics diagnostics) {
             this.feedId = feedId;
             this.sslContexts = sslContexts;
             this.diagnostics = diagnostics;
             this.autoDiscoveryScanPeriodSecs = DEFAULT_AUTO_DISCOVERY_SCAN_PERIOD_SECS;
+            this.autoDiscoveryScanPeriodMinSecs = DEFAULT_AUTO_DISCOVERY_SCAN_PERIOD_MIN_SECS;
+            this.autoDiscoveryScanPeriodMaxSecs = DEFAULT_AUTO_DISCOVERY_SCAN_PERIOD_MAX_SECS;
+            this.maxConcurrentDiscoveryScans = DEFAULT_MAX_CONCURRENT_DISCOVERY_SCANS;
+            this.requestTimeoutSecs = DEFAULT_REQUEST_TIMEOUT_SECS;
+            this.circuitBreakerFailures = CircuitBreaker.DEFAULT_FAILURE_THRESHOLD;
+            this.circuitBreakerOpenSecs = (int) TimeUnit.MILLISECONDS.toSeconds(CircuitBreaker.DEFAULT_OPEN_MILLIS);
         }
 
         public ProtocolServices build() {
             return new ProtocolServices(dmrProtocolService, jmxProtocolService, platformProtocolService,
-                    autoDiscoveryScanPeriodSecs);
+                    autoDiscoveryScanPeriodSecs, autoDiscoveryScanPeriodMinSecs, autoDiscoveryScanPeriodMaxSecs,
+                    maxConcurrentDiscoveryScans, inventorySnapshots);
         }
 
         public Builder autoDiscoveryScanPeriodSecs(int periodSecs) {
@@ -87,6 +106,53 @@ public class ProtocolServices {
             return this;
         }
 
+        public Builder autoDiscoveryScanPeriodBoundsSecs(int minPeriodSecs, int maxPeriodSecs) {
+            this.autoDiscoveryScanPeriodMinSecs = minPeriodSecs;
+            this.autoDiscoveryScanPeriodMaxSecs = maxPeriodSecs;
+            return this;
+        }
+
+        public Builder maxConcurrentDiscoveryScans(int maxConcurrentScans) {
+            this.maxConcurrentDiscoveryScans = maxConcurrentScans;
+            return this;
+        }
+
+        /**
+         * Must be called before the protocol services are added to take effect.
+         *
+         * @param timeoutSecs how long a single request to a remote endpoint may take before it is given up
+         */
+        public Builder requestTimeoutSecs(int timeoutSecs) {
+            this.requestTimeoutSecs = timeoutSecs;
+            return this;
+        }
+
+        /**
+         * Must be called before the protocol services are added to take effect.
+         *
+         * @param failures the number of connection failures in a row after which a remote endpoint is no longer
+         *        contacted for a while; if not positive, endpoints are always contacted
+         * @param openSecs how long an endpoint is not contacted before it is tried again
+         */
+        public Builder circuitBreaker(int failures, int openSecs) {
+            this.circuitBreakerFailures = failures;
+            this.circuitBreakerOpenSecs = openSecs;
+            return this;
+        }
+
+        private CircuitBreaker createCircuitBreaker() {
+            return new CircuitBreaker(circuitBreakerFailures, TimeUnit.SECONDS.toMillis(circuitBreakerOpenSecs));
+        }
+
+        /**
+         * @param inventorySnapshots if not null, the endpoints' inventories are restored from these snapshots
+         *        when starting and saved to them when stopping
+         */
+        public Builder inventorySnapshots(InventorySnapshots inventorySnapshots) {
+            this.inventorySnapshots = inventorySnapshots;
+            return this;
+        }
+
         public Builder dmrProtocolService(
                 ModelControllerClientFactory localModelControllerClientFactory, // may be null; only needed for local
                 ProtocolConfiguration<DMRNodeLocation> protocolConfig) {
@@ -113,12 +179,15 @@ public class ProtocolServices {
                         clientFactory = localModelControllerClientFactory;
                     } else {
                         /* remote */
-                        clientFactory = ModelControllerClientFactory.createRemote(endpoint);
+                        clientFactory = ModelControllerClientFactory.createRemote(endpoint,
+                                (int) TimeUnit.SECONDS.toMillis(requestTimeoutSecs));
                     }
                     ResourceTypeManager<DMRNodeLocation> resourceTypeManager = new ResourceTypeManager<>(
                             protocolConfig.getTypeSets().getResourceTypeSets(), server.getResourceTypeSets());
                     DMREndpointService endpointService = new DMREndpointService(feedId, endpoint, resourceTypeManager,
-                            clientFactory, diagnostics.getDMRDiagnostics());
+                            clientFactory, diagnostics.getDMRDiagnostics(),
+                            TimeUnit.SECONDS.toMillis(requestTimeoutSecs));
+                    endpointService.setCircuitBreaker(createCircuitBreaker());
                     builder.endpointService(endpointService);
 
                     log.debugf("[%s] created with resource type sets [%s]", endpointService,
@@ -149,7 +218,8 @@ public class ProtocolServices {
                     ResourceTypeManager<JMXNodeLocation> resourceTypeManager = new ResourceTypeManager<>(
                             protocolConfig.getTypeSets().getResourceTypeSets(), server.getResourceTypeSets());
                     JMXEndpointService endpointService = new JMXEndpointService(feedId, endpoint, resourceTypeManager,
-                            diagnostics.getJMXDiagnostics());
+                            diagnostics.getJMXDiagnostics(), (int) TimeUnit.SECONDS.toMillis(requestTimeoutSecs));
+                    endpointService.setCircuitBreaker(createCircuitBreaker());
                     builder.endpointService(endpointService);
 
                     log.debugf("[%s] created with resource type sets [%s]", endpointService,
@@ -207,27 +277,69 @@ public class ProtocolServices {
 
     // used to execute auto-discovery scans periodically
     private final int autoDiscoveryScanPeriodSecs;
-    private ScheduledExecutorService autoDiscoveryExecutor = null;
+    private final int autoDiscoveryScanPeriodMinSecs;
+    private final int autoDiscoveryScanPeriodMaxSecs;
+    private final int maxConcurrentDiscoveryScans;
+    private DiscoveryCoordinator discoveryCoordinator = null;
+
+    // may be null, in which case every start begins with an empty inventory
+    private final InventorySnapshots inventorySnapshots;
 
     public ProtocolServices(
             ProtocolService<DMRNodeLocation, DMRSession> dmrProtocolService,
             ProtocolService<JMXNodeLocation, JMXSession> jmxProtocolService,
             ProtocolService<PlatformNodeLocation, PlatformSession> platformProtocolService,
-            int autoDiscoveryScanPeriodSecs) {
+            int autoDiscoveryScanPeriodSecs,
+            int autoDiscoveryScanPeriodMinSecs,
+            int autoDiscoveryScanPeriodMaxSecs,
+            int maxConcurrentDiscoveryScans,
+            InventorySnapshots inventorySnapshots) {
         this.dmrProtocolService = dmrProtocolService;
         this.jmxProtocolService = jmxProtocolService;
         this.platformProtocolService = platformProtocolService;
         this.services = Collections.unmodifiableList(Arrays.asList(dmrProtocolService, jmxProtocolService,
                 platformProtocolService));
         this.autoDiscoveryScanPeriodSecs = autoDiscoveryScanPeriodSecs;
+        this.autoDiscoveryScanPeriodMinSecs = autoDiscoveryScanPeriodMinSecs;
+        this.autoDiscoveryScanPeriodMaxSecs = autoDiscoveryScanPeriodMaxSecs;
+        this.maxConcurrentDiscoveryScans = maxConcurrentDiscoveryScans;
+        this.inventorySnapshots = inventorySnapshots;
     }
 
     public void start() {
+        start(new StartupPhases());
+    }
+
+    /**
+     * Starts all protocol services and then auto-discovery.
+     *
+     * The protocol services do not depend on each other so they are started in parallel, each recorded as
+     * its own phase in the given startup phases. Protocols without any enabled endpoints are skipped.
+     *
+     * @param phases where to record how long it took to start each protocol service
+     */
+    public void start(StartupPhases phases) {
         // Note that any protocol service start method may block!
         // It may wait for resources to come up first before returning.
+        Map<String, Callable<?>> starts = new LinkedHashMap<>();
         for (ProtocolService<?, ?> service : services) {
-            service.start();
+            if (!service.getEndpointServices().isEmpty()) {
+                starts.put("protocol " + service.getName(), () -> {
+                    service.start();
+                    return null;
+                });
+            }
         }
+        try {
+            phases.timeInParallel(starts);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Cannot start protocol services", e);
+        }
+
+        // monitor what we knew before the restart right away; discovery verifies it in the background
+        restoreInventory();
 
         // only start auto discovery after all services have started
         startAutoDiscovery();
@@ -241,6 +353,7 @@ public class ProtocolServices {
 
     public void stop() {
         stopAutoDiscovery();
+        saveInventory();
 
         for (ProtocolService<?, ?> service : services) {
             service.stop();
@@ -291,27 +404,14 @@ public class ProtocolServices {
         if (this.autoDiscoveryScanPeriodSecs > 0) {
             log.infoAutoDiscoveryEnabled(this.autoDiscoveryScanPeriodSecs);
 
-            ThreadFactory threadFactory = ThreadFactoryGenerator.generateFactory(true,
-                    "Hawkular WildFly Agent Auto-Discovery Scan");
-            this.autoDiscoveryExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
-
-            Runnable job = new Runnable() {
-                @Override
-                public void run() {
-                    // make sure we don't let exceptions bubble out - that would stop all future scans from executing
-                    try {
-                        ProtocolServices.this.discoverAll();
-                    } catch (Throwable t) {
-                        log.errorAutoDiscoveryFailed(t);
-                    }
-                }
-            };
-
-            // perform an initial discovery now, and then periodically thereafter
-            this.autoDiscoveryExecutor.scheduleAtFixedRate(job, 0, autoDiscoveryScanPeriodSecs, TimeUnit.SECONDS);
+            // the coordinator performs an initial discovery now, and then periodically thereafter
+            this.discoveryCoordinator = new DiscoveryCoordinator(this::getEndpointServices,
+                    autoDiscoveryScanPeriodSecs, autoDiscoveryScanPeriodMinSecs, autoDiscoveryScanPeriodMaxSecs,
+                    maxConcurrentDiscoveryScans);
+            this.discoveryCoordinator.start();
         } else {
             log.infoAutoDiscoveryDisabled();
-            this.autoDiscoveryExecutor = null;
+            this.discoveryCoordinator = null;
 
             // we still must perform an initial discovery to obtain our inventory
             try {
@@ -322,10 +422,44 @@ public class ProtocolServices {
         }
     }
 
+    private void restoreInventory() {
+        if (this.inventorySnapshots == null) {
+            return;
+        }
+        for (EndpointService<?, ?> endpointService : getEndpointServices()) {
+            if (endpointService.getStatus() == ServiceStatus.RUNNING) {
+                try {
+                    this.inventorySnapshots.restore(endpointService);
+                } catch (Exception e) {
+                    log.warnf(e, "Failed to restore inventory of [%s] - it will be discovered", endpointService);
+                }
+            }
+        }
+    }
+
+    private void saveInventory() {
+        if (this.inventorySnapshots == null) {
+            return;
+        }
+        for (EndpointService<?, ?> endpointService : getEndpointServices()) {
+            if (endpointService.getStatus() == ServiceStatus.RUNNING) {
+                this.inventorySnapshots.save(endpointService);
+            }
+        }
+    }
+
     private void stopAutoDiscovery() {
-        if (this.autoDiscoveryExecutor != null) {
+        if (this.discoveryCoordinator != null) {
             log.debugf("Shutting down auto-discovery job");
-            this.autoDiscoveryExecutor.shutdownNow();
+            this.discoveryCoordinator.stop();
+        }
+    }
+
+    private List<EndpointService<?, ?>> getEndpointServices() {
+        List<EndpointService<?, ?>> endpointServices = new ArrayList<>();
+        for (ProtocolService<?, ?> service : services) {
+            endpointServices.addAll(service.getEndpointServices().values());
         }
+        return endpointServices;
     }
 }
@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -112,20 +113,30 @@ public class DMRDriver implements Driver<DMRNodeLocation> {
     private final ModelControllerClient client;
     private final MonitoredEndpoint<EndpointConfiguration> endpoint;
     private final ProtocolDiagnostics diagnostics;
+    private final long requestTimeoutMillis;
 
+    /**
+     * @param client the client to talk to the server with
+     * @param endpoint the endpoint the client is connected to
+     * @param diagnostics where request times and errors are recorded
+     * @param requestTimeoutMillis how long to wait for the result of a single operation before giving up;
+     *        if not positive, operations may take as long as they take
+     */
     public DMRDriver(ModelControllerClient client, MonitoredEndpoint<EndpointConfiguration> endpoint,
-            ProtocolDiagnostics diagnostics) {
+            ProtocolDiagnostics diagnostics, long requestTimeoutMillis) {
         super();
         this.client = client;
         this.endpoint = endpoint;
         this.diagnostics = diagnostics;
+        this.requestTimeoutMillis = requestTimeoutMillis;
     }
 
     @Override
     public boolean attributeExists(AttributeLocation<DMRNodeLocation> location) {
         Optional<ModelNode> result = OperationBuilder.readResource()
                 .address(location.getLocation().getPathAddress())
-                .includeRuntime().execute(client).getOptionalResultNode();
+                .includeRuntime().execute(client, requestTimeoutMillis, TimeUnit.MILLISECONDS)
+                .getOptionalResultNode();
         return result.isPresent();
     }
 
@@ -143,7 +154,7 @@ public class DMRDriver implements Driver<DMRNodeLocation> {
         // time the execute separately - we want to time ONLY the execute call
         OperationResult<?> opResult;
         try (Context timerContext = diagnostics.getRequestTimer().time()) {
-            opResult = opBuilder.execute(client);
+            opResult = opBuilder.execute(client, requestTimeoutMillis, TimeUnit.MILLISECONDS);
         } catch (Exception e) {
             diagnostics.getErrorRate().mark(1);
             throw new ProtocolException("Error fetching DMR attribute [" + useAttribute + "]", e);
@@ -218,7 +229,7 @@ public class DMRDriver implements Driver<DMRNodeLocation> {
         // time the execute separately - we want to time ONLY the execute call
         OperationResult<?> opResult;
         try (Context timerContext = diagnostics.getRequestTimer().time()) {
-            opResult = opBuilder.execute(client);
+            opResult = opBuilder.execute(client, requestTimeoutMillis, TimeUnit.MILLISECONDS);
         } catch (Exception e) {
             diagnostics.getErrorRate().mark(1);
             throw new ProtocolException("Error fetching nodes for query [" + query + "]", e);
@@ -89,18 +89,26 @@ public class DMREndpointService
     }
 
     private final ModelControllerClientFactory modelControllerClientFactory;
+    private final long requestTimeoutMillis;
 
+    /**
+     * @param requestTimeoutMillis how long a single request to a remote endpoint may take;
+     *        requests to the local server are not limited
+     */
     public DMREndpointService(String feedId, MonitoredEndpoint<EndpointConfiguration> endpoint,
             ResourceTypeManager<DMRNodeLocation> resourceTypeManager,
-            ModelControllerClientFactory modelControllerClientFactory, ProtocolDiagnostics diagnostics) {
+            ModelControllerClientFactory modelControllerClientFactory, ProtocolDiagnostics diagnostics,
+            long requestTimeoutMillis) {
         super(feedId, endpoint, resourceTypeManager, new DMRLocationResolver(), diagnostics);
         this.modelControllerClientFactory = modelControllerClientFactory;
+        this.requestTimeoutMillis = endpoint.getEndpointConfiguration().isLocal() ? 0L : requestTimeoutMillis;
     }
 
     @Override
     public DMRSession openSession() {
         ModelControllerClient client = modelControllerClientFactory.createClient();
-        Driver<DMRNodeLocation> driver = new DMRDriver(client, getMonitoredEndpoint(), getDiagnostics());
+        Driver<DMRNodeLocation> driver = new DMRDriver(client, getMonitoredEndpoint(), getDiagnostics(),
+                requestTimeoutMillis);
         return new DMRSession(getFeedId(), getMonitoredEndpoint(), getResourceTypeManager(), driver,
                 getLocationResolver(), client);
     }
@@ -97,7 +97,12 @@ public class DMRLocationResolver implements LocationResolver<DMRNodeLocation> {
             PathAddress basePath = base.getPathAddress();
             PathAddress path = ((DMRNodeLocation) location).getPathAddress();
             if (path.equals(PathAddress.EMPTY_ADDRESS)) {
-                // use base path, but retain the location's resolve-expressions/include-defaults settings
+                // use base path, but retain the location's resolve-expressions/include-defaults settings;
+                // share the base location itself if the settings are the same so we don't keep duplicates around
+                if (base.getResolveExpressions() == location.getResolveExpressions()
+                        && base.getIncludeDefaults() == location.getIncludeDefaults()) {
+                    return base;
+                }
                 return new DMRNodeLocation(base.getPathAddress(),
                         location.getResolveExpressions(), location.getIncludeDefaults());
             } else {
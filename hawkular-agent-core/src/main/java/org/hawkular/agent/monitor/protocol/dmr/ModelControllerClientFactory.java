@@ -40,6 +40,8 @@ import org.jboss.as.controller.client.ModelControllerClientConfiguration;
  * @author John Mazzitelli
  */
 public abstract class ModelControllerClientFactory {
+    public static final int DEFAULT_CONNECTION_TIMEOUT_MILLIS = 5000;
+
     private static class LocalModelControllerClientFactory extends ModelControllerClientFactory {
 
         private final ModelController modelController;
@@ -48,7 +50,7 @@ public abstract class ModelControllerClientFactory {
         public LocalModelControllerClientFactory(ModelController modelController) {
             super();
             this.modelController = modelController;
-            final ThreadFactory threadFactory = ThreadFactoryGenerator.generateFactory(true,
+            final ThreadFactory threadFactory = ThreadFactoryGenerator.generateBlockingIOFactory(
                     "Hawkular-WildFly-Agent-LocalMgmtClient");
             this.executor = Executors.newCachedThreadPool(threadFactory);
         }
@@ -64,9 +66,11 @@ public abstract class ModelControllerClientFactory {
     private static class RemoteModelControllerClientFactory extends ModelControllerClientFactory  {
 
         private final MonitoredEndpoint defaultEndpoint;
+        private final int connectionTimeoutMillis;
 
-        public RemoteModelControllerClientFactory(MonitoredEndpoint endpoint) {
+        public RemoteModelControllerClientFactory(MonitoredEndpoint endpoint, int connectionTimeoutMillis) {
             this.defaultEndpoint = endpoint;
+            this.connectionTimeoutMillis = connectionTimeoutMillis;
         }
 
         @Override
@@ -102,6 +106,7 @@ public abstract class ModelControllerClientFactory {
                         .setPort(uri.getPort())
                         .setSslContext(endpoint.getSSLContext())
                         .setHandler(callbackHandler)
+                        .setConnectionTimeout(connectionTimeoutMillis)
                         .build();
 
                 return ModelControllerClient.Factory.create(config);
@@ -117,7 +122,16 @@ public abstract class ModelControllerClientFactory {
     }
 
     public static ModelControllerClientFactory createRemote(MonitoredEndpoint endpoint) {
-        return new RemoteModelControllerClientFactory(endpoint);
+        return createRemote(endpoint, DEFAULT_CONNECTION_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param endpoint the remote server
+     * @param connectionTimeoutMillis how long to wait for a connection to the server to be established
+     * @return a factory of clients to the given remote server
+     */
+    public static ModelControllerClientFactory createRemote(MonitoredEndpoint endpoint, int connectionTimeoutMillis) {
+        return new RemoteModelControllerClientFactory(endpoint, connectionTimeoutMillis);
     }
 
     public abstract ModelControllerClient createClient();
@@ -18,38 +18,88 @@ package org.hawkular.agent.monitor.protocol.jmx;
 
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.MBeanServer;
 import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerDelegate;
 import javax.management.MBeanServerFactory;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.relation.MBeanServerNotificationFilter;
 
 import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration.EndpointConfiguration;
 import org.hawkular.agent.monitor.diagnostics.ProtocolDiagnostics;
 import org.hawkular.agent.monitor.inventory.MonitoredEndpoint;
+import org.hawkular.agent.monitor.inventory.ResourceType;
 import org.hawkular.agent.monitor.inventory.ResourceTypeManager;
+import org.hawkular.agent.monitor.log.AgentLoggers;
+import org.hawkular.agent.monitor.log.MsgLogger;
 import org.hawkular.agent.monitor.protocol.Driver;
 import org.hawkular.agent.monitor.protocol.EndpointService;
+import org.hawkular.agent.monitor.service.ServiceStatus;
+import org.hawkular.agent.monitor.util.ThreadFactoryGenerator;
 import org.jolokia.client.J4pClient;
 
 /**
  * Endpoint service that can support both remote and local JMX servers.
  *
+ * For local JMX servers, this service listens to the MBean registration and unregistration notifications emitted
+ * by the {@link MBeanServerDelegate} so MBeans that come and go between full discovery scans (such as new
+ * connection pools or deployed applications) are discovered or removed individually as soon as they appear or
+ * disappear. The Jolokia client used to talk to remote JMX servers does not provide a way to subscribe to
+ * notifications, so remote endpoints rely solely on the periodic full discovery scans.
+ *
  * @see EndpointService
  */
 public class JMXEndpointService
         extends EndpointService<JMXNodeLocation, JMXSession> {
+    private static final MsgLogger LOG = AgentLoggers.getLogger(JMXEndpointService.class);
 
     public static final String MBEAN_SERVER_NAME_KEY = "mbean-server-name";
 
+    // MBeans are typically registered in bursts (e.g. when an application is deployed) so we wait this long
+    // after the first notification in order to process the whole burst in a single incremental discovery
+    private static final long MBEAN_NOTIFICATION_BATCH_DELAY_MILLIS = 1000L;
+
     private final JolokiaClientFactory clientFactory;
 
+    private final Object pendingMBeanNotificationsLock = new Object();
+    private final Set<JMXNodeLocation> pendingRegisteredMBeans = new LinkedHashSet<>();
+    private final Set<JMXNodeLocation> pendingUnregisteredMBeans = new LinkedHashSet<>();
+    private boolean pendingMBeanNotificationsScheduled = false;
+
+    private ScheduledExecutorService mbeanNotificationExecutor;
+    private MBeanServerConnection mbeanNotificationSource;
+    private final NotificationListener mbeanRegistrationListener = new NotificationListener() {
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (notification instanceof MBeanServerNotification) {
+                ObjectName objectName = ((MBeanServerNotification) notification).getMBeanName();
+                boolean registered = MBeanServerNotification.REGISTRATION_NOTIFICATION.equals(notification.getType());
+                mbeanRegistrationChanged(new JMXNodeLocation(objectName), registered);
+            }
+        }
+    };
+
+    /**
+     * @param requestTimeoutMillis how long a single request to a remote Jolokia endpoint may take;
+     *        requests to the local MBean server are not limited
+     */
     public JMXEndpointService(String feedId, MonitoredEndpoint<EndpointConfiguration> endpoint,
-            ResourceTypeManager<JMXNodeLocation> resourceTypeManager, ProtocolDiagnostics diagnostics) {
+            ResourceTypeManager<JMXNodeLocation> resourceTypeManager, ProtocolDiagnostics diagnostics,
+            int requestTimeoutMillis) {
         super(feedId, endpoint, resourceTypeManager, new JMXLocationResolver(), diagnostics);
 
         if (endpoint.getConnectionData() != null) {
-            this.clientFactory = new JolokiaClientFactory(endpoint);
+            this.clientFactory = new JolokiaClientFactory(endpoint, requestTimeoutMillis);
         } else {
             this.clientFactory = null;
         }
@@ -74,6 +124,129 @@ public class JMXEndpointService
                 getLocationResolver());
     }
 
+    @Override
+    protected void afterStart() {
+        if (this.clientFactory != null) {
+            return; // we cannot listen to notifications from remote JMX servers
+        }
+
+        try {
+            this.mbeanNotificationExecutor = Executors.newSingleThreadScheduledExecutor(
+                    ThreadFactoryGenerator.generateFactory(true,
+                            "Hawkular WildFly Agent MBean Discovery-" + getMonitoredEndpoint().getName()));
+
+            MBeanServerNotificationFilter filter = new MBeanServerNotificationFilter();
+            filter.enableAllObjectNames();
+
+            MBeanServerConnection mbs = getMBeanServerConnection();
+            mbs.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, this.mbeanRegistrationListener, filter,
+                    null);
+            this.mbeanNotificationSource = mbs;
+            LOG.debugf("Listening for MBean registrations for endpoint [%s]", getMonitoredEndpoint());
+        } catch (Exception e) {
+            LOG.warnf(e, "Cannot listen for MBean registrations for endpoint [%s] - will rely on full scans",
+                    getMonitoredEndpoint());
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (this.mbeanNotificationSource != null) {
+            try {
+                this.mbeanNotificationSource.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME,
+                        this.mbeanRegistrationListener);
+            } catch (Exception e) {
+                LOG.debugf(e, "Failed to remove MBean registration listener for endpoint [%s]",
+                        getMonitoredEndpoint());
+            }
+            this.mbeanNotificationSource = null;
+        }
+
+        if (this.mbeanNotificationExecutor != null) {
+            this.mbeanNotificationExecutor.shutdownNow();
+            this.mbeanNotificationExecutor = null;
+        }
+
+        synchronized (this.pendingMBeanNotificationsLock) {
+            this.pendingRegisteredMBeans.clear();
+            this.pendingUnregisteredMBeans.clear();
+            this.pendingMBeanNotificationsScheduled = false;
+        }
+
+        super.stop();
+    }
+
+    /**
+     * Queues up the given MBean for incremental discovery (or removal) if it matches one of our resource types.
+     * The notifications are delivered on the thread that registered the MBean, so the actual work is deferred
+     * to our own thread.
+     */
+    private void mbeanRegistrationChanged(JMXNodeLocation location, boolean registered) {
+        if (!isMonitoredMBean(location)) {
+            return;
+        }
+
+        LOG.tracef("MBean [%s] has been %s in endpoint [%s]", location, registered ? "registered" : "unregistered",
+                getMonitoredEndpoint());
+
+        synchronized (this.pendingMBeanNotificationsLock) {
+            if (registered) {
+                this.pendingRegisteredMBeans.add(location);
+            } else {
+                // if it was registered and unregistered within the same batch, there is nothing to discover
+                this.pendingRegisteredMBeans.remove(location);
+                this.pendingUnregisteredMBeans.add(location);
+            }
+
+            ScheduledExecutorService executor = this.mbeanNotificationExecutor;
+            if (!this.pendingMBeanNotificationsScheduled && executor != null) {
+                try {
+                    executor.schedule(this::processPendingMBeanNotifications,
+                            MBEAN_NOTIFICATION_BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                    this.pendingMBeanNotificationsScheduled = true;
+                } catch (Exception e) {
+                    LOG.debugf("Cannot process MBean notifications for endpoint [%s]: %s", getMonitoredEndpoint(),
+                            e.toString());
+                }
+            }
+        }
+    }
+
+    private void processPendingMBeanNotifications() {
+        Set<JMXNodeLocation> registered;
+        Set<JMXNodeLocation> unregistered;
+        synchronized (this.pendingMBeanNotificationsLock) {
+            registered = new LinkedHashSet<>(this.pendingRegisteredMBeans);
+            unregistered = new LinkedHashSet<>(this.pendingUnregisteredMBeans);
+            this.pendingRegisteredMBeans.clear();
+            this.pendingUnregisteredMBeans.clear();
+            this.pendingMBeanNotificationsScheduled = false;
+        }
+
+        if (status != ServiceStatus.RUNNING) {
+            return;
+        }
+
+        LOG.debugf("Incremental discovery of [%d] registered and [%d] unregistered MBeans for endpoint [%s]",
+                registered.size(), unregistered.size(), getMonitoredEndpoint());
+        try {
+            discoverIncrementally(registered, unregistered);
+        } catch (Exception e) {
+            LOG.debugf(e, "Incremental discovery failed for endpoint [%s]", getMonitoredEndpoint());
+        }
+    }
+
+    private boolean isMonitoredMBean(JMXNodeLocation location) {
+        // JMX resource type locations are absolute so we can match them directly
+        for (ResourceType<JMXNodeLocation> type : getResourceTypeManager().getResourceTypesBreadthFirst()) {
+            JMXNodeLocation query = type.getLocation();
+            if (query != null && query.getObjectName() != null && getLocationResolver().matches(query, location)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private MBeanServerConnection getMBeanServerConnection() {
         // Find out what the name of the MBeanServer is from our custom data in the endpoint config.
         String mbsName = null;
@@ -17,6 +17,7 @@
 package org.hawkular.agent.monitor.protocol.jmx;
 
 import java.util.Map;
+import java.util.Set;
 
 import javax.management.ObjectName;
 
@@ -91,16 +92,15 @@ public class JMXLocationResolver implements LocationResolver<JMXNodeLocation> {
             return false;
         }
 
-        int parentKeyCount = parent.getCanonicalKeys().size();
-        int childKeyCount = child.getCanonicalKeys().size();
+        Set<String> parentKeys = parent.getCanonicalKeys();
 
         // if the number of parent keys are greater than the number of child keys, it can't be the child's parent
-        if (parentKeyCount >= childKeyCount) {
+        if (parentKeys.size() >= child.getCanonicalKeys().size()) {
             return false;
         }
 
         // if the child has all the parent keys and matches the parent's key values, its a child
-        for (String parentKey : parent.getCanonicalKeys()) {
+        for (String parentKey : parentKeys) {
             String parentKeyValue = parentObjectName.getKeyProperty(parentKey);
             if (!parentKeyValue.equals(childObjectName.getKeyProperty(parentKey))) {
                 return false; // it can't possibly be a child since it doesn't match
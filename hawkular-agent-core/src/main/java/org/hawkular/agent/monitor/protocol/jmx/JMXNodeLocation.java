@@ -31,16 +31,11 @@ import org.hawkular.agent.monitor.inventory.NodeLocation;
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  */
 public class JMXNodeLocation implements NodeLocation {
-    private final Set<String> canonicalKeys;
     private final ObjectName objectName;
+    private volatile Set<String> canonicalKeys; // computed on first use
 
     public JMXNodeLocation(ObjectName objectName) {
         this.objectName = objectName;
-        if (this.objectName == null) {
-            this.canonicalKeys = Collections.emptySet();
-        } else {
-            this.canonicalKeys = Collections.unmodifiableSet(new TreeSet<>(objectName.getKeyPropertyList().keySet()));
-        }
     }
 
     public JMXNodeLocation(String objectName) throws MalformedObjectNameException {
@@ -69,8 +64,23 @@ public class JMXNodeLocation implements NodeLocation {
         return true;
     }
 
+    /**
+     * The keys are computed on first use and then kept. Only the locations that discovery compares with each
+     * other need them, so most measurement instance locations never hold a set of keys.
+     *
+     * @return the keys of the object name, sorted lexicographically
+     */
     public Set<String> getCanonicalKeys() {
-        return canonicalKeys;
+        Set<String> keys = this.canonicalKeys;
+        if (keys == null) {
+            if (this.objectName == null) {
+                keys = Collections.emptySet();
+            } else {
+                keys = Collections.unmodifiableSet(new TreeSet<>(objectName.getKeyPropertyList().keySet()));
+            }
+            this.canonicalKeys = keys;
+        }
+        return keys;
     }
 
     public ObjectName getObjectName() {
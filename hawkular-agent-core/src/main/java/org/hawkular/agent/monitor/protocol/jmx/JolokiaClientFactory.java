@@ -152,10 +152,22 @@ public class JolokiaClientFactory {
         }
     }
 
+    public static final int DEFAULT_TIMEOUT_MILLIS = 60000;
+
     private final MonitoredEndpoint<EndpointConfiguration> endpoint;
+    private final int timeoutMillis;
 
     public JolokiaClientFactory(MonitoredEndpoint<EndpointConfiguration> endpoint) {
+        this(endpoint, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param endpoint the remote JMX server
+     * @param timeoutMillis how long to wait for a connection to be established and for the response to a request
+     */
+    public JolokiaClientFactory(MonitoredEndpoint<EndpointConfiguration> endpoint, int timeoutMillis) {
         this.endpoint = endpoint;
+        this.timeoutMillis = timeoutMillis;
     }
 
     public J4pClient createClient() {
@@ -197,7 +209,8 @@ public class JolokiaClientFactory {
                 .user(cnData.getUsername())
                 .password(cnData.getPassword())
                 .authenticator(authenticator)
-                .connectionTimeout(60000)
+                .connectionTimeout(timeoutMillis)
+                .socketTimeout(timeoutMillis)
                 .sslConnectionSocketFactory(sslFactory)
                 .build();
         return client;
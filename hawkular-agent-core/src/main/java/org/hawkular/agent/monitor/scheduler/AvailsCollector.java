@@ -26,6 +26,8 @@ import org.hawkular.agent.monitor.log.MsgLogger;
 import org.hawkular.agent.monitor.storage.AvailDataPoint;
 import org.hawkular.agent.monitor.util.Consumer;
 
+import com.codahale.metrics.Counter;
+
 /**
  * Defines a job that performs availability checking for a particular monitored endpoint.
  *
@@ -36,51 +38,47 @@ class AvailsCollector<L> extends MeasurementCollector<L, AvailType<L>, AvailData
 
     public AvailsCollector(SamplingService<L> endpointService,
             ScheduledCollectionsQueue<L, AvailType<L>> priorityQueue,
-            Consumer<AvailDataPoint> completionHandler) {
-        super(endpointService, priorityQueue, completionHandler);
+            Consumer<AvailDataPoint> completionHandler,
+            Counter dropped) {
+        super(endpointService, priorityQueue, completionHandler, dropped);
     }
 
     /**
-     * This actually checks availability and notifies the handler when complete.
+     * This actually checks the availabilities that were due when it started and notifies the handler when complete.
+     * It is called by the {@link CollectorPool} whenever the queue has collections that are due.
      */
     @Override
     public void run() {
-        while (!Thread.interrupted()) {
-            try {
-                ScheduledCollectionsQueue<L, AvailType<L>> queue = getScheduledCollectionsQueue();
-                long next = queue.getNextExpectedCollectionTime();
+        try {
+            Consumer<AvailDataPoint> consumer = new Consumer<AvailDataPoint>() {
+                @Override
+                public void accept(AvailDataPoint dataPoint) {
+                    getCompletionHandler().accept(dataPoint);
+                }
 
-                if (next == Long.MIN_VALUE) {
-                    Thread.sleep(10_000); // nothing scheduled; sleep for a bit and see if we get something later
-                } else {
-                    long delay = next - System.currentTimeMillis();
-                    if (delay <= 0) {
-                        // we're late, we're late, for a very important date - collect now
-                        Set<MeasurementInstance<L, AvailType<L>>> instances = queue.popNextScheduledSet();
-                        getEndpointService().measureAvails(instances, new Consumer<AvailDataPoint>() {
-                            @Override
-                            public void accept(AvailDataPoint dataPoint) {
-                                getCompletionHandler().accept(dataPoint);
-                            }
+                @Override
+                public void report(Throwable e) {
+                    LOG.errorFailedToStoreAvails(getEndpointService().toString(), e);
+                    getCompletionHandler().report(e);
+                }
 
-                            @Override
-                            public void report(Throwable e) {
-                                LOG.errorFailedToStoreAvails(getEndpointService().toString(), e);
-                                getCompletionHandler().report(e);
-                            }
-                        });
-                    } else {
-                        // wait for the amount of time before the next collection is scheduled
-                        Thread.sleep(delay);
-                    }
+                @Override
+                public boolean hasCapacity() {
+                    return getCompletionHandler().hasCapacity();
+                }
+            };
+            long startTime = System.currentTimeMillis();
+            while (hasDueCollections(startTime)) {
+                Set<MeasurementInstance<L, AvailType<L>>> instances;
+                instances = getScheduledCollectionsQueue().popNextScheduledSet();
+                if (!instances.isEmpty() && hasCapacity(instances.size())) {
+                    getEndpointService().measureAvails(instances, consumer);
                 }
-            } catch (InterruptedException ie) {
-                return;
-            } catch (IllegalStateException ise) {
-                LOG.debugf("Cannot check avails for endpoint [%s] - not ready yet: %s", getEndpointService(), ise);
-            } catch (Throwable t) {
-                LOG.warnf(t, "Unexpected error caught in AvailsCollector for endpoint [%s]", getEndpointService());
             }
+        } catch (IllegalStateException ise) {
+            LOG.debugf("Cannot check avails for endpoint [%s] - not ready yet: %s", getEndpointService(), ise);
+        } catch (Throwable t) {
+            LOG.warnf(t, "Unexpected error caught in AvailsCollector for endpoint [%s]", getEndpointService());
         }
     }
 }
\ No newline at end of file
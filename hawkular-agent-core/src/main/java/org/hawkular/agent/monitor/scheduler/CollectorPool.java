@@ -0,0 +1,203 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.scheduler;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.hawkular.agent.monitor.log.AgentLoggers;
+import org.hawkular.agent.monitor.log.MsgLogger;
+import org.hawkular.agent.monitor.util.ThreadFactoryGenerator;
+
+/**
+ * Runs the measurement collectors of all endpoints on a pool of worker threads.
+ *
+ * A single tick thread periodically looks at the scheduled collections queue of every registered collector and
+ * hands the collectors that have collections due to the pool. A collector is not submitted again while it is still
+ * running, so an endpoint that is slow to respond occupies at most one worker per collector. The pool can grow to
+ * one worker per registered collector, so even endpoints that hang until their requests time out cannot keep the
+ * collectors of other endpoints from running. Workers that are idle for a while go away, so usually there are
+ * only as many as there are collections running at the same time. Each tick starts looking at a different
+ * collector so none of them is always first in line.
+ *
+ * If {@link ThreadFactoryGenerator#isVirtualThreadsEnabled() virtual threads are enabled} the collectors run
+ * in virtual threads instead and the number of threads is not bounded.
+ */
+public class CollectorPool {
+    private static final MsgLogger LOG = AgentLoggers.getLogger(CollectorPool.class);
+
+    /** how often the tick thread looks for due collections; this is how late a due collection can start */
+    static final long TICK_MILLIS = 250L;
+
+    /** how long an idle worker is kept around */
+    static final long WORKER_KEEP_ALIVE_MILLIS = 60_000L;
+
+    private static class Collector implements Runnable {
+        private final ScheduledCollectionsQueue<?, ?> queue;
+        private final Runnable collector;
+        private final AtomicBoolean running = new AtomicBoolean(false);
+
+        private Collector(ScheduledCollectionsQueue<?, ?> queue, Runnable collector) {
+            this.queue = queue;
+            this.collector = collector;
+        }
+
+        @Override
+        public void run() {
+            try {
+                collector.run();
+            } catch (Throwable t) {
+                LOG.warnf(t, "Unexpected error caught in collector [%s]", collector);
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+
+    private final String name;
+    private final int threads;
+    private final List<Collector> collectors = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService ticker;
+    private ExecutorService workers;
+    private ScheduledFuture<?> tickJob;
+    private int nextFirst; // only accessed by the tick thread
+
+    /**
+     * @param name the name of the pool (used for things like naming the threads)
+     * @param threads the maximum number of collectors that run at the same time - unless virtual threads are used
+     *            or more collectors than this are registered, in which case each collector can run at any time
+     */
+    public CollectorPool(String name, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of collector threads must be greater than 0: " + threads);
+        }
+        this.name = name;
+        this.threads = threads;
+    }
+
+    /**
+     * Adds a collector that is run whenever the given queue has collections that are due.
+     *
+     * @param queue the queue the collector takes its collections from
+     * @param collector collects the due measurements of the queue
+     */
+    public void register(ScheduledCollectionsQueue<?, ?> queue, Runnable collector) {
+        collectors.add(new Collector(queue, collector));
+        resizeWorkers();
+    }
+
+    /**
+     * Removes the collector of the given queue so it is no longer run. A collection that is already running
+     * is not interrupted.
+     *
+     * @param queue the queue whose collector is to be removed
+     */
+    public void unregister(ScheduledCollectionsQueue<?, ?> queue) {
+        collectors.removeIf(c -> c.queue == queue);
+        resizeWorkers();
+    }
+
+    private int getWorkerCount() {
+        return Math.max(threads, collectors.size());
+    }
+
+    private synchronized void resizeWorkers() {
+        if (!(workers instanceof ThreadPoolExecutor)) {
+            return; // not started or using virtual threads
+        }
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) workers;
+        int size = getWorkerCount();
+        if (size > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(size);
+            pool.setCorePoolSize(size);
+        } else if (size < pool.getMaximumPoolSize()) {
+            pool.setCorePoolSize(size);
+            pool.setMaximumPoolSize(size);
+        }
+    }
+
+    public synchronized void start() {
+        if (tickJob != null) {
+            return;
+        }
+        // with virtual threads a blocked collector costs next to nothing, so each collector gets its own thread
+        workers = ThreadFactoryGenerator.newVirtualThreadPerTaskExecutor(name);
+        if (workers == null) {
+            // a collector is never queued twice, so the queue holds at most one entry per collector
+            int size = getWorkerCount();
+            ThreadFactory threadFactory = ThreadFactoryGenerator.generateFactory(true, name);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, WORKER_KEEP_ALIVE_MILLIS,
+                    TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+            pool.allowCoreThreadTimeOut(true);
+            workers = pool;
+        }
+        ticker = new ScheduledThreadPoolExecutor(1, ThreadFactoryGenerator.generateFactory(true, name + "-Tick"));
+        tickJob = ticker.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        LOG.debugf("Collector pool [%s] started with [%s] threads", name,
+                ThreadFactoryGenerator.isVirtualThreadsEnabled() ? "virtual" : "up to " + getWorkerCount());
+    }
+
+    public synchronized void stop() {
+        if (tickJob == null) {
+            return;
+        }
+        tickJob.cancel(false);
+        tickJob = null;
+        ticker.shutdownNow();
+        workers.shutdownNow();
+        try {
+            ticker.awaitTermination(5, TimeUnit.SECONDS);
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+            LOG.debugf("Collector pool [%s] stopped", name);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt(); // Preserve interrupt status
+        }
+    }
+
+    /**
+     * Submits all idle collectors whose queues have collections that are due.
+     */
+    private void tick() {
+        try {
+            int size = collectors.size();
+            if (size == 0) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            int first = Math.floorMod(nextFirst++, size);
+            for (int i = 0; i < size; i++) {
+                Collector collector = collectors.get((first + i) % size);
+                long next = collector.queue.getNextExpectedCollectionTime();
+                if (next != Long.MIN_VALUE && next <= now && collector.running.compareAndSet(false, true)) {
+                    workers.execute(collector);
+                }
+            }
+        } catch (Throwable t) {
+            // never let an error cancel the tick job
+            LOG.warnf(t, "Unexpected error caught in collector pool [%s]", name);
+        }
+    }
+}
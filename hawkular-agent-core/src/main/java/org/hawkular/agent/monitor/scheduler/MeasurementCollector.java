@@ -23,6 +23,8 @@ import org.hawkular.agent.monitor.log.MsgLogger;
 import org.hawkular.agent.monitor.storage.DataPoint;
 import org.hawkular.agent.monitor.util.Consumer;
 
+import com.codahale.metrics.Counter;
+
 /**
  * Superclass of measurement collector jobs.
  *
@@ -36,6 +38,7 @@ public abstract class MeasurementCollector<L, T extends MeasurementType<L>, D ex
     private final SamplingService<L> endpointService;
     private final ScheduledCollectionsQueue<L, T> queue;
     private final Consumer<D> completionHandler;
+    private final Counter dropped;
 
     /**
      * Creates a job that is used to collect measurements provided by the priority queue
@@ -46,13 +49,16 @@ public abstract class MeasurementCollector<L, T extends MeasurementType<L>, D ex
      * @param endpointService where the resource is whose data is to be collected
      * @param queue the queue that determines what is scheduled next for collection
      * @param completionHandler when the data are found (or if an error occurs) this object is notified
+     * @param dropped counts the measurements that are due but not collected
      */
     public MeasurementCollector(SamplingService<L> endpointService,
             ScheduledCollectionsQueue<L, T> queue,
-            Consumer<D> completionHandler) {
+            Consumer<D> completionHandler,
+            Counter dropped) {
         this.endpointService = endpointService;
         this.queue = queue;
         this.completionHandler = completionHandler;
+        this.dropped = dropped;
     }
 
     protected SamplingService<L> getEndpointService() {
@@ -66,4 +72,53 @@ public abstract class MeasurementCollector<L, T extends MeasurementType<L>, D ex
     protected Consumer<D> getCompletionHandler() {
         return completionHandler;
     }
+
+    /**
+     * Tells if the queue has collections that were due at the given time. A set popped off the queue only holds
+     * collections that are due at the very same time, and when the collection phases of resources are spread out,
+     * that is often a single resource. So a collector keeps popping sets while this returns true, which collects
+     * everything that was due when the collector started, but not what becomes due while it is running.
+     *
+     * @param startTime the time the collector started
+     * @return true if the next set of collections was due at the given time
+     */
+    protected boolean hasDueCollections(long startTime) {
+        long next = queue.getNextExpectedCollectionTime();
+        return next != Long.MIN_VALUE && next <= startTime;
+    }
+
+    /**
+     * Checks if the completion handler can take more data before any work is done to collect it. If it cannot
+     * (for example because the storage is slow and the buffer is full), the collection should be skipped.
+     *
+     * @param count the number of measurements that are due
+     * @return <code>true</code> if the measurements should be collected, <code>false</code> if they have been
+     *         counted as dropped (and the round as missed) instead
+     */
+    protected boolean hasCapacity(int count) {
+        if (completionHandler.hasCapacity()) {
+            return true;
+        }
+        countDropped(count);
+        countMissedRound();
+        LOG.debugf("Storage buffer is full - skipping [%d] measurements of endpoint [%s]", count, endpointService);
+        return false;
+    }
+
+    /**
+     * Counts measurements that were due but were not collected, for example because the completion handler had no
+     * capacity.
+     *
+     * @param count the number of measurements that were not collected
+     */
+    protected void countDropped(int count) {
+        dropped.inc(count);
+    }
+
+    /**
+     * Counts a round of measurements that was due but was not collected at all.
+     */
+    protected void countMissedRound() {
+        queue.countMissedRound();
+    }
 }
\ No newline at end of file
@@ -21,12 +21,9 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
 
 import org.hawkular.agent.monitor.api.SamplingService;
+import org.hawkular.agent.monitor.diagnostics.Diagnostics;
 import org.hawkular.agent.monitor.inventory.AvailType;
 import org.hawkular.agent.monitor.inventory.MeasurementType;
 import org.hawkular.agent.monitor.inventory.MetricType;
@@ -38,11 +35,14 @@ import org.hawkular.agent.monitor.storage.AvailDataPoint;
 import org.hawkular.agent.monitor.storage.DataPoint;
 import org.hawkular.agent.monitor.storage.MetricDataPoint;
 import org.hawkular.agent.monitor.util.Consumer;
-import org.hawkular.agent.monitor.util.ThreadFactoryGenerator;
 
 /**
  * A scheduler that can be used to collect metrics or availability. To create a scheduler,
- * use one of {@link #forMetrics(String, int, Consumer)} or {@link #forAvails(String, int, Consumer)}.
+ * use one of {@link #forMetrics(String, CollectorPool, SchedulerConfiguration, Diagnostics, Consumer)} or
+ * {@link #forAvails(String, CollectorPool, SchedulerConfiguration, Diagnostics, Consumer)}.
+ *
+ * The scheduler does not own any threads - the collections of all endpoints are run by a shared
+ * {@link CollectorPool}.
  *
  * @param <T> the sublclass of {@link MeasurementType} to handle (such as metric types or avail types)
  * @param <D> the {@link DataPoint} type (such as metric data or avail data)
@@ -54,15 +54,21 @@ public abstract class MeasurementScheduler<L, T extends MeasurementType<L>, D ex
     /**
      * Static method that builds a scheduler for metric collection.
      *
-     * @param name the name of the scheduler (used for things like naming the threads)
+     * @param name the name of the scheduler (used for things like logging)
+     * @param collectorPool runs the collections
+     * @param configuration determines how collections are spread across their intervals and what is done
+     *                      when they run behind their schedule
+     * @param diagnostics tracks how late the collections of each endpoint are and how many are dropped
      * @param completionHandler object that is notified of metric values when they are collected
      *
      * @return the new metric collection scheduler
      */
     public static <LL> MeasurementScheduler<LL, MetricType<LL>, MetricDataPoint> forMetrics(
-            String name, Consumer<MetricDataPoint> completionHandler) {
+            String name, CollectorPool collectorPool, SchedulerConfiguration configuration, Diagnostics diagnostics,
+            Consumer<MetricDataPoint> completionHandler) {
 
-        return new MeasurementScheduler<LL, MetricType<LL>, MetricDataPoint>(name, completionHandler) {
+        return new MeasurementScheduler<LL, MetricType<LL>, MetricDataPoint>(name, collectorPool,
+                completionHandler) {
 
             /**
              * @return the collector that will be used to get metrics for resources at the given endpoint.
@@ -70,7 +76,20 @@ public abstract class MeasurementScheduler<L, T extends MeasurementType<L>, D ex
             @Override
             protected Runnable createCollector(SamplingService<LL> endpointService,
                     ScheduledCollectionsQueue<LL, MetricType<LL>> queue, Consumer<MetricDataPoint> completionHandler) {
-                return new MetricsCollector<LL>(endpointService, queue, completionHandler);
+                return new MetricsCollector<LL>(endpointService, queue, completionHandler,
+                        diagnostics.getMetricsDropped());
+            }
+
+            /**
+             * @return the queue of the metric collections of the given endpoint.
+             */
+            @Override
+            protected ScheduledCollectionsQueue<LL, MetricType<LL>> createScheduledCollectionsQueue(
+                    SamplingService<LL> endpointService) {
+                String endpointName = endpointService.getMonitoredEndpoint().getName();
+                return new ScheduledCollectionsQueue<>(configuration.getMetricOverrunPolicy(),
+                        configuration.getMaxCatchUpRounds(), diagnostics.getMetricCollectionLateness(endpointName),
+                        diagnostics.getMetricMissedRounds(endpointName));
             }
 
             /**
@@ -79,7 +98,7 @@ public abstract class MeasurementScheduler<L, T extends MeasurementType<L>, D ex
             @Override
             protected Collection<ScheduledMeasurementInstance<LL, MetricType<LL>>> getScheduledMeasurementInstances(
                     Resource<LL> resource) {
-                return ScheduledMeasurementInstance.createMetrics(resource);
+                return ScheduledMeasurementInstance.createMetrics(resource, configuration.getPhaseSpreading());
             }
         };
     }
@@ -87,15 +106,21 @@ public abstract class MeasurementScheduler<L, T extends MeasurementType<L>, D ex
     /**
      * Static method that builds a scheduler for availability checking.
      *
-     * @param name the name of the scheduler (used for things like naming the threads)
+     * @param name the name of the scheduler (used for things like logging)
+     * @param collectorPool runs the collections
+     * @param configuration determines how avail checks are spread across their intervals and what is done
+     *                      when they run behind their schedule
+     * @param diagnostics tracks how late the avail checks of each endpoint are and how many are dropped
      * @param completionHandler object that is notified of availability results when they are checked
      *
      * @return the new availability checking scheduler
      */
     public static <LL> MeasurementScheduler<LL, AvailType<LL>, AvailDataPoint> forAvails(
-            String name, Consumer<AvailDataPoint> completionHandler) {
+            String name, CollectorPool collectorPool, SchedulerConfiguration configuration, Diagnostics diagnostics,
+            Consumer<AvailDataPoint> completionHandler) {
 
-        return new MeasurementScheduler<LL, AvailType<LL>, AvailDataPoint>(name, completionHandler) {
+        return new MeasurementScheduler<LL, AvailType<LL>, AvailDataPoint>(name, collectorPool,
+                completionHandler) {
 
             /**
              * @return the collector that will be used to check availabilities for resources at the given endpoint.
@@ -103,7 +128,20 @@ public abstract class MeasurementScheduler<L, T extends MeasurementType<L>, D ex
             @Override
             protected Runnable createCollector(SamplingService<LL> endpointService,
                     ScheduledCollectionsQueue<LL, AvailType<LL>> queue, Consumer<AvailDataPoint> completionHandler) {
-                return new AvailsCollector<LL>(endpointService, queue, completionHandler);
+                return new AvailsCollector<LL>(endpointService, queue, completionHandler,
+                        diagnostics.getAvailsDropped());
+            }
+
+            /**
+             * @return the queue of the avail checks of the given endpoint.
+             */
+            @Override
+            protected ScheduledCollectionsQueue<LL, AvailType<LL>> createScheduledCollectionsQueue(
+                    SamplingService<LL> endpointService) {
+                String endpointName = endpointService.getMonitoredEndpoint().getName();
+                return new ScheduledCollectionsQueue<>(configuration.getAvailOverrunPolicy(),
+                        configuration.getMaxCatchUpRounds(), diagnostics.getAvailCollectionLateness(endpointName),
+                        diagnostics.getAvailMissedRounds(endpointName));
             }
 
             /**
@@ -112,7 +150,7 @@ public abstract class MeasurementScheduler<L, T extends MeasurementType<L>, D ex
             @Override
             protected Collection<ScheduledMeasurementInstance<LL, AvailType<LL>>> getScheduledMeasurementInstances(
                     Resource<LL> resource) {
-                return ScheduledMeasurementInstance.createAvails(resource);
+                return ScheduledMeasurementInstance.createAvails(resource, configuration.getPhaseSpreading());
             }
         };
     }
@@ -120,8 +158,8 @@ public abstract class MeasurementScheduler<L, T extends MeasurementType<L>, D ex
     /** the name of the scheduler */
     private final String name;
 
-    /** thread pool used by the scheduler to execute the different metrics/avails jobs. */
-    private final ExecutorService executorService;
+    /** runs the collectors of all endpoints; shared with other schedulers */
+    private final CollectorPool collectorPool;
 
     /** prioritized queue for each endpoint that indicates what metrics are next to be collected */
     private final Map<SamplingService<L>, ScheduledCollectionsQueue<L, T>> queues = new HashMap<>();
@@ -134,16 +172,18 @@ public abstract class MeasurementScheduler<L, T extends MeasurementType<L>, D ex
 
     /**
      * The actual scheduler constructor.
-     * To build schedulers, call {@link #forMetrics(String, Consumer)} or {@link #forAvails(String, Consumer)}.
+     * To build schedulers, call
+     * {@link #forMetrics(String, CollectorPool, SchedulerConfiguration, Diagnostics, Consumer)} or
+     * {@link #forAvails(String, CollectorPool, SchedulerConfiguration, Diagnostics, Consumer)}.
      *
      * @param name name of scheduler
+     * @param collectorPool runs the collections
      * @param completionHandler object notified when a job is done and its data needs to be stored
      */
-    private MeasurementScheduler(String name, Consumer<D> completionHandler) {
+    private MeasurementScheduler(String name, CollectorPool collectorPool, Consumer<D> completionHandler) {
         this.name = name;
+        this.collectorPool = collectorPool;
         this.completionHandler = completionHandler;
-        ThreadFactory threadFactory = ThreadFactoryGenerator.generateFactory(true, name);
-        this.executorService = Executors.newCachedThreadPool(threadFactory);
     }
 
     /**
@@ -184,9 +224,64 @@ public abstract class MeasurementScheduler<L, T extends MeasurementType<L>, D ex
                 this.name, resources.size(), endpointService);
     }
 
+    /**
+     * Forgets the given endpoint: all of its scheduled collections are dropped and its collector is removed
+     * from the collector pool. Call this when the endpoint is removed from the agent.
+     *
+     * @param endpointService the endpoint that is being removed
+     */
+    public void removeEndpoint(SamplingService<L> endpointService) {
+        status.assertRunning(getClass(), "removeEndpoint()");
+
+        ScheduledCollectionsQueue<L, T> queue;
+        synchronized (this.queues) {
+            queue = this.queues.remove(endpointService);
+        }
+        if (queue != null) {
+            this.collectorPool.unregister(queue);
+        }
+
+        LOG.debugf("Scheduler [%s]: endpoint [%s] has been removed", this.name, endpointService);
+    }
+
+    /**
+     * Reschedules the collections of the given measurement types for the given resources. This is used after
+     * the interval of measurement types has changed: the existing schedules are removed and, unless
+     * the types are now disabled, new schedules based on the new intervals are added.
+     * Schedules of all other measurement types are left untouched.
+     *
+     * @param endpointService defines where the resources are
+     * @param resources the resources whose collections are to be rescheduled
+     * @param types the measurement types whose collections are to be rescheduled
+     */
+    public void reschedule(SamplingService<L> endpointService, Collection<Resource<L>> resources,
+            Collection<? extends MeasurementType<L>> types) {
+        status.assertRunning(getClass(), "reschedule()");
+
+        ScheduledCollectionsQueue<L, T> queue = getScheduledCollectionsQueue(endpointService);
+        if (queue != null) {
+            queue.unschedule(resources, types);
+        }
+
+        List<ScheduledMeasurementInstance<L, T>> schedules = new ArrayList<>();
+        for (Resource<L> resource : resources) {
+            for (ScheduledMeasurementInstance<L, T> schedule : getScheduledMeasurementInstances(resource)) {
+                if (types.contains(schedule.getMeasurementInstance().getType())) {
+                    schedules.add(schedule);
+                }
+            }
+        }
+        if (!schedules.isEmpty()) {
+            createOrGetScheduledCollectionsQueue(endpointService).schedule(schedules);
+        }
+
+        LOG.debugf("Scheduler [%s]: [%d] measurements of [%d] types have been rescheduled for endpoint [%s]",
+                this.name, schedules.size(), types.size(), endpointService);
+    }
+
     /**
      * Call this to get the scheduled collections queue for the given endpoint. If it doesn't yet exist
-     * one will be created and its collector thread will be created.
+     * one will be created and its collector will be registered with the collector pool.
      *
      * @param endpointService the endpoint service whose queue is to be retrieved (and created if necessary)
      * @return the queue assigned to the given endpoint service
@@ -197,12 +292,12 @@ public abstract class MeasurementScheduler<L, T extends MeasurementType<L>, D ex
         synchronized (this.queues) {
             ScheduledCollectionsQueue<L, T> q = this.queues.get(endpointService);
             if (q == null) {
-                q = new ScheduledCollectionsQueue<L, T>();
+                q = createScheduledCollectionsQueue(endpointService);
                 this.queues.put(endpointService, q);
 
-                // create our collector thread to start processing the collections
+                // the pool runs our collector whenever the queue has collections that are due
                 Runnable collector = createCollector(endpointService, q, completionHandler);
-                this.executorService.submit(collector);
+                this.collectorPool.register(q, collector);
             }
             return q;
         }
@@ -237,17 +332,9 @@ public abstract class MeasurementScheduler<L, T extends MeasurementType<L>, D ex
         status.assertRunning(getClass(), "stop()");
         status = ServiceStatus.STOPPING;
 
-        LOG.debugf("Stopping scheduler [%s]", this.name);
-
-        try {
-            executorService.shutdownNow();
-            executorService.awaitTermination(5, TimeUnit.SECONDS);
-            LOG.debugf("Scheduler [%s] stopped", this.name);
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt(); // Preserve interrupt status
-        } finally {
-            status = ServiceStatus.STOPPED;
-        }
+        // the collector pool is stopped by its owner
+        LOG.debugf("Scheduler [%s] stopped", this.name);
+        status = ServiceStatus.STOPPED;
     }
 
     /**
@@ -261,6 +348,15 @@ public abstract class MeasurementScheduler<L, T extends MeasurementType<L>, D ex
     protected abstract Runnable createCollector(SamplingService<L> endpointService,
             ScheduledCollectionsQueue<L, T> queue, Consumer<D> completionHandler);
 
+    /**
+     * Creates the queue that will hold the scheduled measurements of the given endpoint.
+     *
+     * @param endpointService the endpoint whose measurements are to be queued
+     * @return the new queue
+     */
+    protected abstract ScheduledCollectionsQueue<L, T> createScheduledCollectionsQueue(
+            SamplingService<L> endpointService);
+
     /**
      * Given a resource, this returns the measurement instances that this scheduler should collect for it.
      * This does NOT return the currently scheduled measurements - this returns a set of collections
@@ -17,6 +17,7 @@
 package org.hawkular.agent.monitor.scheduler;
 
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hawkular.agent.monitor.api.SamplingService;
 import org.hawkular.agent.monitor.inventory.MeasurementInstance;
@@ -26,6 +27,8 @@ import org.hawkular.agent.monitor.log.MsgLogger;
 import org.hawkular.agent.monitor.storage.MetricDataPoint;
 import org.hawkular.agent.monitor.util.Consumer;
 
+import com.codahale.metrics.Counter;
+
 /**
  * Defines a job that collects metric data from a particular monitored endpoint.
  *
@@ -36,51 +39,59 @@ class MetricsCollector<L> extends MeasurementCollector<L, MetricType<L>, MetricD
 
     public MetricsCollector(SamplingService<L> endpointService,
             ScheduledCollectionsQueue<L, MetricType<L>> priorityQueue,
-            Consumer<MetricDataPoint> completionHandler) {
-        super(endpointService, priorityQueue, completionHandler);
+            Consumer<MetricDataPoint> completionHandler,
+            Counter dropped) {
+        super(endpointService, priorityQueue, completionHandler, dropped);
     }
 
     /**
-     * This actually collects the metrics and notifies the handler when complete.
+     * This actually collects the metrics that were due when it started and notifies the handler when complete.
+     * It is called by the {@link CollectorPool} whenever the queue has collections that are due.
      */
     @Override
     public void run() {
-        while (!Thread.interrupted()) {
-            try {
-                ScheduledCollectionsQueue<L, MetricType<L>> queue = getScheduledCollectionsQueue();
-                long next = queue.getNextExpectedCollectionTime();
+        try {
+            AtomicInteger droppedOfSet = new AtomicInteger();
+            Consumer<MetricDataPoint> consumer = new Consumer<MetricDataPoint>() {
+                @Override
+                public void accept(MetricDataPoint dataPoint) {
+                    getCompletionHandler().accept(dataPoint);
+                }
+
+                @Override
+                public void report(Throwable e) {
+                    LOG.errorFailedToStoreMetrics(getEndpointService().toString(), e);
+                    getCompletionHandler().report(e);
+                }
 
-                if (next == Long.MIN_VALUE) {
-                    Thread.sleep(10_000); // nothing scheduled; sleep for a bit and see if we get something later
-                } else {
-                    long delay = next - System.currentTimeMillis();
-                    if (delay <= 0) {
-                        // we're late, we're late, for a very important date - collect now
-                        Set<MeasurementInstance<L, MetricType<L>>> instances = queue.popNextScheduledSet();
-                        getEndpointService().measureMetrics(instances, new Consumer<MetricDataPoint>() {
-                            @Override
-                            public void accept(MetricDataPoint dataPoint) {
-                                getCompletionHandler().accept(dataPoint);
-                            }
+                @Override
+                public boolean hasCapacity() {
+                    return getCompletionHandler().hasCapacity();
+                }
 
-                            @Override
-                            public void report(Throwable e) {
-                                LOG.errorFailedToStoreMetrics(getEndpointService().toString(), e);
-                                getCompletionHandler().report(e);
-                            }
-                        });
-                    } else {
-                        // wait for the amount of time before the next collection is scheduled
-                        Thread.sleep(delay);
+                @Override
+                public void dropped(int count) {
+                    countDropped(count);
+                    droppedOfSet.addAndGet(count);
+                }
+            };
+            long startTime = System.currentTimeMillis();
+            while (hasDueCollections(startTime)) {
+                Set<MeasurementInstance<L, MetricType<L>>> instances;
+                instances = getScheduledCollectionsQueue().popNextScheduledSet();
+                if (!instances.isEmpty() && hasCapacity(instances.size())) {
+                    droppedOfSet.set(0);
+                    getEndpointService().measureMetrics(instances, consumer);
+                    if (droppedOfSet.get() >= instances.size()) {
+                        // nothing was collected, e.g. because the endpoint cannot be reached
+                        countMissedRound();
                     }
                 }
-            } catch (InterruptedException ie) {
-                return;
-            } catch (IllegalStateException ise) {
-                LOG.debugf("Cannot collect metrics for endpoint [%s] - not ready yet: %s", getEndpointService(), ise);
-            } catch (Throwable t) {
-                LOG.warnf(t, "Unexpected error caught in MetricsCollector for endpoint [%s]", getEndpointService());
             }
+        } catch (IllegalStateException ise) {
+            LOG.debugf("Cannot collect metrics for endpoint [%s] - not ready yet: %s", getEndpointService(), ise);
+        } catch (Throwable t) {
+            LOG.warnf(t, "Unexpected error caught in MetricsCollector for endpoint [%s]", getEndpointService());
         }
     }
 }
\ No newline at end of file
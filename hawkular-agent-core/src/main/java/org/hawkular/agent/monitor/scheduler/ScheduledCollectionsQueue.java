@@ -16,21 +16,36 @@
  */
 package org.hawkular.agent.monitor.scheduler;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
 
+import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration.CollectionOverrunPolicy;
+import org.hawkular.agent.monitor.inventory.ID;
 import org.hawkular.agent.monitor.inventory.MeasurementInstance;
 import org.hawkular.agent.monitor.inventory.MeasurementType;
 import org.hawkular.agent.monitor.inventory.Resource;
 import org.hawkular.agent.monitor.log.AgentLoggers;
 import org.hawkular.agent.monitor.log.MsgLogger;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+
 /**
  * A priority queue that organizes measurement collections such that the next collection that needs
  * to be made is at the head of the queue.
  *
+ * The schedules are also indexed by resource so unscheduling costs no more than the number of schedules
+ * that are removed. Removed schedules are only marked as cancelled and are dropped from the priority queue
+ * when they reach its head or when cancelled schedules make up most of the queue.
+ *
  * @author John Mazzitelli
  */
 public class ScheduledCollectionsQueue<L, T extends MeasurementType<L>> {
@@ -40,8 +55,35 @@ public class ScheduledCollectionsQueue<L, T extends MeasurementType<L>> {
     //           Right now code just uses "synchronized" blocks, but should introduce R/W locks in future
     private final PriorityQueue<ScheduledMeasurementInstance<L, T>> priorityQueue;
 
+    // all schedules in the priority queue that are not cancelled, keyed by the ID of their resource
+    private final Map<ID, List<ScheduledMeasurementInstance<L, T>>> resourceIndex = new HashMap<>();
+
+    // the number of cancelled schedules that are still in the priority queue
+    private int cancelledCount;
+
+    private final CollectionOverrunPolicy overrunPolicy;
+    private final int maxCatchUpRounds;
+    private final Histogram lateness;
+    private final Counter missedRounds;
+
     public ScheduledCollectionsQueue() {
+        this(CollectionOverrunPolicy.COALESCE, 0, new Histogram(new ExponentiallyDecayingReservoir()), new Counter());
+    }
+
+    /**
+     * @param overrunPolicy what to do with collections that are running behind their schedule
+     * @param maxCatchUpRounds the maximum number of missed rounds collected afterwards with
+     *                         {@link CollectionOverrunPolicy#CATCH_UP}
+     * @param lateness tracks how late (in milliseconds) collections are popped compared to their schedule
+     * @param missedRounds tracks how many collection rounds were missed
+     */
+    public ScheduledCollectionsQueue(CollectionOverrunPolicy overrunPolicy, int maxCatchUpRounds,
+            Histogram lateness, Counter missedRounds) {
         this.priorityQueue = new PriorityQueue<>();
+        this.overrunPolicy = overrunPolicy;
+        this.maxCatchUpRounds = maxCatchUpRounds;
+        this.lateness = lateness;
+        this.missedRounds = missedRounds;
     }
 
     /**
@@ -53,7 +95,7 @@ public class ScheduledCollectionsQueue<L, T extends MeasurementType<L>> {
      */
     public long getNextExpectedCollectionTime() {
         synchronized (priorityQueue) {
-            ScheduledMeasurementInstance<L, T> nextScheduledMeasurement = priorityQueue.peek();
+            ScheduledMeasurementInstance<L, T> nextScheduledMeasurement = peek();
             if (nextScheduledMeasurement == null) {
                 return Long.MIN_VALUE;
             } else {
@@ -67,7 +109,9 @@ public class ScheduledCollectionsQueue<L, T extends MeasurementType<L>> {
      * The returned set will be those measurements to be collected at the same time
      * (see {@link #getNextExpectedCollectionTime()}) but could be across multiple resources.
      *
-     * A new set of measurements will be rescheduled according to their intervals and pushed back on the queue.
+     * A new set of measurements will be rescheduled according to their intervals and the overrun policy
+     * and pushed back on the queue. If the measurements are late by one or more intervals, the rounds
+     * that were missed are counted and, depending on the overrun policy, the measurements might not be returned.
      *
      * If the next scheduled set of collections is to occur in the future or there are no schedules at all
      * then this returns an empty set. In other words, this returns those collections that need to be performed now.
@@ -79,8 +123,9 @@ public class ScheduledCollectionsQueue<L, T extends MeasurementType<L>> {
         Set<MeasurementInstance<L, T>> nextScheduledSet = new HashSet<>();
 
         synchronized (priorityQueue) {
-            ScheduledMeasurementInstance<L, T> first = priorityQueue.peek();
-            if ((first == null) || (first.getNextCollectionTime() > System.currentTimeMillis())) {
+            long now = System.currentTimeMillis();
+            ScheduledMeasurementInstance<L, T> first = peek();
+            if ((first == null) || (first.getNextCollectionTime() > now)) {
                 // nothing is scheduled at all, or the next schedule is in the future
                 return nextScheduledSet;
             }
@@ -89,23 +134,68 @@ public class ScheduledCollectionsQueue<L, T extends MeasurementType<L>> {
             // next scheduled to be collected, but only for the same next collection time.
             ScheduledMeasurementInstance<L, T> next = first;
             long firstCollectionTime = first.getNextCollectionTime();
+            long late = now - firstCollectionTime;
+            long missed = 0L;
+            lateness.update(late);
             while ((next != null) && (next.getNextCollectionTime() == firstCollectionTime)) {
                 ScheduledMeasurementInstance<L, T> queueItem = priorityQueue.poll();
-                nextScheduledSet.add(queueItem.getMeasurementInstance());
+                long interval = queueItem.getMeasurementInstance().getType().getInterval().millis();
+                long behind = (interval > 0L) ? late / interval : 0L; // later rounds that are also already due
+                CollectionOverrunPolicy policy = (interval > 0L) ? overrunPolicy : CollectionOverrunPolicy.COALESCE;
 
                 // reschedule it
-                queueItem.setNextCollectionTime();
+                switch (policy) {
+                    case SKIP: {
+                        if (behind > 0L) {
+                            // skip this round and all others that are due and wait for the next regular round
+                            missed = Math.max(missed, behind + 1L);
+                        } else {
+                            nextScheduledSet.add(queueItem.getMeasurementInstance());
+                        }
+                        queueItem.advanceNextCollectionTime(behind + 1L);
+                        break;
+                    }
+                    case CATCH_UP: {
+                        // collect the rounds that are due one after the other, but not more than the limit
+                        long dropped = Math.max(behind - maxCatchUpRounds, 0L);
+                        missed = Math.max(missed, dropped);
+                        nextScheduledSet.add(queueItem.getMeasurementInstance());
+                        queueItem.advanceNextCollectionTime(dropped + 1L);
+                        break;
+                    }
+                    default: {
+                        // this one collection stands in for all rounds that are due
+                        missed = Math.max(missed, behind);
+                        nextScheduledSet.add(queueItem.getMeasurementInstance());
+                        queueItem.setNextCollectionTime();
+                        break;
+                    }
+                }
                 priorityQueue.offer(queueItem);
                 LOG.debugf("Popped measurement off queue and rescheduled: %s", queueItem);
 
                 // peek ahead at the next scheduled collection
-                next = priorityQueue.peek();
+                next = peek();
+            }
+
+            if (missed > 0L) {
+                missedRounds.inc(missed);
+                LOG.debugf("Collections are running [%d] ms behind schedule, [%d] rounds missed with policy [%s]",
+                        late, missed, overrunPolicy);
             }
         }
 
         return nextScheduledSet;
     }
 
+    /**
+     * Counts a round that was popped off the queue but then not collected at all, for example because the
+     * endpoint could not be reached or the storage could not keep up.
+     */
+    public void countMissedRound() {
+        missedRounds.inc();
+    }
+
     /**
      * Puts the given schedules in the queue to be prioritized for collection.
      *
@@ -114,6 +204,10 @@ public class ScheduledCollectionsQueue<L, T extends MeasurementType<L>> {
     public void schedule(Collection<ScheduledMeasurementInstance<L, T>> schedules) {
         synchronized (priorityQueue) {
             priorityQueue.addAll(schedules);
+            for (ScheduledMeasurementInstance<L, T> schedule : schedules) {
+                resourceIndex.computeIfAbsent(schedule.getResource().getID(), id -> new ArrayList<>(4))
+                        .add(schedule);
+            }
         }
     }
 
@@ -124,7 +218,78 @@ public class ScheduledCollectionsQueue<L, T extends MeasurementType<L>> {
      */
     public void unschedule(Collection<Resource<L>> resources) {
         synchronized (priorityQueue) {
-            priorityQueue.removeIf(mi -> resources.contains(mi.getResource()));
+            for (Resource<L> resource : resources) {
+                List<ScheduledMeasurementInstance<L, T>> schedules = resourceIndex.remove(resource.getID());
+                if (schedules != null) {
+                    schedules.forEach(this::cancel);
+                }
+            }
+            purgeIfMostlyCancelled();
+        }
+    }
+
+    /**
+     * Unschedules the collections of the given measurement types for the given resources. Collections of all other
+     * measurement types are left untouched.
+     *
+     * @param resources only measurements of these resources will be unscheduled
+     * @param types only measurements of these types will be unscheduled
+     */
+    public void unschedule(Collection<Resource<L>> resources, Collection<? extends MeasurementType<L>> types) {
+        Set<MeasurementType<L>> typeSet = new HashSet<>(types);
+        synchronized (priorityQueue) {
+            for (Resource<L> resource : resources) {
+                List<ScheduledMeasurementInstance<L, T>> schedules = resourceIndex.get(resource.getID());
+                if (schedules == null) {
+                    continue;
+                }
+                for (Iterator<ScheduledMeasurementInstance<L, T>> it = schedules.iterator(); it.hasNext();) {
+                    ScheduledMeasurementInstance<L, T> schedule = it.next();
+                    if (typeSet.contains(schedule.getMeasurementInstance().getType())) {
+                        it.remove();
+                        cancel(schedule);
+                    }
+                }
+                if (schedules.isEmpty()) {
+                    resourceIndex.remove(resource.getID());
+                }
+            }
+            purgeIfMostlyCancelled();
+        }
+    }
+
+    /**
+     * Must be called while holding the lock on the priority queue.
+     *
+     * @return the head of the priority queue after dropping cancelled schedules that were at its head
+     */
+    private ScheduledMeasurementInstance<L, T> peek() {
+        ScheduledMeasurementInstance<L, T> head = priorityQueue.peek();
+        while (head != null && head.isCancelled()) {
+            priorityQueue.poll();
+            cancelledCount--;
+            head = priorityQueue.peek();
+        }
+        return head;
+    }
+
+    private void cancel(ScheduledMeasurementInstance<L, T> schedule) {
+        if (!schedule.isCancelled()) {
+            schedule.cancel();
+            cancelledCount++;
+        }
+    }
+
+    /**
+     * Rebuilds the priority queue without the cancelled schedules once they outnumber the live ones,
+     * so the queue does not grow when resources are unscheduled that are far from being collected.
+     * The cost of the rebuild is amortized over the unschedule calls that cancelled those schedules.
+     * Must be called while holding the lock on the priority queue.
+     */
+    private void purgeIfMostlyCancelled() {
+        if (cancelledCount > 0 && cancelledCount * 2 > priorityQueue.size()) {
+            priorityQueue.removeIf(ScheduledMeasurementInstance::isCancelled);
+            cancelledCount = 0;
         }
     }
-}
\ No newline at end of file
+}
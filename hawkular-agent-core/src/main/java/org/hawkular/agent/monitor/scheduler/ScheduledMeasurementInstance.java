@@ -20,7 +20,9 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
+import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration.CollectionPhaseSpreading;
 import org.hawkular.agent.monitor.inventory.AvailType;
 import org.hawkular.agent.monitor.inventory.MeasurementInstance;
 import org.hawkular.agent.monitor.inventory.MeasurementType;
@@ -41,8 +43,23 @@ public class ScheduledMeasurementInstance<L, T extends MeasurementType<L>>
      * @return the scheduled metrics for the resource
      */
     public static <LL> Set<ScheduledMeasurementInstance<LL, MetricType<LL>>> createMetrics(Resource<LL> resource) {
+        return createMetrics(resource, CollectionPhaseSpreading.NONE);
+    }
+
+    /**
+     * This will create scheduled metric instances for all metrics associated with the given resource.
+     * Each will be scheduled for in the future based on the metric type interval and the resource's phase
+     * within that interval (see {@link CollectionPhaseSpreading}).
+     *
+     * @param resource whose metric schedules are to be created
+     * @param phaseSpreading how the collections of different resources are spread across their intervals
+     * @return the scheduled metrics for the resource
+     */
+    public static <LL> Set<ScheduledMeasurementInstance<LL, MetricType<LL>>> createMetrics(Resource<LL> resource,
+            CollectionPhaseSpreading phaseSpreading) {
 
         long now = System.currentTimeMillis(); // use the same time for all collection time calcs for better grouping
+        Long phaseSeed = getPhaseSeed(resource, phaseSpreading); // same for all metrics of the resource, too
         Set<ScheduledMeasurementInstance<LL, MetricType<LL>>> set = new HashSet<>(resource.getMetrics().size());
         Collection<MeasurementInstance<LL, MetricType<LL>>> metrics = resource.getMetrics();
         for (MeasurementInstance<LL, MetricType<LL>> metric : metrics) {
@@ -50,8 +67,8 @@ public class ScheduledMeasurementInstance<L, T extends MeasurementType<L>>
                 continue;
             }
             ScheduledMeasurementInstance<LL, MetricType<LL>> meas;
-            meas = new ScheduledMeasurementInstance<LL, MetricType<LL>>(resource, metric);
-            meas.setNextCollectionTime(metric.getType().getInterval().millis() + now);
+            meas = new ScheduledMeasurementInstance<LL, MetricType<LL>>(resource, metric, phaseSeed);
+            meas.setFirstCollectionTime(now);
             set.add(meas);
         }
         return set;
@@ -65,8 +82,23 @@ public class ScheduledMeasurementInstance<L, T extends MeasurementType<L>>
      * @return the scheduled avail checks for the resource
      */
     public static <LL> Set<ScheduledMeasurementInstance<LL, AvailType<LL>>> createAvails(Resource<LL> resource) {
+        return createAvails(resource, CollectionPhaseSpreading.NONE);
+    }
+
+    /**
+     * This will create scheduled avail check instances for all availabilities associated with the given resource.
+     * Each will be scheduled for in the future based on the avail type interval and the resource's phase
+     * within that interval (see {@link CollectionPhaseSpreading}).
+     *
+     * @param resource whose avail check schedules are to be created
+     * @param phaseSpreading how the avail checks of different resources are spread across their intervals
+     * @return the scheduled avail checks for the resource
+     */
+    public static <LL> Set<ScheduledMeasurementInstance<LL, AvailType<LL>>> createAvails(Resource<LL> resource,
+            CollectionPhaseSpreading phaseSpreading) {
 
         long now = System.currentTimeMillis(); // use the same time for all collection time calcs for better grouping
+        Long phaseSeed = getPhaseSeed(resource, phaseSpreading); // same for all avails of the resource, too
         Set<ScheduledMeasurementInstance<LL, AvailType<LL>>> set = new HashSet<>(resource.getAvails().size());
         Collection<MeasurementInstance<LL, AvailType<LL>>> avails = resource.getAvails();
         for (MeasurementInstance<LL, AvailType<LL>> avail : avails) {
@@ -74,19 +106,60 @@ public class ScheduledMeasurementInstance<L, T extends MeasurementType<L>>
                 continue;
             }
             ScheduledMeasurementInstance<LL, AvailType<LL>> meas;
-            meas = new ScheduledMeasurementInstance<LL, AvailType<LL>>(resource, avail);
-            meas.setNextCollectionTime(avail.getType().getInterval().millis() + now);
+            meas = new ScheduledMeasurementInstance<LL, AvailType<LL>>(resource, avail, phaseSeed);
+            meas.setFirstCollectionTime(now);
             set.add(meas);
         }
 
         return set;
     }
 
+    /**
+     * Determines the value from which the phase of all collections of the given resource is derived.
+     * The phase of a collection is this value modulo the collection interval, so collections of the same
+     * resource with the same interval are still due at the same time and can be grouped.
+     *
+     * @param resource the resource whose collections are to be scheduled
+     * @param phaseSpreading the policy that determines the phase
+     * @return the phase seed or null if collections are not to be spread
+     */
+    static Long getPhaseSeed(Resource<?> resource, CollectionPhaseSpreading phaseSpreading) {
+        if (phaseSpreading == null) {
+            return null;
+        }
+        switch (phaseSpreading) {
+            case HASH: {
+                // the ID hash codes of sibling resources are often close to each other, so mix the bits
+                long hash = resource.getID().getIDString().hashCode() * 0x9E3779B97F4A7C15L;
+                return hash ^ (hash >>> 29);
+            }
+            case RANDOM: {
+                return ThreadLocalRandom.current().nextLong();
+            }
+            default: {
+                return null;
+            }
+        }
+    }
+
     private final MeasurementInstance<L, T> measurementInstance;
     private final Resource<L> resource;
+    private final Long phaseSeed;
     private long nextCollectionTime;
+    private boolean cancelled; // guarded by the lock of the queue that holds this schedule
 
     public ScheduledMeasurementInstance(Resource<L> resource, MeasurementInstance<L, T> measurementInstance) {
+        this(resource, measurementInstance, null);
+    }
+
+    /**
+     * @param resource the resource whose measurement is to be scheduled
+     * @param measurementInstance the measurement to be scheduled
+     * @param phaseSeed if not null, the collections are kept at the phase within the interval
+     *                  that is this value modulo the collection interval
+     */
+    public ScheduledMeasurementInstance(Resource<L> resource, MeasurementInstance<L, T> measurementInstance,
+            Long phaseSeed) {
 
         if (resource == null) {
             throw new IllegalArgumentException("resource is null");
@@ -97,6 +170,7 @@ public class ScheduledMeasurementInstance<L, T extends MeasurementType<L>>
 
         this.resource = resource;
         this.measurementInstance = measurementInstance;
+        this.phaseSeed = phaseSeed;
         this.nextCollectionTime = measurementInstance.getType().getInterval().millis() + System.currentTimeMillis();
     }
 
@@ -127,11 +201,62 @@ public class ScheduledMeasurementInstance<L, T extends MeasurementType<L>>
 
     /**
      * This will set the next collection time based on the measurement's collection interval
-     * and the current time.
+     * and the current time. If the measurement has a phase, the next collection time is the next time
+     * after now that is at that phase within the interval.
      */
     public void setNextCollectionTime() {
-        long interval = getMeasurementInstance().getType().getInterval().millis();
-        setNextCollectionTime(System.currentTimeMillis() + interval);
+        long now = System.currentTimeMillis();
+        if (phaseSeed == null) {
+            long interval = getMeasurementInstance().getType().getInterval().millis();
+            setNextCollectionTime(now + interval);
+        } else {
+            this.nextCollectionTime = getNextPhaseTime(now);
+        }
+    }
+
+    /**
+     * @return true if this schedule was unscheduled but might still be in a queue until it is lazily removed
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Moves the next collection time forward by the given number of collection intervals. Unlike
+     * {@link #setNextCollectionTime()} this keeps the collections at their current cadence, even if
+     * the new collection time is already in the past.
+     *
+     * @param intervals the number of intervals to move the next collection time
+     */
+    void advanceNextCollectionTime(long intervals) {
+        this.nextCollectionTime += intervals * getMeasurementInstance().getType().getInterval().millis();
+    }
+
+    /**
+     * Sets the time of the first collection of a new schedule. Without a phase, this is one interval after
+     * the given time. With a phase, this is the first time after the given time that is at that phase,
+     * which spreads the first collections of different resources across one interval.
+     *
+     * @param now the time the schedule is created
+     */
+    private void setFirstCollectionTime(long now) {
+        if (phaseSeed == null) {
+            setNextCollectionTime(now + getMeasurementInstance().getType().getInterval().millis());
+        } else {
+            this.nextCollectionTime = getNextPhaseTime(now);
+        }
+    }
+
+    private long getNextPhaseTime(long now) {
+        // the interval can change at runtime, so the phase is always determined from the current interval
+        long interval = Math.max(getMeasurementInstance().getType().getInterval().millis(), 1L);
+        long phase = Math.floorMod(phaseSeed.longValue(), interval);
+        long next = now + Math.floorMod(phase - now, interval);
+        return (next > now) ? next : next + interval;
     }
 
     @Override
@@ -19,6 +19,7 @@ package org.hawkular.agent.monitor.scheduler;
 import java.util.Set;
 
 import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration;
+import org.hawkular.agent.monitor.storage.StorageGate;
 
 public class SchedulerConfiguration {
 
@@ -27,6 +28,10 @@ public class SchedulerConfiguration {
     public static final int DEFAULT_AVAIL_DISPATCHER_BUFFER_SIZE = 500;
     public static final int DEFAULT_AVAIL_DISPATCHER_MAX_BATCH_SIZE = 50;
     public static final int DEFAULT_PING_DISPATCHER_PERIOD_SECONDS = 60;
+    public static final int DEFAULT_NUM_SCHEDULER_THREADS = 4;
+    public static final int DEFAULT_MAX_CATCH_UP_ROUNDS = 3;
+    public static final long DEFAULT_DISPATCHER_LINGER_MILLIS = 500L;
+    public static final long DEFAULT_DISPATCHER_TARGET_LATENCY_MILLIS = 1000L;
 
     private int metricDispatcherBufferSize = DEFAULT_METRIC_DISPATCHER_BUFFER_SIZE;
     private int metricDispatcherMaxBatchSize = DEFAULT_METRIC_DISPATCHER_MAX_BATCH_SIZE;
@@ -34,14 +39,44 @@ public class SchedulerConfiguration {
     private int availDispatcherBufferSize = DEFAULT_AVAIL_DISPATCHER_BUFFER_SIZE;
     private int availDispatcherMaxBatchSize = DEFAULT_AVAIL_DISPATCHER_MAX_BATCH_SIZE;
 
+    // how long the dispatchers wait for a batch to fill up before sending it anyway
+    private long metricDispatcherLingerMillis = DEFAULT_DISPATCHER_LINGER_MILLIS;
+    private long availDispatcherLingerMillis = DEFAULT_DISPATCHER_LINGER_MILLIS;
+
+    // storage requests slower than this make the dispatchers send smaller batches
+    private long dispatcherTargetLatencyMillis = DEFAULT_DISPATCHER_TARGET_LATENCY_MILLIS;
+
+    // what the dispatchers do with collected data when their buffers are full
+    private AgentCoreEngineConfiguration.DispatcherDropPolicy metricDispatcherDropPolicy =
+            AgentCoreEngineConfiguration.DispatcherDropPolicy.DROP_NEWEST;
+    private AgentCoreEngineConfiguration.DispatcherDropPolicy availDispatcherDropPolicy =
+            AgentCoreEngineConfiguration.DispatcherDropPolicy.DROP_OLDEST;
+
     private int pingDispatcherPeriodSeconds = DEFAULT_PING_DISPATCHER_PERIOD_SECONDS;
 
+    // the number of threads that collect metrics and check avails for all endpoints
+    private int numSchedulerThreads = DEFAULT_NUM_SCHEDULER_THREADS;
+
+    // how the collections of different resources are spread across their collection intervals
+    private AgentCoreEngineConfiguration.CollectionPhaseSpreading phaseSpreading =
+            AgentCoreEngineConfiguration.CollectionPhaseSpreading.NONE;
+
+    // what the schedulers do with collections that are running behind their schedule
+    private AgentCoreEngineConfiguration.CollectionOverrunPolicy metricOverrunPolicy =
+            AgentCoreEngineConfiguration.CollectionOverrunPolicy.COALESCE;
+    private AgentCoreEngineConfiguration.CollectionOverrunPolicy availOverrunPolicy =
+            AgentCoreEngineConfiguration.CollectionOverrunPolicy.COALESCE;
+    private int maxCatchUpRounds = DEFAULT_MAX_CATCH_UP_ROUNDS;
+
     private AgentCoreEngineConfiguration.StorageAdapterConfiguration storageAdapterConfig;
     private AgentCoreEngineConfiguration.DiagnosticsConfiguration diagnosticsConfig;
 
     private String feedId;
     private Set<String> tenantIds;
 
+    // collected data is not sent to storage until this is opened
+    private StorageGate storageGate = new StorageGate(true);
+
     public int getMetricDispatcherBufferSize() {
         return metricDispatcherBufferSize;
     }
@@ -74,6 +109,86 @@ public class SchedulerConfiguration {
         this.availDispatcherMaxBatchSize = availDispatcherMaxBatchSize;
     }
 
+    public int getNumSchedulerThreads() {
+        return numSchedulerThreads;
+    }
+
+    public void setNumSchedulerThreads(int numSchedulerThreads) {
+        this.numSchedulerThreads = numSchedulerThreads;
+    }
+
+    public AgentCoreEngineConfiguration.CollectionPhaseSpreading getPhaseSpreading() {
+        return phaseSpreading;
+    }
+
+    public void setPhaseSpreading(AgentCoreEngineConfiguration.CollectionPhaseSpreading phaseSpreading) {
+        this.phaseSpreading = phaseSpreading;
+    }
+
+    public AgentCoreEngineConfiguration.CollectionOverrunPolicy getMetricOverrunPolicy() {
+        return metricOverrunPolicy;
+    }
+
+    public void setMetricOverrunPolicy(AgentCoreEngineConfiguration.CollectionOverrunPolicy metricOverrunPolicy) {
+        this.metricOverrunPolicy = metricOverrunPolicy;
+    }
+
+    public AgentCoreEngineConfiguration.CollectionOverrunPolicy getAvailOverrunPolicy() {
+        return availOverrunPolicy;
+    }
+
+    public void setAvailOverrunPolicy(AgentCoreEngineConfiguration.CollectionOverrunPolicy availOverrunPolicy) {
+        this.availOverrunPolicy = availOverrunPolicy;
+    }
+
+    public long getMetricDispatcherLingerMillis() {
+        return metricDispatcherLingerMillis;
+    }
+
+    public void setMetricDispatcherLingerMillis(long metricDispatcherLingerMillis) {
+        this.metricDispatcherLingerMillis = metricDispatcherLingerMillis;
+    }
+
+    public long getAvailDispatcherLingerMillis() {
+        return availDispatcherLingerMillis;
+    }
+
+    public void setAvailDispatcherLingerMillis(long availDispatcherLingerMillis) {
+        this.availDispatcherLingerMillis = availDispatcherLingerMillis;
+    }
+
+    public long getDispatcherTargetLatencyMillis() {
+        return dispatcherTargetLatencyMillis;
+    }
+
+    public void setDispatcherTargetLatencyMillis(long dispatcherTargetLatencyMillis) {
+        this.dispatcherTargetLatencyMillis = dispatcherTargetLatencyMillis;
+    }
+
+    public AgentCoreEngineConfiguration.DispatcherDropPolicy getMetricDispatcherDropPolicy() {
+        return metricDispatcherDropPolicy;
+    }
+
+    public void setMetricDispatcherDropPolicy(AgentCoreEngineConfiguration.DispatcherDropPolicy dropPolicy) {
+        this.metricDispatcherDropPolicy = dropPolicy;
+    }
+
+    public AgentCoreEngineConfiguration.DispatcherDropPolicy getAvailDispatcherDropPolicy() {
+        return availDispatcherDropPolicy;
+    }
+
+    public void setAvailDispatcherDropPolicy(AgentCoreEngineConfiguration.DispatcherDropPolicy dropPolicy) {
+        this.availDispatcherDropPolicy = dropPolicy;
+    }
+
+    public int getMaxCatchUpRounds() {
+        return maxCatchUpRounds;
+    }
+
+    public void setMaxCatchUpRounds(int maxCatchUpRounds) {
+        this.maxCatchUpRounds = maxCatchUpRounds;
+    }
+
     public int getPingDispatcherPeriodSeconds() {
         return pingDispatcherPeriodSeconds;
     }
@@ -114,4 +229,12 @@ public class SchedulerConfiguration {
         this.diagnosticsConfig = config;
     }
 
+    public StorageGate getStorageGate() {
+        return storageGate;
+    }
+
+    public void setStorageGate(StorageGate storageGate) {
+        this.storageGate = storageGate;
+    }
+
 }
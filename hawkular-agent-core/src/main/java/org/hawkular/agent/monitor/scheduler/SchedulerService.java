@@ -51,6 +51,7 @@ public class SchedulerService implements InventoryListener {
     private final Diagnostics diagnostics;
     private final MeasurementScheduler<Object, MetricType<Object>, MetricDataPoint> metricScheduler;
     private final MeasurementScheduler<Object, AvailType<Object>, AvailDataPoint> availScheduler;
+    private final CollectorPool collectorPool;
     private final ScheduledThreadPoolExecutor pingScheduler;
     private final MetricBufferedStorageDispatcher metricStorage;
     private final AvailBufferedStorageDispatcher availStorage;
@@ -69,13 +70,17 @@ public class SchedulerService implements InventoryListener {
         this.diagnostics = diagnostics;
 
         // create the schedulers - we use three: one for metric collections, one for avail checks and one for feed pings
+        // metric collections and avail checks of all endpoints share one bounded pool of collector threads
+        this.collectorPool = new CollectorPool("Hawkular-WildFly-Agent-Scheduler-Collector",
+                configuration.getNumSchedulerThreads());
+
         this.metricStorage = new MetricBufferedStorageDispatcher(configuration, storageAdapter, diagnostics);
         this.metricScheduler = MeasurementScheduler.forMetrics("Hawkular-WildFly-Agent-Scheduler-Metrics",
-                metricStorage);
+                collectorPool, configuration, diagnostics, metricStorage);
 
         this.availStorage = new AvailBufferedStorageDispatcher(configuration, storageAdapter, diagnostics);
         this.availScheduler = MeasurementScheduler.forAvails("Hawkular-WildFly-Agent-Scheduler-Avail",
-                availStorage);
+                collectorPool, configuration, diagnostics, availStorage);
 
         this.pingStorage = new PingStorageDispatcher(configuration, storageAdapter, diagnostics);
         ThreadFactory threadFactory = ThreadFactoryGenerator.generateFactory(true, "Hawkular-WildFly-Scheduler-Ping");
@@ -101,6 +106,8 @@ public class SchedulerService implements InventoryListener {
         this.availStorage.start();
         this.availScheduler.start();
 
+        this.collectorPool.start();
+
         status = ServiceStatus.RUNNING;
     }
 
@@ -115,6 +122,7 @@ public class SchedulerService implements InventoryListener {
         this.availStorage.shutdown();
 
         // stop the schedulers
+        this.collectorPool.stop();
         this.metricScheduler.stop();
         this.availScheduler.stop();
 
@@ -148,4 +156,34 @@ public class SchedulerService implements InventoryListener {
         ((MeasurementScheduler) metricScheduler).unschedule(service, resources);
         ((MeasurementScheduler) availScheduler).unschedule(service, resources);
     }
+
+    /**
+     * Drops everything scheduled for the given endpoint and stops running its collectors.
+     * Call this when the endpoint is removed from the agent.
+     *
+     * @param service the endpoint that is being removed
+     */
+    public <L> void removeEndpoint(SamplingService<L> service) {
+        ((MeasurementScheduler) metricScheduler).removeEndpoint(service);
+        ((MeasurementScheduler) availScheduler).removeEndpoint(service);
+    }
+
+    /**
+     * Reschedules the collections of the given metric and avail types for the given resources.
+     * Call this after the intervals of those types have been changed.
+     *
+     * @param service defines where the resources are
+     * @param resources the resources whose collections are to be rescheduled
+     * @param metricTypes the metric types whose interval has changed
+     * @param availTypes the avail types whose interval has changed
+     */
+    public <L> void reschedule(SamplingService<L> service, Collection<Resource<L>> resources,
+            Collection<MetricType<L>> metricTypes, Collection<AvailType<L>> availTypes) {
+        if (!metricTypes.isEmpty()) {
+            ((MeasurementScheduler) metricScheduler).reschedule(service, resources, metricTypes);
+        }
+        if (!availTypes.isEmpty()) {
+            ((MeasurementScheduler) availScheduler).reschedule(service, resources, availTypes);
+        }
+    }
 }
@@ -16,15 +16,20 @@
  */
 package org.hawkular.agent.monitor.service;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
@@ -39,6 +44,7 @@ import org.hawkular.agent.monitor.cmd.WebSocketClientBuilder;
 import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration;
 import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration.AbstractEndpointConfiguration;
 import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration.EndpointConfiguration;
+import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration.ProtocolConfiguration;
 import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration.StorageReportTo;
 import org.hawkular.agent.monitor.diagnostics.Diagnostics;
 import org.hawkular.agent.monitor.diagnostics.DiagnosticsImpl;
@@ -46,14 +52,21 @@ import org.hawkular.agent.monitor.diagnostics.JBossLoggingReporter;
 import org.hawkular.agent.monitor.diagnostics.JBossLoggingReporter.LoggingLevel;
 import org.hawkular.agent.monitor.diagnostics.StorageReporter;
 import org.hawkular.agent.monitor.inventory.AvailType;
+import org.hawkular.agent.monitor.inventory.Interval;
 import org.hawkular.agent.monitor.inventory.MeasurementInstance;
+import org.hawkular.agent.monitor.inventory.MetricType;
+import org.hawkular.agent.monitor.inventory.Name;
 import org.hawkular.agent.monitor.inventory.Resource;
 import org.hawkular.agent.monitor.inventory.ResourceManager;
+import org.hawkular.agent.monitor.inventory.ResourceType;
+import org.hawkular.agent.monitor.inventory.TypeSetsDiff;
 import org.hawkular.agent.monitor.log.AgentLoggers;
 import org.hawkular.agent.monitor.log.MsgLogger;
 import org.hawkular.agent.monitor.protocol.EndpointService;
+import org.hawkular.agent.monitor.protocol.InventorySnapshots;
 import org.hawkular.agent.monitor.protocol.ProtocolService;
 import org.hawkular.agent.monitor.protocol.ProtocolServices;
+import org.hawkular.agent.monitor.protocol.Session;
 import org.hawkular.agent.monitor.protocol.dmr.ModelControllerClientFactory;
 import org.hawkular.agent.monitor.scheduler.SchedulerConfiguration;
 import org.hawkular.agent.monitor.scheduler.SchedulerService;
@@ -65,6 +78,8 @@ import org.hawkular.agent.monitor.storage.InventoryStorageProxy;
 import org.hawkular.agent.monitor.storage.MetricStorageProxy;
 import org.hawkular.agent.monitor.storage.NotificationDispatcher;
 import org.hawkular.agent.monitor.storage.StorageAdapter;
+import org.hawkular.agent.monitor.storage.StorageGate;
+import org.hawkular.agent.monitor.util.ThreadFactoryGenerator;
 import org.hawkular.agent.monitor.util.Util;
 import org.hawkular.bus.common.BasicMessage;
 import org.jboss.logging.Logger;
@@ -86,6 +101,10 @@ import okhttp3.Response;
 public abstract class AgentCoreEngine {
     private static final MsgLogger log = AgentLoggers.getLogger(AgentCoreEngine.class);
 
+    // how long the server waiter waits before trying again after a failure; doubled on each failure up to the max
+    private static final long SERVER_WAITER_MIN_RETRY_DELAY_MILLIS = 5_000L;
+    private static final long SERVER_WAITER_MAX_RETRY_DELAY_MILLIS = 300_000L;
+
     private AtomicReference<ServiceStatus> agentServiceStatus = new AtomicReference<>(ServiceStatus.INITIAL);
 
     // the agent configuration
@@ -102,6 +121,18 @@ public abstract class AgentCoreEngine {
     private StorageAdapter storageAdapter;
     private HttpClientBuilder httpClientBuilder;
 
+    // holds back collected data until the Hawkular server is ready; only closed for a while in fast-start mode
+    private StorageGate storageGate;
+
+    // waits for the Hawkular server in the background when in fast-start mode
+    private Thread serverWaiter;
+
+    // when the agent was last started, per System.nanoTime()
+    private long startNanos;
+
+    // how long each phase of the last startup took
+    private volatile StartupPhases startupPhases = new StartupPhases();
+
     // used to send/receive data to the server over the feed communications channel
     private WebSocketClientBuilder webSocketClientBuilder;
     private FeedCommProcessor feedComm;
@@ -120,6 +151,9 @@ public abstract class AgentCoreEngine {
     // contains endpoint services for all the different protocols that are supported (dmr, jmx, platform)
     private ProtocolServices protocolServices;
 
+    // keeps the inventory on disk so a restarted agent can start monitoring right away; null if not configured
+    private InventorySnapshots inventorySnapshots;
+
     // Used to talk to the management interface of the WildFly server the agent is deployed in.
     // Will be null if agent is not running within a WildFly server.
     private ModelControllerClientFactory localModelControllerClientFactory;
@@ -143,6 +177,13 @@ public abstract class AgentCoreEngine {
         return new HawkularAgentContextImpl(metricStorageProxy, availStorageProxy, inventoryStorageProxy);
     }
 
+    /**
+     * @return how long each phase of the last startup took
+     */
+    public StartupPhases getStartupPhases() {
+        return startupPhases;
+    }
+
     /**
      * @return the status of the agent service. Will let you know if this service
      *         is {@link #startHawkularAgent() started} or {@link #stopHawkularAgent() stopped}.
@@ -225,6 +266,10 @@ public abstract class AgentCoreEngine {
         }
 
         try {
+            this.startNanos = System.nanoTime();
+            final StartupPhases phases = new StartupPhases();
+            this.startupPhases = phases;
+
             Package agentPackage = this.getClass().getPackage();
             if (agentPackage != null) {
                 log.infoTypeAndVersion(agentPackage.getImplementationTitle(), agentPackage.getImplementationVersion());
@@ -236,7 +281,8 @@ public abstract class AgentCoreEngine {
             if (null != newConfiguration) {
                 this.configuration = newConfiguration;
             }
-            this.configuration = loadRuntimeConfiguration(this.configuration);
+            this.configuration = phases.time("load configuration",
+                    () -> loadRuntimeConfiguration(this.configuration));
 
             // if the agent has been disabled, abort startup and return immediately
             if (!this.configuration.getGlobalConfiguration().isSubsystemEnabled()) {
@@ -250,8 +296,31 @@ public abstract class AgentCoreEngine {
                 throw new Exception("Missing tenant ID");
             }
 
-            this.trustOnlySSLContextValues = buildTrustOnlySSLContextValues(this.configuration);
-            this.trustOnlyTrustManagersValues = buildTrustOnlyTrustManagersValues(this.configuration);
+            // must be decided before any of the threads doing blocking I/O are created
+            if (ThreadFactoryGenerator.setVirtualThreadsEnabled(
+                    this.configuration.getGlobalConfiguration().isVirtualThreads())) {
+                log.infof("Using virtual threads for collections, discovery and management clients");
+            }
+
+            // these do not depend on each other and can be slow (keystores, host name lookups), so do them in parallel
+            Map<String, Callable<?>> identityPhases = new LinkedHashMap<>();
+            identityPhases.put("security realms", () -> {
+                this.trustOnlySSLContextValues = buildTrustOnlySSLContextValues(this.configuration);
+                this.trustOnlyTrustManagersValues = buildTrustOnlyTrustManagersValues(this.configuration);
+                return null;
+            });
+            identityPhases.put("feed id", () -> {
+                // get our self identifiers
+                this.localModelControllerClientFactory = buildLocalModelControllerClientFactory();
+
+                if (this.configuration.getStorageAdapter().getFeedId() != null) {
+                    this.feedId = this.configuration.getStorageAdapter().getFeedId();
+                } else {
+                    this.feedId = autoGenerateFeedId();
+                }
+                return null;
+            });
+            phases.timeInParallel(identityPhases);
 
             // If we are to talk to the hawkular server securely, get the storage adapter security realm
             // details and use it in the web socket client builder.
@@ -270,69 +339,50 @@ public abstract class AgentCoreEngine {
                 }
             }
 
-            // prepare the builder that will create our HTTP/REST clients to the hawkular server infrastructure
-            this.httpClientBuilder = new HttpClientBuilder(this.configuration.getStorageAdapter(), ssl,
-                    x509TrustManager);
-
-            // get our self identifiers
-            this.localModelControllerClientFactory = buildLocalModelControllerClientFactory();
-
-            if (this.configuration.getStorageAdapter().getFeedId() != null) {
-                this.feedId = this.configuration.getStorageAdapter().getFeedId();
-            } else {
-                this.feedId = autoGenerateFeedId();
-            }
-
             // build the diagnostics object that will be used to track our own performance
             final MetricRegistry metricRegistry = new MetricRegistry();
             this.diagnostics = new DiagnosticsImpl(configuration.getDiagnostics(), metricRegistry, feedId);
 
+            // prepare the builder that will create our HTTP/REST clients to the hawkular server infrastructure
+            this.httpClientBuilder = new HttpClientBuilder(this.configuration.getStorageAdapter(), ssl,
+                    x509TrustManager, this.diagnostics.getStorageConnectionSetupTimer());
+
             // We need the tenantIds to register our feed (in Hawkular mode) and to schedule pings
             Set<String> tenantIds = getTenantIds();
 
-            // Before we go on, we must make sure the Hawkular Server is up and ready
-            waitForHawkularServer();
-
-            // perform some things that are dependent upon what mode the agent is in
-            switch (this.configuration.getStorageAdapter().getType()) {
-                case HAWKULAR:
-                    // if we are participating in a full Hawkular environment, we need to do some additional things:
-                    // try to connect to the server via command-gateway channel; keep going on error
-                    try {
-                        this.webSocketClientBuilder = new WebSocketClientBuilder(
-                                this.configuration.getStorageAdapter(), ssl, x509TrustManager);
-                        this.feedComm = new FeedCommProcessor(
-                                this.webSocketClientBuilder,
-                                buildAdditionalCommands(),
-                                this.feedId,
-                                this);
-                        this.feedComm.connect();
-                    } catch (Exception e) {
-                        if (e instanceof InterruptedException) {
-                            Thread.currentThread().interrupt();
-                        }
-                        log.errorCannotEstablishFeedComm(e);
-                    }
-                    break;
-
-                case METRICS:
-                    // nothing special needs to be done
-                    break;
-                default:
-                    throw new IllegalStateException(
-                            "Unknown storage adapter type: " + this.configuration.getStorageAdapter().getType());
+            final SSLContext serverSsl = ssl;
+            final X509TrustManager serverTrustManager = x509TrustManager;
+            final boolean fastStart = this.configuration.getGlobalConfiguration().isFastStart();
+            if (fastStart) {
+                // Start collecting right away; what we collect stays buffered until the Hawkular Server is ready.
+                log.infof("Fast start enabled - monitoring will start before the Hawkular Server is ready");
+                this.storageGate = new StorageGate(false);
+                startServerWaiter(serverSsl, serverTrustManager);
+            } else {
+                // Before we go on, we must make sure the Hawkular Server is up and ready
+                this.storageGate = new StorageGate(true);
+                phases.time("wait for server", () -> {
+                    waitForHawkularServer();
+                    return null;
+                });
             }
 
             // start the storage adapter
             try {
-                startStorageAdapter();
+                phases.time("storage adapter", () -> {
+                    startStorageAdapter();
+                    return null;
+                });
             } catch (Exception e) {
                 log.errorCannotStartStorageAdapter(e);
                 throw new Exception("Agent cannot start storage adapter");
             }
 
             try {
-                startScheduler(tenantIds);
+                phases.time("scheduler", () -> {
+                    startScheduler(tenantIds);
+                    return null;
+                });
             } catch (Exception e) {
                 log.errorCannotInitializeScheduler(e);
                 throw new Exception("Agent cannot initialize scheduler");
@@ -345,6 +395,13 @@ public abstract class AgentCoreEngine {
                 this.notificationDispatcher = null;
             }
 
+            String inventorySnapshotDir = configuration.getGlobalConfiguration().getInventorySnapshotDir();
+            if (inventorySnapshotDir != null && !inventorySnapshotDir.trim().isEmpty()) {
+                this.inventorySnapshots = new InventorySnapshots(this.feedId, new File(inventorySnapshotDir));
+            } else {
+                this.inventorySnapshots = null;
+            }
+
             // build the protocol services
             ProtocolServices ps = createProtocolServicesBuilder()
                     .dmrProtocolService(this.localModelControllerClientFactory, configuration.getDmrConfiguration())
@@ -352,6 +409,12 @@ public abstract class AgentCoreEngine {
                     .platformProtocolService(configuration.getPlatformConfiguration())
                     .autoDiscoveryScanPeriodSecs(
                             configuration.getGlobalConfiguration().getAutoDiscoveryScanPeriodSeconds())
+                    .autoDiscoveryScanPeriodBoundsSecs(
+                            configuration.getGlobalConfiguration().getAutoDiscoveryScanPeriodMinSeconds(),
+                            configuration.getGlobalConfiguration().getAutoDiscoveryScanPeriodMaxSeconds())
+                    .maxConcurrentDiscoveryScans(
+                            configuration.getGlobalConfiguration().getMaxConcurrentDiscoveryScans())
+                    .inventorySnapshots(this.inventorySnapshots)
                     .build();
             ps.addInventoryListener(inventoryStorageProxy);
             ps.addInventoryListener(schedulerService);
@@ -359,12 +422,29 @@ public abstract class AgentCoreEngine {
                 ps.addInventoryListener(notificationDispatcher);
                 ps.addAvailListener(notificationDispatcher);
             }
+            if (inventorySnapshots != null) {
+                // must be the last listener so the snapshot sees what the other listeners did with the resources
+                ps.addInventoryListener(inventorySnapshots);
+            }
             protocolServices = ps;
 
-            // start all protocol services - this should perform the initial discovery scans
-            protocolServices.start();
+            // Start all protocol services - this should perform the initial discovery scans.
+            // Connecting the feed comm channel does not depend on them, so do that at the same time.
+            Map<String, Callable<?>> lastPhases = new LinkedHashMap<>();
+            lastPhases.put("protocol services", () -> {
+                ps.start(phases);
+                return null;
+            });
+            if (!fastStart) {
+                lastPhases.put("feed comm", () -> {
+                    connectToServer(serverSsl, serverTrustManager);
+                    return null;
+                });
+            }
+            phases.timeInParallel(lastPhases);
 
             setStatus(ServiceStatus.RUNNING);
+            log.infof("Agent started in [%d] ms: %s", phases.getElapsed(), phases);
 
         } catch (Throwable t) {
             if (t instanceof InterruptedException) {
@@ -378,6 +458,86 @@ public abstract class AgentCoreEngine {
         }
     }
 
+    /**
+     * Performs the things that need the Hawkular Server to be up, which depend upon what mode the agent is in.
+     *
+     * @param ssl the SSL context to use when talking to the server securely; may be null
+     * @param x509TrustManager the trust manager to use when talking to the server securely; may be null
+     */
+    private void connectToServer(SSLContext ssl, X509TrustManager x509TrustManager) {
+        switch (this.configuration.getStorageAdapter().getType()) {
+            case HAWKULAR:
+                // if we are participating in a full Hawkular environment, we need to do some additional things:
+                // try to connect to the server via command-gateway channel; keep going on error
+                try {
+                    this.webSocketClientBuilder = new WebSocketClientBuilder(
+                            this.configuration.getStorageAdapter(), ssl, x509TrustManager);
+                    this.feedComm = new FeedCommProcessor(
+                            this.webSocketClientBuilder,
+                            buildAdditionalCommands(),
+                            this.feedId,
+                            this);
+                    this.feedComm.connect();
+                } catch (Exception e) {
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                    }
+                    log.errorCannotEstablishFeedComm(e);
+                }
+                break;
+
+            case METRICS:
+                // nothing special needs to be done
+                break;
+            default:
+                throw new IllegalStateException(
+                        "Unknown storage adapter type: " + this.configuration.getStorageAdapter().getType());
+        }
+    }
+
+    /**
+     * Starts a thread that waits for the Hawkular Server to be up, connects to it and then opens the
+     * {@link #storageGate} so everything collected in the meantime gets stored. If that fails, it is retried with
+     * an increasing delay until it succeeds or the agent is stopped.
+     *
+     * @param ssl the SSL context to use when talking to the server securely; may be null
+     * @param x509TrustManager the trust manager to use when talking to the server securely; may be null
+     */
+    private void startServerWaiter(SSLContext ssl, X509TrustManager x509TrustManager) {
+        final StorageGate gate = this.storageGate;
+        this.serverWaiter = ThreadFactoryGenerator.generateFactory(true, "Hawkular-WildFly-Agent-Server-Waiter")
+                .newThread(() -> {
+                    long retryDelay = SERVER_WAITER_MIN_RETRY_DELAY_MILLIS;
+                    boolean connected = false;
+                    while (!Thread.currentThread().isInterrupted()) {
+                        try {
+                            waitForHawkularServer();
+                            if (!connected) {
+                                connectToServer(ssl, x509TrustManager);
+                                connected = true;
+                            }
+                            httpClientBuilder.warmUp();
+                            log.infof("Storing data collected while waiting for the Hawkular Server");
+                            gate.open();
+                            return;
+                        } catch (InterruptedException ie) {
+                            // the agent is stopping
+                            Thread.currentThread().interrupt();
+                        } catch (Exception e) {
+                            log.warnf(e, "Failed waiting for the Hawkular Server - will retry in [%d] ms",
+                                    retryDelay);
+                            try {
+                                Thread.sleep(retryDelay);
+                            } catch (InterruptedException ie) {
+                                Thread.currentThread().interrupt();
+                            }
+                            retryDelay = Math.min(retryDelay * 2, SERVER_WAITER_MAX_RETRY_DELAY_MILLIS);
+                        }
+                    }
+                });
+        this.serverWaiter.start();
+    }
+
     /**
      * @return tenant IDs of the agent and its monitored endpoints (even if those monitored endpoints are not enabled)
      */
@@ -431,6 +591,18 @@ public abstract class AgentCoreEngine {
             // But we also must make sure we shutdown the scheduler so we kill its threads.
             // Otherwise we hang the shutdown of the entire server. So make sure we get to "stopScheduler".
 
+            // stop waiting for the server if we still are
+            try {
+                if (serverWaiter != null) {
+                    serverWaiter.interrupt();
+                    serverWaiter.join(30_000L);
+                    serverWaiter = null;
+                }
+            } catch (Throwable t) {
+                error.compareAndSet(null, t);
+                log.debug("Cannot stop waiting for the server but will continue shutdown", t);
+            }
+
             // disconnect from the feed comm channel
             try {
                 if (feedComm != null) {
@@ -455,6 +627,10 @@ public abstract class AgentCoreEngine {
                         protocolServices.removeInventoryListener(notificationDispatcher);
                         protocolServices.removeAvailListener(notificationDispatcher);
                     }
+                    if (inventorySnapshots != null) {
+                        protocolServices.removeInventoryListener(inventorySnapshots);
+                        inventorySnapshots.shutdown();
+                    }
                     protocolServices = null;
                 }
             } catch (Throwable t) {
@@ -477,6 +653,7 @@ public abstract class AgentCoreEngine {
             try {
                 if (storageAdapter != null) {
                     changeAvails(availsToChange); // notice we do this AFTER we shutdown the scheduler!
+                    httpClientBuilder.stopKeepAlive();
                     storageAdapter.shutdown();
                     storageAdapter = null;
                 }
@@ -513,6 +690,110 @@ public abstract class AgentCoreEngine {
         }
     }
 
+    /**
+     * Applies the metric, avail and resource type definitions of the given configuration to the running agent
+     * without restarting it.
+     *
+     * Metric and avail types whose collection interval is the only thing that changed are updated in place
+     * and only their collections are rescheduled. Endpoints that use a resource type set that changed in any
+     * other way are rebuilt from the new configuration and rediscovered; all other endpoints keep running
+     * untouched.
+     *
+     * Only the type sets are compared - if anything else in the configuration changed the agent must be restarted
+     * in order to pick that up.
+     *
+     * @param newConfiguration the configuration with the new type definitions
+     * @throws IllegalStateException if the agent is not running
+     */
+    public void reloadTypeSets(AgentCoreEngineConfiguration newConfiguration) {
+        synchronized (agentServiceStatus) {
+            getStatus().assertRunning(getClass(), "reloadTypeSets()");
+
+            AgentCoreEngineConfiguration newConfig = loadRuntimeConfiguration(newConfiguration);
+            long start = System.nanoTime();
+
+            reloadTypeSets(protocolServices.getDmrProtocolService(), configuration.getDmrConfiguration(),
+                    newConfig.getDmrConfiguration(), c -> createProtocolServicesBuilder()
+                            .dmrProtocolService(this.localModelControllerClientFactory, c)
+                            .build().getDmrProtocolService());
+            reloadTypeSets(protocolServices.getJmxProtocolService(), configuration.getJmxConfiguration(),
+                    newConfig.getJmxConfiguration(), c -> createProtocolServicesBuilder()
+                            .jmxProtocolService(c)
+                            .build().getJmxProtocolService());
+            reloadTypeSets(protocolServices.getPlatformProtocolService(), configuration.getPlatformConfiguration(),
+                    newConfig.getPlatformConfiguration(), c -> createProtocolServicesBuilder()
+                            .platformProtocolService(c)
+                            .build().getPlatformProtocolService());
+
+            this.configuration = newConfig;
+            log.infof("Reloaded type sets in [%d] ms",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private <L, S extends Session<L>> void reloadTypeSets(ProtocolService<L, S> protocolService,
+            ProtocolConfiguration<L> oldConfig, ProtocolConfiguration<L> newConfig,
+            Function<ProtocolConfiguration<L>, ProtocolService<L, S>> protocolServiceFactory) {
+
+        TypeSetsDiff<L> diff = TypeSetsDiff.compare(oldConfig.getTypeSets(), newConfig.getTypeSets());
+        if (diff.isEmpty()) {
+            return;
+        }
+        log.debugf("Type sets of protocol [%s] changed: %s", protocolService.getName(), diff);
+
+        Map<String, EndpointConfiguration> endpointsToRebuild = new HashMap<>();
+        for (EndpointService<L, S> endpointService : protocolService.getEndpointServices().values()) {
+            EndpointConfiguration endpointConfig = endpointService.getMonitoredEndpoint().getEndpointConfiguration();
+            Collection<Name> setNames = endpointConfig.getResourceTypeSets();
+            if (setNames != null && !Collections.disjoint(setNames, diff.getChangedResourceTypeSets())) {
+                EndpointConfiguration newEndpointConfig = newConfig.getEndpoints().get(endpointConfig.getName());
+                if (newEndpointConfig != null) {
+                    endpointsToRebuild.put(endpointConfig.getName(), newEndpointConfig);
+                }
+                continue;
+            }
+
+            // the type objects can be shared among endpoints, so collect them even if they have been updated before
+            List<MetricType<L>> metricTypes = new ArrayList<>();
+            List<AvailType<L>> availTypes = new ArrayList<>();
+            for (ResourceType<L> resourceType : endpointService.getResourceTypeManager()
+                    .getResourceTypesBreadthFirst()) {
+                for (MetricType<L> metricType : resourceType.getMetricTypes()) {
+                    Interval interval = diff.getChangedMetricIntervals().get(metricType.getID());
+                    if (interval != null) {
+                        metricType.setInterval(interval);
+                        metricTypes.add(metricType);
+                    }
+                }
+                for (AvailType<L> availType : resourceType.getAvailTypes()) {
+                    Interval interval = diff.getChangedAvailIntervals().get(availType.getID());
+                    if (interval != null) {
+                        availType.setInterval(interval);
+                        availTypes.add(availType);
+                    }
+                }
+            }
+            if (!metricTypes.isEmpty() || !availTypes.isEmpty()) {
+                schedulerService.reschedule(endpointService,
+                        endpointService.getResourceManager().getResourcesBreadthFirst(), metricTypes, availTypes);
+                log.debugf("Rescheduled [%d] metric types and [%d] avail types of [%s]", metricTypes.size(),
+                        availTypes.size(), endpointService);
+            }
+        }
+
+        if (!endpointsToRebuild.isEmpty()) {
+            ProtocolService<L, S> rebuilt = protocolServiceFactory
+                    .apply(new ProtocolConfiguration<>(newConfig.getTypeSets(), endpointsToRebuild));
+            for (String endpointName : endpointsToRebuild.keySet()) {
+                protocolService.remove(endpointName, schedulerService);
+                EndpointService<L, S> newEndpointService = rebuilt.getEndpointServices().get(endpointName);
+                if (newEndpointService != null) {
+                    protocolService.add(newEndpointService);
+                }
+            }
+        }
+    }
+
     private void changeAvails(Map<EndpointService<?, ?>, List<MeasurementInstance<?, AvailType<?>>>> availsToChange) {
         if (availsToChange != null && !availsToChange.isEmpty() && storageAdapter != null) {
             long now = System.currentTimeMillis();
@@ -568,13 +849,17 @@ public abstract class AgentCoreEngine {
      */
     private void startStorageAdapter() throws Exception {
         // create the storage adapter that will write our metrics/inventory data to backend storage on server
-        this.storageAdapter = new HawkularStorageAdapter();
+        this.storageAdapter = new HawkularStorageAdapter(storageGate, startNanos);
         this.storageAdapter.initialize(
                 feedId,
                 configuration.getStorageAdapter(),
                 diagnostics,
                 httpClientBuilder);
 
+        // open the connections to the server now so the first data does not have to wait for them
+        httpClientBuilder.warmUp();
+        httpClientBuilder.startKeepAlive();
+
         // provide our storage adapter to the proxies - allows external apps to use them to store its own data
         metricStorageProxy.setStorageAdapter(storageAdapter);
         availStorageProxy.setStorageAdapter(storageAdapter);
@@ -631,10 +916,29 @@ public abstract class AgentCoreEngine {
                     this.configuration.getGlobalConfiguration().getAvailDispatcherBufferSize());
             schedulerConfig.setAvailDispatcherMaxBatchSize(
                     this.configuration.getGlobalConfiguration().getAvailDispatcherMaxBatchSize());
+            schedulerConfig.setMetricDispatcherLingerMillis(
+                    this.configuration.getGlobalConfiguration().getMetricDispatcherLingerMillis());
+            schedulerConfig.setAvailDispatcherLingerMillis(
+                    this.configuration.getGlobalConfiguration().getAvailDispatcherLingerMillis());
+            schedulerConfig.setDispatcherTargetLatencyMillis(
+                    this.configuration.getGlobalConfiguration().getDispatcherTargetLatencyMillis());
+            schedulerConfig.setMetricDispatcherDropPolicy(
+                    this.configuration.getGlobalConfiguration().getMetricDispatcherDropPolicy());
+            schedulerConfig.setAvailDispatcherDropPolicy(
+                    this.configuration.getGlobalConfiguration().getAvailDispatcherDropPolicy());
             schedulerConfig.setPingDispatcherPeriodSeconds(
                     this.configuration.getGlobalConfiguration().getPingDispatcherPeriodSeconds());
+            schedulerConfig.setNumSchedulerThreads(
+                    this.configuration.getGlobalConfiguration().getNumDmrSchedulerThreads());
+            schedulerConfig.setPhaseSpreading(this.configuration.getGlobalConfiguration().getPhaseSpreading());
+            schedulerConfig.setMetricOverrunPolicy(
+                    this.configuration.getGlobalConfiguration().getMetricOverrunPolicy());
+            schedulerConfig.setAvailOverrunPolicy(
+                    this.configuration.getGlobalConfiguration().getAvailOverrunPolicy());
+            schedulerConfig.setMaxCatchUpRounds(this.configuration.getGlobalConfiguration().getMaxCatchUpRounds());
             schedulerConfig.setFeedId(this.feedId);
             schedulerConfig.setTenantIds(tenantIds);
+            schedulerConfig.setStorageGate(this.storageGate);
 
             this.schedulerService = new SchedulerService(schedulerConfig, this.diagnostics, this.storageAdapter);
         }
@@ -783,7 +1087,10 @@ public abstract class AgentCoreEngine {
      * @return builder that let's you create protocol services and their endpoints
      */
     public ProtocolServices.Builder createProtocolServicesBuilder() {
-        return ProtocolServices.builder(feedId, diagnostics, trustOnlySSLContextValues);
+        return ProtocolServices.builder(feedId, diagnostics, trustOnlySSLContextValues)
+                .requestTimeoutSecs(configuration.getGlobalConfiguration().getRequestTimeoutSeconds())
+                .circuitBreaker(configuration.getGlobalConfiguration().getCircuitBreakerFailures(),
+                        configuration.getGlobalConfiguration().getCircuitBreakerOpenSeconds());
     }
 
     /**
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.agent.monitor.util.ThreadFactoryGenerator;
+
+/**
+ * Times the phases of an agent startup so slow phases can be spotted. Phases that do not depend on each other
+ * can be run {@link #timeInParallel(Map) in parallel}.
+ *
+ * This object is thread safe.
+ */
+public class StartupPhases {
+    private final long startNanos = System.nanoTime();
+
+    // phase name to duration in milliseconds, in the order the phases finished - guarded by "this"
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+
+    /**
+     * Runs the given phase and records how long it took, even if it failed.
+     *
+     * @param phase the name of the phase
+     * @param work what the phase does
+     * @return what the work returned
+     * @throws Exception whatever the work threw
+     */
+    public <T> T time(String phase, Callable<T> work) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return work.call();
+        } finally {
+            record(phase, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs the given phases concurrently, records how long each took and waits for all of them to finish.
+     * If any phase fails, the failure of the first failed phase (in iteration order) is thrown once all
+     * phases are done.
+     *
+     * @param phases phase names mapped to what the phases do
+     * @throws Exception the failure of the first failed phase
+     */
+    public void timeInParallel(Map<String, Callable<?>> phases) throws Exception {
+        if (phases.size() <= 1) {
+            for (Map.Entry<String, Callable<?>> phase : phases.entrySet()) {
+                time(phase.getKey(), phase.getValue());
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(phases.size(),
+                ThreadFactoryGenerator.generateFactory(true, "Hawkular-WildFly-Agent-Startup"));
+        try {
+            List<Future<?>> futures = new ArrayList<>(phases.size());
+            for (Map.Entry<String, Callable<?>> phase : phases.entrySet()) {
+                futures.add(executor.submit(() -> time(phase.getKey(), phase.getValue())));
+            }
+
+            Exception error = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+                    }
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return phase names mapped to how many milliseconds they took, in the order the phases finished
+     */
+    public synchronized Map<String, Long> getDurations() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(durations));
+    }
+
+    /**
+     * @return milliseconds since this object was created
+     */
+    public long getElapsed() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder str = new StringBuilder();
+        for (Map.Entry<String, Long> duration : durations.entrySet()) {
+            if (str.length() > 0) {
+                str.append(", ");
+            }
+            str.append(duration.getKey()).append("=[").append(duration.getValue()).append("ms]");
+        }
+        return str.toString();
+    }
+
+    private synchronized void record(String phase, long nanos) {
+        durations.put(phase, TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+}
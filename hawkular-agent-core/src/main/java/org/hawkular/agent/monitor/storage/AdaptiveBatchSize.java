@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.storage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.agent.monitor.log.AgentLoggers;
+import org.hawkular.agent.monitor.log.MsgLogger;
+
+/**
+ * Adapts the number of data points a dispatcher sends in one request to how fast the server takes them
+ * (additive increase, multiplicative decrease). Every full batch that is stored within the target latency grows
+ * the batch size a little, up to the configured maximum. Every request that fails or takes longer than that
+ * halves it, down to a small minimum. This gets close to the largest batches the server can comfortably handle
+ * without the operator having to find that size.
+ */
+public class AdaptiveBatchSize implements StoreListener {
+    private static final MsgLogger log = AgentLoggers.getLogger(AdaptiveBatchSize.class);
+
+    private final String name;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final int increment;
+    private final long targetLatencyNanos;
+    private int batchSize;
+
+    /**
+     * @param name what is being dispatched, used for logging
+     * @param maxBatchSize the largest batch size; this is also the initial batch size
+     * @param targetLatencyMillis requests that take longer than this shrink the batch size
+     */
+    public AdaptiveBatchSize(String name, int maxBatchSize, long targetLatencyMillis) {
+        this.name = name;
+        this.maxBatchSize = Math.max(maxBatchSize, 1);
+        this.minBatchSize = Math.max(this.maxBatchSize / 10, 1);
+        this.increment = Math.max(this.maxBatchSize / 20, 1);
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.batchSize = this.maxBatchSize;
+    }
+
+    /**
+     * @return the number of data points to send in the next request
+     */
+    public synchronized int get() {
+        return batchSize;
+    }
+
+    @Override
+    public synchronized void stored(int count, long latencyNanos) {
+        if (latencyNanos > targetLatencyNanos) {
+            decrease("slow response [" + TimeUnit.NANOSECONDS.toMillis(latencyNanos) + "] ms");
+        } else if (count >= batchSize && batchSize < maxBatchSize) {
+            // only a full batch tells us the server copes with batches of the current size
+            batchSize = Math.min(batchSize + increment, maxBatchSize);
+        }
+    }
+
+    @Override
+    public synchronized void failed(int count) {
+        decrease("failure");
+    }
+
+    private void decrease(String reason) {
+        int previous = batchSize;
+        batchSize = Math.max(batchSize / 2, minBatchSize);
+        if (batchSize != previous) {
+            log.debugf("Reduced %s batch size from [%d] to [%d] after a %s", name, previous, batchSize, reason);
+        }
+    }
+}
@@ -18,8 +18,17 @@ package org.hawkular.agent.monitor.storage;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -41,8 +50,9 @@ import org.hawkular.agent.monitor.inventory.ResourceType;
 import org.hawkular.agent.monitor.inventory.ResourceTypeManager;
 import org.hawkular.agent.monitor.log.AgentLoggers;
 import org.hawkular.agent.monitor.log.MsgLogger;
+import org.hawkular.agent.monitor.util.BaseHttpClientGenerator.TrafficClass;
+import org.hawkular.agent.monitor.util.ThreadFactoryGenerator;
 import org.hawkular.agent.monitor.util.Util;
-import org.hawkular.inventory.api.model.Inventory;
 import org.hawkular.inventory.api.model.Metric;
 import org.hawkular.inventory.api.model.MetricUnit;
 import org.hawkular.inventory.api.model.RawResource;
@@ -57,30 +67,534 @@ import okhttp3.Response;
 /**
  * An {@link InventoryStorage} that syncs inventory that has been discovered.
  *
+ * Inventory events are not sent to the server right away. Instead, the changes they carry are queued up keyed
+ * by resource (or resource type) ID: a later modification of a resource replaces an earlier one that has not been
+ * sent yet, and the removal of a resource cancels its pending import. A background sender thread uploads
+ * everything that is pending as one merged batch as soon as {@link #DEFAULT_MAX_BATCH_SIZE enough changes} are
+ * waiting or the oldest change has been waiting for {@link #DEFAULT_MAX_LATENCY_MILLIS long enough}.
+ *
+ * A batch that is too large to be sent in one request is split into chunks of bounded size which are sent
+ * with bounded parallelism: resource types go first, then resources level by level so parents are always stored
+ * before their children. Deletions are split so no request URL gets too long. Failed requests are retried; imports
+ * that still fail are put back among the pending changes and sent with a later batch.
+ *
  * @author John Mazzitelli
  */
 public class AsyncInventoryStorage implements InventoryStorage {
 
     private static final MsgLogger log = AgentLoggers.getLogger(AsyncInventoryStorage.class);
 
+    /**
+     * Pending changes are sent once this many resources, resource types and deletions are waiting.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+
+    /**
+     * Pending changes are sent once the oldest of them has been waiting this long.
+     */
+    public static final long DEFAULT_MAX_LATENCY_MILLIS = 2000L;
+
+    /**
+     * The maximum weight of a single import request. Every resource type, resource, metric, availability and
+     * resource configuration property weighs 1. This keeps import requests at a size the server can handle.
+     */
+    static final int MAX_CHUNK_WEIGHT = 1000;
+
+    /**
+     * The maximum length of the URL of a single delete request.
+     */
+    static final int MAX_DELETE_URL_LENGTH = 2000;
+
+    /**
+     * The maximum number of inventory requests sent at the same time.
+     */
+    static final int MAX_PARALLEL_REQUESTS = 4;
+
+    /**
+     * How often a failed inventory request is attempted before giving up on it.
+     */
+    static final int MAX_REQUEST_ATTEMPTS = 3;
+
+    /**
+     * How long to wait before retrying a failed request; this grows with each attempt.
+     */
+    static final long RETRY_DELAY_MILLIS = 1000L;
+
+    /**
+     * How often to check whether the server got ready while changes are being held back.
+     */
+    static final long STORAGE_GATE_CHECK_MILLIS = 1000L;
+
+    /**
+     * Something that is waiting to be imported, along with what is needed to order and chunk it.
+     *
+     * @param <T> the type of the item to import
+     */
+    static final class PendingItem<T> {
+        private final String id;
+        private final String parentId;
+        private final int weight;
+        private final T item;
+
+        PendingItem(String id, String parentId, int weight, T item) {
+            this.id = id;
+            this.parentId = parentId;
+            this.weight = weight;
+            this.item = item;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        String getParentId() {
+            return parentId;
+        }
+
+        int getWeight() {
+            return weight;
+        }
+
+        T getItem() {
+            return item;
+        }
+    }
+
     private final String feedId;
     private final AgentCoreEngineConfiguration.StorageAdapterConfiguration config;
     private final HttpClientBuilder httpClientBuilder;
     private final Diagnostics diagnostics;
+    private final int maxBatchSize;
+    private final long maxLatencyMillis;
+    private final StorageGate storageGate;
+
+    // the pending changes, keyed by inventory ID - all guarded by "this"
+    private final Map<String, PendingItem<ResourceType<?>>> pendingTypes = new LinkedHashMap<>();
+    private final Map<String, PendingItem<Resource<?>>> pendingImports = new LinkedHashMap<>();
+    private final Set<String> pendingDeletes = new LinkedHashSet<>();
+    private long oldestPendingTime = 0L;
+    private boolean shutdown = false;
+
+    // makes sure batches are sent one at a time and in the order they were taken from the pending changes
+    private final Object sendLock = new Object();
+    private final Thread sender;
+    private final ExecutorService requestExecutor;
 
     public AsyncInventoryStorage(
             String feedId,
             StorageAdapterConfiguration config,
             HttpClientBuilder httpClientBuilder,
             Diagnostics diagnostics) {
+        this(feedId, config, httpClientBuilder, diagnostics, new StorageGate(true));
+    }
+
+    public AsyncInventoryStorage(
+            String feedId,
+            StorageAdapterConfiguration config,
+            HttpClientBuilder httpClientBuilder,
+            Diagnostics diagnostics,
+            StorageGate storageGate) {
+        this(feedId, config, httpClientBuilder, diagnostics, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_LATENCY_MILLIS,
+                storageGate);
+    }
+
+    public AsyncInventoryStorage(
+            String feedId,
+            StorageAdapterConfiguration config,
+            HttpClientBuilder httpClientBuilder,
+            Diagnostics diagnostics,
+            int maxBatchSize,
+            long maxLatencyMillis) {
+        this(feedId, config, httpClientBuilder, diagnostics, maxBatchSize, maxLatencyMillis, new StorageGate(true));
+    }
+
+    public AsyncInventoryStorage(
+            String feedId,
+            StorageAdapterConfiguration config,
+            HttpClientBuilder httpClientBuilder,
+            Diagnostics diagnostics,
+            int maxBatchSize,
+            long maxLatencyMillis,
+            StorageGate storageGate) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be greater than 0");
+        }
+        if (maxLatencyMillis <= 0) {
+            throw new IllegalArgumentException("maxLatencyMillis must be greater than 0");
+        }
         this.feedId = feedId;
         this.config = config;
         this.httpClientBuilder = httpClientBuilder;
         this.diagnostics = diagnostics;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyMillis = maxLatencyMillis;
+        this.storageGate = storageGate;
+
+        this.requestExecutor = Executors.newFixedThreadPool(MAX_PARALLEL_REQUESTS,
+                ThreadFactoryGenerator.generateBlockingIOFactory("Hawkular-WildFly-Agent-Storage-Inventory-Request"));
+
+        ThreadFactory senderFactory = ThreadFactoryGenerator.generateFactory(true,
+                "Hawkular-WildFly-Agent-Storage-Dispatcher-Inventory");
+        this.sender = senderFactory.newThread(this::runSender);
+        this.sender.start();
     }
 
     public void shutdown() {
         log.debugf("Shutting down async inventory storage");
+        synchronized (this) {
+            shutdown = true;
+            notifyAll();
+        }
+        try {
+            sender.join(60_000L); // wait for it to finish, but not forever
+        } catch (InterruptedException ie) {
+            // Preserve interrupt status
+            Thread.currentThread().interrupt();
+        }
+
+        // don't lose whatever is still pending - unless the server never got ready, in which case it can't be sent
+        if (storageGate.isOpen()) {
+            flush();
+        } else {
+            synchronized (this) {
+                log.debugf("Server never became ready; dropping [%d] pending inventory changes",
+                        pendingTypes.size() + pendingImports.size() + pendingDeletes.size());
+            }
+        }
+        requestExecutor.shutdown();
+    }
+
+    /**
+     * Sends all pending changes now and waits for them to be sent.
+     * Changes queued while this method runs might or might not be sent by it.
+     */
+    public void flush() {
+        synchronized (sendLock) {
+            List<PendingItem<ResourceType<?>>> types;
+            List<PendingItem<Resource<?>>> resources;
+            List<String> deletes;
+            synchronized (this) {
+                types = new ArrayList<>(pendingTypes.values());
+                resources = new ArrayList<>(pendingImports.values());
+                deletes = new ArrayList<>(pendingDeletes);
+                pendingTypes.clear();
+                pendingImports.clear();
+                pendingDeletes.clear();
+                oldestPendingTime = 0L;
+            }
+            diagnostics.getInventoryStorageBufferSize().dec(types.size() + resources.size() + deletes.size());
+
+            try {
+                if (!deletes.isEmpty()) {
+                    log.debugf("Removing resources: %s", deletes);
+                    String baseUrl = Util.getContextUrlString(config.getUrl(), config.getInventoryContext())
+                            .append("resources?").toString();
+                    List<Callable<Void>> requests = new ArrayList<>();
+                    for (String url : buildDeleteUrls(baseUrl, deletes, MAX_DELETE_URL_LENGTH)) {
+                        requests.add(() -> {
+                            deleteInventoryData(url);
+                            return null;
+                        });
+                    }
+                    sendInParallel(requests);
+                }
+
+                if (!resources.isEmpty() || !types.isEmpty()) {
+                    int totalWeight = types.stream().mapToInt(PendingItem::getWeight).sum()
+                            + resources.stream().mapToInt(PendingItem::getWeight).sum();
+                    if (totalWeight <= MAX_CHUNK_WEIGHT) {
+                        // small enough to go in one request
+                        try {
+                            importInventoryData(items(resources), items(types));
+                        } catch (InterruptedException ie) {
+                            throw ie;
+                        } catch (Exception e) {
+                            requeue(types, resources);
+                        }
+                    } else {
+                        importInChunks(types, resources);
+                    }
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt(); // preserve interrupt
+            } catch (Exception e) {
+                log.errorf(e, "Failed to process inventory event: %s", e);
+            }
+        }
+    }
+
+    /**
+     * Imports resource types first, then resources one level at a time so parents always exist before their
+     * children are stored. Within each step the chunks are sent in parallel. Once a step fails, the steps after it
+     * would fail too, so what has not been stored is put back among the pending changes to be sent later.
+     */
+    private void importInChunks(List<PendingItem<ResourceType<?>>> types,
+            List<PendingItem<Resource<?>>> resources) throws InterruptedException {
+        List<List<PendingItem<ResourceType<?>>>> typeChunks = chunk(types, MAX_CHUNK_WEIGHT);
+        List<Callable<Void>> requests = new ArrayList<>();
+        for (List<PendingItem<ResourceType<?>>> typeChunk : typeChunks) {
+            requests.add(() -> {
+                importInventoryData(new ArrayList<>(), items(typeChunk));
+                return null;
+            });
+        }
+
+        List<List<PendingItem<Resource<?>>>> levels = groupByDepth(resources);
+        log.debugf("Importing [%d] resource types in [%d] chunks and [%d] resources in [%d] levels",
+                types.size(), typeChunks.size(), resources.size(), levels.size());
+
+        List<Integer> failed = sendInParallel(requests);
+        if (!failed.isEmpty()) {
+            // the resources might be of the types that are missing
+            List<PendingItem<ResourceType<?>>> unsentTypes = new ArrayList<>();
+            failed.forEach(i -> unsentTypes.addAll(typeChunks.get(i)));
+            requeue(unsentTypes, resources);
+            return;
+        }
+
+        for (int level = 0; level < levels.size(); level++) {
+            List<List<PendingItem<Resource<?>>>> resourceChunks = chunk(levels.get(level), MAX_CHUNK_WEIGHT);
+            requests.clear();
+            for (List<PendingItem<Resource<?>>> resourceChunk : resourceChunks) {
+                requests.add(() -> {
+                    importInventoryData(items(resourceChunk), new ArrayList<>());
+                    return null;
+                });
+            }
+            failed = sendInParallel(requests);
+            if (!failed.isEmpty()) {
+                // the deeper levels might have parents that are missing
+                List<PendingItem<Resource<?>>> unsentResources = new ArrayList<>();
+                failed.forEach(i -> unsentResources.addAll(resourceChunks.get(i)));
+                levels.subList(level + 1, levels.size()).forEach(unsentResources::addAll);
+                requeue(new ArrayList<>(), unsentResources);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends the requests in parallel and waits for all of them to finish.
+     *
+     * @return the indices of the requests that failed
+     */
+    private List<Integer> sendInParallel(List<Callable<Void>> requests) throws InterruptedException {
+        List<Integer> failed = new ArrayList<>();
+        if (requests.size() == 1) {
+            try {
+                requests.get(0).call();
+            } catch (InterruptedException ie) {
+                throw ie;
+            } catch (Exception e) {
+                log.warnf("Inventory request failed: %s", e);
+                failed.add(0);
+            }
+            return failed;
+        }
+        List<Future<Void>> futures = requestExecutor.invokeAll(requests);
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (ExecutionException e) {
+                log.warnf("Inventory request failed: %s", e.getCause());
+                failed.add(i);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Puts imports that could not be sent back among the pending changes so they are sent again later - unless
+     * they have been superseded in the meantime by a newer version of the same resource or by its deletion.
+     */
+    private synchronized void requeue(List<PendingItem<ResourceType<?>>> types,
+            List<PendingItem<Resource<?>>> resources) {
+        int before = pendingTypes.size() + pendingImports.size() + pendingDeletes.size();
+
+        types.forEach(t -> pendingTypes.putIfAbsent(t.getId(), t));
+        resources.forEach(r -> {
+            if (!pendingDeletes.contains(r.getId())) {
+                pendingImports.putIfAbsent(r.getId(), r);
+            }
+        });
+
+        int after = pendingTypes.size() + pendingImports.size() + pendingDeletes.size();
+        log.warnf("Could not import [%d] resource types and [%d] resources into inventory - will try again later",
+                types.size(), resources.size());
+        diagnostics.getInventoryStorageBufferSize().inc(after - before);
+        if (after > 0 && oldestPendingTime == 0L) {
+            oldestPendingTime = System.currentTimeMillis();
+        }
+        notifyAll();
+    }
+
+    private static <T> List<T> items(List<PendingItem<T>> pendingItems) {
+        return pendingItems.stream().map(PendingItem::getItem).collect(Collectors.toList());
+    }
+
+    /**
+     * Splits the items into consecutive chunks whose weights do not add up to more than the given maximum.
+     * An item that is heavier than the maximum on its own gets a chunk of its own.
+     *
+     * @param items the items to split
+     * @param maxChunkWeight the maximum weight of each chunk
+     * @return the chunks, in the order of the given items
+     */
+    static <T> List<List<PendingItem<T>>> chunk(List<PendingItem<T>> items, int maxChunkWeight) {
+        List<List<PendingItem<T>>> chunks = new ArrayList<>();
+        List<PendingItem<T>> chunk = new ArrayList<>();
+        int chunkWeight = 0;
+        for (PendingItem<T> item : items) {
+            if (!chunk.isEmpty() && chunkWeight + item.getWeight() > maxChunkWeight) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                chunkWeight = 0;
+            }
+            chunk.add(item);
+            chunkWeight += item.getWeight();
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Groups the items by how deep they are in the resource hierarchy formed by the given items. Items whose
+     * parent is not among the given items (that is, roots or children of resources stored earlier) are at
+     * depth 0.
+     *
+     * @param items the items to group
+     * @return the groups of items, shallowest first; each group keeps the order of the given items
+     */
+    static <T> List<List<PendingItem<T>>> groupByDepth(List<PendingItem<T>> items) {
+        Map<String, PendingItem<T>> itemsById = new HashMap<>();
+        items.forEach(i -> itemsById.put(i.getId(), i));
+
+        Map<String, Integer> depths = new HashMap<>();
+        List<List<PendingItem<T>>> levels = new ArrayList<>();
+        for (PendingItem<T> item : items) {
+            int depth = depth(item, itemsById, depths);
+            while (levels.size() <= depth) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(depth).add(item);
+        }
+        return levels;
+    }
+
+    private static <T> int depth(PendingItem<T> item, Map<String, PendingItem<T>> itemsById,
+            Map<String, Integer> depths) {
+        // walk up to the first ancestor whose depth is known (or that is not in this batch)
+        List<PendingItem<T>> path = new ArrayList<>();
+        PendingItem<T> current = item;
+        int depth = -1;
+        while (current != null) {
+            Integer known = depths.get(current.getId());
+            if (known != null) {
+                depth = known;
+                break;
+            }
+            if (path.size() > itemsById.size()) {
+                break; // guards against a cycle in the parent IDs
+            }
+            path.add(current);
+            current = (current.getParentId() == null) ? null : itemsById.get(current.getParentId());
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            depths.put(path.get(i).getId(), ++depth);
+        }
+        return depths.get(item.getId());
+    }
+
+    /**
+     * Builds the URLs of the delete requests for the given resources, putting as many IDs in each URL as
+     * possible without exceeding the maximum length (unless a single ID does not fit on its own).
+     *
+     * @param baseUrl the URL that the <code>ids</code> query parameters are appended to
+     * @param resourceIds the IDs of the resources to delete
+     * @param maxUrlLength the maximum length of each URL
+     * @return the delete request URLs
+     */
+    static List<String> buildDeleteUrls(String baseUrl, List<String> resourceIds, int maxUrlLength) {
+        List<String> urls = new ArrayList<>();
+        StringBuilder url = new StringBuilder(baseUrl);
+        for (String id : resourceIds) {
+            String param = "ids=" + Util.urlEncode(id);
+            boolean empty = url.length() == baseUrl.length();
+            if (!empty && url.length() + 1 + param.length() > maxUrlLength) {
+                urls.add(url.toString());
+                url = new StringBuilder(baseUrl);
+                empty = true;
+            }
+            if (!empty) {
+                url.append('&');
+            }
+            url.append(param);
+        }
+        if (url.length() > baseUrl.length()) {
+            urls.add(url.toString());
+        }
+        return urls;
+    }
+
+    private void runSender() {
+        try {
+            while (true) {
+                synchronized (this) {
+                    while (!shutdown && !(isBatchDue() && storageGate.isOpen())) {
+                        // nothing pending means nothing to time out on - just wait until we are notified
+                        long waitMillis = (oldestPendingTime == 0L) ? 0L
+                                : Math.max(1L, oldestPendingTime + maxLatencyMillis - System.currentTimeMillis());
+                        if (!storageGate.isOpen() && oldestPendingTime != 0L) {
+                            // keep the changes pending until the server is ready - check back every so often
+                            waitMillis = STORAGE_GATE_CHECK_MILLIS;
+                        }
+                        wait(waitMillis);
+                    }
+                    if (shutdown) {
+                        return;
+                    }
+                }
+                flush();
+            }
+        } catch (InterruptedException ie) {
+            // we are being told to stop; anything still pending is flushed by shutdown
+        }
+    }
+
+    // caller must hold the lock on "this"
+    private boolean isBatchDue() {
+        int pendingCount = pendingTypes.size() + pendingImports.size() + pendingDeletes.size();
+        if (pendingCount >= maxBatchSize) {
+            return true;
+        }
+        return pendingCount > 0 && System.currentTimeMillis() - oldestPendingTime >= maxLatencyMillis;
+    }
+
+    private synchronized void enqueue(List<PendingItem<ResourceType<?>>> types,
+            List<PendingItem<Resource<?>>> resources, List<String> deletes) {
+        int before = pendingTypes.size() + pendingImports.size() + pendingDeletes.size();
+
+        types.forEach(t -> pendingTypes.put(t.getId(), t));
+        resources.forEach(r -> {
+            // a newer version of a resource replaces the pending one; a re-added resource is no longer deleted
+            pendingDeletes.remove(r.getId());
+            pendingImports.put(r.getId(), r);
+        });
+        deletes.forEach(id -> {
+            // no need to upload a resource that is going away; the delete is still sent in case it was
+            // uploaded before
+            pendingImports.remove(id);
+            pendingDeletes.add(id);
+        });
+
+        int after = pendingTypes.size() + pendingImports.size() + pendingDeletes.size();
+        diagnostics.getInventoryStorageBufferSize().inc(after - before);
+        if (after > 0 && oldestPendingTime == 0L) {
+            oldestPendingTime = System.currentTimeMillis();
+        }
+        notifyAll();
     }
 
     @Override
@@ -89,11 +603,8 @@ public class AsyncInventoryStorage implements InventoryStorage {
             MonitoredEndpoint<EndpointConfiguration> endpoint = event.getSamplingService().getMonitoredEndpoint();
             log.debugf("Received inventory event for endpoint: %s", endpoint);
 
-            long timestamp = System.currentTimeMillis();
-
-            List<RawResource> importResources = new ArrayList<>();
-            List<org.hawkular.inventory.api.model.ResourceType> importTypes = new ArrayList<>();
-            Inventory importData = new Inventory(importResources, importTypes);
+            List<PendingItem<Resource<?>>> importResources = new ArrayList<>();
+            List<PendingItem<ResourceType<?>>> importTypes = new ArrayList<>();
 
             // Since we know types never change during the lifetime of the agent, we don't have to process
             // types that have already been flagged as having been persisted.
@@ -106,62 +617,33 @@ public class AsyncInventoryStorage implements InventoryStorage {
                         continue;
                     }
                     log.debugf("Updating resource type: %s", rt.getID().getIDString());
-
-                    org.hawkular.inventory.api.model.ResourceType.Builder rtb = org.hawkular.inventory.api.model.ResourceType
-                            .builder();
-                    rtb.id(getInventoryId(rt));
-                    rt.getProperties().forEach((k, v) -> {
-                        rtb.property(k, v.toString());
-                    });
-
-                    for (Operation<L> op : rt.getOperations()) {
-                        org.hawkular.inventory.api.model.Operation.Builder ob = org.hawkular.inventory.api.model.Operation
-                                .builder();
-                        ob.name(op.getName().getNameString());
-                        for (OperationParam param : op.getParameters()) {
-                            Map<String, String> metadata = new HashMap<>();
-                            metadata.put("description", param.getDescription());
-                            metadata.put("defaultValue", param.getDefaultValue());
-                            metadata.put("type", param.getType());
-                            ob.parameter(param.getName(), metadata);
-                        }
-                        rtb.operation(ob.build());
-                    }
-                    org.hawkular.inventory.api.model.ResourceType resourceType = rtb.build();
-                    log.debugf("Adding resource type: %s", resourceType);
-                    importTypes.add(resourceType);
-
-                    // indicate we persisted the resource
-                    rt.setPersistedTime(timestamp);
+                    // the type is flagged as persisted once the server has accepted it
+                    importTypes.add(new PendingItem<>(getInventoryId(rt), null, 1 + rt.getOperations().size(), rt));
                 }
             }
 
-            // Build the JSON for the resources.
+            // The JSON for the resources is only built when they are sent.
             // Note that it is possible for a endpoint to define multiple root resources.
             event.getAddedOrModified().forEach(r -> {
                 log.debugf("Updating resource: %s", r.getID().getIDString());
 
-                addResourceToImport(r, importResources);
-
-                // indicate we persisted the resource
-                r.setPersistedTime(timestamp);
-                r.getMetrics().forEach(m -> m.setPersistedTime(timestamp));
+                String parentId = (r.getParent() != null) ? r.getParent().getID().getIDString() : null;
+                int weight = 1 + r.getMetrics().size() + r.getAvails().size()
+                        + r.getResourceConfigurationProperties().size();
+                // the resource is flagged as persisted once the server has accepted it
+                importResources.add(new PendingItem<>(getInventoryId(r), parentId, weight, r));
             });
 
             // Remove deleted resources
-            if (!event.getRemoved().isEmpty()) {
-                List<String> resourcesToRemove = event.getRemoved().stream()
-                        .map(r -> r.getID().getIDString())
-                        .collect(Collectors.toList());
-                log.debugf("Removing resources: %s", resourcesToRemove);
-                deleteInventoryData(resourcesToRemove);
-            }
-            if (!importResources.isEmpty() || !importTypes.isEmpty()) {
-                importInventoryData(importData);
-            }
+            List<String> resourcesToRemove = event.getRemoved().stream()
+                    .map(this::getInventoryId)
+                    .collect(Collectors.toList());
+
+            // hand the changes over to the sender thread
+            enqueue(importTypes, importResources, resourcesToRemove);
 
         } catch (Exception e) {
-            log.errorf("Failed to process inventory event: ", e.toString());
+            log.errorf(e, "Failed to process inventory event: %s", e);
         }
     }
 
@@ -175,7 +657,33 @@ public class AsyncInventoryStorage implements InventoryStorage {
         return id;
     }
 
-    private <L> void addResourceToImport(Resource<L> r, List<RawResource> importResources) {
+    private <L> org.hawkular.inventory.api.model.ResourceType toInventoryResourceType(ResourceType<L> rt) {
+        org.hawkular.inventory.api.model.ResourceType.Builder rtb = org.hawkular.inventory.api.model.ResourceType
+                .builder();
+        rtb.id(getInventoryId(rt));
+        rt.getProperties().forEach((k, v) -> {
+            rtb.property(k, v.toString());
+        });
+
+        for (Operation<L> op : rt.getOperations()) {
+            org.hawkular.inventory.api.model.Operation.Builder ob = org.hawkular.inventory.api.model.Operation
+                    .builder();
+            ob.name(op.getName().getNameString());
+            for (OperationParam param : op.getParameters()) {
+                Map<String, String> metadata = new HashMap<>();
+                metadata.put("description", param.getDescription());
+                metadata.put("defaultValue", param.getDefaultValue());
+                metadata.put("type", param.getType());
+                ob.parameter(param.getName(), metadata);
+            }
+            rtb.operation(ob.build());
+        }
+        org.hawkular.inventory.api.model.ResourceType resourceType = rtb.build();
+        log.tracef("Adding resource type: %s", resourceType);
+        return resourceType;
+    }
+
+    private <L> RawResource toRawResource(Resource<L> r) {
         String parentId = (r.getParent() != null) ? r.getParent().getID().getIDString() : null;
         RawResource.Builder rb = RawResource.builder()
                 .id(getInventoryId(r))
@@ -188,8 +696,8 @@ public class AsyncInventoryStorage implements InventoryStorage {
         r.getMetrics().forEach(m -> rb.metric(buildMetric(m, m.getType().getMetricUnits())));
         r.getAvails().forEach(m -> rb.metric(buildMetric(m, null)));
         RawResource resource = rb.build();
-        log.debugf("Adding resource: %s", resource);
-        importResources.add(resource);
+        log.tracef("Adding resource: %s", resource);
+        return resource;
     }
 
     private <L, M extends MeasurementType<L>> Metric buildMetric(MeasurementInstance<L, M> m,
@@ -209,11 +717,22 @@ public class AsyncInventoryStorage implements InventoryStorage {
         return mb.build();
     }
 
-    private void importInventoryData(Inventory importData) throws Exception {
+    private void importInventoryData(List<Resource<?>> resources, List<ResourceType<?>> types) throws Exception {
         try {
-            log.tracef("Importing [%d] resources to inventory", importData.getResources().size());
-            sendImportRestRequest(importData);
-            diagnostics.getInventoryRate().mark(importData.getResources().size());
+            log.tracef("Importing [%d] resources to inventory", resources.size());
+            String description = String.format("import of [%d] resource types and [%d] resources", types.size(),
+                    resources.size());
+            sendWithRetries(description, () -> sendImportRestRequest(resources, types));
+            diagnostics.getInventoryRate().mark(resources.size());
+
+            // only now that the server has them are they persisted - anything that failed to be imported
+            // must not be remembered as stored (for example by the inventory snapshots)
+            long timestamp = System.currentTimeMillis();
+            types.forEach(rt -> rt.setPersistedTime(timestamp));
+            resources.forEach(r -> {
+                r.setPersistedTime(timestamp);
+                r.getMetrics().forEach(m -> m.setPersistedTime(timestamp));
+            });
         } catch (InterruptedException ie) {
             log.errorFailedToStoreInventoryData(ie);
             Thread.currentThread().interrupt(); // preserve interrupt
@@ -226,10 +745,10 @@ public class AsyncInventoryStorage implements InventoryStorage {
         }
     }
 
-    private void deleteInventoryData(List<String> resourceIds) throws Exception {
+    private void deleteInventoryData(String url) throws Exception {
         try {
-            log.tracef("Deleting resources [%s] from inventory", resourceIds);
-            sendDeleteResourcesRestRequest(resourceIds);
+            log.tracef("Deleting resources from inventory: %s", url);
+            sendWithRetries("delete of resources", () -> sendDeleteResourcesRestRequest(url));
         } catch (InterruptedException ie) {
             log.errorFailedToStoreInventoryData(ie);
             Thread.currentThread().interrupt(); // preserve interrupt
@@ -242,11 +761,46 @@ public class AsyncInventoryStorage implements InventoryStorage {
         }
     }
 
-    private void sendImportRestRequest(Inventory importData) throws Exception {
+    /**
+     * Sends a request, retrying it if it fails.
+     */
+    private void sendWithRetries(String description, RestRequest request) throws Exception {
+        for (int attempt = 1;; attempt++) {
+            long start = System.nanoTime();
+            try {
+                request.send();
+                if (log.isDebugEnabled()) {
+                    log.debugf("Inventory %s took [%d]ms (attempt [%d])", description,
+                            TimeUnit.MILLISECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS), attempt);
+                }
+                return;
+            } catch (InterruptedException ie) {
+                throw ie;
+            } catch (Exception e) {
+                if (attempt >= MAX_REQUEST_ATTEMPTS) {
+                    throw e;
+                }
+                diagnostics.getInventoryStorageRetryRate().mark();
+                log.debugf("Inventory %s failed (attempt [%d] of [%d]) - will retry: %s", description, attempt,
+                        MAX_REQUEST_ATTEMPTS, e);
+                Thread.sleep(RETRY_DELAY_MILLIS * attempt);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RestRequest {
+        void send() throws Exception;
+    }
+
+    private void sendImportRestRequest(List<Resource<?>> resources, List<ResourceType<?>> types) throws Exception {
         StringBuilder url = Util.getContextUrlString(config.getUrl(), config.getInventoryContext())
                 .append("import");
-        Request request = httpClientBuilder.buildJsonPostRequest(url.toString(), null, Util.toJson(importData));
-        Call call = httpClientBuilder.getHttpClient().newCall(request);
+        // the JSON is streamed straight into the request as it is sent - it never exists in memory as a whole
+        InventoryImportRequestBody body = new InventoryImportRequestBody(resources, types, this::toRawResource,
+                this::toInventoryResourceType);
+        Request request = httpClientBuilder.buildJsonPostRequest(url.toString(), null, body);
+        Call call = httpClientBuilder.getHttpClient(TrafficClass.INVENTORY).newCall(request);
 
         Timer.Context timer = diagnostics.getInventoryStorageRequestTimer().time();
         try (Response response = call.execute()) {
@@ -264,14 +818,9 @@ public class AsyncInventoryStorage implements InventoryStorage {
         }
     }
 
-    private void sendDeleteResourcesRestRequest(List<String> resourceId) throws Exception {
-        String ids = resourceId.stream()
-                .map(id -> "ids=" + Util.urlEncode(id))
-                .collect(Collectors.joining("&"));
-        StringBuilder url = Util.getContextUrlString(config.getUrl(), config.getInventoryContext())
-                .append("resources?").append(ids);
-        Request request = httpClientBuilder.buildJsonDeleteRequest(url.toString(), null);
-        Call call = httpClientBuilder.getHttpClient().newCall(request);
+    private void sendDeleteResourcesRestRequest(String url) throws Exception {
+        Request request = httpClientBuilder.buildJsonDeleteRequest(url, null);
+        Call call = httpClientBuilder.getHttpClient(TrafficClass.INVENTORY).newCall(request);
 
         Timer.Context timer = diagnostics.getInventoryStorageRequestTimer().time();
         try (Response response = call.execute()) {
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.storage;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration.DispatcherDropPolicy;
+import org.hawkular.agent.monitor.log.AgentLoggers;
+import org.hawkular.agent.monitor.log.MsgLogger;
+
+import com.codahale.metrics.Counter;
+
+/**
+ * The bounded buffer of a storage dispatcher. When the buffer is full, data points are dropped according to
+ * a {@link DispatcherDropPolicy} rather than failing the collection that produced them. The dispatcher takes
+ * the buffered data points out in batches, see {@link #takeBatch(Collection, int, long)}.
+ *
+ * @param <D> the type of the buffered data points
+ */
+class DataPointBuffer<D> extends ArrayBlockingQueue<D> {
+    private static final long serialVersionUID = 1L;
+    private static final MsgLogger log = AgentLoggers.getLogger(DataPointBuffer.class);
+
+    /**
+     * With {@link DispatcherDropPolicy#SAMPLE}, one out of this many data points is kept when the buffer is full.
+     */
+    static final int SAMPLE_RATE = 4;
+
+    private final String name;
+    private final int capacity;
+    private final DispatcherDropPolicy dropPolicy;
+    private final transient Counter bufferSize;
+    private final transient Counter dropped;
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicBoolean overflowing = new AtomicBoolean();
+
+    /**
+     * @param name what is buffered, used for logging
+     * @param capacity the maximum number of buffered data points
+     * @param dropPolicy what to do when the buffer is full
+     * @param bufferSize tracks the number of buffered data points
+     * @param dropped tracks the number of dropped data points
+     */
+    DataPointBuffer(String name, int capacity, DispatcherDropPolicy dropPolicy, Counter bufferSize,
+            Counter dropped) {
+        super(capacity);
+        this.name = name;
+        this.capacity = capacity;
+        this.dropPolicy = dropPolicy;
+        this.bufferSize = bufferSize;
+        this.dropped = dropped;
+    }
+
+    /**
+     * @return <code>false</code> if data points given to {@link #enqueue(Object)} now would just be dropped
+     */
+    boolean hasCapacity() {
+        return dropPolicy != DispatcherDropPolicy.DROP_NEWEST || remainingCapacity() > 0;
+    }
+
+    /**
+     * Buffers the given data point, dropping it or older data points if the buffer is full.
+     * Once the buffer was full, it is only considered to have room again when it is down to half of its capacity,
+     * so a buffer that hovers around full does not log a warning for every few data points.
+     *
+     * @param dataPoint the data point to buffer
+     * @return <code>true</code> if the data point was buffered, <code>false</code> if it was dropped
+     */
+    boolean enqueue(D dataPoint) {
+        bufferSize.inc();
+        if (offer(dataPoint)) {
+            if (overflowing.get() && size() <= capacity / 2 && overflowing.compareAndSet(true, false)) {
+                log.infof("The %s buffer has room again", name);
+            }
+            return true;
+        }
+
+        if (overflowing.compareAndSet(false, true)) {
+            log.warnf("The %s buffer is full [%d] - dropping data according to the [%s] policy", name, capacity,
+                    dropPolicy);
+        }
+
+        boolean keep = dropPolicy == DispatcherDropPolicy.DROP_OLDEST
+                || (dropPolicy == DispatcherDropPolicy.SAMPLE && overflows.getAndIncrement() % SAMPLE_RATE == 0);
+        if (!keep) {
+            bufferSize.dec();
+            dropped.inc();
+            return false;
+        }
+
+        // make room by dropping the oldest data points
+        while (!offer(dataPoint)) {
+            if (poll() != null) {
+                bufferSize.dec();
+                dropped.inc();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if the buffer was full and has not been drained to half of its capacity since
+     */
+    boolean isOverflowing() {
+        return overflowing.get();
+    }
+
+    /**
+     * Waits for a data point and then takes it out of the buffer along with the data points that follow it.
+     * The batch is complete as soon as it has {@code maxBatchSize} data points or when {@code lingerMillis} have
+     * passed since the first one was taken, whichever comes first. So under light load a batch is sent at most
+     * {@code lingerMillis} late instead of one request being sent per data point.
+     *
+     * @param batch where to put the data points that are taken
+     * @param maxBatchSize the most data points to take
+     * @param lingerMillis how long to wait for a batch to fill up
+     * @return the number of data points taken out of the buffer
+     * @throws InterruptedException if interrupted while waiting
+     */
+    int takeBatch(Collection<? super D> batch, int maxBatchSize, long lingerMillis) throws InterruptedException {
+        batch.add(take());
+        int taken = 1;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        try {
+            while (taken < maxBatchSize) {
+                taken += drainTo(batch, maxBatchSize - taken);
+                long remaining = deadline - System.nanoTime();
+                if (taken >= maxBatchSize || remaining <= 0) {
+                    break;
+                }
+                D next = poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+                taken++;
+            }
+        } finally {
+            bufferSize.dec(taken);
+        }
+        return taken;
+    }
+}
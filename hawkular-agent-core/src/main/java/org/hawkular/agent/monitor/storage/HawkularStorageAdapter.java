@@ -18,13 +18,16 @@ package org.hawkular.agent.monitor.storage;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.hawkular.agent.monitor.api.Avail;
 import org.hawkular.agent.monitor.api.AvailDataPayloadBuilder;
@@ -42,6 +45,9 @@ import org.hawkular.agent.monitor.inventory.MetricType;
 import org.hawkular.agent.monitor.inventory.Resource;
 import org.hawkular.agent.monitor.log.AgentLoggers;
 import org.hawkular.agent.monitor.log.MsgLogger;
+import org.hawkular.agent.monitor.util.BaseHttpClientGenerator.TrafficClass;
+import org.hawkular.agent.monitor.util.RequestSendTime;
+import org.hawkular.agent.monitor.util.ThreadFactoryGenerator;
 import org.hawkular.agent.monitor.util.Util;
 
 import okhttp3.Call;
@@ -52,13 +58,35 @@ import okhttp3.Response;
 public class HawkularStorageAdapter implements StorageAdapter {
     private static final MsgLogger log = AgentLoggers.getLogger(HawkularStorageAdapter.class);
 
+    // the most metric tag and notification requests held back while the storage gate is closed
+    private static final int MAX_HELD_BACK_REQUESTS = 10_000;
+
     private AgentCoreEngineConfiguration.StorageAdapterConfiguration config;
     private Diagnostics diagnostics;
     private HttpClientBuilder httpClientBuilder;
     private AsyncInventoryStorage inventoryStorage;
     private Map<String, String> agentTenantIdHeader;
+    private final StorageGate storageGate;
+    private final long agentStartNanos;
+    private final AtomicBoolean firstDataPointStored = new AtomicBoolean(false);
+
+    // metric tag and notification requests waiting for the storage gate to open; guarded by itself
+    private final Queue<Runnable> heldBackRequests = new ArrayDeque<>();
+    private Thread heldBackReleaser;
+    private boolean heldBackOverflowed;
 
     public HawkularStorageAdapter() {
+        this(new StorageGate(true), System.nanoTime());
+    }
+
+    /**
+     * @param storageGate inventory, metric tags and notifications are not sent to storage until this is opened
+     * @param agentStartNanos when the agent started (per {@link System#nanoTime()}); used to measure the
+     *        time until the first data point is stored
+     */
+    public HawkularStorageAdapter(StorageGate storageGate, long agentStartNanos) {
+        this.storageGate = storageGate;
+        this.agentStartNanos = agentStartNanos;
     }
 
     @Override
@@ -79,7 +107,8 @@ public class HawkularStorageAdapter implements StorageAdapter {
                         feedId,
                         config,
                         httpClientBuilder,
-                        diagnostics);
+                        diagnostics,
+                        storageGate);
                 break;
 
             case METRICS:
@@ -114,6 +143,11 @@ public class HawkularStorageAdapter implements StorageAdapter {
 
     @Override
     public void storeMetrics(Set<MetricDataPoint> datapoints, long waitMillis) {
+        storeMetrics(datapoints, waitMillis, null);
+    }
+
+    @Override
+    public void storeMetrics(Set<MetricDataPoint> datapoints, long waitMillis, StoreListener listener) {
         if (datapoints == null || datapoints.isEmpty()) {
             return; // nothing to do
         }
@@ -139,7 +173,7 @@ public class HawkularStorageAdapter implements StorageAdapter {
                 }
             }
 
-            store(payloadBuilder, waitMillis);
+            store(payloadBuilder, waitMillis, listener);
         }
 
         return;
@@ -147,6 +181,10 @@ public class HawkularStorageAdapter implements StorageAdapter {
 
     @Override
     public void store(MetricDataPayloadBuilder payloadBuilder, long waitMillis) {
+        store(payloadBuilder, waitMillis, null);
+    }
+
+    private void store(MetricDataPayloadBuilder payloadBuilder, long waitMillis, StoreListener listener) {
         String jsonPayload = "?";
 
         try {
@@ -167,17 +205,23 @@ public class HawkularStorageAdapter implements StorageAdapter {
             StringBuilder url = Util.getContextUrlString(config.getUrl(), config.getMetricsContext());
             url.append("metrics/data");
 
-            // now send the REST request
-            Request request = this.httpClientBuilder.buildJsonPostRequest(url.toString(), tenantIdHeader, jsonPayload);
+            // now send the REST request; the latency reported to the listener excludes the time spent waiting
+            // in the client's dispatcher queue
+            final RequestSendTime sendTime = new RequestSendTime();
+            Request request = this.httpClientBuilder.buildJsonPostRequest(url.toString(), tenantIdHeader, jsonPayload)
+                    .newBuilder().tag(sendTime).build();
 
             final CountDownLatch latch = (waitMillis <= 0) ? null : new CountDownLatch(1);
             final String jsonPayloadFinal = jsonPayload;
-            this.httpClientBuilder.getHttpClient().newCall(request).enqueue(new Callback() {
+            this.httpClientBuilder.getHttpClient(TrafficClass.DATA).newCall(request).enqueue(new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
                     try {
                         log.errorFailedToStoreMetricData(e, jsonPayloadFinal);
                         diagnostics.getStorageErrorRate().mark(1);
+                        if (listener != null) {
+                            listener.failed(payloadBuilder.getNumberDataPoints());
+                        }
                     } finally {
                         if (latch != null) {
                             latch.countDown();
@@ -194,9 +238,21 @@ public class HawkularStorageAdapter implements StorageAdapter {
                                     + response.message() + "], url=[" + request.url().toString() + "]");
                             log.errorFailedToStoreMetricData(e, jsonPayloadFinal);
                             diagnostics.getStorageErrorRate().mark(1);
+                            if (listener != null) {
+                                listener.failed(payloadBuilder.getNumberDataPoints());
+                            }
                         } else {
                             // looks like everything stored successfully
                             diagnostics.getMetricRate().mark(payloadBuilder.getNumberDataPoints());
+                            if (listener != null) {
+                                listener.stored(payloadBuilder.getNumberDataPoints(), sendTime.getNanosSinceSent());
+                            }
+                            if (firstDataPointStored.compareAndSet(false, true)) {
+                                long elapsed = System.nanoTime() - agentStartNanos;
+                                diagnostics.getTimeToFirstDataPoint().update(elapsed, TimeUnit.NANOSECONDS);
+                                log.infof("First data point stored [%d] ms after the agent started",
+                                        TimeUnit.NANOSECONDS.toMillis(elapsed));
+                            }
                         }
                     } finally {
                         if (latch != null) {
@@ -214,11 +270,19 @@ public class HawkularStorageAdapter implements StorageAdapter {
         } catch (Throwable t) {
             log.errorFailedToStoreMetricData(t, jsonPayload);
             diagnostics.getStorageErrorRate().mark(1);
+            if (listener != null) {
+                listener.failed(payloadBuilder.getNumberDataPoints());
+            }
         }
     }
 
     @Override
     public void storeAvails(Set<AvailDataPoint> datapoints, long waitMillis) {
+        storeAvails(datapoints, waitMillis, null);
+    }
+
+    @Override
+    public void storeAvails(Set<AvailDataPoint> datapoints, long waitMillis, StoreListener listener) {
         if (datapoints == null || datapoints.isEmpty()) {
             return; // nothing to do
         }
@@ -237,7 +301,7 @@ public class HawkularStorageAdapter implements StorageAdapter {
                 payloadBuilder.addDataPoint(datapoint.getKey(), timestamp, value);
             }
 
-            store(payloadBuilder, waitMillis);
+            store(payloadBuilder, waitMillis, listener);
         }
 
         return;
@@ -245,6 +309,10 @@ public class HawkularStorageAdapter implements StorageAdapter {
 
     @Override
     public void store(AvailDataPayloadBuilder payloadBuilder, long waitMillis) {
+        store(payloadBuilder, waitMillis, null);
+    }
+
+    private void store(AvailDataPayloadBuilder payloadBuilder, long waitMillis, StoreListener listener) {
         String jsonPayload = "?";
 
         try {
@@ -265,17 +333,23 @@ public class HawkularStorageAdapter implements StorageAdapter {
             StringBuilder url = Util.getContextUrlString(config.getUrl(), config.getMetricsContext());
             url.append("availability/data");
 
-            // now send the REST request
-            Request request = this.httpClientBuilder.buildJsonPostRequest(url.toString(), tenantIdHeader, jsonPayload);
+            // now send the REST request; the latency reported to the listener excludes the time spent waiting
+            // in the client's dispatcher queue
+            final RequestSendTime sendTime = new RequestSendTime();
+            Request request = this.httpClientBuilder.buildJsonPostRequest(url.toString(), tenantIdHeader, jsonPayload)
+                    .newBuilder().tag(sendTime).build();
 
             final CountDownLatch latch = (waitMillis <= 0) ? null : new CountDownLatch(1);
             final String jsonPayloadFinal = jsonPayload;
-            this.httpClientBuilder.getHttpClient().newCall(request).enqueue(new Callback() {
+            this.httpClientBuilder.getHttpClient(TrafficClass.DATA).newCall(request).enqueue(new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
                     try {
                         log.errorFailedToStoreAvailData(e, jsonPayloadFinal);
                         diagnostics.getStorageErrorRate().mark(1);
+                        if (listener != null) {
+                            listener.failed(payloadBuilder.getNumberDataPoints());
+                        }
                     } finally {
                         if (latch != null) {
                             latch.countDown();
@@ -292,9 +366,15 @@ public class HawkularStorageAdapter implements StorageAdapter {
                                     + response.message() + "], url=[" + request.url().toString() + "]");
                             log.errorFailedToStoreAvailData(e, jsonPayloadFinal);
                             diagnostics.getStorageErrorRate().mark(1);
+                            if (listener != null) {
+                                listener.failed(payloadBuilder.getNumberDataPoints());
+                            }
                         } else {
                             // looks like everything stored successfully
                             diagnostics.getAvailRate().mark(payloadBuilder.getNumberDataPoints());
+                            if (listener != null) {
+                                listener.stored(payloadBuilder.getNumberDataPoints(), sendTime.getNanosSinceSent());
+                            }
                         }
                     } finally {
                         if (latch != null) {
@@ -312,11 +392,22 @@ public class HawkularStorageAdapter implements StorageAdapter {
         } catch (Throwable t) {
             log.errorFailedToStoreAvailData(t, jsonPayload);
             diagnostics.getStorageErrorRate().mark(1);
+            if (listener != null) {
+                listener.failed(payloadBuilder.getNumberDataPoints());
+            }
         }
     }
 
+    /**
+     * Sends the metric tags once the storage gate is open. While the gate is closed the request is held back,
+     * in which case this does not wait for it to be sent even if <code>waitMillis</code> is positive.
+     */
     @Override
     public void store(MetricTagPayloadBuilder payloadBuilder, long waitMillis) {
+        sendWhenGateIsOpen(() -> sendMetricTags(payloadBuilder, waitMillis));
+    }
+
+    private void sendMetricTags(MetricTagPayloadBuilder payloadBuilder, long waitMillis) {
         Map<String, String> jsonPayloads = null;
 
         try {
@@ -347,7 +438,7 @@ public class HawkularStorageAdapter implements StorageAdapter {
                 Request request = this.httpClientBuilder.buildJsonPutRequest(currentUrl, tenantIdHeader, tagsJson);
                 final CountDownLatch latch = (waitMillis <= 0) ? null : new CountDownLatch(1);
 
-                this.httpClientBuilder.getHttpClient().newCall(request).enqueue(new Callback() {
+                this.httpClientBuilder.getHttpClient(TrafficClass.METADATA).newCall(request).enqueue(new Callback() {
                     @Override
                     public void onFailure(Call call, IOException e) {
                         try {
@@ -392,6 +483,11 @@ public class HawkularStorageAdapter implements StorageAdapter {
 
     @Override
     public <L> void receivedEvent(InventoryEvent<L> event) {
+        // restored resources were stored (along with their metric tags) before the agent restarted
+        if (event.isRestored()) {
+            return;
+        }
+
         if (inventoryStorage != null) {
             inventoryStorage.receivedEvent(event);
         }
@@ -437,6 +533,69 @@ public class HawkularStorageAdapter implements StorageAdapter {
         if (inventoryStorage != null) {
             inventoryStorage.shutdown();
         }
+
+        synchronized (heldBackRequests) {
+            if (heldBackReleaser != null) {
+                heldBackReleaser.interrupt();
+                heldBackReleaser = null;
+            }
+            if (!heldBackRequests.isEmpty()) {
+                log.debugf("Dropping [%d] metric tag and notification requests held back by the storage gate",
+                        heldBackRequests.size());
+                heldBackRequests.clear();
+            }
+        }
+    }
+
+    /**
+     * Runs the given request right away if the storage gate is open. Otherwise it is held back and run once the
+     * gate opens, in the order the requests came in. If too many requests are held back, new ones are dropped.
+     *
+     * @param request sends something to storage
+     */
+    private void sendWhenGateIsOpen(Runnable request) {
+        synchronized (heldBackRequests) {
+            // requests still held back must go first so the order is kept
+            if (!storageGate.isOpen() || !heldBackRequests.isEmpty()) {
+                if (heldBackRequests.size() >= MAX_HELD_BACK_REQUESTS) {
+                    if (!heldBackOverflowed) {
+                        heldBackOverflowed = true;
+                        log.warnf("Too many metric tag and notification requests are waiting for the Hawkular "
+                                + "Server - dropping new ones until it is ready");
+                    }
+                    return;
+                }
+                heldBackRequests.add(request);
+                if (heldBackReleaser == null) {
+                    heldBackReleaser = ThreadFactoryGenerator
+                            .generateFactory(true, "Hawkular-WildFly-Agent-Storage-Gate-Releaser")
+                            .newThread(this::releaseHeldBackRequests);
+                    heldBackReleaser.start();
+                }
+                return;
+            }
+        }
+        request.run();
+    }
+
+    private void releaseHeldBackRequests() {
+        try {
+            storageGate.await();
+        } catch (InterruptedException ie) {
+            // we are shutting down
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        synchronized (heldBackRequests) {
+            log.debugf("Sending [%d] metric tag and notification requests held back by the storage gate",
+                    heldBackRequests.size());
+            Runnable request;
+            while ((request = heldBackRequests.poll()) != null) {
+                request.run();
+            }
+            heldBackReleaser = null;
+        }
     }
 
     /**
@@ -467,6 +626,10 @@ public class HawkularStorageAdapter implements StorageAdapter {
         return new NotificationPayloadBuilderImpl();
     }
 
+    /**
+     * Sends the notification once the storage gate is open. While the gate is closed the request is held back,
+     * in which case this does not wait for it to be sent even if <code>waitMillis</code> is positive.
+     */
     @Override
     public void store(NotificationPayloadBuilder payloadBuilder, long waitMillis) {
         // if we are not in full hawkular mode, there is nothing for us to do
@@ -474,6 +637,10 @@ public class HawkularStorageAdapter implements StorageAdapter {
             return;
         }
 
+        sendWhenGateIsOpen(() -> sendNotification(payloadBuilder, waitMillis));
+    }
+
+    private void sendNotification(NotificationPayloadBuilder payloadBuilder, long waitMillis) {
         try {
             // get the payload
             String payload = Util.toJson(payloadBuilder.toPayload());
@@ -486,7 +653,7 @@ public class HawkularStorageAdapter implements StorageAdapter {
             Request request = this.httpClientBuilder.buildJsonPutRequest(url.toString(), agentTenantIdHeader, payload);
             final CountDownLatch latch = (waitMillis <= 0) ? null : new CountDownLatch(1);
 
-            this.httpClientBuilder.getHttpClient().newCall(request).enqueue(new Callback() {
+            this.httpClientBuilder.getHttpClient(TrafficClass.METADATA).newCall(request).enqueue(new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
                     try {
@@ -23,6 +23,10 @@ import javax.net.ssl.X509TrustManager;
 
 import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration.StorageAdapterConfiguration;
 import org.hawkular.agent.monitor.util.BaseHttpClientGenerator;
+import org.hawkular.agent.monitor.util.BaseHttpClientGenerator.TrafficClass;
+import org.hawkular.agent.monitor.util.Util;
+
+import com.codahale.metrics.Timer;
 
 import okhttp3.MediaType;
 import okhttp3.Request;
@@ -32,8 +36,13 @@ import okhttp3.RequestBody;
 /**
  * Builds an HTTP client that can be used to talk to the Hawkular server-side.
  * This builder has methods that you can use to build requests.
+ * Use {@link #getHttpClient(BaseHttpClientGenerator.TrafficClass)} to send the requests so that the different kinds
+ * of traffic do not hold each other up.
  */
 public class HttpClientBuilder extends BaseHttpClientGenerator {
+    private final String keepAliveUrl;
+    private final int keepAliveIntervalSeconds;
+
     /**
      * Creates the object that can be used to create a fully configured HTTP client.
      * Note that if sslContext is null, this object will use the configured keystorePath
@@ -48,9 +57,11 @@ public class HttpClientBuilder extends BaseHttpClientGenerator {
      *                      any built clients will be asked to make
      * @param sslContext if not null, and if the configuration tells use to use SSL, this will
      *                   be the SSL context to use.
+     * @param connectionSetupTimer if not null, tracks the number of new connections and how long it took to
+     *                             set them up
      */
     public HttpClientBuilder(StorageAdapterConfiguration storageAdapter, SSLContext sslContext,
-                             X509TrustManager x509TrustManager) {
+                             X509TrustManager x509TrustManager, Timer connectionSetupTimer) {
         super(new BaseHttpClientGenerator.Configuration.Builder()
                 .username(storageAdapter.getUsername())
                 .password(storageAdapter.getPassword())
@@ -61,7 +72,34 @@ public class HttpClientBuilder extends BaseHttpClientGenerator {
                 .keystorePassword(storageAdapter.getKeystorePassword())
                 .connectTimeout(storageAdapter.getConnectTimeoutSeconds())
                 .readTimeout(storageAdapter.getReadTimeoutSeconds())
+                .readTimeout(TrafficClass.DATA, storageAdapter.getDataReadTimeoutSeconds())
+                .readTimeout(TrafficClass.INVENTORY, storageAdapter.getInventoryReadTimeoutSeconds())
+                .http2(storageAdapter.isHttp2())
+                .connectionSetupTimer(connectionSetupTimer)
                 .build());
+
+        // the metrics status endpoint is cheap to call and exists in all server setups we support
+        this.keepAliveUrl = Util.getContextUrlString(storageAdapter.getUrl(), storageAdapter.getMetricsContext())
+                .append("status").toString();
+        this.keepAliveIntervalSeconds = storageAdapter.getKeepAliveIntervalSeconds();
+    }
+
+    /**
+     * Opens connections to the Hawkular server ahead of the first requests.
+     *
+     * @see #warmUp(String)
+     */
+    public void warmUp() {
+        warmUp(keepAliveUrl);
+    }
+
+    /**
+     * Starts keeping the connections to the Hawkular server open at the configured interval.
+     *
+     * @see #startKeepAlive(String, int)
+     */
+    public void startKeepAlive() {
+        startKeepAlive(keepAliveUrl, keepAliveIntervalSeconds);
     }
 
     public Request buildJsonGetRequest(String url, Map<String, String> headers) {
@@ -99,6 +137,15 @@ public class HttpClientBuilder extends BaseHttpClientGenerator {
     }
 
     public Request buildJsonPostRequest(String url, Map<String, String> headers, String jsonPayload) {
+        RequestBody body = RequestBody.create(MediaType.parse("application/json"), jsonPayload);
+        return buildJsonPostRequest(url, headers, body);
+    }
+
+    /**
+     * Like {@link #buildJsonPostRequest(String, Map, String)} but the caller provides the body, which allows
+     * large payloads to be streamed rather than first built as a string.
+     */
+    public Request buildJsonPostRequest(String url, Map<String, String> headers, RequestBody body) {
         // make sure we are authenticated. see http://en.wikipedia.org/wiki/Basic_access_authentication#Client_side
         String base64Credentials = buildBase64Credentials();
 
@@ -113,8 +160,6 @@ public class HttpClientBuilder extends BaseHttpClientGenerator {
             }
         }
 
-        RequestBody body = RequestBody.create(MediaType.parse("application/json"), jsonPayload);
-
         return requestBuilder.post(body).build();
     }
 
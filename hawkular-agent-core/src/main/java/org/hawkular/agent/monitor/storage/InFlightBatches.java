@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.storage;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of batches a storage dispatcher has handed to the storage adapter but that the server has not
+ * answered yet. The storage adapter sends batches asynchronously - without a limit, a slow server would make the
+ * batches pile up in the HTTP client's queue, which is unbounded, rather than in the bounded buffer of the
+ * dispatcher, where the drop policy applies.
+ */
+class InFlightBatches {
+    private final Semaphore permits;
+    private final StoreListener listener;
+
+    /**
+     * @param maxInFlight the maximum number of batches that are sent at the same time
+     * @param listener is told how each request went
+     */
+    InFlightBatches(int maxInFlight, StoreListener listener) {
+        this.permits = new Semaphore(Math.max(maxInFlight, 1));
+        this.listener = listener;
+    }
+
+    /**
+     * Waits until another batch may be sent. Call this before taking the batch out of the buffer so the data
+     * points stay buffered while the server is busy.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void acquire() throws InterruptedException {
+        permits.acquire();
+    }
+
+    /**
+     * @param count the number of data points in the batch that is being sent after {@link #acquire()}
+     * @return the listener to pass to the storage adapter along with the batch; once it has been told the outcome
+     *         of all the data points of the batch, the next batch may be sent
+     */
+    StoreListener sending(int count) {
+        return new BatchListener(count);
+    }
+
+    /**
+     * @return the number of batches that may be sent right now without waiting
+     */
+    int available() {
+        return permits.availablePermits();
+    }
+
+    private class BatchListener implements StoreListener {
+        // the storage adapter can split a batch into several requests, e.g. one per tenant
+        private final AtomicInteger remaining;
+
+        BatchListener(int count) {
+            this.remaining = new AtomicInteger(count);
+        }
+
+        @Override
+        public void stored(int count, long latencyNanos) {
+            listener.stored(count, latencyNanos);
+            done(count);
+        }
+
+        @Override
+        public void failed(int count) {
+            listener.failed(count);
+            done(count);
+        }
+
+        private void done(int count) {
+            int before = remaining.getAndAdd(-count);
+            if (before > 0 && before - count <= 0) {
+                permits.release();
+            }
+        }
+    }
+}
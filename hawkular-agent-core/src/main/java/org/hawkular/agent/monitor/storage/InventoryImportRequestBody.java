@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.storage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Function;
+
+import org.hawkular.agent.monitor.inventory.Resource;
+import org.hawkular.agent.monitor.inventory.ResourceType;
+import org.hawkular.agent.monitor.util.Util;
+import org.hawkular.inventory.api.model.RawResource;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * The body of an inventory import request. Rather than building the whole inventory model and its JSON up front,
+ * each resource and resource type is converted to its inventory model and written straight into the request sink
+ * while the request is being sent. Only one resource's model is alive at any time, no matter how large the import.
+ *
+ * Because the JSON is generated when written, a retried request produces the JSON again from the current state
+ * of the given resources.
+ */
+class InventoryImportRequestBody extends RequestBody {
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private final List<Resource<?>> resources;
+    private final List<ResourceType<?>> types;
+    private final Function<Resource<?>, RawResource> resourceConverter;
+    private final Function<ResourceType<?>, org.hawkular.inventory.api.model.ResourceType> typeConverter;
+
+    InventoryImportRequestBody(List<Resource<?>> resources, List<ResourceType<?>> types,
+            Function<Resource<?>, RawResource> resourceConverter,
+            Function<ResourceType<?>, org.hawkular.inventory.api.model.ResourceType> typeConverter) {
+        this.resources = resources;
+        this.types = types;
+        this.resourceConverter = resourceConverter;
+        this.typeConverter = typeConverter;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        // do not close the generator - that would close the sink which is owned by the HTTP client
+        JsonGenerator generator = Util.createJsonGenerator(sink.outputStream());
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("resources");
+        for (Resource<?> resource : resources) {
+            Util.toJson(generator, resourceConverter.apply(resource));
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("types");
+        for (ResourceType<?> type : types) {
+            Util.toJson(generator, typeConverter.apply(type));
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.flush();
+    }
+}
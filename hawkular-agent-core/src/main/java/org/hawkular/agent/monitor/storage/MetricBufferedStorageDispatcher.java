@@ -18,13 +18,12 @@ package org.hawkular.agent.monitor.storage;
 
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 
 import org.hawkular.agent.monitor.diagnostics.Diagnostics;
 import org.hawkular.agent.monitor.log.AgentLoggers;
 import org.hawkular.agent.monitor.log.MsgLogger;
 import org.hawkular.agent.monitor.scheduler.SchedulerConfiguration;
+import org.hawkular.agent.monitor.util.BaseHttpClientGenerator.TrafficClass;
 import org.hawkular.agent.monitor.util.Consumer;
 
 /**
@@ -35,8 +34,11 @@ public class MetricBufferedStorageDispatcher implements Consumer<MetricDataPoint
     private final int maxBatchSize;
     private final int bufferSize;
     private final StorageAdapter storageAdapter;
-    private final Diagnostics diagnostics;
-    private final BlockingQueue<MetricDataPoint> queue;
+    private final StorageGate storageGate;
+    private final DataPointBuffer<MetricDataPoint> queue;
+    private final long lingerMillis;
+    private final AdaptiveBatchSize batchSize;
+    private final InFlightBatches inFlightBatches;
     private final Worker worker;
 
     public MetricBufferedStorageDispatcher(SchedulerConfiguration config, StorageAdapter storageAdapter,
@@ -44,8 +46,13 @@ public class MetricBufferedStorageDispatcher implements Consumer<MetricDataPoint
         this.maxBatchSize = config.getMetricDispatcherMaxBatchSize();
         this.bufferSize = config.getMetricDispatcherBufferSize();
         this.storageAdapter = storageAdapter;
-        this.diagnostics = diagnostics;
-        this.queue = new ArrayBlockingQueue<MetricDataPoint>(bufferSize);
+        this.storageGate = config.getStorageGate();
+        this.queue = new DataPointBuffer<MetricDataPoint>("metric", bufferSize, config.getMetricDispatcherDropPolicy(),
+                diagnostics.getMetricsStorageBufferSize(), diagnostics.getMetricsDropped());
+        this.lingerMillis = config.getMetricDispatcherLingerMillis();
+        this.batchSize = new AdaptiveBatchSize("metric", maxBatchSize, config.getDispatcherTargetLatencyMillis());
+        // metrics and avails share the data traffic client, so each gets half of the requests it runs at once
+        this.inFlightBatches = new InFlightBatches(TrafficClass.DATA.getMaxRequests() / 2, batchSize);
         this.worker = new Worker(queue);
     }
 
@@ -66,25 +73,30 @@ public class MetricBufferedStorageDispatcher implements Consumer<MetricDataPoint
 
     @Override
     public void accept(MetricDataPoint sample) {
-        if (queue.remainingCapacity() > 0) {
+        if (queue.enqueue(sample)) {
             log.debugf("Metric collected: [%s]->[%s]", sample.getKey(), sample.getMetricValue());
-            diagnostics.getMetricsStorageBufferSize().inc();
-            queue.add(sample);
-        } else {
-            throw new RuntimeException("Metric dispatcher buffer capacity has been exceeded [" + bufferSize + "]");
         }
     }
 
+    /**
+     * @return <code>false</code> if the buffer is full and, according to the drop policy, anything collected
+     *         now would be dropped - so there is no point in collecting it
+     */
+    @Override
+    public boolean hasCapacity() {
+        return queue.hasCapacity();
+    }
+
     @Override
     public void report(Throwable e) {
         log.errorMetricCollectionFailed(e);
     }
 
     public class Worker extends Thread {
-        private final BlockingQueue<MetricDataPoint> queue;
+        private final DataPointBuffer<MetricDataPoint> queue;
         private boolean keepRunning = true;
 
-        public Worker(BlockingQueue<MetricDataPoint> queue) {
+        public Worker(DataPointBuffer<MetricDataPoint> queue) {
             super("Hawkular-WildFly-Agent-Storage-Dispatcher-Metric");
             this.queue = queue;
         }
@@ -93,15 +105,19 @@ public class MetricBufferedStorageDispatcher implements Consumer<MetricDataPoint
             try {
                 while (keepRunning) {
                     // batch processing
-                    MetricDataPoint sample = queue.take();
-                    Set<MetricDataPoint> samples = new HashSet<>();
-                    queue.drainTo(samples, maxBatchSize);
-                    samples.add(sample);
+                    // leave everything buffered until the server can take it
+                    storageGate.await();
+
+                    // while the server is busy with earlier batches, keep the data points buffered where the
+                    // drop policy applies
+                    inFlightBatches.acquire();
 
-                    diagnostics.getMetricsStorageBufferSize().dec(samples.size());
+                    // flush when the batch is full or has lingered long enough
+                    Set<MetricDataPoint> samples = new HashSet<>();
+                    queue.takeBatch(samples, batchSize.get(), lingerMillis);
 
-                    // dispatch
-                    storageAdapter.storeMetrics(samples, 0);
+                    // dispatch - how the server copes with this batch determines the size of the next ones
+                    storageAdapter.storeMetrics(samples, 0, inFlightBatches.sending(samples.size()));
                 }
             } catch (InterruptedException ie) {
             }
@@ -47,6 +47,10 @@ public class NotificationDispatcher implements InventoryListener, AvailListener
     }
 
     @Override public <L> void receivedEvent(InventoryEvent<L> event) {
+        // restored resources are not new - they were already announced before the agent restarted
+        if (event.isRestored()) {
+            return;
+        }
         event.getAddedOrModified().stream()
                 .filter(r -> r.getResourceType().getNotifications().contains(NotificationType.RESOURCE_ADDED))
                 .forEach(r -> {
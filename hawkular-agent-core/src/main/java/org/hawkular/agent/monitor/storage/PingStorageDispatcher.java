@@ -59,6 +59,11 @@ public class PingStorageDispatcher implements Runnable {
 
     @Override
     public void run() {
+        if (!config.getStorageGate().isOpen()) {
+            log.tracef("Not sending agent availability pings - the server is not ready yet");
+            return;
+        }
+
         long now = System.currentTimeMillis();
 
         Set<AvailDataPoint> pings = this.config.getTenantIds().stream()
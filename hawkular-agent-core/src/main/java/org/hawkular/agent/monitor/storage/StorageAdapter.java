@@ -66,6 +66,16 @@ public interface StorageAdapter extends MetricStorage, AvailStorage, InventorySt
      */
     void storeMetrics(Set<MetricDataPoint> datapoints, long waitMillis);
 
+    /**
+     * Like {@link #storeMetrics(Set, long)} but tells the given listener how each storage request went.
+     *
+     * @param datapoints the data to be stored
+     * @param waitMillis the amount of milliseconds to wait for the store to complete before returning (0==no wait).
+     * @param listener if not null, is told about the outcome of each storage request; between them, the requests
+     *            account for every one of the data points
+     */
+    void storeMetrics(Set<MetricDataPoint> datapoints, long waitMillis, StoreListener listener);
+
     /**
      * Stores the given availability check data points.
      * This is an asynchronous call. But if a <code>waitMillis</code> is provided, it indicates the caller is willing
@@ -80,4 +90,14 @@ public interface StorageAdapter extends MetricStorage, AvailStorage, InventorySt
      * @param waitMillis the amount of milliseconds to wait for the store to complete before returning (0==no wait).
      */
     void storeAvails(Set<AvailDataPoint> datapoints, long waitMillis);
+
+    /**
+     * Like {@link #storeAvails(Set, long)} but tells the given listener how each storage request went.
+     *
+     * @param datapoints the data to be stored
+     * @param waitMillis the amount of milliseconds to wait for the store to complete before returning (0==no wait).
+     * @param listener if not null, is told about the outcome of each storage request; between them, the requests
+     *            account for every one of the data points
+     */
+    void storeAvails(Set<AvailDataPoint> datapoints, long waitMillis, StoreListener listener);
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.storage;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Holds back the sending of collected data until the Hawkular server is known to be ready to accept it.
+ * While the gate is closed, collected data stays in the dispatchers' bounded buffers.
+ * Once opened, a gate stays open.
+ */
+public class StorageGate {
+    private final CountDownLatch latch;
+
+    /**
+     * @param open if true the gate starts out open and will never hold anything back
+     */
+    public StorageGate(boolean open) {
+        this.latch = new CountDownLatch(open ? 0 : 1);
+    }
+
+    /**
+     * Opens the gate, releasing everyone waiting on it. Does nothing if the gate is already open.
+     */
+    public void open() {
+        latch.countDown();
+    }
+
+    /**
+     * @return true if data can be sent to storage
+     */
+    public boolean isOpen() {
+        return latch.getCount() == 0L;
+    }
+
+    /**
+     * Waits until the gate is open.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void await() throws InterruptedException {
+        latch.await();
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.storage;
+
+/**
+ * Is told how the requests that store data in Hawkular went, for example so that the size of the requests
+ * can be adapted to how fast the server takes them.
+ */
+public interface StoreListener {
+    /**
+     * The server accepted the data.
+     *
+     * @param count the number of data points that were stored
+     * @param latencyNanos how long it took from sending the request until the response came back
+     */
+    void stored(int count, long latencyNanos);
+
+    /**
+     * The data could not be stored, either because the server could not be reached or because it answered
+     * with an error.
+     *
+     * @param count the number of data points that were not stored
+     */
+    void failed(int count);
+}
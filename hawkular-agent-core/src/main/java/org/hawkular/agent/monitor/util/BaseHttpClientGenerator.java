@@ -18,10 +18,18 @@ package org.hawkular.agent.monitor.util;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.security.KeyStore;
 import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.KeyManagerFactory;
@@ -33,8 +41,16 @@ import javax.net.ssl.X509TrustManager;
 import org.hawkular.agent.monitor.log.AgentLoggers;
 import org.hawkular.agent.monitor.log.MsgLogger;
 
+import com.codahale.metrics.Timer;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
+import okhttp3.Response;
 import okhttp3.ws.WebSocketCall;
 
 /**
@@ -47,10 +63,62 @@ import okhttp3.ws.WebSocketCall;
  * Note that if the configuration says to NOT use SSL in the first place, the given SSL context (if any)
  * as well as the configured keystorePath and keystorePassword will all be ignored since
  * we are being told to not use SSL at all.
+ *
+ * Besides the general purpose client, there is one client per {@link TrafficClass}. Each of those has its own
+ * dispatcher, connection pool and timeouts so that, for example, a large inventory import or a burst of
+ * metric tag updates cannot hold up the metric and availability data.
+ *
+ * Connections can be opened ahead of time with {@link #warmUp(String)} and kept open with
+ * {@link #startKeepAlive(String, int)} so that requests do not have to wait for TCP and TLS setup.
  */
 public class BaseHttpClientGenerator {
     private static final MsgLogger log = AgentLoggers.getLogger(BaseHttpClientGenerator.class);
 
+    /**
+     * The kinds of requests the agent sends to the server. Each kind gets its own HTTP client.
+     */
+    public enum TrafficClass {
+        /**
+         * Metric and availability data. This is the time-sensitive traffic, so it gets the most capacity
+         * and its dispatcher threads run at a higher priority.
+         */
+        DATA(16, 8, Thread.NORM_PRIORITY + 1),
+
+        /**
+         * Metric tags and notifications.
+         */
+        METADATA(4, 2, Thread.NORM_PRIORITY),
+
+        /**
+         * Inventory imports and deletes. These can be large, but there are few of them.
+         */
+        INVENTORY(2, 2, Thread.NORM_PRIORITY);
+
+        private final int maxRequests;
+        private final int maxIdleConnections;
+        private final int threadPriority;
+
+        private TrafficClass(int maxRequests, int maxIdleConnections, int threadPriority) {
+            this.maxRequests = maxRequests;
+            this.maxIdleConnections = maxIdleConnections;
+            this.threadPriority = threadPriority;
+        }
+
+        /**
+         * @return the maximum number of asynchronous requests of this class that run at the same time
+         */
+        public int getMaxRequests() {
+            return maxRequests;
+        }
+
+        /**
+         * @return the maximum number of idle connections kept open for this class
+         */
+        public int getMaxIdleConnections() {
+            return maxIdleConnections;
+        }
+    }
+
     public static class Configuration {
         public static class Builder {
             private String username;
@@ -62,13 +130,17 @@ public class BaseHttpClientGenerator {
             private X509TrustManager x509TrustManager;
             private Optional<Integer> connectTimeoutSeconds = Optional.empty();
             private Optional<Integer> readTimeoutSeconds = Optional.empty();
+            private Map<TrafficClass, Integer> trafficClassReadTimeoutSeconds = new EnumMap<>(TrafficClass.class);
+            private Optional<Boolean> http2 = Optional.empty();
+            private Timer connectionSetupTimer;
 
             public Builder() {
             }
 
             public Configuration build() {
                 return new Configuration(username, password, useSSL, keystorePath, keystorePassword, sslContext,
-                        x509TrustManager, connectTimeoutSeconds, readTimeoutSeconds);
+                        x509TrustManager, connectTimeoutSeconds, readTimeoutSeconds,
+                        trafficClassReadTimeoutSeconds, http2, connectionSetupTimer);
             }
 
             public Builder username(String s) {
@@ -115,6 +187,30 @@ public class BaseHttpClientGenerator {
                 this.readTimeoutSeconds = Optional.of(readTimeoutSeconds);
                 return this;
             }
+
+            /**
+             * Overrides the read timeout for the client of the given traffic class.
+             */
+            public Builder readTimeout(TrafficClass trafficClass, int readTimeoutSeconds) {
+                this.trafficClassReadTimeoutSeconds.put(trafficClass, readTimeoutSeconds);
+                return this;
+            }
+
+            /**
+             * If true, HTTP/2 is used with servers that support it. If false, only HTTP/1.1 is used.
+             */
+            public Builder http2(boolean http2) {
+                this.http2 = Optional.of(http2);
+                return this;
+            }
+
+            /**
+             * If set, tracks the number of new connections and how long it took to set them up.
+             */
+            public Builder connectionSetupTimer(Timer connectionSetupTimer) {
+                this.connectionSetupTimer = connectionSetupTimer;
+                return this;
+            }
         }
 
         private final String username;
@@ -126,11 +222,17 @@ public class BaseHttpClientGenerator {
         private final X509TrustManager x509TrustManager;
         private final Optional<Integer> connectTimeoutSeconds;
         private final Optional<Integer> readTimeoutSeconds;
+        private final Map<TrafficClass, Integer> trafficClassReadTimeoutSeconds;
+        private final Optional<Boolean> http2;
+        private final Timer connectionSetupTimer;
 
         private Configuration(String username, String password, boolean useSSL, String keystorePath,
                 String keystorePassword, SSLContext sslContext, X509TrustManager x509TrustManager,
                 Optional<Integer> connectTimeoutSeconds,
-                Optional<Integer> readTimeoutSeconds) {
+                Optional<Integer> readTimeoutSeconds,
+                Map<TrafficClass, Integer> trafficClassReadTimeoutSeconds,
+                Optional<Boolean> http2,
+                Timer connectionSetupTimer) {
             this.username = username;
             this.password = password;
             this.useSSL = useSSL;
@@ -140,6 +242,10 @@ public class BaseHttpClientGenerator {
             this.x509TrustManager = x509TrustManager;
             this.connectTimeoutSeconds = connectTimeoutSeconds;
             this.readTimeoutSeconds = readTimeoutSeconds;
+            this.trafficClassReadTimeoutSeconds = Collections.unmodifiableMap(
+                    new EnumMap<>(trafficClassReadTimeoutSeconds));
+            this.http2 = http2;
+            this.connectionSetupTimer = connectionSetupTimer;
         }
 
         public String getUsername() {
@@ -177,6 +283,23 @@ public class BaseHttpClientGenerator {
         public Optional<Integer> getReadTimeoutSeconds() {
             return readTimeoutSeconds;
         }
+
+        /**
+         * @return the read timeout of the client of the given traffic class, which defaults to
+         *         {@link #getReadTimeoutSeconds()}
+         */
+        public Optional<Integer> getReadTimeoutSeconds(TrafficClass trafficClass) {
+            Integer timeout = trafficClassReadTimeoutSeconds.get(trafficClass);
+            return (timeout != null) ? Optional.of(timeout) : readTimeoutSeconds;
+        }
+
+        public Optional<Boolean> getHttp2() {
+            return http2;
+        }
+
+        public Timer getConnectionSetupTimer() {
+            return connectionSetupTimer;
+        }
     }
 
     /** the configuration for our httpclient generator */
@@ -185,6 +308,12 @@ public class BaseHttpClientGenerator {
     /** The configured client singleton */
     private final OkHttpClient httpClient;
 
+    /** The clients of the traffic classes - these share the SSL settings with {@link #httpClient} */
+    private final Map<TrafficClass, OkHttpClient> trafficClassHttpClients = new EnumMap<>(TrafficClass.class);
+
+    /** Sends the keep-alive requests - null if keep-alive is not started */
+    private ScheduledExecutorService keepAliveExecutor;
+
     public BaseHttpClientGenerator(Configuration configuration) {
         this.configuration = configuration;
 
@@ -196,6 +325,19 @@ public class BaseHttpClientGenerator {
         configuration.getReadTimeoutSeconds()
                 .ifPresent(timeout -> httpClientBldr.readTimeout(timeout.intValue(), TimeUnit.SECONDS));
 
+        // HTTP/2 is negotiated with ALPN, so it is only used over TLS and only if the JVM supports ALPN
+        configuration.getHttp2().ifPresent(http2 -> httpClientBldr.protocols(http2.booleanValue()
+                ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                : Collections.singletonList(Protocol.HTTP_1_1)));
+
+        httpClientBldr.addNetworkInterceptor(RequestSendTime.networkInterceptor());
+
+        if (configuration.getConnectionSetupTimer() != null) {
+            ConnectionSetupTracker tracker = new ConnectionSetupTracker(configuration.getConnectionSetupTimer());
+            httpClientBldr.addInterceptor(tracker.applicationInterceptor());
+            httpClientBldr.addNetworkInterceptor(tracker.networkInterceptor());
+        }
+
         if (this.configuration.isUseSSL()) {
             SSLContext theSslContextToUse;
             X509TrustManager theTrustManagerToUse = null;
@@ -245,6 +387,28 @@ public class BaseHttpClientGenerator {
         }
 
         this.httpClient = httpClientBldr.build();
+
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            this.trafficClassHttpClients.put(trafficClass, buildHttpClient(trafficClass));
+        }
+    }
+
+    private OkHttpClient buildHttpClient(TrafficClass trafficClass) {
+        // like okhttp's default executor, but with threads of our own name and priority
+        String threadGroupName = "Hawkular Agent HTTP " + trafficClass.name().toLowerCase();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                ThreadFactoryGenerator.generateFactory(true, threadGroupName, trafficClass.threadPriority));
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(trafficClass.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(trafficClass.getMaxRequests()); // we only talk to one server
+
+        OkHttpClient.Builder httpClientBldr = this.httpClient.newBuilder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(trafficClass.getMaxIdleConnections(), 5L, TimeUnit.MINUTES));
+        configuration.getReadTimeoutSeconds(trafficClass)
+                .ifPresent(timeout -> httpClientBldr.readTimeout(timeout.intValue(), TimeUnit.SECONDS));
+        return httpClientBldr.build();
     }
 
     /**
@@ -254,6 +418,80 @@ public class BaseHttpClientGenerator {
         return httpClient;
     }
 
+    /**
+     * @param trafficClass the kind of requests that are to be sent
+     * @return the fully configured HTTP client for the given kind of requests
+     */
+    public OkHttpClient getHttpClient(TrafficClass trafficClass) {
+        return trafficClassHttpClients.get(trafficClass);
+    }
+
+    /**
+     * Opens a connection for each {@link TrafficClass} by sending a request to the given URL, so the first real
+     * requests do not have to wait for the connection setup. This does not wait for the requests to finish.
+     *
+     * @param url a URL on the server that is cheap to GET
+     */
+    public void warmUp(String url) {
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            sendKeepAliveRequest(trafficClass, url);
+        }
+    }
+
+    /**
+     * Periodically sends a request to the given URL with the client of each {@link TrafficClass} that is idle
+     * at the time. This keeps the connections from being closed for being idle and reopens them after they
+     * were lost, for example because the server restarted.
+     *
+     * @param url a URL on the server that is cheap to GET
+     * @param intervalSeconds the number of seconds between two rounds of requests; if 0 nothing is sent
+     */
+    public synchronized void startKeepAlive(String url, int intervalSeconds) {
+        if (intervalSeconds <= 0 || keepAliveExecutor != null) {
+            return;
+        }
+        keepAliveExecutor = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryGenerator.generateFactory(true, "Hawkular Agent HTTP Keep-Alive"));
+        keepAliveExecutor.scheduleWithFixedDelay(() -> {
+            for (TrafficClass trafficClass : TrafficClass.values()) {
+                // clients that are busy keep their connections open by themselves
+                if (getHttpClient(trafficClass).dispatcher().runningCallsCount() == 0) {
+                    sendKeepAliveRequest(trafficClass, url);
+                }
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops what {@link #startKeepAlive(String, int)} started.
+     */
+    public synchronized void stopKeepAlive() {
+        if (keepAliveExecutor != null) {
+            keepAliveExecutor.shutdownNow();
+            keepAliveExecutor = null;
+        }
+    }
+
+    private void sendKeepAliveRequest(TrafficClass trafficClass, String url) {
+        Request request = new Request.Builder()
+                .url(url)
+                .addHeader("Authorization", "Basic " + buildBase64Credentials())
+                .addHeader("Accept", "application/json")
+                .get()
+                .build();
+        getHttpClient(trafficClass).newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                log.debugf("Cannot open %s connection to [%s]: %s", trafficClass, url, e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                response.body().close();
+            }
+        });
+    }
+
     /**
      * Creates a websocket that connects to the given URL.
      *
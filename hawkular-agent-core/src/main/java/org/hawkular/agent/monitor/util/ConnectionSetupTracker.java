@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.util;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Timer;
+
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+
+/**
+ * Measures how long it takes an HTTP client to set up new connections (DNS lookup, TCP connect and TLS handshake).
+ *
+ * okhttp does not tell us when it opens a connection, so the {@link #applicationInterceptor() application
+ * interceptor} notes when a call starts to look for a connection, and the {@link #networkInterceptor() network
+ * interceptor}, which runs once the call has its connection, records the time it took if that connection was
+ * not used before. All interceptors of a call run on the same thread.
+ */
+class ConnectionSetupTracker {
+    private final Timer timer;
+    private final ThreadLocal<Long> callStartNanos = new ThreadLocal<>();
+    private final Set<Connection> knownConnections = Collections
+            .synchronizedSet(Collections.newSetFromMap(new WeakHashMap<Connection, Boolean>()));
+
+    /**
+     * @param timer tracks the number of new connections and how long it took to set them up
+     */
+    ConnectionSetupTracker(Timer timer) {
+        this.timer = timer;
+    }
+
+    Interceptor applicationInterceptor() {
+        return chain -> {
+            callStartNanos.set(System.nanoTime());
+            try {
+                return chain.proceed(chain.request());
+            } finally {
+                callStartNanos.remove();
+            }
+        };
+    }
+
+    Interceptor networkInterceptor() {
+        return chain -> {
+            Connection connection = chain.connection();
+            Long startNanos = callStartNanos.get();
+            if (connection != null && startNanos != null && knownConnections.add(connection)) {
+                timer.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+            return chain.proceed(chain.request());
+        };
+    }
+}
@@ -19,4 +19,23 @@ package org.hawkular.agent.monitor.util;
 public interface Consumer<T> {
     void accept(T result);
     void report(Throwable e);
+
+    /**
+     * Producers should check this before doing the work to produce results for this consumer.
+     *
+     * @return <code>false</code> if results given to this consumer now would just be thrown away
+     *         (for example because a buffer is full); <code>true</code> by default
+     */
+    default boolean hasCapacity() {
+        return true;
+    }
+
+    /**
+     * Producers call this for results they did not produce because this consumer had no {@link #hasCapacity()
+     * capacity} or because they could not reach their source, so those can be counted as dropped.
+     *
+     * @param count the number of results that were not produced
+     */
+    default void dropped(int count) {
+    }
 }
\ No newline at end of file
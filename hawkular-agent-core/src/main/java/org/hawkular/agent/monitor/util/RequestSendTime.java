@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.util;
+
+import okhttp3.Interceptor;
+
+/**
+ * Notes when a request actually went out on its connection, after it waited in the dispatcher queue of the
+ * client and the connection was set up. Use it as the {@link okhttp3.Request#tag() tag} of a request to find out
+ * how long the server took to answer it.
+ *
+ * The time is recorded by the {@link #networkInterceptor() network interceptor} that is installed in all
+ * clients created by {@link BaseHttpClientGenerator}. If the request never made it to the network, the time
+ * this object was created is used instead.
+ */
+public class RequestSendTime {
+    private volatile long sentNanos = System.nanoTime();
+
+    /**
+     * @return the number of nanoseconds since the request was sent
+     */
+    public long getNanosSinceSent() {
+        return System.nanoTime() - sentNanos;
+    }
+
+    static Interceptor networkInterceptor() {
+        return chain -> {
+            Object tag = chain.request().tag();
+            if (tag instanceof RequestSendTime) {
+                ((RequestSendTime) tag).sentNanos = System.nanoTime();
+            }
+            return chain.proceed(chain.request());
+        };
+    }
+}
@@ -17,18 +17,134 @@
 package org.hawkular.agent.monitor.util;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 
+import org.hawkular.agent.monitor.log.AgentLoggers;
+import org.hawkular.agent.monitor.log.MsgLogger;
 import org.jboss.threads.JBossThreadFactory;
 
 /**
+ * Creates the factories of the threads used by the agent.
+ *
+ * Threads that spend most of their time blocked on I/O (collecting measurements, discovery, remote management
+ * requests) should come from {@link #generateBlockingIOFactory(String)}. Those are virtual threads if
+ * {@link #setVirtualThreadsEnabled(boolean) enabled} and the JVM supports them (Java 21+), and daemon platform
+ * threads otherwise. Virtual threads are looked up reflectively so the agent still runs on older JVMs.
+ *
  * @author John Mazzitelli
  */
 public class ThreadFactoryGenerator {
+    private static final MsgLogger log = AgentLoggers.getLogger(ThreadFactoryGenerator.class);
+
+    // Thread.ofVirtual() - null if the JVM does not support virtual threads
+    private static final Method OF_VIRTUAL = findOfVirtual();
+
+    private static volatile boolean virtualThreadsEnabled = false;
+
+    /**
+     * Turns virtual threads for blocking I/O on or off. This only affects threads created afterwards.
+     *
+     * @param enabled true if virtual threads should be used when the JVM supports them
+     * @return true if virtual threads are now used, false if platform threads are used
+     */
+    public static boolean setVirtualThreadsEnabled(boolean enabled) {
+        if (enabled && OF_VIRTUAL == null) {
+            log.warnf("Virtual threads were requested but are not supported by this JVM [%s] - "
+                    + "using platform threads", System.getProperty("java.version"));
+        }
+        virtualThreadsEnabled = enabled && OF_VIRTUAL != null;
+        return virtualThreadsEnabled;
+    }
+
+    /**
+     * @return true if threads for blocking I/O are virtual threads
+     */
+    public static boolean isVirtualThreadsEnabled() {
+        return virtualThreadsEnabled;
+    }
+
+    /**
+     * @return true if the JVM supports virtual threads
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Creates a factory of threads that are mostly blocked on I/O. These are virtual threads
+     * if they are {@link #isVirtualThreadsEnabled() enabled}, otherwise daemon platform threads.
+     *
+     * @param threadGroupName the name of the threads
+     * @return the factory
+     */
+    public static final ThreadFactory generateBlockingIOFactory(String threadGroupName) {
+        if (virtualThreadsEnabled) {
+            return generateVirtualFactory(threadGroupName);
+        }
+        return generateFactory(true, threadGroupName);
+    }
+
+    /**
+     * Creates an executor that runs each task in a new virtual thread.
+     *
+     * @param threadGroupName the name of the threads
+     * @return the executor or null if virtual threads are not {@link #isVirtualThreadsEnabled() enabled}
+     */
+    public static final ExecutorService newVirtualThreadPerTaskExecutor(String threadGroupName) {
+        if (!virtualThreadsEnabled) {
+            return null;
+        }
+        ThreadFactory factory = generateVirtualFactory(threadGroupName);
+        try {
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor",
+                    ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot create virtual thread executor", e);
+        }
+    }
+
+    private static ThreadFactory generateVirtualFactory(String threadGroupName) {
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, threadGroupName + "-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot create virtual thread factory", e);
+        }
+    }
+
+    private static Method findOfVirtual() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            ofVirtual.invoke(null); // fails if virtual threads are only a preview feature that is not enabled
+            return ofVirtual;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
     public static final ThreadFactory generateFactory(boolean daemon, String threadGroupName) {
+        return generateFactory(daemon, threadGroupName, null);
+    }
+
+    /**
+     * Like {@link #generateFactory(boolean, String)} but the threads start with the given priority.
+     *
+     * @param daemon true if the threads are daemon threads
+     * @param threadGroupName the name of the threads
+     * @param initialPriority the priority of the threads, or null for the default priority
+     * @return the factory
+     */
+    public static final ThreadFactory generateFactory(boolean daemon, String threadGroupName,
+            Integer initialPriority) {
         String namePattern = "%G-%t";
         UncaughtExceptionHandler uncaughtExceptionHandler = null;
-        Integer initialPriority = null;
         Long stackSize = null;
         return new JBossThreadFactory(
                 new ThreadGroup(threadGroupName),
@@ -41,9 +41,12 @@ import org.hawkular.agent.monitor.log.AgentLoggers;
 import org.hawkular.agent.monitor.log.MsgLogger;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 /**
  * Just some basic utilities.
@@ -58,6 +61,7 @@ public class Util {
     private static final String HAWKULAR_AGENT_MACHINE_ID = "hawkular.agent.machine.id";
     private static final String HAWKULAR_AGENT_CONTAINER_ID = "hawkular.agent.container.id";
     private static ObjectMapper mapper;
+    private static ObjectWriter streamingWriter;
     private static String machineId;
     private static String containerId;
 
@@ -69,6 +73,7 @@ public class Util {
                     .withGetterVisibility(JsonAutoDetect.Visibility.NONE)
                     .withSetterVisibility(JsonAutoDetect.Visibility.NONE)
                     .withCreatorVisibility(JsonAutoDetect.Visibility.NONE));
+            streamingWriter = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
         } catch (Throwable t) {
             // don't break the class loading
         }
@@ -84,6 +89,30 @@ public class Util {
         return json;
     }
 
+    /**
+     * Serializes the given object into the given generator. Unlike {@link #toJson(Object)} no intermediate
+     * string is built, and the generator is neither flushed nor closed so many objects can be streamed through it.
+     *
+     * @param generator where the JSON is to be written
+     * @param obj the object to serialize
+     * @throws IOException if the JSON could not be written
+     */
+    public static void toJson(JsonGenerator generator, Object obj) throws IOException {
+        streamingWriter.writeValue(generator, obj);
+    }
+
+    /**
+     * Creates a JSON generator, configured the same way as {@link #toJson(Object)}, that writes to the given stream.
+     * Closing the generator closes the stream.
+     *
+     * @param out where the JSON is to be written
+     * @return the new generator
+     * @throws IOException if the generator could not be created
+     */
+    public static JsonGenerator createJsonGenerator(OutputStream out) throws IOException {
+        return mapper.getFactory().createGenerator(out);
+    }
+
     public static <T> T fromJson(String json, Class<T> clazz) {
         final T obj;
         try {
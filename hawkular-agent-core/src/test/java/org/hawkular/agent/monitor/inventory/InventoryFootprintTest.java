@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.inventory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.hawkular.agent.monitor.protocol.dmr.DMRLocationResolver;
+import org.hawkular.agent.monitor.protocol.dmr.DMRNodeLocation;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Guards the things that keep the per-resource memory footprint of the inventory small.
+ */
+public class InventoryFootprintTest {
+
+    /**
+     * The most heap a resource with three metrics and an availability may take in the resource manager,
+     * including the resource manager's own bookkeeping. This is well above what it takes now - it is there to
+     * catch changes that add whole objects or collections per resource or per measurement instance.
+     */
+    private static final long MAX_BYTES_PER_RESOURCE = 3072L;
+
+    @Test
+    public void testResourceFootprint() {
+        DMRLocationResolver resolver = new DMRLocationResolver();
+        ResourceType<DMRNodeLocation> type = ResourceType.<DMRNodeLocation> builder()
+                .id(new ID("resType"))
+                .name(new Name("resTypeName"))
+                .location(DMRNodeLocation.of("/subsystem=foo/bar=*"))
+                .build();
+        List<MetricType<DMRNodeLocation>> metricTypes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            metricTypes.add(new MetricType<DMRNodeLocation>(new ID("metric" + i), new Name("Metric " + i),
+                    new AttributeLocation<>(DMRNodeLocation.empty(), "attr" + i), new Interval(1, TimeUnit.MINUTES),
+                    MeasurementUnit.MEGABYTES, org.hawkular.metrics.client.common.MetricType.GAUGE, null, null));
+        }
+        AvailType<DMRNodeLocation> availType = new AvailType<>(new ID("avail"), new Name("Avail"),
+                new AttributeLocation<>(DMRNodeLocation.empty(), "state"), new Interval(1, TimeUnit.MINUTES),
+                Pattern.compile("UP"), null, null);
+
+        ResourceManager<DMRNodeLocation> rm = new ResourceManager<>();
+        Resource<DMRNodeLocation> root = Resource.<DMRNodeLocation> builder()
+                .id(new ID("root"))
+                .name(new Name("root"))
+                .location(DMRNodeLocation.of("/subsystem=foo"))
+                .type(type)
+                .build();
+        rm.addResource(root);
+        long emptySize = GraphLayout.parseInstance(rm).totalSize();
+
+        int resourceCount = 1000;
+        rm.beginBatch();
+        try {
+            for (int i = 0; i < resourceCount; i++) {
+                DMRNodeLocation location = DMRNodeLocation.of("/subsystem=foo/bar=bar" + i);
+                Resource.Builder<DMRNodeLocation> builder = Resource.<DMRNodeLocation> builder()
+                        .id(new ID("resource" + i))
+                        .name(new Name("Resource " + i))
+                        .location(location)
+                        .type(type)
+                        .parent(root);
+                for (MetricType<DMRNodeLocation> metricType : metricTypes) {
+                    builder.metric(new MeasurementInstance<>(new ID(metricType.getID().getIDString() + "-" + i),
+                            metricType.getName(), resolver.absolutize(location, metricType.getAttributeLocation()),
+                            metricType));
+                }
+                builder.avail(new MeasurementInstance<>(new ID("avail-" + i), availType.getName(),
+                        resolver.absolutize(location, availType.getAttributeLocation()), availType));
+                rm.addResource(builder.build());
+            }
+        } finally {
+            rm.endBatch();
+        }
+
+        long bytesPerResource = (GraphLayout.parseInstance(rm).totalSize() - emptySize) / resourceCount;
+        Assert.assertTrue("A resource takes [" + bytesPerResource + "] bytes",
+                bytesPerResource <= MAX_BYTES_PER_RESOURCE);
+    }
+
+    @Test
+    public void testPropertiesAreNotAllocatedUntilNeeded() {
+        MeasurementInstance<DMRNodeLocation, AvailType<DMRNodeLocation>> instance = new MeasurementInstance<>(
+                new ID("foo"),
+                new Name("bar"),
+                new AttributeLocation<>(DMRNodeLocation.empty(), "foobar"),
+                new AvailType<>(
+                        new ID("foo-avail"),
+                        new Name("bar-avail"),
+                        new AttributeLocation<>(DMRNodeLocation.empty(), "foobar-avail"),
+                        new Interval(1, TimeUnit.MINUTES),
+                        Pattern.compile("foo"),
+                        null,
+                        null));
+        Assert.assertSame(Collections.emptyMap(), instance.getProperties());
+
+        // the implicit metric ID does not need a property either
+        instance.setAssociatedMetricId("foo");
+        Assert.assertSame(Collections.emptyMap(), instance.getProperties());
+        Assert.assertEquals("foo", instance.getAssociatedMetricId());
+
+        instance.setAssociatedMetricId("explicit-id");
+        Assert.assertEquals("explicit-id", instance.getAssociatedMetricId());
+        Assert.assertEquals(1, instance.getProperties().size());
+    }
+
+    @Test
+    public void testResourceConfigurationValuesAreDeduplicated() {
+        AttributeLocation<DMRNodeLocation> location = new AttributeLocation<>(DMRNodeLocation.empty(), "enabled");
+        ResourceConfigurationPropertyType<DMRNodeLocation> type = new ResourceConfigurationPropertyType<>(
+                new ID("enabled"), new Name("enabled"), location);
+
+        // build the values at runtime so the compiler does not intern them for us
+        String value1 = new StringBuilder("tr").append("ue").toString();
+        String value2 = new StringBuilder("t").append("rue").toString();
+        Assert.assertNotSame(value1, value2);
+
+        ResourceConfigurationPropertyInstance<DMRNodeLocation> conf1 = new ResourceConfigurationPropertyInstance<>(
+                ID.NULL_ID, new Name("enabled"), location, type, value1);
+        ResourceConfigurationPropertyInstance<DMRNodeLocation> conf2 = new ResourceConfigurationPropertyInstance<>(
+                ID.NULL_ID, new Name("enabled"), location, type, value2);
+        Assert.assertSame(conf1.getValue(), conf2.getValue());
+    }
+
+    @Test
+    public void testAttributeLocationsShareTheResourceLocation() {
+        DMRLocationResolver resolver = new DMRLocationResolver();
+        DMRNodeLocation resourceLocation = DMRNodeLocation.of("/subsystem=foo/bar=baz");
+        AttributeLocation<DMRNodeLocation> typeLocation = new AttributeLocation<>(DMRNodeLocation.empty(), "attr");
+
+        AttributeLocation<DMRNodeLocation> instanceLocation = resolver.absolutize(resourceLocation, typeLocation);
+        Assert.assertSame(resourceLocation, instanceLocation.getLocation());
+        Assert.assertEquals("/subsystem=foo/bar=baz#attr", instanceLocation.toString());
+    }
+}
@@ -19,6 +19,7 @@ package org.hawkular.agent.monitor.inventory;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.hawkular.agent.monitor.inventory.ResourceManager.AddResult;
 import org.hawkular.agent.monitor.inventory.ResourceManager.AddResult.Effect;
@@ -446,6 +447,163 @@ public class ResourceManagerTest {
         Assert.assertFalse(bIter.hasNext());
     }
 
+    @Test
+    public void testFingerprintsDetectChanges() {
+        ResourceType<DMRNodeLocation> type = ResourceType.<DMRNodeLocation> builder()
+                .id(new ID("resType"))
+                .name(new Name("resTypeName"))
+                .location(DMRNodeLocation.empty())
+                .build();
+        ResourceManager<DMRNodeLocation> rm = new ResourceManager<>();
+        Resource<DMRNodeLocation> root = Resource.<DMRNodeLocation> builder()
+                .id(new ID("root"))
+                .name(new Name("rootName"))
+                .location(DMRNodeLocation.empty())
+                .type(type)
+                .build();
+        Resource<DMRNodeLocation> child = Resource.<DMRNodeLocation> builder()
+                .id(new ID("child"))
+                .name(new Name("childName"))
+                .location(DMRNodeLocation.of("/child=1"))
+                .type(type)
+                .parent(root)
+                .build();
+        Resource<DMRNodeLocation> grandChild = Resource.<DMRNodeLocation> builder()
+                .id(new ID("grand"))
+                .name(new Name("grandName"))
+                .location(DMRNodeLocation.of("/child=1/grand=1"))
+                .type(type)
+                .parent(child)
+                .build();
+
+        addResourceAndTest(rm, root, Effect.ADDED);
+        addResourceAndTest(rm, child, Effect.ADDED);
+        addResourceAndTest(rm, grandChild, Effect.ADDED);
+
+        // rediscovering the same content is detected as unchanged
+        Resource<DMRNodeLocation> sameChild = Resource.<DMRNodeLocation> builder(child).build();
+        Assert.assertEquals(child.getFingerprint(), sameChild.getFingerprint());
+        addResourceAndTest(rm, sameChild, Effect.UNCHANGED);
+
+        // a renamed child changes its fingerprint and replaces the old child while keeping its children
+        Resource<DMRNodeLocation> renamedChild = Resource.<DMRNodeLocation> builder(child)
+                .name(new Name("newChildName"))
+                .build();
+        Assert.assertNotEquals(child.getFingerprint(), renamedChild.getFingerprint());
+        addResourceAndTest(rm, renamedChild, Effect.MODIFIED);
+        Assert.assertEquals(renamedChild.getName(), rm.getResource(child.getID()).getName());
+        Assert.assertEquals(3, rm.size(root));
+    }
+
+    @Test
+    public void testBatchedChangesArePublishedAtEndOfBatch() {
+        ResourceType<DMRNodeLocation> type = ResourceType.<DMRNodeLocation> builder()
+                .id(new ID("resType"))
+                .name(new Name("resTypeName"))
+                .location(DMRNodeLocation.empty())
+                .build();
+        ResourceManager<DMRNodeLocation> rm = new ResourceManager<>();
+        Resource<DMRNodeLocation> root = Resource.<DMRNodeLocation> builder()
+                .id(new ID("root"))
+                .name(new Name("rootName"))
+                .location(DMRNodeLocation.empty())
+                .type(type)
+                .build();
+        Resource<DMRNodeLocation> child = Resource.<DMRNodeLocation> builder()
+                .id(new ID("child"))
+                .name(new Name("childName"))
+                .location(DMRNodeLocation.of("/child=1"))
+                .type(type)
+                .parent(root)
+                .build();
+
+        // outside of a batch, changes are visible immediately
+        addResourceAndTest(rm, root, Effect.ADDED);
+        Assert.assertEquals(root, rm.getResource(root.getID()));
+
+        // within a batch, readers keep seeing the old snapshot even though the writer can build on its changes
+        rm.beginBatch();
+        try {
+            addResourceAndTest(rm, child, Effect.ADDED);
+            Assert.assertNull(rm.getResource(child.getID()));
+            Assert.assertEquals(1, rm.size());
+            Assert.assertTrue(rm.getChildren(root).isEmpty());
+            addResourceAndTest(rm, child, Effect.UNCHANGED);
+        } finally {
+            rm.endBatch();
+        }
+
+        Assert.assertEquals(child, rm.getResource(child.getID()));
+        Assert.assertEquals(2, rm.size());
+        Assert.assertEquals(2, rm.size(root));
+        Assert.assertTrue(rm.getChildren(root).contains(child));
+        Assert.assertEquals(root, rm.getParent(child));
+
+        try {
+            rm.endBatch();
+            Assert.fail("Should not be able to end a batch that was never started");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testBatchesArePerThreadAndNested() throws Exception {
+        ResourceType<DMRNodeLocation> type = ResourceType.<DMRNodeLocation> builder()
+                .id(new ID("resType"))
+                .name(new Name("resTypeName"))
+                .location(DMRNodeLocation.empty())
+                .build();
+        ResourceManager<DMRNodeLocation> rm = new ResourceManager<>();
+        Resource<DMRNodeLocation> first = Resource.<DMRNodeLocation> builder()
+                .id(new ID("first"))
+                .name(new Name("firstName"))
+                .location(DMRNodeLocation.of("/first=1"))
+                .type(type)
+                .build();
+        Resource<DMRNodeLocation> second = Resource.<DMRNodeLocation> builder()
+                .id(new ID("second"))
+                .name(new Name("secondName"))
+                .location(DMRNodeLocation.of("/second=1"))
+                .type(type)
+                .build();
+
+        rm.beginBatch();
+        try {
+            rm.beginBatch();
+            try {
+                addResourceAndTest(rm, first, Effect.ADDED);
+            } finally {
+                rm.endBatch();
+            }
+            // the inner batch ended but the outer one is still going on
+            Assert.assertNull(rm.getResource(first.getID()));
+
+            // another thread that is not in a batch gets its changes published right away
+            Thread other = new Thread(() -> rm.addResource(second));
+            other.start();
+            other.join();
+            Assert.assertEquals(second, rm.getResource(second.getID()));
+
+            // another thread cannot end our batch
+            AtomicBoolean otherEnded = new AtomicBoolean(true);
+            Thread otherEnd = new Thread(() -> {
+                try {
+                    rm.endBatch();
+                } catch (IllegalStateException expected) {
+                    otherEnded.set(false);
+                }
+            });
+            otherEnd.start();
+            otherEnd.join();
+            Assert.assertFalse("Should not be able to end a batch of another thread", otherEnded.get());
+        } finally {
+            rm.endBatch();
+        }
+
+        Assert.assertEquals(first, rm.getResource(first.getID()));
+        Assert.assertEquals(2, rm.size());
+    }
+
     private AddResult<DMRNodeLocation> addResourceAndTest(
             ResourceManager<DMRNodeLocation> rm,
             Resource<DMRNodeLocation> resource,
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.inventory;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.agent.monitor.protocol.dmr.DMRNodeLocation;
+import org.hawkular.agent.monitor.util.WildflyCompatibilityUtils;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TypeSetsDiffTest {
+
+    @Test
+    public void testSameTypeSets() {
+        TypeSetsDiff<DMRNodeLocation> diff = TypeSetsDiff.compare(createTypeSets(30, "attr"),
+                createTypeSets(30, "attr"));
+        Assert.assertTrue(diff.toString(), diff.isEmpty());
+    }
+
+    @Test
+    public void testIntervalChange() {
+        TypeSetsDiff<DMRNodeLocation> diff = TypeSetsDiff.compare(createTypeSets(30, "attr"),
+                createTypeSets(60, "attr"));
+        Assert.assertFalse(diff.isEmpty());
+        Assert.assertEquals(Collections.singletonMap(new ID("metrics~metric"), new Interval(60, TimeUnit.SECONDS)),
+                diff.getChangedMetricIntervals());
+        Assert.assertTrue(diff.getChangedAvailIntervals().isEmpty());
+        Assert.assertTrue("Interval changes do not rebuild resource types",
+                diff.getChangedResourceTypeSets().isEmpty());
+    }
+
+    @Test
+    public void testStructuralChange() {
+        TypeSetsDiff<DMRNodeLocation> diff = TypeSetsDiff.compare(createTypeSets(30, "attr"),
+                createTypeSets(30, "other-attr"));
+        Assert.assertTrue(diff.getChangedMetricIntervals().isEmpty());
+        Assert.assertEquals("Only the resource type set using the changed metric set is affected",
+                Collections.singleton(new Name("servers")), diff.getChangedResourceTypeSets());
+    }
+
+    private TypeSets<DMRNodeLocation> createTypeSets(int intervalSecs, String attribute) {
+        MetricType<DMRNodeLocation> metricType = new MetricType<DMRNodeLocation>(
+                new ID("metrics~metric"),
+                new Name("metric"),
+                new AttributeLocation<>(DMRNodeLocation.empty(), attribute),
+                new Interval(intervalSecs, TimeUnit.SECONDS),
+                MeasurementUnit.MEGABYTES,
+                org.hawkular.metrics.client.common.MetricType.GAUGE,
+                null,
+                null);
+        TypeSet<MetricType<DMRNodeLocation>> metricSet = TypeSet.<MetricType<DMRNodeLocation>> builder()
+                .id(new ID("metrics"))
+                .name(new Name("metrics"))
+                .type(metricType)
+                .build();
+
+        ResourceType<DMRNodeLocation> server = ResourceType.<DMRNodeLocation> builder()
+                .id(new ID("server"))
+                .name(new Name("server"))
+                .resourceNameTemplate("server")
+                .location(new DMRNodeLocation(WildflyCompatibilityUtils.parseCLIStyleAddress("/server=*")))
+                .metricSetName(metricSet.getName())
+                .metricTypes(metricSet.getTypeMap().values())
+                .build();
+        ResourceType<DMRNodeLocation> deployment = ResourceType.<DMRNodeLocation> builder()
+                .id(new ID("deployment"))
+                .name(new Name("deployment"))
+                .resourceNameTemplate("deployment")
+                .location(new DMRNodeLocation(WildflyCompatibilityUtils.parseCLIStyleAddress("/deployment=*")))
+                .build();
+
+        return TypeSets.<DMRNodeLocation> builder()
+                .metricTypeSet(metricSet)
+                .resourceTypeSet(TypeSet.<ResourceType<DMRNodeLocation>> builder()
+                        .id(new ID("servers"))
+                        .name(new Name("servers"))
+                        .type(server)
+                        .build())
+                .resourceTypeSet(TypeSet.<ResourceType<DMRNodeLocation>> builder()
+                        .id(new ID("deployments"))
+                        .name(new Name("deployments"))
+                        .type(deployment)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.protocol;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveDiscoveryPeriodTest {
+
+    @Test
+    public void testStartsAtInitialPeriod() {
+        AdaptiveDiscoveryPeriod period = new AdaptiveDiscoveryPeriod(60_000L, 600_000L, 3_600_000L);
+        Assert.assertEquals(600_000L, period.getPeriodMillis());
+
+        // the initial period is kept within the bounds
+        period = new AdaptiveDiscoveryPeriod(60_000L, 10_000L, 3_600_000L);
+        Assert.assertEquals(60_000L, period.getPeriodMillis());
+        period = new AdaptiveDiscoveryPeriod(60_000L, 9_000_000L, 3_600_000L);
+        Assert.assertEquals(3_600_000L, period.getPeriodMillis());
+
+        // no room to adapt
+        period = new AdaptiveDiscoveryPeriod(600_000L, 600_000L, 600_000L);
+        period.scanFinished(true);
+        Assert.assertEquals(600_000L, period.getPeriodMillis());
+    }
+
+    @Test
+    public void testAdaptsToChangeRate() {
+        AdaptiveDiscoveryPeriod period = new AdaptiveDiscoveryPeriod(60_000L, 600_000L, 3_600_000L);
+
+        long previous = period.getPeriodMillis();
+        for (int i = 0; i < 50; i++) {
+            period.scanFinished(false);
+            Assert.assertTrue(period.getPeriodMillis() >= previous);
+            previous = period.getPeriodMillis();
+        }
+        Assert.assertTrue(period.getChangeRate() < 0.001);
+        Assert.assertTrue(period.getPeriodMillis() > 3_500_000L);
+        Assert.assertTrue(period.getPeriodMillis() <= 3_600_000L);
+
+        for (int i = 0; i < 50; i++) {
+            period.scanFinished(true);
+            Assert.assertTrue(period.getPeriodMillis() <= previous);
+            previous = period.getPeriodMillis();
+        }
+        Assert.assertTrue(period.getChangeRate() > 0.999);
+        Assert.assertTrue(period.getPeriodMillis() >= 60_000L);
+        Assert.assertTrue(period.getPeriodMillis() < 70_000L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBounds() {
+        new AdaptiveDiscoveryPeriod(600_000L, 600_000L, 60_000L);
+    }
+}
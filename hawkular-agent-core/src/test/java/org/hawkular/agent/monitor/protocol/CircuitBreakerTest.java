@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.protocol;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.concurrent.TimeoutException;
+
+import org.hawkular.agent.monitor.protocol.CircuitBreaker.State;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 1000L);
+        long now = 1_000_000L;
+        Assert.assertTrue(breaker.allowRequest(now));
+        Assert.assertFalse(breaker.recordFailure(now));
+        Assert.assertFalse(breaker.recordFailure(now));
+
+        // a success in between starts the count over
+        breaker.recordSuccess();
+        Assert.assertFalse(breaker.recordFailure(now));
+        Assert.assertFalse(breaker.recordFailure(now));
+        Assert.assertEquals(State.CLOSED, breaker.getState());
+        Assert.assertTrue(breaker.recordFailure(now));
+        Assert.assertEquals(State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.allowRequest(now + 999L));
+    }
+
+    @Test
+    public void testHalfOpenProbe() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000L);
+        long now = 1_000_000L;
+        breaker.recordFailure(now);
+
+        // only one probe is let through once the breaker was open long enough
+        now += 1000L;
+        Assert.assertTrue(breaker.allowRequest(now));
+        Assert.assertEquals(State.HALF_OPEN, breaker.getState());
+        Assert.assertFalse(breaker.allowRequest(now));
+
+        // a failed probe opens the breaker again
+        Assert.assertTrue(breaker.recordFailure(now));
+        Assert.assertFalse(breaker.allowRequest(now + 999L));
+
+        // a successful probe closes it
+        now += 1000L;
+        Assert.assertTrue(breaker.allowRequest(now));
+        breaker.recordSuccess();
+        Assert.assertEquals(State.CLOSED, breaker.getState());
+        Assert.assertTrue(breaker.allowRequest(now));
+    }
+
+    @Test
+    public void testLostProbeIsRetried() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000L);
+        long now = 1_000_000L;
+        breaker.recordFailure(now);
+        Assert.assertTrue(breaker.allowRequest(now + 1000L));
+
+        // the outcome of the probe is never reported
+        Assert.assertFalse(breaker.allowRequest(now + 1999L));
+        Assert.assertTrue(breaker.allowRequest(now + 2000L));
+    }
+
+    @Test
+    public void testDisabled() {
+        CircuitBreaker breaker = new CircuitBreaker(0, 1000L);
+        long now = 1_000_000L;
+        for (int i = 0; i < 100; i++) {
+            Assert.assertFalse(breaker.recordFailure(now));
+        }
+        Assert.assertTrue(breaker.allowRequest(now));
+    }
+
+    @Test
+    public void testConnectionFailures() {
+        Assert.assertTrue(CircuitBreaker.isConnectionFailure(new ConnectException()));
+        Assert.assertTrue(CircuitBreaker.isConnectionFailure(
+                new ProtocolException("wrapped", new RuntimeException(new IOException()))));
+        Assert.assertTrue(CircuitBreaker.isConnectionFailure(new RuntimeException(new TimeoutException())));
+        Assert.assertFalse(CircuitBreaker.isConnectionFailure(new ProtocolException("no such attribute")));
+    }
+}
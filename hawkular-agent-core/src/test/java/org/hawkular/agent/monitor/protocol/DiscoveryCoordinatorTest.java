@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.protocol;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DiscoveryCoordinatorTest {
+
+    @Test
+    public void testOffsetsAreSpreadAcrossPeriod() {
+        long period = 600_000L;
+        int count = 300;
+        long slot = period / count;
+        long[] offsets = DiscoveryCoordinator.computeOffsets(count, period, new Random(12345L));
+        Assert.assertEquals(count, offsets.length);
+        for (int i = 0; i < count; i++) {
+            // each scan starts within the first part of its own slot
+            Assert.assertTrue("offset " + i + " too early: " + offsets[i], offsets[i] >= i * slot);
+            Assert.assertTrue("offset " + i + " too late: " + offsets[i],
+                    offsets[i] <= i * slot + (long) (slot * DiscoveryCoordinator.JITTER_FRACTION));
+            Assert.assertTrue(offsets[i] < period);
+            if (i > 0) {
+                Assert.assertTrue("offsets must keep priority order", offsets[i] > offsets[i - 1]);
+            }
+        }
+    }
+
+    @Test
+    public void testOffsetsEdgeCases() {
+        Assert.assertEquals(0, DiscoveryCoordinator.computeOffsets(0, 1000L, new Random()).length);
+
+        long[] offsets = DiscoveryCoordinator.computeOffsets(1, 1000L, new Random());
+        Assert.assertEquals(1, offsets.length);
+        Assert.assertTrue(offsets[0] >= 0 && offsets[0] <= 500L);
+    }
+}
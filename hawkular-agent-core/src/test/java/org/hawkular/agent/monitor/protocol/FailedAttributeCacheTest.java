@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.protocol;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.agent.monitor.inventory.AttributeLocation;
+import org.hawkular.agent.monitor.inventory.ID;
+import org.hawkular.agent.monitor.inventory.Interval;
+import org.hawkular.agent.monitor.inventory.MeasurementInstance;
+import org.hawkular.agent.monitor.inventory.MetricType;
+import org.hawkular.agent.monitor.inventory.Name;
+import org.hawkular.agent.monitor.inventory.Resource;
+import org.hawkular.agent.monitor.inventory.ResourceType;
+import org.hawkular.agent.monitor.protocol.dmr.DMRNodeLocation;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FailedAttributeCacheTest {
+
+    private final AttributeLocation<DMRNodeLocation> location = new AttributeLocation<>(
+            DMRNodeLocation.of("/subsystem=undertow"), "attrib");
+
+    @Test
+    public void testBackoffDoubles() {
+        FailedAttributeCache<DMRNodeLocation> cache = new FailedAttributeCache<>();
+        long now = 1_000_000L;
+        Assert.assertFalse(cache.isBackingOff(location, now));
+
+        // first failure skips two intervals
+        Assert.assertEquals(1, cache.failed(location, 1000L, now));
+        Assert.assertTrue(cache.isBackingOff(location, now + 1999L));
+        Assert.assertFalse(cache.isBackingOff(location, now + 2000L));
+
+        // next failure skips twice as long
+        now += 2000L;
+        Assert.assertEquals(2, cache.failed(location, 1000L, now));
+        Assert.assertTrue(cache.isBackingOff(location, now + 3999L));
+        Assert.assertFalse(cache.isBackingOff(location, now + 4000L));
+    }
+
+    @Test
+    public void testBackoffIsLimited() {
+        FailedAttributeCache<DMRNodeLocation> cache = new FailedAttributeCache<>();
+        long now = 1_000_000L;
+        for (int i = 0; i < 100; i++) {
+            cache.failed(location, 60_000L, now);
+        }
+        Assert.assertTrue(cache.isBackingOff(location, now + FailedAttributeCache.MAX_BACKOFF_MILLIS - 1));
+        Assert.assertFalse(cache.isBackingOff(location, now + FailedAttributeCache.MAX_BACKOFF_MILLIS));
+    }
+
+    @Test
+    public void testSuccessAndClearForget() {
+        FailedAttributeCache<DMRNodeLocation> cache = new FailedAttributeCache<>();
+        long now = 1_000_000L;
+        cache.failed(location, 1000L, now);
+        cache.failed(location, 1000L, now);
+        cache.succeeded(location);
+        Assert.assertEquals(0, cache.size());
+        Assert.assertFalse(cache.isBackingOff(location, now));
+
+        // after forgetting, the backoff starts over
+        Assert.assertEquals(1, cache.failed(location, 1000L, now));
+        cache.clear();
+        Assert.assertFalse(cache.isBackingOff(location, now));
+    }
+
+    @Test
+    public void testForgetResources() {
+        FailedAttributeCache<DMRNodeLocation> cache = new FailedAttributeCache<>();
+        long now = 1_000_000L;
+        AttributeLocation<DMRNodeLocation> otherLocation = new AttributeLocation<>(
+                DMRNodeLocation.of("/subsystem=datasources"), "attrib");
+        cache.failed(location, 1000L, now);
+        cache.failed(otherLocation, 1000L, now);
+
+        MetricType<DMRNodeLocation> type = new MetricType<DMRNodeLocation>(new ID("type"), new Name("type"),
+                location, new Interval(1, TimeUnit.MINUTES), MeasurementUnit.MEGABYTES,
+                org.hawkular.metrics.client.common.MetricType.GAUGE, null, null);
+        Resource<DMRNodeLocation> resource = Resource.<DMRNodeLocation> builder()
+                .id(new ID("undertow"))
+                .name(new Name("undertow"))
+                .location(DMRNodeLocation.of("/subsystem=undertow"))
+                .type(ResourceType.<DMRNodeLocation> builder()
+                        .id(new ID("resType"))
+                        .name(new Name("resTypeName"))
+                        .location(DMRNodeLocation.empty())
+                        .build())
+                .metric(new MeasurementInstance<>(new ID("metric"), new Name("metric"), location, type))
+                .build();
+
+        // only the locations of the given resources are forgotten
+        cache.forget(Collections.singletonList(resource));
+        Assert.assertFalse(cache.isBackingOff(location, now));
+        Assert.assertTrue(cache.isBackingOff(otherLocation, now));
+        Assert.assertEquals(1, cache.size());
+    }
+}
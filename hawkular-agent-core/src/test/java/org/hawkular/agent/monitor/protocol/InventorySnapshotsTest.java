@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import org.hawkular.agent.monitor.protocol.InventorySnapshots.ResourceRecord;
+import org.hawkular.agent.monitor.protocol.InventorySnapshots.Snapshot;
+import org.hawkular.agent.monitor.protocol.InventorySnapshots.TypeRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InventorySnapshotsTest {
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        Snapshot snapshot = new Snapshot("feed", "endpoint");
+        snapshot.types.put("type", new TypeRecord(123L, 456L));
+
+        ResourceRecord root = new ResourceRecord();
+        root.id = "root";
+        root.name = "Root Resource";
+        root.location = "/";
+        root.typeId = "type";
+        root.fingerprint = -1L;
+        root.persistedTime = 456L;
+        root.metricHash = Long.MAX_VALUE;
+        root.config.put("conf", null);
+        root.config.put("conf2", "éè");
+        root.avails.put("avail", Collections.singletonMap("hawkular-services.monitoring-type", "remote"));
+        snapshot.resources.add(root);
+
+        ResourceRecord child = new ResourceRecord();
+        child.id = "child";
+        child.name = "Child Resource";
+        child.location = "/subsystem=foo";
+        child.typeId = "type";
+        child.parentId = "root";
+        child.properties.put("prop", "value");
+        child.metrics.put("metric", Collections.emptyMap());
+        snapshot.resources.add(child);
+
+        Snapshot copy = writeAndRead(snapshot);
+        Assert.assertEquals("feed", copy.feedId);
+        Assert.assertEquals("endpoint", copy.endpointName);
+        Assert.assertEquals(123L, copy.types.get("type").fingerprint);
+        Assert.assertEquals(456L, copy.types.get("type").persistedTime);
+        Assert.assertEquals(2, copy.resources.size());
+
+        ResourceRecord rootCopy = copy.resources.get(0);
+        Assert.assertEquals("root", rootCopy.id);
+        Assert.assertEquals("Root Resource", rootCopy.name);
+        Assert.assertEquals("/", rootCopy.location);
+        Assert.assertNull(rootCopy.parentId);
+        Assert.assertEquals(-1L, rootCopy.fingerprint);
+        Assert.assertEquals(456L, rootCopy.persistedTime);
+        Assert.assertEquals(Long.MAX_VALUE, rootCopy.metricHash);
+        Assert.assertEquals(root.config, rootCopy.config);
+        Assert.assertTrue(rootCopy.config.containsKey("conf"));
+        Assert.assertEquals(root.avails, rootCopy.avails);
+        Assert.assertTrue(rootCopy.metrics.isEmpty());
+
+        ResourceRecord childCopy = copy.resources.get(1);
+        Assert.assertEquals("child", childCopy.id);
+        Assert.assertEquals("root", childCopy.parentId);
+        Assert.assertEquals(child.properties, childCopy.properties);
+        Assert.assertEquals(child.metrics, childCopy.metrics);
+    }
+
+    @Test
+    public void testLargeValue() throws Exception {
+        // larger than what DataOutput.writeUTF() can handle
+        StringBuilder value = new StringBuilder();
+        while (value.length() < 100_000) {
+            value.append("{\"key\":\"value\"}");
+        }
+        Snapshot snapshot = new Snapshot("feed", "endpoint");
+        ResourceRecord record = new ResourceRecord();
+        record.id = "id";
+        record.config.put("conf", value.toString());
+        snapshot.resources.add(record);
+
+        Assert.assertEquals(value.toString(), writeAndRead(snapshot).resources.get(0).config.get("conf"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotASnapshot() throws Exception {
+        InventorySnapshots.read(new DataInputStream(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 })));
+    }
+
+    private static Snapshot writeAndRead(Snapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            InventorySnapshots.write(snapshot, out);
+        }
+        return InventorySnapshots.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.scheduler;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hawkular.agent.monitor.inventory.AttributeLocation;
+import org.hawkular.agent.monitor.inventory.ID;
+import org.hawkular.agent.monitor.inventory.Interval;
+import org.hawkular.agent.monitor.inventory.MeasurementInstance;
+import org.hawkular.agent.monitor.inventory.MetricType;
+import org.hawkular.agent.monitor.inventory.Name;
+import org.hawkular.agent.monitor.inventory.Resource;
+import org.hawkular.agent.monitor.inventory.ResourceType;
+import org.hawkular.agent.monitor.log.AgentLoggers;
+import org.hawkular.agent.monitor.log.MsgLogger;
+import org.hawkular.agent.monitor.protocol.dmr.DMRNodeLocation;
+import org.hawkular.agent.monitor.util.ThreadFactoryGenerator;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+public class CollectorPoolTest {
+    private static final MsgLogger log = AgentLoggers.getLogger(CollectorPoolTest.class);
+
+    @Test
+    public void testSlowCollectorDoesNotBlockOthers() throws Exception {
+        CollectorPool pool = new CollectorPool("CollectorPoolTest", 2);
+
+        // both queues have a collection that is overdue; the collectors never pop it so it stays due
+        CountDownLatch slowRelease = new CountDownLatch(1);
+        AtomicInteger slowRuns = new AtomicInteger();
+        pool.register(createDueQueue("slow"), () -> {
+            slowRuns.incrementAndGet();
+            try {
+                slowRelease.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CountDownLatch fastRuns = new CountDownLatch(3);
+        pool.register(createDueQueue("fast"), fastRuns::countDown);
+
+        pool.start();
+        try {
+            Assert.assertTrue("Fast collector must keep running while the slow one is busy",
+                    fastRuns.await(10 * CollectorPool.TICK_MILLIS, TimeUnit.MILLISECONDS));
+            Assert.assertEquals("A busy collector must not be submitted again", 1, slowRuns.get());
+        } finally {
+            slowRelease.countDown();
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void testHungCollectorsDoNotBlockOthers() throws Exception {
+        // fewer threads than collectors - the pool grows so the hung collectors cannot take all workers
+        CollectorPool pool = new CollectorPool("CollectorPoolTest", 1);
+
+        CountDownLatch hungRelease = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            pool.register(createDueQueue("hung" + i), () -> {
+                try {
+                    hungRelease.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        CountDownLatch fastRuns = new CountDownLatch(3);
+        pool.register(createDueQueue("fast"), fastRuns::countDown);
+
+        pool.start();
+        try {
+            Assert.assertTrue("Fast collector must keep running while the others hang",
+                    fastRuns.await(10 * CollectorPool.TICK_MILLIS, TimeUnit.MILLISECONDS));
+        } finally {
+            hungRelease.countDown();
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void testUnregisteredCollectorNoLongerRuns() throws Exception {
+        CollectorPool pool = new CollectorPool("CollectorPoolTest", 2);
+
+        ScheduledCollectionsQueue<DMRNodeLocation, MetricType<DMRNodeLocation>> removed = createDueQueue("removed");
+        AtomicInteger removedRuns = new AtomicInteger();
+        pool.register(removed, removedRuns::incrementAndGet);
+        CountDownLatch keptRuns = new CountDownLatch(3);
+        pool.register(createDueQueue("kept"), keptRuns::countDown);
+        pool.unregister(removed);
+
+        pool.start();
+        try {
+            Assert.assertTrue("Registered collector must keep running",
+                    keptRuns.await(10 * CollectorPool.TICK_MILLIS, TimeUnit.MILLISECONDS));
+            Assert.assertEquals("Unregistered collector must not run", 0, removedRuns.get());
+        } finally {
+            pool.stop();
+        }
+    }
+
+    // this is a simple benchmark of platform vs. virtual collector threads with many slow endpoints; it is
+    // helpful for developing more than testing. Virtual threads are only measured on Java 21+.
+    @Ignore("Benchmark, run manually when working on the collector threads")
+    @Test
+    public void benchmarkThousandEndpoints() throws Exception {
+        benchmark(false);
+        if (ThreadFactoryGenerator.isVirtualThreadsSupported()) {
+            benchmark(true);
+        }
+    }
+
+    private void benchmark(boolean virtualThreads) throws Exception {
+        int endpoints = 1000;
+        long ioMillis = 20L; // how long each collection is blocked waiting for the endpoint
+        long durationMillis = 2000L;
+
+        ThreadFactoryGenerator.setVirtualThreadsEnabled(virtualThreads);
+        CollectorPool pool = new CollectorPool("CollectorPoolBenchmark", 4);
+        AtomicInteger collections = new AtomicInteger();
+        AtomicLong totalLatency = new AtomicLong();
+        AtomicLong maxLatency = new AtomicLong();
+        for (int i = 0; i < endpoints; i++) {
+            ScheduledCollectionsQueue<DMRNodeLocation, MetricType<DMRNodeLocation>> queue = createDueQueue("e" + i);
+            pool.register(queue, () -> {
+                long due = queue.getNextExpectedCollectionTime();
+                queue.popNextScheduledSet();
+                try {
+                    Thread.sleep(ioMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long latency = System.currentTimeMillis() - due;
+                collections.incrementAndGet();
+                totalLatency.addAndGet(latency);
+                maxLatency.accumulateAndGet(latency, Math::max);
+            });
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        pool.start();
+        try {
+            Thread.sleep(durationMillis);
+            int count = Math.max(collections.get(), 1);
+            log.infof("%s threads, [%d] endpoints: [%d] collections in [%d] ms, latency avg [%d] ms, max [%d] ms, "
+                    + "peak platform threads [%d], RSS [%s]", virtualThreads ? "Virtual" : "Platform", endpoints,
+                    collections.get(), durationMillis, totalLatency.get() / count, maxLatency.get(),
+                    threads.getPeakThreadCount(), getRss());
+        } finally {
+            pool.stop();
+            ThreadFactoryGenerator.setVirtualThreadsEnabled(false);
+        }
+    }
+
+    private String getRss() {
+        try {
+            return Files.readAllLines(Paths.get("/proc/self/status")).stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> line.substring("VmRSS:".length()).trim())
+                    .findFirst().orElse("n/a");
+        } catch (IOException | RuntimeException e) {
+            return "n/a";
+        }
+    }
+
+    private ScheduledCollectionsQueue<DMRNodeLocation, MetricType<DMRNodeLocation>> createDueQueue(String name) {
+        MetricType<DMRNodeLocation> type = new MetricType<DMRNodeLocation>(new ID(name), new Name(name),
+                new AttributeLocation<>(DMRNodeLocation.empty(), "attr"), new Interval(1, TimeUnit.MINUTES),
+                MeasurementUnit.MEGABYTES, org.hawkular.metrics.client.common.MetricType.GAUGE, null, null);
+        MeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> metric = new MeasurementInstance<>(
+                new ID(name), new Name(name), new AttributeLocation<>(DMRNodeLocation.empty(), "attr"), type);
+        Resource<DMRNodeLocation> resource = Resource.<DMRNodeLocation> builder()
+                .id(new ID(name))
+                .name(new Name(name))
+                .location(DMRNodeLocation.empty())
+                .type(ResourceType.<DMRNodeLocation> builder()
+                        .id(new ID("resType"))
+                        .name(new Name("resTypeName"))
+                        .location(DMRNodeLocation.empty())
+                        .build())
+                .metric(metric)
+                .build();
+
+        ScheduledMeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> schedule;
+        schedule = new ScheduledMeasurementInstance<>(resource, metric);
+        schedule.setNextCollectionTime(System.currentTimeMillis() - 60_000L);
+        ScheduledCollectionsQueue<DMRNodeLocation, MetricType<DMRNodeLocation>> queue;
+        queue = new ScheduledCollectionsQueue<>();
+        queue.schedule(Collections.singleton(schedule));
+        return queue;
+    }
+}
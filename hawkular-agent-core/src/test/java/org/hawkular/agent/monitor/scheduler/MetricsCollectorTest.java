@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.scheduler;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.agent.monitor.api.SamplingService;
+import org.hawkular.agent.monitor.inventory.AttributeLocation;
+import org.hawkular.agent.monitor.inventory.ID;
+import org.hawkular.agent.monitor.inventory.Interval;
+import org.hawkular.agent.monitor.inventory.MeasurementInstance;
+import org.hawkular.agent.monitor.inventory.MetricType;
+import org.hawkular.agent.monitor.inventory.Name;
+import org.hawkular.agent.monitor.inventory.Resource;
+import org.hawkular.agent.monitor.inventory.ResourceType;
+import org.hawkular.agent.monitor.protocol.dmr.DMRNodeLocation;
+import org.hawkular.agent.monitor.storage.MetricDataPoint;
+import org.hawkular.agent.monitor.util.Consumer;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.Counter;
+
+public class MetricsCollectorTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testOneRunCollectsAllDueResources() {
+        // more resources than the collector pool ticks per interval, each due at a different time as with phase
+        // spreading - a collector that only takes one of them per run could never keep up
+        int resourceCount = 300;
+        MetricType<DMRNodeLocation> type = new MetricType<DMRNodeLocation>(new ID("type"), new Name("type"),
+                new AttributeLocation<>(DMRNodeLocation.empty(), "attr"), new Interval(30, TimeUnit.MINUTES),
+                MeasurementUnit.MEGABYTES, org.hawkular.metrics.client.common.MetricType.GAUGE, null, null);
+        ResourceType<DMRNodeLocation> resourceType = ResourceType.<DMRNodeLocation> builder()
+                .id(new ID("resType"))
+                .name(new Name("resTypeName"))
+                .location(DMRNodeLocation.empty())
+                .build();
+
+        long now = System.currentTimeMillis();
+        List<ScheduledMeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>>> schedules;
+        schedules = new ArrayList<>();
+        for (int i = 0; i < resourceCount; i++) {
+            MeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> metric = new MeasurementInstance<>(
+                    new ID("metric" + i), new Name("metric" + i),
+                    new AttributeLocation<>(DMRNodeLocation.empty(), "attr"), type);
+            Resource<DMRNodeLocation> resource = Resource.<DMRNodeLocation> builder()
+                    .id(new ID("resource" + i))
+                    .name(new Name("resource" + i))
+                    .location(DMRNodeLocation.empty())
+                    .type(resourceType)
+                    .metric(metric)
+                    .build();
+            ScheduledMeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> schedule;
+            schedule = new ScheduledMeasurementInstance<>(resource, metric);
+            schedule.setNextCollectionTime(now - TimeUnit.SECONDS.toMillis(i + 1));
+            schedules.add(schedule);
+        }
+        ScheduledCollectionsQueue<DMRNodeLocation, MetricType<DMRNodeLocation>> queue;
+        queue = new ScheduledCollectionsQueue<>();
+        queue.schedule(schedules);
+
+        Set<MeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>>> measured = new HashSet<>();
+        SamplingService<DMRNodeLocation> endpointService = mock(SamplingService.class);
+        doAnswer(invocation -> {
+            measured.addAll((Collection<MeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>>>) invocation
+                    .getArguments()[0]);
+            return null;
+        }).when(endpointService).measureMetrics(any(Collection.class), any(Consumer.class));
+        Consumer<MetricDataPoint> completionHandler = new Consumer<MetricDataPoint>() {
+            @Override
+            public void accept(MetricDataPoint result) {
+            }
+
+            @Override
+            public void report(Throwable e) {
+            }
+        };
+
+        new MetricsCollector<>(endpointService, queue, completionHandler, new Counter()).run();
+
+        Assert.assertEquals(resourceCount, measured.size());
+        Assert.assertTrue("Nothing must be due anymore", queue.getNextExpectedCollectionTime() > now);
+    }
+}
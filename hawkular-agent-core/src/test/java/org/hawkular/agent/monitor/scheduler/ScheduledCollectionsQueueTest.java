@@ -16,12 +16,18 @@
  */
 package org.hawkular.agent.monitor.scheduler;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration.CollectionOverrunPolicy;
+import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration.CollectionPhaseSpreading;
 import org.hawkular.agent.monitor.inventory.AttributeLocation;
 import org.hawkular.agent.monitor.inventory.ID;
 import org.hawkular.agent.monitor.inventory.Interval;
@@ -36,6 +42,10 @@ import org.jboss.as.controller.client.helpers.MeasurementUnit;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+
 public class ScheduledCollectionsQueueTest {
 
     @Test
@@ -245,6 +255,203 @@ public class ScheduledCollectionsQueueTest {
         Assert.assertFalse(scheduledSet.contains(schedule3.getMeasurementInstance()));
     }
 
+    @Test
+    public void testUnscheduleTypes() throws InterruptedException {
+        ScheduledCollectionsQueue<DMRNodeLocation, MetricType<DMRNodeLocation>> q = new ScheduledCollectionsQueue<>();
+
+        int collInterval = 1000;
+        MetricType<DMRNodeLocation> metricType1 = createMetricType("metricTypeName1", collInterval);
+        MetricType<DMRNodeLocation> metricType2 = createMetricType("metricTypeName2", collInterval);
+        MeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> measInstance1;
+        MeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> measInstance2;
+        measInstance1 = createMeasurementInstance("metricName1", metricType1);
+        measInstance2 = createMeasurementInstance("metricName2", metricType2);
+        Resource<DMRNodeLocation> resource = createResource("root", measInstance1, measInstance2);
+
+        ScheduledMeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> schedule1;
+        ScheduledMeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> schedule2;
+        schedule1 = new ScheduledMeasurementInstance<>(resource, measInstance1);
+        schedule2 = new ScheduledMeasurementInstance<>(resource, measInstance2);
+        q.schedule(Arrays.asList(schedule1, schedule2));
+
+        // unschedule only the first type - the other type must still be collected
+        q.unschedule(Collections.singleton(resource), Collections.singleton(metricType1));
+        Thread.sleep(collInterval + 1000);
+        Set<MeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>>> scheduledSet = q.popNextScheduledSet();
+        Assert.assertEquals(1, scheduledSet.size());
+        Assert.assertTrue(scheduledSet.contains(schedule2.getMeasurementInstance()));
+    }
+
+    @Test
+    public void testUnscheduleManyResources() {
+        ScheduledCollectionsQueue<DMRNodeLocation, MetricType<DMRNodeLocation>> q = new ScheduledCollectionsQueue<>();
+        MetricType<DMRNodeLocation> type = createMetricType("metricTypeName", 1000);
+
+        // schedule many resources, all of them overdue, then unschedule every other one as a list
+        int count = 2_000;
+        List<Resource<DMRNodeLocation>> removed = new ArrayList<>();
+        long overdue = System.currentTimeMillis() - 10_000L;
+        for (int i = 0; i < count; i++) {
+            MeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> measInstance;
+            measInstance = createMeasurementInstance("metricName" + i, type);
+            Resource<DMRNodeLocation> resource = createResource("root" + i, measInstance);
+            ScheduledMeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> schedule;
+            schedule = new ScheduledMeasurementInstance<>(resource, measInstance);
+            schedule.setNextCollectionTime(overdue);
+            q.schedule(Collections.singleton(schedule));
+            if (i % 2 == 0) {
+                removed.add(resource);
+            }
+        }
+
+        q.unschedule(removed);
+
+        Set<MeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>>> scheduledSet = q.popNextScheduledSet();
+        Assert.assertEquals(count / 2, scheduledSet.size());
+        for (Resource<DMRNodeLocation> resource : removed) {
+            Assert.assertFalse(scheduledSet.containsAll(resource.getMetrics()));
+        }
+
+        // unscheduling resources that are not (or no longer) scheduled is harmless
+        q.unschedule(removed);
+        Assert.assertTrue(q.getNextExpectedCollectionTime() > System.currentTimeMillis());
+    }
+
+    @Test
+    public void testPhaseSpreadingKeepsResourceGrouped() {
+        int collInterval = 30_000;
+        MetricType<DMRNodeLocation> type = createMetricType("metricTypeName", collInterval);
+        Resource<DMRNodeLocation> resource = createResource("root",
+                createMeasurementInstance("metric1", type),
+                createMeasurementInstance("metric2", type));
+
+        for (CollectionPhaseSpreading phaseSpreading : CollectionPhaseSpreading.values()) {
+            Set<ScheduledMeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>>> schedules;
+            schedules = ScheduledMeasurementInstance.createMetrics(resource, phaseSpreading);
+            Assert.assertEquals(2, schedules.size());
+            Assert.assertEquals(phaseSpreading + " must keep the metrics of a resource together", 1,
+                    schedules.stream().mapToLong(s -> s.getNextCollectionTime()).distinct().count());
+            long next = schedules.iterator().next().getNextCollectionTime();
+            long now = System.currentTimeMillis();
+            Assert.assertTrue(next > now - 1000L && next <= now + collInterval + 1000L);
+        }
+
+        // a hashed phase is the same each time the resource is scheduled
+        long first = ScheduledMeasurementInstance.createMetrics(resource, CollectionPhaseSpreading.HASH)
+                .iterator().next().getNextCollectionTime();
+        long second = ScheduledMeasurementInstance.createMetrics(resource, CollectionPhaseSpreading.HASH)
+                .iterator().next().getNextCollectionTime();
+        Assert.assertEquals(0L, Math.floorMod(second - first, (long) collInterval));
+    }
+
+    @Test
+    public void testPhaseSpreadingKeepsPhaseWhenRescheduled() {
+        int collInterval = 5_000;
+        MeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> measInstance;
+        measInstance = createMeasurementInstance("metricName", createMetricType("metricTypeName", collInterval));
+        Resource<DMRNodeLocation> resource = createResource("root", measInstance);
+
+        ScheduledMeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> schedule;
+        schedule = new ScheduledMeasurementInstance<>(resource, measInstance, 1234L);
+        schedule.setNextCollectionTime();
+        long now = System.currentTimeMillis();
+        Assert.assertTrue(schedule.getNextCollectionTime() > now - collInterval);
+        Assert.assertTrue(schedule.getNextCollectionTime() <= now + collInterval);
+        Assert.assertEquals(1234L, schedule.getNextCollectionTime() % collInterval);
+    }
+
+    // this compares the peak against the average number of resources whose collections are due in the same second
+    @Test
+    public void testPhaseSpreadingReducesPeakLoad() {
+        int resources = 1000;
+        int collInterval = 30_000;
+        MetricType<DMRNodeLocation> type = createMetricType("metricTypeName", collInterval);
+
+        Map<CollectionPhaseSpreading, Double> peakToAverage = new HashMap<>();
+        for (CollectionPhaseSpreading phaseSpreading : CollectionPhaseSpreading.values()) {
+            Map<Long, Integer> duePerSecond = new HashMap<>();
+            for (int i = 0; i < resources; i++) {
+                Resource<DMRNodeLocation> resource = createResource("endpoint" + (i % 10) + "-resource" + i,
+                        createMeasurementInstance("metric" + i, type));
+                Set<ScheduledMeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>>> schedules;
+                schedules = ScheduledMeasurementInstance.createMetrics(resource, phaseSpreading);
+                for (ScheduledMeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> s : schedules) {
+                    // the second within the interval, so schedules created across a second boundary still count
+                    duePerSecond.merge((s.getNextCollectionTime() % collInterval) / 1000, 1, Integer::sum);
+                }
+            }
+            int peak = Collections.max(duePerSecond.values());
+            double average = (double) resources / (collInterval / 1000);
+            peakToAverage.put(phaseSpreading, peak / average);
+        }
+
+        Assert.assertTrue(peakToAverage.toString(), peakToAverage.get(CollectionPhaseSpreading.NONE) > 10.0);
+        Assert.assertTrue(peakToAverage.toString(), peakToAverage.get(CollectionPhaseSpreading.HASH) < 2.5);
+        Assert.assertTrue(peakToAverage.toString(), peakToAverage.get(CollectionPhaseSpreading.RANDOM) < 2.5);
+    }
+
+    @Test
+    public void testOverrunCoalesce() {
+        Histogram lateness = new Histogram(new ExponentiallyDecayingReservoir());
+        Counter missedRounds = new Counter();
+        ScheduledCollectionsQueue<DMRNodeLocation, MetricType<DMRNodeLocation>> q;
+        q = new ScheduledCollectionsQueue<>(CollectionOverrunPolicy.COALESCE, 0, lateness, missedRounds);
+        scheduleBehind(q, 1000, 3500L);
+
+        // one collection is made for all missed rounds and the next one is scheduled from now
+        Assert.assertEquals(1, q.popNextScheduledSet().size());
+        Assert.assertTrue(q.getNextExpectedCollectionTime() > System.currentTimeMillis());
+        Assert.assertTrue(q.popNextScheduledSet().isEmpty());
+        Assert.assertTrue(missedRounds.getCount() >= 2L);
+        Assert.assertEquals(1L, lateness.getCount());
+        Assert.assertTrue(lateness.getSnapshot().getMax() >= 2500L);
+    }
+
+    @Test
+    public void testOverrunSkip() {
+        Counter missedRounds = new Counter();
+        ScheduledCollectionsQueue<DMRNodeLocation, MetricType<DMRNodeLocation>> q;
+        q = new ScheduledCollectionsQueue<>(CollectionOverrunPolicy.SKIP, 0,
+                new Histogram(new ExponentiallyDecayingReservoir()), missedRounds);
+        long scheduled = scheduleBehind(q, 1000, 3500L);
+
+        // nothing is collected, the next collection is at the next regular round
+        Assert.assertTrue(q.popNextScheduledSet().isEmpty());
+        long next = q.getNextExpectedCollectionTime();
+        Assert.assertTrue(next > System.currentTimeMillis());
+        Assert.assertEquals(0L, (next - scheduled) % 1000L);
+        Assert.assertTrue(missedRounds.getCount() >= 3L);
+    }
+
+    @Test
+    public void testOverrunCatchUp() {
+        Counter missedRounds = new Counter();
+        ScheduledCollectionsQueue<DMRNodeLocation, MetricType<DMRNodeLocation>> q;
+        q = new ScheduledCollectionsQueue<>(CollectionOverrunPolicy.CATCH_UP, 1,
+                new Histogram(new ExponentiallyDecayingReservoir()), missedRounds);
+        scheduleBehind(q, 1000, 3500L);
+
+        // the due collection plus one missed round are collected, the older missed rounds are dropped
+        Assert.assertEquals(1, q.popNextScheduledSet().size());
+        Assert.assertEquals(1, q.popNextScheduledSet().size());
+        Assert.assertTrue(q.popNextScheduledSet().isEmpty());
+        Assert.assertTrue(q.getNextExpectedCollectionTime() > System.currentTimeMillis());
+        Assert.assertTrue(missedRounds.getCount() >= 1L);
+    }
+
+    private long scheduleBehind(ScheduledCollectionsQueue<DMRNodeLocation, MetricType<DMRNodeLocation>> q,
+            int collInterval, long behindMillis) {
+        MeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> measInstance;
+        measInstance = createMeasurementInstance("metricName", createMetricType("metricTypeName", collInterval));
+        Resource<DMRNodeLocation> resource = createResource("root", measInstance);
+
+        ScheduledMeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>> schedule;
+        schedule = new ScheduledMeasurementInstance<>(resource, measInstance);
+        schedule.setNextCollectionTime(System.currentTimeMillis() - behindMillis);
+        q.schedule(Collections.singleton(schedule));
+        return schedule.getNextCollectionTime();
+    }
+
     private Resource<DMRNodeLocation> createResource(String name,
             MeasurementInstance<DMRNodeLocation, MetricType<DMRNodeLocation>>... metrics) {
         ResourceType<DMRNodeLocation> type = ResourceType.<DMRNodeLocation> builder()
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.storage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveBatchSizeTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10L);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(5000L);
+
+    @Test
+    public void testStartsAtMaximum() {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize("test", 100, 1000L);
+        Assert.assertEquals(100, batchSize.get());
+        batchSize.stored(100, FAST);
+        Assert.assertEquals(100, batchSize.get());
+    }
+
+    @Test
+    public void testMultiplicativeDecrease() {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize("test", 100, 1000L);
+        batchSize.stored(100, SLOW);
+        Assert.assertEquals(50, batchSize.get());
+        batchSize.failed(50);
+        Assert.assertEquals(25, batchSize.get());
+
+        // never goes below a tenth of the maximum
+        for (int i = 0; i < 10; i++) {
+            batchSize.failed(10);
+        }
+        Assert.assertEquals(10, batchSize.get());
+    }
+
+    @Test
+    public void testAdditiveIncrease() {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize("test", 100, 1000L);
+        batchSize.failed(100);
+        Assert.assertEquals(50, batchSize.get());
+
+        // a partial batch says nothing about what the server can take
+        batchSize.stored(20, FAST);
+        Assert.assertEquals(50, batchSize.get());
+
+        batchSize.stored(50, FAST);
+        Assert.assertEquals(55, batchSize.get());
+        for (int i = 0; i < 20; i++) {
+            batchSize.stored(batchSize.get(), FAST);
+        }
+        Assert.assertEquals(100, batchSize.get());
+    }
+}
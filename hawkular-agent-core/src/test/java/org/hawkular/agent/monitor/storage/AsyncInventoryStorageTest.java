@@ -44,7 +44,9 @@ import org.hawkular.agent.monitor.inventory.Resource;
 import org.hawkular.agent.monitor.inventory.ResourceManager;
 import org.hawkular.agent.monitor.inventory.ResourceType;
 import org.hawkular.agent.monitor.inventory.ResourceTypeManager;
+import org.hawkular.agent.monitor.util.BaseHttpClientGenerator.TrafficClass;
 import org.jboss.as.controller.client.helpers.MeasurementUnit;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -55,8 +57,10 @@ import okhttp3.Call;
 import okhttp3.OkHttpClient;
 import okhttp3.Protocol;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.Buffer;
 
 /**
  * @author Joel Takvorian
@@ -72,6 +76,8 @@ public class AsyncInventoryStorageTest {
     private ResourceTypeManager<AnyLocation> resourceTypeManager;
     private final List<String> collectedPostCalls = new ArrayList<>();
     private final List<String> collectedDeleteCalls = new ArrayList<>();
+    private final List<String> collectedPostBodies = new ArrayList<>();
+    private volatile boolean failRequests = false;
 
     private final MetricType<AnyLocation> MT_1 = new MetricType<>(
             new ID("mt1"),
@@ -138,7 +144,7 @@ public class AsyncInventoryStorageTest {
         when(httpClient.newCall(any(Request.class))).then(invocation -> {
             Call call = mock(Call.class);
             when(call.execute()).thenReturn(new Response.Builder()
-                    .code(200)
+                    .code(failRequests ? 500 : 200)
                     .request((Request) invocation.getArguments()[0])
                     .protocol(Protocol.HTTP_1_1)
                     .body(mock(ResponseBody.class))
@@ -147,21 +153,31 @@ public class AsyncInventoryStorageTest {
         });
         HttpClientBuilder httpClientBuilder = mock(HttpClientBuilder.class);
         when(httpClientBuilder.getHttpClient()).thenReturn(httpClient);
+        when(httpClientBuilder.getHttpClient(any(TrafficClass.class))).thenReturn(httpClient);
         when(httpClientBuilder.buildJsonDeleteRequest(anyString(), any(Map.class)))
                 .then(invocation -> {
                     String url = (String) invocation.getArguments()[0];
                     collectedDeleteCalls.add(url);
                     return new Request.Builder().url(url).build();
                 });
-        when(httpClientBuilder.buildJsonPostRequest(anyString(), any(Map.class), anyString()))
+        when(httpClientBuilder.buildJsonPostRequest(anyString(), any(Map.class), any(RequestBody.class)))
                 .then(invocation -> {
                     String url = (String) invocation.getArguments()[0];
                     collectedPostCalls.add(url);
+                    // the body is streamed - write it out to see what would have been sent
+                    Buffer body = new Buffer();
+                    ((RequestBody) invocation.getArguments()[2]).writeTo(body);
+                    collectedPostBodies.add(body.readUtf8());
                     return new Request.Builder().url(url).build();
                 });
         return httpClientBuilder;
     }
 
+    @After
+    public void tearDown() {
+        storage.shutdown();
+    }
+
     private static void expectCalls(List<String> collected, String... urls) {
         Assert.assertTrue(urls.length == collected.size());
         int i = 0;
@@ -179,6 +195,7 @@ public class AsyncInventoryStorageTest {
                 resourceTypeManager,
                 resourceManager.getResourcesBreadthFirst(),
                 Collections.emptyList()));
+        storage.flush();
         Assert.assertEquals("Unexpected DELETE calls: " + collectedDeleteCalls, 0, collectedDeleteCalls.size());
         expectCalls(collectedPostCalls,
                 "http://ignore/ignore/import");
@@ -198,6 +215,7 @@ public class AsyncInventoryStorageTest {
                 resourceTypeManager,
                 Collections.emptyList(),
                 Collections.emptyList()));
+        storage.flush();
         Assert.assertEquals("Unexpected DELETE calls: " + collectedDeleteCalls, 0, collectedDeleteCalls.size());
         Assert.assertEquals(0, collectedPostCalls.size());
         // Persistence time hasn't changed
@@ -221,6 +239,7 @@ public class AsyncInventoryStorageTest {
                 resourceTypeManager,
                 Collections.singletonList(r3),
                 Collections.emptyList()));
+        storage.flush();
         Assert.assertEquals("Unexpected DELETE calls: " + collectedDeleteCalls, 0, collectedDeleteCalls.size());
         expectCalls(collectedPostCalls,
                 "http://ignore/ignore/import");
@@ -240,6 +259,7 @@ public class AsyncInventoryStorageTest {
                 resourceTypeManager,
                 Collections.emptyList(),
                 Collections.singletonList(R_1)));
+        storage.flush();
         expectCalls(collectedDeleteCalls,
                 "http://ignore/ignore/resources?ids=r1");
         Assert.assertEquals(0, collectedPostCalls.size());
@@ -258,6 +278,7 @@ public class AsyncInventoryStorageTest {
                 resourceTypeManager,
                 Collections.emptyList(),
                 Collections.singletonList(r3)));
+        storage.flush();
         // r3 being a child resource, it triggers an update on its parent
         Assert.assertEquals(0, collectedPostCalls.size());
         expectCalls(collectedDeleteCalls,
@@ -277,6 +298,7 @@ public class AsyncInventoryStorageTest {
                 resourceTypeManager,
                 resourceManager.getResourcesBreadthFirst(),
                 Collections.emptyList()));
+        storage.flush();
         Assert.assertEquals("Unexpected DELETE calls: " + collectedDeleteCalls, 0, collectedDeleteCalls.size());
         expectCalls(collectedPostCalls,
                 "http://ignore/ignore/import");
@@ -294,6 +316,7 @@ public class AsyncInventoryStorageTest {
                 samplingService,
                 resourceManager,
                 Collections.singletonList(r3)));
+        storage.flush();
         Assert.assertEquals("Unexpected DELETE calls: " + collectedDeleteCalls, 0, collectedDeleteCalls.size());
         expectCalls(collectedPostCalls,
                 "http://ignore/ignore/import");
@@ -304,6 +327,7 @@ public class AsyncInventoryStorageTest {
                 samplingService,
                 resourceManager,
                 Collections.singletonList(R_1)));
+        storage.flush();
         expectCalls(collectedDeleteCalls,
                 "http://ignore/ignore/resources?ids=r1");
         Assert.assertEquals(0, collectedPostCalls.size());
@@ -314,11 +338,160 @@ public class AsyncInventoryStorageTest {
                 samplingService,
                 resourceManager,
                 Collections.singletonList(r3)));
+        storage.flush();
         expectCalls(collectedDeleteCalls,
                 "http://ignore/ignore/resources?ids=r3");
         Assert.assertEquals(0, collectedPostCalls.size());
     }
 
+    @Test
+    public void testPendingChangesAreCoalesced() {
+        Resource<AnyLocation> r3 = Resource.<AnyLocation>builder()
+                .id(new ID("r3"))
+                .name(new Name("Resource 3"))
+                .location(new AnyLocation("/2/2/3"))
+                .type(RT_2)
+                .parent(R_2)
+                .build();
+        Resource<AnyLocation> r3Renamed = Resource.<AnyLocation>builder()
+                .id(new ID("r3"))
+                .name(new Name("Resource 3 renamed"))
+                .location(new AnyLocation("/2/2/3"))
+                .type(RT_2)
+                .parent(R_2)
+                .build();
+
+        // the second modification of r3 replaces the first one - only one import with the latest r3 is sent
+        storage.receivedEvent(InventoryEvent.addedOrModified(samplingService, resourceManager,
+                Collections.singletonList(r3)));
+        storage.receivedEvent(InventoryEvent.addedOrModified(samplingService, resourceManager,
+                Collections.singletonList(r3Renamed)));
+        Assert.assertEquals(0, collectedPostCalls.size());
+        storage.flush();
+        expectCalls(collectedPostCalls, "http://ignore/ignore/import");
+        Assert.assertEquals(1, collectedPostBodies.size());
+        Assert.assertTrue(collectedPostBodies.get(0), collectedPostBodies.get(0).contains("Resource 3 renamed"));
+        Assert.assertEquals(0, collectedDeleteCalls.size());
+        collectedPostBodies.clear();
+
+        // a delete cancels the pending import
+        storage.receivedEvent(InventoryEvent.addedOrModified(samplingService, resourceManager,
+                Collections.singletonList(r3)));
+        storage.receivedEvent(InventoryEvent.removed(samplingService, resourceManager,
+                Collections.singletonList(r3)));
+        storage.flush();
+        Assert.assertEquals(0, collectedPostCalls.size());
+        expectCalls(collectedDeleteCalls, "http://ignore/ignore/resources?ids=r3");
+
+        // a re-added resource is imported again and no longer deleted
+        storage.receivedEvent(InventoryEvent.removed(samplingService, resourceManager,
+                Collections.singletonList(r3)));
+        storage.receivedEvent(InventoryEvent.addedOrModified(samplingService, resourceManager,
+                Collections.singletonList(r3)));
+        storage.flush();
+        Assert.assertEquals(0, collectedDeleteCalls.size());
+        expectCalls(collectedPostCalls, "http://ignore/ignore/import");
+    }
+
+    @Test
+    public void testFailedImportIsSentAgain() {
+        failRequests = true;
+        storage.receivedEvent(InventoryEvent.addedOrModified(samplingService, resourceManager,
+                Collections.singletonList(R_1)));
+        storage.flush();
+        Assert.assertEquals(AsyncInventoryStorage.MAX_REQUEST_ATTEMPTS, collectedPostCalls.size());
+        collectedPostCalls.clear();
+        Assert.assertEquals(1, diagnostics.getInventoryStorageBufferSize().getCount());
+
+        // the failed import is still pending and goes out with the next batch
+        failRequests = false;
+        storage.flush();
+        expectCalls(collectedPostCalls, "http://ignore/ignore/import");
+        Assert.assertEquals(0, diagnostics.getInventoryStorageBufferSize().getCount());
+    }
+
+    @Test
+    public void testPendingChangesAreSentAfterMaxLatency() throws InterruptedException {
+        storage.shutdown();
+        storage = new AsyncInventoryStorage("feed_id", config, httpClientBuilder, diagnostics, 1000, 10L);
+
+        storage.receivedEvent(InventoryEvent.addedOrModified(samplingService, resourceManager,
+                Collections.singletonList(R_1)));
+        for (int i = 0; i < 500 && diagnostics.getInventoryStorageBufferSize().getCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+        storage.flush(); // only waits for the sender to finish its batch; there is nothing pending anymore
+        expectCalls(collectedPostCalls, "http://ignore/ignore/import");
+    }
+
+    @Test
+    public void testPendingChangesWaitForStorageGate() throws InterruptedException {
+        storage.shutdown();
+        StorageGate gate = new StorageGate(false);
+        storage = new AsyncInventoryStorage("feed_id", config, httpClientBuilder, diagnostics, 1000, 10L, gate);
+
+        storage.receivedEvent(InventoryEvent.addedOrModified(samplingService, resourceManager,
+                Collections.singletonList(R_1)));
+        Thread.sleep(100);
+        Assert.assertEquals(1, diagnostics.getInventoryStorageBufferSize().getCount());
+        Assert.assertEquals(0, collectedPostCalls.size());
+
+        gate.open();
+        for (int i = 0; i < 500 && diagnostics.getInventoryStorageBufferSize().getCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+        storage.flush();
+        expectCalls(collectedPostCalls, "http://ignore/ignore/import");
+    }
+
+    @Test
+    public void testChunking() {
+        List<AsyncInventoryStorage.PendingItem<String>> items = Arrays.asList(
+                new AsyncInventoryStorage.PendingItem<>("a", null, 3, "a"),
+                new AsyncInventoryStorage.PendingItem<>("b", null, 3, "b"),
+                new AsyncInventoryStorage.PendingItem<>("c", null, 12, "c"),
+                new AsyncInventoryStorage.PendingItem<>("d", null, 1, "d"));
+        List<List<AsyncInventoryStorage.PendingItem<String>>> chunks = AsyncInventoryStorage.chunk(items, 10);
+        Assert.assertEquals(3, chunks.size());
+        Assert.assertEquals(Arrays.asList(items.get(0), items.get(1)), chunks.get(0));
+        Assert.assertEquals(Arrays.asList(items.get(2)), chunks.get(1)); // too heavy, but must be sent anyway
+        Assert.assertEquals(Arrays.asList(items.get(3)), chunks.get(2));
+    }
+
+    @Test
+    public void testParentsBeforeChildren() {
+        AsyncInventoryStorage.PendingItem<String> grandChild = new AsyncInventoryStorage.PendingItem<>("gc", "c",
+                1, "gc");
+        AsyncInventoryStorage.PendingItem<String> child = new AsyncInventoryStorage.PendingItem<>("c", "r", 1, "c");
+        AsyncInventoryStorage.PendingItem<String> root = new AsyncInventoryStorage.PendingItem<>("r", null, 1, "r");
+        // its parent was stored before, so it does not have to wait for anything
+        AsyncInventoryStorage.PendingItem<String> orphan = new AsyncInventoryStorage.PendingItem<>("o", "x", 1, "o");
+
+        List<List<AsyncInventoryStorage.PendingItem<String>>> levels = AsyncInventoryStorage
+                .groupByDepth(Arrays.asList(grandChild, child, orphan, root));
+        Assert.assertEquals(3, levels.size());
+        Assert.assertEquals(Arrays.asList(orphan, root), levels.get(0));
+        Assert.assertEquals(Arrays.asList(child), levels.get(1));
+        Assert.assertEquals(Arrays.asList(grandChild), levels.get(2));
+    }
+
+    @Test
+    public void testDeleteUrlsAreSplitByLength() {
+        String base = "http://ignore/ignore/resources?";
+        List<String> urls = AsyncInventoryStorage.buildDeleteUrls(base, Arrays.asList("r1", "r2", "r3"), 1000);
+        Assert.assertEquals(Arrays.asList(base + "ids=r1&ids=r2&ids=r3"), urls);
+
+        urls = AsyncInventoryStorage.buildDeleteUrls(base, Arrays.asList("r1", "r2", "r3"),
+                base.length() + "ids=r1&ids=r2".length());
+        Assert.assertEquals(Arrays.asList(base + "ids=r1&ids=r2", base + "ids=r3"), urls);
+
+        // an ID too long to fit still gets its own URL
+        urls = AsyncInventoryStorage.buildDeleteUrls(base, Arrays.asList("r1", "r2"), base.length());
+        Assert.assertEquals(Arrays.asList(base + "ids=r1", base + "ids=r2"), urls);
+
+        Assert.assertTrue(AsyncInventoryStorage.buildDeleteUrls(base, Collections.emptyList(), 1000).isEmpty());
+    }
+
     private static class AnyLocation {
         private String path;
 
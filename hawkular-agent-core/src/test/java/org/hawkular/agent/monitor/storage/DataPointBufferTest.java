@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration.DispatcherDropPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.Counter;
+
+public class DataPointBufferTest {
+
+    private final Counter bufferSize = new Counter();
+    private final Counter dropped = new Counter();
+
+    private DataPointBuffer<Integer> fill(DispatcherDropPolicy dropPolicy, int capacity, int count) {
+        DataPointBuffer<Integer> buffer = new DataPointBuffer<>("test", capacity, dropPolicy, bufferSize, dropped);
+        for (int i = 0; i < count; i++) {
+            buffer.enqueue(i);
+        }
+        return buffer;
+    }
+
+    private List<Integer> drain(DataPointBuffer<Integer> buffer) {
+        List<Integer> drained = new ArrayList<>();
+        buffer.drainTo(drained);
+        return drained;
+    }
+
+    @Test
+    public void testOverflowEndsAtHalfCapacity() {
+        DataPointBuffer<Integer> buffer = fill(DispatcherDropPolicy.DROP_NEWEST, 4, 5);
+        Assert.assertTrue(buffer.isOverflowing());
+
+        // a little room is not enough to end the overflow - otherwise it would flip with every data point
+        buffer.poll();
+        Assert.assertTrue(buffer.enqueue(5));
+        Assert.assertTrue(buffer.isOverflowing());
+
+        buffer.poll();
+        buffer.poll();
+        buffer.poll();
+        Assert.assertTrue(buffer.enqueue(6));
+        Assert.assertFalse(buffer.isOverflowing());
+    }
+
+    @Test
+    public void testDropNewest() {
+        DataPointBuffer<Integer> buffer = fill(DispatcherDropPolicy.DROP_NEWEST, 3, 3);
+        Assert.assertFalse(buffer.hasCapacity());
+        Assert.assertFalse(buffer.enqueue(3));
+        Assert.assertEquals(1, dropped.getCount());
+        Assert.assertEquals(3, bufferSize.getCount());
+        Assert.assertEquals(Arrays.asList(0, 1, 2), drain(buffer));
+        Assert.assertTrue(buffer.hasCapacity());
+    }
+
+    @Test
+    public void testDropOldest() {
+        DataPointBuffer<Integer> buffer = fill(DispatcherDropPolicy.DROP_OLDEST, 3, 5);
+        Assert.assertTrue(buffer.hasCapacity());
+        Assert.assertEquals(2, dropped.getCount());
+        Assert.assertEquals(3, bufferSize.getCount());
+        Assert.assertEquals(Arrays.asList(2, 3, 4), drain(buffer));
+    }
+
+    @Test
+    public void testSample() {
+        int overflow = 4 * DataPointBuffer.SAMPLE_RATE;
+        DataPointBuffer<Integer> buffer = fill(DispatcherDropPolicy.SAMPLE, 10, 10 + overflow);
+        Assert.assertTrue(buffer.hasCapacity());
+        Assert.assertEquals(overflow, dropped.getCount());
+        Assert.assertEquals(10, bufferSize.getCount());
+
+        // the kept data points are a sample of the overflow, replacing the oldest
+        List<Integer> drained = drain(buffer);
+        Assert.assertEquals(Integer.valueOf(4), drained.get(0));
+        Assert.assertEquals(Integer.valueOf(10), drained.get(6));
+        Assert.assertEquals(Integer.valueOf(10 + DataPointBuffer.SAMPLE_RATE), drained.get(7));
+    }
+
+    @Test
+    public void testTakeBatchFlushesWhenFull() throws Exception {
+        DataPointBuffer<Integer> buffer = fill(DispatcherDropPolicy.DROP_NEWEST, 10, 5);
+        List<Integer> batch = new ArrayList<>();
+        Assert.assertEquals(3, buffer.takeBatch(batch, 3, 60000L));
+        Assert.assertEquals(Arrays.asList(0, 1, 2), batch);
+        Assert.assertEquals(2, bufferSize.getCount());
+    }
+
+    @Test
+    public void testTakeBatchFlushesWhenLingerExpires() throws Exception {
+        DataPointBuffer<Integer> buffer = fill(DispatcherDropPolicy.DROP_NEWEST, 10, 2);
+        List<Integer> batch = new ArrayList<>();
+        long start = System.nanoTime();
+        Assert.assertEquals(2, buffer.takeBatch(batch, 5, 50L));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50L));
+        Assert.assertEquals(Arrays.asList(0, 1), batch);
+        Assert.assertEquals(0, bufferSize.getCount());
+    }
+}
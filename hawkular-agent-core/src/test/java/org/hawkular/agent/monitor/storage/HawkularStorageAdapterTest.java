@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.storage;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.hawkular.agent.monitor.api.MetricTagPayloadBuilder;
+import org.hawkular.agent.monitor.api.NotificationPayloadBuilder;
+import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration;
+import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration.StorageReportTo;
+import org.hawkular.agent.monitor.diagnostics.DiagnosticsImpl;
+import org.hawkular.agent.monitor.util.BaseHttpClientGenerator.TrafficClass;
+import org.hawkular.client.api.NotificationType;
+import org.hawkular.metrics.client.common.MetricType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+public class HawkularStorageAdapterTest {
+
+    private final List<String> collectedPutCalls = Collections.synchronizedList(new ArrayList<>());
+    private StorageGate storageGate;
+    private HawkularStorageAdapter storageAdapter;
+
+    @Before
+    public void setUp() {
+        AgentCoreEngineConfiguration.StorageAdapterConfiguration config = mock(
+                AgentCoreEngineConfiguration.StorageAdapterConfiguration.class);
+        when(config.getType()).thenReturn(StorageReportTo.HAWKULAR);
+        when(config.getUrl()).thenReturn("http://ignore");
+        when(config.getTenantId()).thenReturn("tenant_id");
+        when(config.getHawkularContext()).thenReturn("hawkular");
+        when(config.getMetricsContext()).thenReturn("hawkular/metrics");
+        when(config.getInventoryContext()).thenReturn("hawkular/inventory");
+
+        OkHttpClient httpClient = mock(OkHttpClient.class);
+        when(httpClient.newCall(any(Request.class))).thenReturn(mock(Call.class));
+        HttpClientBuilder httpClientBuilder = mock(HttpClientBuilder.class);
+        when(httpClientBuilder.getHttpClient()).thenReturn(httpClient);
+        when(httpClientBuilder.getHttpClient(any(TrafficClass.class))).thenReturn(httpClient);
+        when(httpClientBuilder.buildJsonPutRequest(anyString(), any(Map.class), anyString()))
+                .then(invocation -> {
+                    String url = (String) invocation.getArguments()[0];
+                    collectedPutCalls.add(url);
+                    return new Request.Builder().url(url).build();
+                });
+
+        storageGate = new StorageGate(false);
+        storageAdapter = new HawkularStorageAdapter(storageGate, System.nanoTime());
+        storageAdapter.initialize("feed_id", config, new DiagnosticsImpl(null, new MetricRegistry(), "feed_id"),
+                httpClientBuilder);
+    }
+
+    @After
+    public void tearDown() {
+        storageAdapter.shutdown();
+    }
+
+    @Test
+    public void testTagsAndNotificationsWaitForGate() throws InterruptedException {
+        MetricTagPayloadBuilder tags = storageAdapter.createMetricTagPayloadBuilder();
+        tags.addTag("metric1", "tag", "value", MetricType.GAUGE);
+        storageAdapter.store(tags, 0L);
+        NotificationPayloadBuilder notification = storageAdapter.createNotificationPayloadBuilder();
+        notification.addNotificationType(NotificationType.RESOURCE_ADDED);
+        notification.addProperty("feedId", "feed_id");
+        storageAdapter.store(notification, 0L);
+
+        Thread.sleep(200L);
+        Assert.assertTrue("Nothing may be sent while the gate is closed: " + collectedPutCalls,
+                collectedPutCalls.isEmpty());
+
+        storageGate.open();
+        long deadline = System.currentTimeMillis() + 5_000L;
+        while (collectedPutCalls.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        Assert.assertEquals(Arrays.asList(
+                "http://ignore/hawkular/metrics/gauges/metric1/tags",
+                "http://ignore/hawkular/notification"), collectedPutCalls);
+
+        // once the gate is open, requests go out right away
+        storageAdapter.store(notification, 0L);
+        Assert.assertEquals(3, collectedPutCalls.size());
+    }
+}
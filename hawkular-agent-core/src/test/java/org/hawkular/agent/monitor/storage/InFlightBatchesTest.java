@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.storage;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InFlightBatchesTest {
+
+    @Test
+    public void testBatchIsDoneWhenAllItsDataPointsAreDone() throws Exception {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize("test", 100, 1000L);
+        InFlightBatches inFlightBatches = new InFlightBatches(2, batchSize);
+
+        inFlightBatches.acquire();
+        StoreListener first = inFlightBatches.sending(10);
+        inFlightBatches.acquire();
+        StoreListener second = inFlightBatches.sending(5);
+        Assert.assertEquals(0, inFlightBatches.available());
+
+        // a batch split across two requests is only done when both have answered
+        first.stored(6, 0L);
+        Assert.assertEquals(0, inFlightBatches.available());
+        first.failed(4);
+        Assert.assertEquals(1, inFlightBatches.available());
+
+        second.stored(5, 0L);
+        Assert.assertEquals(2, inFlightBatches.available());
+
+        // the failure is passed on
+        Assert.assertEquals(50, batchSize.get());
+    }
+
+    @Test
+    public void testAcquireWaitsForAnswer() throws Exception {
+        InFlightBatches inFlightBatches = new InFlightBatches(1, new AdaptiveBatchSize("test", 100, 1000L));
+        inFlightBatches.acquire();
+        StoreListener inFlight = inFlightBatches.sending(1);
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread sender = new Thread(() -> {
+            try {
+                inFlightBatches.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        sender.start();
+        try {
+            Assert.assertFalse("Must wait while the server has not answered",
+                    acquired.await(200L, TimeUnit.MILLISECONDS));
+            inFlight.stored(1, 0L);
+            Assert.assertTrue("Must go on once the server answered", acquired.await(5L, TimeUnit.SECONDS));
+        } finally {
+            sender.interrupt();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.util;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.agent.monitor.util.BaseHttpClientGenerator.TrafficClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+public class BaseHttpClientGeneratorTest {
+
+    @Test
+    public void testTrafficClassClients() {
+        BaseHttpClientGenerator generator = new BaseHttpClientGenerator(
+                new BaseHttpClientGenerator.Configuration.Builder()
+                        .username("user")
+                        .password("pass")
+                        .connectTimeout(10)
+                        .readTimeout(120)
+                        .readTimeout(TrafficClass.DATA, 30)
+                        .build());
+
+        OkHttpClient data = generator.getHttpClient(TrafficClass.DATA);
+        OkHttpClient metadata = generator.getHttpClient(TrafficClass.METADATA);
+        OkHttpClient inventory = generator.getHttpClient(TrafficClass.INVENTORY);
+
+        // each traffic class has its own dispatcher and connection pool
+        Assert.assertNotSame(data.dispatcher(), metadata.dispatcher());
+        Assert.assertNotSame(data.dispatcher(), inventory.dispatcher());
+        Assert.assertNotSame(data.connectionPool(), inventory.connectionPool());
+        Assert.assertNotSame(generator.getHttpClient().dispatcher(), data.dispatcher());
+        Assert.assertEquals(TrafficClass.DATA.getMaxRequests(), data.dispatcher().getMaxRequests());
+        Assert.assertEquals(TrafficClass.INVENTORY.getMaxRequests(), inventory.dispatcher().getMaxRequestsPerHost());
+
+        // read timeouts can be overridden per traffic class, the rest use the general settings
+        Assert.assertEquals(TimeUnit.SECONDS.toMillis(30), data.readTimeoutMillis());
+        Assert.assertEquals(TimeUnit.SECONDS.toMillis(120), inventory.readTimeoutMillis());
+        Assert.assertEquals(TimeUnit.SECONDS.toMillis(10), metadata.connectTimeoutMillis());
+    }
+
+    @Test
+    public void testHttp2() {
+        BaseHttpClientGenerator http2 = new BaseHttpClientGenerator(
+                new BaseHttpClientGenerator.Configuration.Builder().http2(true).build());
+        Assert.assertEquals(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1),
+                http2.getHttpClient(TrafficClass.DATA).protocols());
+
+        BaseHttpClientGenerator http1 = new BaseHttpClientGenerator(
+                new BaseHttpClientGenerator.Configuration.Builder().http2(false).build());
+        Assert.assertEquals(Arrays.asList(Protocol.HTTP_1_1), http1.getHttpClient(TrafficClass.DATA).protocols());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.util;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.Timer;
+
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class ConnectionSetupTrackerTest {
+
+    private final Timer timer = new Timer();
+    private final ConnectionSetupTracker tracker = new ConnectionSetupTracker(timer);
+    private final Request request = new Request.Builder().url("http://localhost:8080/status").build();
+
+    private void call(Connection connection) throws Exception {
+        Interceptor.Chain networkChain = mock(Interceptor.Chain.class);
+        when(networkChain.request()).thenReturn(request);
+        when(networkChain.connection()).thenReturn(connection);
+        when(networkChain.proceed(request)).thenReturn(new Response.Builder()
+                .code(200)
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .build());
+
+        Interceptor.Chain applicationChain = mock(Interceptor.Chain.class);
+        when(applicationChain.request()).thenReturn(request);
+        when(applicationChain.proceed(request))
+                .then(invocation -> tracker.networkInterceptor().intercept(networkChain));
+
+        tracker.applicationInterceptor().intercept(applicationChain);
+    }
+
+    @Test
+    public void testOnlyNewConnectionsAreTimed() throws Exception {
+        Connection first = mock(Connection.class);
+        call(first);
+        Assert.assertEquals(1, timer.getCount());
+
+        // a pooled connection is reused - nothing to set up
+        call(first);
+        Assert.assertEquals(1, timer.getCount());
+
+        call(mock(Connection.class));
+        Assert.assertEquals(2, timer.getCount());
+    }
+}
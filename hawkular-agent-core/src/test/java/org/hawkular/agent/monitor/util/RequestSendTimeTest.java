@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.monitor.util;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class RequestSendTimeTest {
+
+    @Test
+    public void testTimeIsTakenWhenRequestIsSent() throws Exception {
+        RequestSendTime sendTime = new RequestSendTime();
+        Request request = new Request.Builder().url("http://localhost:8080/status").tag(sendTime).build();
+
+        // the request waits in the dispatcher queue before it goes out
+        Thread.sleep(200L);
+        Assert.assertTrue(sendTime.getNanosSinceSent() >= TimeUnit.MILLISECONDS.toNanos(200L));
+
+        Interceptor.Chain chain = mock(Interceptor.Chain.class);
+        when(chain.request()).thenReturn(request);
+        when(chain.proceed(request)).thenReturn(new Response.Builder()
+                .code(200)
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .build());
+        RequestSendTime.networkInterceptor().intercept(chain);
+
+        Assert.assertTrue("Time waiting to be sent must not count",
+                sendTime.getNanosSinceSent() < TimeUnit.MILLISECONDS.toNanos(200L));
+    }
+}
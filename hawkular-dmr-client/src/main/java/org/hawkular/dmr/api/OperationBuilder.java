@@ -23,6 +23,10 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import org.jboss.as.controller.PathAddress;
@@ -89,6 +93,40 @@ public class OperationBuilder implements SubsystemDatasourceConstants, Subsystem
             return createResult(request, result);
         }
 
+        /**
+         * Like {@link #execute(ModelControllerClient)} but gives up if the operation does not complete within the
+         * given time. The operation is cancelled in that case, so a hung server does not hold the caller forever.
+         *
+         * @param client the client to execute the operation with
+         * @param timeout the maximum time to wait for the result; if not positive, waits as long as it takes
+         * @param unit the unit of {@code timeout}
+         * @return the result of the operation
+         * @throws DmrApiException if the operation could not be executed or timed out, in which case the cause
+         *         is a {@link TimeoutException}
+         */
+        public R execute(ModelControllerClient client, long timeout, TimeUnit unit) {
+            if (timeout <= 0) {
+                return execute(client);
+            }
+            ModelNode request = build();
+            ModelNode result;
+            Future<ModelNode> future = client.executeAsync(request, null);
+            try {
+                result = future.get(timeout, unit);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                throw new DmrApiException("Operation did not complete within [" + unit.toMillis(timeout) + "]ms", e);
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new DmrApiException(e);
+            } catch (ExecutionException e) {
+                throw new DmrApiException(e.getCause());
+            }
+            log.tracef("Executed [%s] built by [%s] with result [%s]", request, getClass().getName(), result);
+            return createResult(request, result);
+        }
+
         @SuppressWarnings("unchecked")
         public T operationHeader(String key, boolean value) {
             baseNode.get(ModelDescriptionConstants.OPERATION_HEADERS).get(key).set(value);
@@ -27,6 +27,7 @@ import org.hawkular.agent.monitor.inventory.MonitoredEndpoint;
 import org.hawkular.agent.monitor.inventory.Resource;
 import org.hawkular.agent.monitor.inventory.ResourceConfigurationPropertyInstance;
 import org.hawkular.agent.monitor.inventory.ResourceManager;
+import org.hawkular.agent.monitor.protocol.AdaptiveDiscoveryPeriod;
 import org.hawkular.agent.monitor.protocol.EndpointService;
 import org.hawkular.agent.monitor.protocol.ProtocolService;
 import org.hawkular.agent.monitor.service.AgentCoreEngine;
@@ -74,6 +75,40 @@ public class InventoryReport {
         }
     }
 
+    /**
+     * Reports, for each endpoint, how often it is currently being scanned for inventory and how often
+     * its recent scans have detected changes.
+     *
+     * @param agent the agent whose endpoints are to be reported
+     * @return the report as a JSON string
+     * @throws Exception if the agent is not running
+     */
+    public static String getDiscoveryReport(AgentCoreEngine agent) throws Exception {
+        ServiceStatus status = agent.getStatus();
+        if (status == ServiceStatus.RUNNING) {
+            ModelNode result = new ModelNode();
+            List<ProtocolService<?, ?>> protocolServices = agent.getProtocolServices().getServices();
+            for (ProtocolService<?, ?> protocolService : protocolServices) {
+                ModelNode protocolServiceNode = result.get(protocolService.getName());
+                for (EndpointService<?, ?> endpointService : protocolService.getEndpointServices().values()) {
+                    ModelNode endpointNode = protocolServiceNode.get(endpointService.getMonitoredEndpoint().getName());
+                    AdaptiveDiscoveryPeriod period = endpointService.getAdaptiveDiscoveryPeriod();
+                    if (period != null) {
+                        endpointNode.get("Discovery Period Seconds").set(period.getPeriodMillis() / 1000L);
+                        endpointNode.get("Change Rate").set(period.getChangeRate());
+                    } else {
+                        endpointNode.get("Discovery Period Seconds").set(-1L);
+                    }
+                    endpointNode.get("Last Scan Failed").set(endpointService.isLastDiscoveryFailed());
+                    endpointNode.get("Last Scan Changed").set(endpointService.isLastDiscoveryChanged());
+                }
+            }
+            return result.toJSONString(false);
+        } else {
+            throw new Exception("Agent is not running - status is [" + status + "]");
+        }
+    }
+
     private static void buildEndpointNode(ModelNode endpointNode, EndpointService<?, ?> endpointService) {
         ResourceManager<?> resourceManager = endpointService.getResourceManager();
         Collection<?> resources = resourceManager.getRootResources();
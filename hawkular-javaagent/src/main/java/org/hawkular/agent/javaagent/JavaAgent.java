@@ -64,11 +64,14 @@ public class JavaAgent {
         // Process the arguments.
         //   config=<file path> : the config file to load (default is ./config.yaml)
         //   delay=<num seconds>: number of seconds before the agent will start up
+        //   config-cache=<file path>|false : where the parsed config is cached to speed up the next start
+        //                                    (default is the config file path with ".cache" appended)
 
         if (args == null || args.length == 0) {
             args = new String[] { "config=config.yaml" };
         }
         String configFilePathString = "config.yaml";
+        String configCachePathString = null;
         final AtomicInteger delaySeconds = new AtomicInteger(0);
         for (String arg : args) {
             String[] nameValueArg = arg.split("=", 2);
@@ -81,6 +84,9 @@ public class JavaAgent {
             if ("delay".equals(nameValueArg[0])) {
                 delaySeconds.set(Integer.parseInt(nameValueArg[1]));
             }
+            if ("config-cache".equals(nameValueArg[0])) {
+                configCachePathString = nameValueArg[1];
+            }
         }
 
         // find the configuration file
@@ -90,6 +96,15 @@ public class JavaAgent {
             throw new Exception("Missing configuration file: " + configFile.getAbsolutePath());
         }
 
+        final File configCacheFile;
+        if (configCachePathString == null) {
+            configCacheFile = new File(configFile.getAbsolutePath() + ".cache");
+        } else if ("false".equalsIgnoreCase(configCachePathString)) {
+            configCacheFile = null;
+        } else {
+            configCacheFile = new File(configCachePathString);
+        }
+
         // Start the agent engine in a separate thread so premain does not block
 
         Thread agentThread = new Thread(new Runnable() {
@@ -99,7 +114,7 @@ public class JavaAgent {
                     if (delaySeconds.get() > 0) {
                         Thread.sleep(delaySeconds.get() * 1000);
                     }
-                    new JavaAgentEngine(configFile).startHawkularAgent();
+                    new JavaAgentEngine(configFile, configCacheFile).startHawkularAgent();
                 } catch (Exception e) {
                     System.err.println("Hawkular Java Agent failed at startup");
                     e.printStackTrace(System.err);
@@ -28,9 +28,13 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
@@ -40,7 +44,9 @@ import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 
 import org.hawkular.agent.javaagent.cmd.UpdateCollectionIntervalsCommand;
+import org.hawkular.agent.javaagent.config.ConfigCache;
 import org.hawkular.agent.javaagent.config.ConfigConverter;
+import org.hawkular.agent.javaagent.config.ConfigFileWatcher;
 import org.hawkular.agent.javaagent.config.ConfigManager;
 import org.hawkular.agent.javaagent.config.Configuration;
 import org.hawkular.agent.javaagent.config.SecurityRealm;
@@ -51,76 +57,123 @@ import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration;
 import org.hawkular.agent.monitor.protocol.dmr.ModelControllerClientFactory;
 import org.hawkular.agent.monitor.service.AgentCoreEngine;
 import org.hawkular.agent.monitor.service.ServiceStatus;
+import org.hawkular.agent.monitor.service.StartupPhases;
 import org.hawkular.bus.common.BasicMessage;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 /**
  * The Hawkular Agent running as a standalone Java Agent.
  */
 public class JavaAgentEngine extends AgentCoreEngine implements JavaAgentMXBean {
     private static final MsgLogger log = JavaAgentLoggers.getLogger(JavaAgentEngine.class);
     private static final String MBEAN_OBJECT_NAME = "org.hawkular:type=hawkular-javaagent";
+    // the parts of the configuration that can be reloaded without restarting the agent
+    private static final List<String> RELOADABLE_CONFIG_PROPERTIES = Arrays.asList(
+            "metric-set-dmr", "avail-set-dmr", "resource-type-set-dmr",
+            "metric-set-jmx", "avail-set-jmx", "resource-type-set-jmx");
 
     private final ConfigManager configurationManager;
-    private final Map<String, TrustManager[]> trustOnlyTrustManagers = new HashMap<>();
-    private final Map<String, SSLContext> trustOnlySslContexts = new HashMap<>();
+    private final Map<String, TrustManager[]> trustOnlyTrustManagers = new ConcurrentHashMap<>();
+    private final Map<String, SSLContext> trustOnlySslContexts = new ConcurrentHashMap<>();
+    private final StartupPhases creationPhases;
+    private ConfigFileWatcher configFileWatcher;
 
     public JavaAgentEngine(File configFile) throws Exception {
-        this(new ConfigManager(configFile));
+        this(configFile, null);
+    }
+
+    /**
+     * @param configFile the agent configuration file
+     * @param configCacheFile where the parsed configuration is cached so it does not have to be parsed again on
+     *        the next start; if null, the configuration is not cached
+     * @throws Exception if the agent engine cannot be created
+     */
+    public JavaAgentEngine(File configFile, File configCacheFile) throws Exception {
+        this(new ConfigManager(configFile, configCacheFile == null ? null : new ConfigCache(configCacheFile)),
+                new StartupPhases());
     }
 
-    private JavaAgentEngine(ConfigManager configMgr) throws Exception {
-        super(new ConfigConverter(configMgr.getConfiguration(true)).convert());
+    private JavaAgentEngine(ConfigManager configMgr, StartupPhases phases) throws Exception {
+        super(phases.time("convert configuration",
+                () -> new ConfigConverter(configMgr.getConfiguration(true)).convert()));
         log.infoLoadedConfigurationFile(configMgr.getConfigFile().getAbsolutePath());
         this.configurationManager = configMgr;
-        loadSecurityRealms(configMgr.getConfiguration(), trustOnlyTrustManagers, trustOnlySslContexts);
+        this.creationPhases = phases;
+        loadSecurityRealms(configMgr.getConfiguration(), trustOnlyTrustManagers, trustOnlySslContexts, phases);
 
         MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
         mbs.registerMBean(this, new ObjectName(MBEAN_OBJECT_NAME));
+
+        if (Boolean.TRUE.equals(configMgr.getConfiguration().getSubsystem().getWatchConfigFile())) {
+            this.configFileWatcher = new ConfigFileWatcher(configMgr.getConfigFile(), this::configFileChanged);
+            this.configFileWatcher.start();
+        }
+
+        log.debugf("Java agent engine created in [%d] ms: %s", phases.getElapsed(), phases);
     }
 
+    /**
+     * Builds the SSL contexts of all security realms. Loading key stores and initializing SSL contexts is slow,
+     * so the realms are built in parallel.
+     */
     private static void loadSecurityRealms(
             Configuration config,
             Map<String, TrustManager[]> trustOnlyTrustManagers,
-            Map<String, SSLContext> trustOnlySslContexts) {
+            Map<String, SSLContext> trustOnlySslContexts,
+            StartupPhases phases) throws Exception {
 
         SecurityRealm[] securityRealms = config.getSecurityRealms();
         if (securityRealms == null) {
             return;
         }
 
+        Map<String, Callable<?>> realmPhases = new LinkedHashMap<>();
         for (SecurityRealm securityRealm : securityRealms) {
-            try {
-                String keyStoreType = securityRealm.getKeystoreType();
-                String trustManagerAlgorithm = securityRealm.getTrustManagerAlgorithm();
-                String keyManagerAlgorithm = securityRealm.getKeyManagerAlgorithm();
-                String sslProtocol = securityRealm.getSslProtocol();
-                String keyPassword = (securityRealm.getKeyPassword() != null) ? securityRealm.getKeyPassword()
-                        : securityRealm.getKeystorePassword();
-
-                KeyStore keystore = KeyStore.getInstance(keyStoreType);
-                try (InputStream is = new FileInputStream(securityRealm.getKeystorePath())) {
-                    keystore.load(is, securityRealm.getKeystorePassword().toCharArray());
-                }
-                KeyManagerFactory kmf = KeyManagerFactory.getInstance(keyManagerAlgorithm);
-                kmf.init(keystore, keyPassword.toCharArray());
-                TrustManagerFactory tmf = TrustManagerFactory.getInstance(trustManagerAlgorithm);
-                tmf.init(keystore);
+            realmPhases.put("security realm " + securityRealm.getName(), () -> {
+                loadSecurityRealm(securityRealm, trustOnlyTrustManagers, trustOnlySslContexts);
+                return null;
+            });
+        }
+        phases.timeInParallel(realmPhases);
+    }
 
-                trustOnlyTrustManagers.put(securityRealm.getName(), tmf.getTrustManagers());
+    private static void loadSecurityRealm(
+            SecurityRealm securityRealm,
+            Map<String, TrustManager[]> trustOnlyTrustManagers,
+            Map<String, SSLContext> trustOnlySslContexts) {
+        try {
+            String keyStoreType = securityRealm.getKeystoreType();
+            String trustManagerAlgorithm = securityRealm.getTrustManagerAlgorithm();
+            String keyManagerAlgorithm = securityRealm.getKeyManagerAlgorithm();
+            String sslProtocol = securityRealm.getSslProtocol();
+            String keyPassword = (securityRealm.getKeyPassword() != null) ? securityRealm.getKeyPassword()
+                    : securityRealm.getKeystorePassword();
+
+            KeyStore keystore = KeyStore.getInstance(keyStoreType);
+            try (InputStream is = new FileInputStream(securityRealm.getKeystorePath())) {
+                keystore.load(is, securityRealm.getKeystorePassword().toCharArray());
+            }
+            KeyManagerFactory kmf = KeyManagerFactory.getInstance(keyManagerAlgorithm);
+            kmf.init(keystore, keyPassword.toCharArray());
+            TrustManagerFactory tmf = TrustManagerFactory.getInstance(trustManagerAlgorithm);
+            tmf.init(keystore);
 
-                SSLContext sc = SSLContext.getInstance(sslProtocol);
-                sc.init(kmf.getKeyManagers(), tmf.getTrustManagers(), new java.security.SecureRandom());
+            trustOnlyTrustManagers.put(securityRealm.getName(), tmf.getTrustManagers());
 
-                trustOnlySslContexts.put(securityRealm.getName(), sc);
+            SSLContext sc = SSLContext.getInstance(sslProtocol);
+            sc.init(kmf.getKeyManagers(), tmf.getTrustManagers(), new java.security.SecureRandom());
 
-            } catch (NoSuchAlgorithmException
-                    | KeyStoreException
-                    | CertificateException
-                    | IOException
-                    | UnrecoverableKeyException
-                    | KeyManagementException e) {
-                log.errorBuildingSecurityRealm(securityRealm.getName(), e);
-            }
+            trustOnlySslContexts.put(securityRealm.getName(), sc);
+
+        } catch (NoSuchAlgorithmException
+                | KeyStoreException
+                | CertificateException
+                | IOException
+                | UnrecoverableKeyException
+                | KeyManagementException e) {
+            log.errorBuildingSecurityRealm(securityRealm.getName(), e);
         }
     }
 
@@ -162,6 +215,93 @@ public class JavaAgentEngine extends AgentCoreEngine implements JavaAgentMXBean
         }
     }
 
+    /**
+     * Applies the given configuration to the running agent and persists it if the agent is mutable.
+     *
+     * If the new configuration differs from the current one only in its metric, avail and resource type sets,
+     * those are reloaded without restarting the agent (see {@link #reloadTypeSets(AgentCoreEngineConfiguration)}).
+     * Otherwise, or if the agent is not running, the agent is restarted with the new configuration.
+     *
+     * If the original agent configuration indicated the agent should be immutable, the new configuration is ignored.
+     *
+     * @param newConfig the new configuration to use
+     */
+    public synchronized void reloadHawkularAgent(Configuration newConfig) {
+        Configuration oldConfig = getConfigurationManager().getConfiguration();
+        if (oldConfig != null && oldConfig.getSubsystem().getImmutable()) {
+            log.infof("Agent is immutable - ignoring the new configuration");
+            return;
+        }
+        applyConfiguration(oldConfig, newConfig, true);
+    }
+
+    /**
+     * Called by the config file watcher when the configuration file has been modified.
+     */
+    private synchronized void configFileChanged() {
+        Configuration oldConfig = getConfigurationManager().getConfiguration();
+        if (oldConfig != null && oldConfig.getSubsystem().getImmutable()) {
+            log.infof("Agent is immutable - ignoring changes to config file [%s]",
+                    getConfigurationManager().getConfigFile());
+            return;
+        }
+
+        Configuration newConfig;
+        try {
+            newConfig = getConfigurationManager().reloadIfChanged();
+        } catch (Exception e) {
+            log.warnf(e, "Ignoring invalid config file [%s]", getConfigurationManager().getConfigFile());
+            return;
+        }
+        if (newConfig == null) {
+            return; // the content did not change, e.g. the agent wrote the file itself
+        }
+
+        if (getStatus() != ServiceStatus.RUNNING) {
+            log.infof("Config file [%s] changed - it will be used when the agent is started",
+                    getConfigurationManager().getConfigFile());
+            return;
+        }
+        log.infof("Config file [%s] changed - applying the new configuration",
+                getConfigurationManager().getConfigFile());
+        applyConfiguration(oldConfig, newConfig, false);
+    }
+
+    private void applyConfiguration(Configuration oldConfig, Configuration newConfig, boolean persist) {
+        AgentCoreEngineConfiguration agentConfig;
+        try {
+            agentConfig = new ConfigConverter(newConfig).convert();
+            if (persist) {
+                this.configurationManager.updateConfiguration(newConfig, true);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Cannot apply new configuration", e);
+        }
+
+        if (getStatus() == ServiceStatus.RUNNING && isOnlyTypeSetsChanged(oldConfig, newConfig)) {
+            reloadTypeSets(agentConfig);
+        } else {
+            log.infof("Restarting agent to apply the new configuration");
+            stopHawkularAgent();
+            super.startHawkularAgent(agentConfig);
+        }
+    }
+
+    /**
+     * @return true if the two configurations are the same except for their metric, avail and resource type sets
+     */
+    static boolean isOnlyTypeSetsChanged(Configuration oldConfig, Configuration newConfig) {
+        if (oldConfig == null || newConfig == null) {
+            return false;
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode oldTree = mapper.valueToTree(oldConfig);
+        ObjectNode newTree = mapper.valueToTree(newConfig);
+        oldTree.remove(RELOADABLE_CONFIG_PROPERTIES);
+        newTree.remove(RELOADABLE_CONFIG_PROPERTIES);
+        return oldTree.equals(newTree);
+    }
+
     /**
      * Returns the object responsible for managing the Java Agent's configuration.
      * This contains the current configuration and a way to persist new configurations.
@@ -172,6 +312,14 @@ public class JavaAgentEngine extends AgentCoreEngine implements JavaAgentMXBean
         return this.configurationManager;
     }
 
+    /**
+     * @return how long each phase of creating this engine took (loading the configuration, security realms);
+     *         see {@link #getStartupPhases()} for the phases of starting the agent itself
+     */
+    public StartupPhases getCreationPhases() {
+        return this.creationPhases;
+    }
+
     @Override
     protected Map<String, SSLContext> buildTrustOnlySSLContextValues(AgentCoreEngineConfiguration config) {
         return this.trustOnlySslContexts;
@@ -269,4 +417,13 @@ public class JavaAgentEngine extends AgentCoreEngine implements JavaAgentMXBean
             return "Cannot obtain inventory report: " + e;
         }
     }
+
+    @Override
+    public String discoveryReport() {
+        try {
+            return InventoryReport.getDiscoveryReport(this);
+        } catch (Exception e) {
+            return "Cannot obtain discovery report: " + e;
+        }
+    }
 }
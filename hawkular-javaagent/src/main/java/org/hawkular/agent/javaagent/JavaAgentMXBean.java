@@ -37,4 +37,6 @@ public interface JavaAgentMXBean {
     String fullDiscoveryScan();
 
     String inventoryReport();
+
+    String discoveryReport();
 }
@@ -87,7 +87,7 @@ public class UpdateCollectionIntervalsCommand
         Map<String, String> metricTypes = request.getMetricTypes();
         Map<String, String> availTypes = request.getAvailTypes();
 
-        boolean requireRestart = false;
+        boolean requireReload = false;
 
         if (metricTypes != null && !metricTypes.isEmpty()) {
             NEXT_AVAIL: for (Map.Entry<String, String> entry : metricTypes.entrySet()) {
@@ -102,7 +102,7 @@ public class UpdateCollectionIntervalsCommand
                             if (metricName.equals(metric.getName())) {
                                 metric.setInterval(Integer.valueOf(entry.getValue()));
                                 metric.setTimeUnits(TimeUnits.seconds); // the command always assumes seconds
-                                requireRestart = true;
+                                requireReload = true;
                                 continue NEXT_AVAIL;
                             }
                         }
@@ -114,7 +114,7 @@ public class UpdateCollectionIntervalsCommand
                             if (metricName.equals(metric.getName())) {
                                 metric.setInterval(Integer.valueOf(entry.getValue()));
                                 metric.setTimeUnits(TimeUnits.seconds); // the command always assumes seconds
-                                requireRestart = true;
+                                requireReload = true;
                                 continue NEXT_AVAIL;
                             }
                         }
@@ -135,7 +135,7 @@ public class UpdateCollectionIntervalsCommand
                             if (availName.equals(avail.getName())) {
                                 avail.setInterval(Integer.valueOf(entry.getValue()));
                                 avail.setTimeUnits(TimeUnits.seconds); // the command always assumes seconds
-                                requireRestart = true;
+                                requireReload = true;
                                 continue NEXT_AVAIL;
                             }
                         }
@@ -147,7 +147,7 @@ public class UpdateCollectionIntervalsCommand
                             if (availName.equals(avail.getName())) {
                                 avail.setInterval(Integer.valueOf(entry.getValue()));
                                 avail.setTimeUnits(TimeUnits.seconds); // the command always assumes seconds
-                                requireRestart = true;
+                                requireReload = true;
                                 continue NEXT_AVAIL;
                             }
                         }
@@ -156,13 +156,12 @@ public class UpdateCollectionIntervalsCommand
             }
         }
 
-        if (requireRestart) {
+        if (requireReload) {
             context.addResponseSentListener(new ResponseSentListener() {
                 @Override
                 public void onSend(BasicMessageWithExtraData<? extends BasicMessage> response, Exception sendError) {
-                    log.info("Collection intervals updated. Persisting changes and restarting agent.");
-                    javaAgent.stopHawkularAgent();
-                    javaAgent.startHawkularAgent(javaAgentConfig);
+                    log.info("Collection intervals updated. Persisting changes and rescheduling collections.");
+                    javaAgent.reloadHawkularAgent(javaAgentConfig);
                 }
             });
         } else {
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.javaagent.config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import org.hawkular.agent.monitor.log.AgentLoggers;
+import org.hawkular.agent.monitor.log.MsgLogger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keeps a parsed configuration in a file so the next boot does not have to parse the YAML again.
+ * YAML parsing is slow for configurations with thousands of metric definitions; reading the cache is not.
+ *
+ * The cache is keyed by a hash of the content of the configuration file - if the file changes, the cache is
+ * ignored and rewritten. ${x} expressions are cached unresolved and resolved when the configuration is used,
+ * so changed system properties take effect without invalidating the cache.
+ *
+ * The cached configuration has all its defaults filled in, so a cache written by a different version of the agent is
+ * ignored too - that version may have different defaults or interpret the settings differently.
+ *
+ * The cache file holds a small binary header (magic number, format version, agent version and content hash)
+ * followed by the configuration in compact JSON.
+ */
+public class ConfigCache {
+    private static final MsgLogger log = AgentLoggers.getLogger(ConfigCache.class);
+
+    private static final int MAGIC = 0x48414343; // "HACC"
+    private static final int VERSION = 2;
+
+    private final File cacheFile;
+    private final String agentVersion;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * @param cacheFile where the cache is kept; it does not have to exist yet
+     */
+    public ConfigCache(File cacheFile) {
+        this(cacheFile, getAgentVersion());
+    }
+
+    ConfigCache(File cacheFile, String agentVersion) {
+        this.cacheFile = cacheFile;
+        this.agentVersion = agentVersion;
+    }
+
+    private static String getAgentVersion() {
+        Package configPackage = Configuration.class.getPackage();
+        String version = (configPackage != null) ? configPackage.getImplementationVersion() : null;
+        return (version != null) ? version : "unknown";
+    }
+
+    public File getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * @param content the content of a configuration file
+     * @return the key the cached configuration of that content is stored under
+     */
+    public static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @param hash the {@link #hash(byte[]) hash} of the current content of the configuration file
+     * @return the cached configuration, or null if there is no cache or it is for a different configuration
+     */
+    public Configuration load(byte[] hash) {
+        if (!cacheFile.canRead()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.debugf("Ignoring config cache [%s] - it is not in a supported format", cacheFile);
+                return null;
+            }
+            String cachedAgentVersion = in.readUTF();
+            if (!agentVersion.equals(cachedAgentVersion)) {
+                log.debugf("Ignoring config cache [%s] - it was written by agent version [%s]", cacheFile,
+                        cachedAgentVersion);
+                return null;
+            }
+            byte[] cachedHash = new byte[in.readInt()];
+            in.readFully(cachedHash);
+            if (!Arrays.equals(hash, cachedHash)) {
+                log.debugf("Ignoring config cache [%s] - the configuration file has changed", cacheFile);
+                return null;
+            }
+            return mapper.readValue(in, Configuration.class);
+        } catch (Exception e) {
+            log.debugf(e, "Ignoring config cache [%s] - it cannot be read", cacheFile);
+            return null;
+        }
+    }
+
+    /**
+     * Caches the given configuration. Failures are logged but otherwise ignored - the cache is only an
+     * optimization.
+     *
+     * @param hash the {@link #hash(byte[]) hash} of the content the configuration was parsed from
+     * @param config the configuration parsed from that content
+     */
+    public void store(byte[] hash, Configuration config) {
+        File tmpFile = new File(cacheFile.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(agentVersion);
+                out.writeInt(hash.length);
+                out.write(hash);
+                mapper.writeValue(out, config);
+            }
+            Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            log.debugf("Cached configuration in [%s]", cacheFile);
+        } catch (Exception e) {
+            log.debugf(e, "Cannot cache configuration in [%s]", cacheFile);
+            tmpFile.delete();
+        }
+    }
+}
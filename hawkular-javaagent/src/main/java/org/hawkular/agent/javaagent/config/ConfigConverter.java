@@ -94,13 +94,36 @@ public class ConfigConverter {
                 config.getSubsystem().getInContainer(),
                 null,
                 config.getSubsystem().getAutoDiscoveryScanPeriodSecs(),
+                config.getSubsystem().getAutoDiscoveryScanPeriodMinSecs(),
+                config.getSubsystem().getAutoDiscoveryScanPeriodMaxSecs(),
                 config.getSubsystem().getMinCollectionIntervalSecs(),
-                2,
+                config.getSubsystem().getNumSchedulerThreads(),
                 config.getSubsystem().getMetricDispatcherBufferSize(),
                 config.getSubsystem().getMetricDispatcherMaxBatchSize(),
                 config.getSubsystem().getAvailDispatcherBufferSize(),
                 config.getSubsystem().getAvailDispatcherMaxBatchSize(),
-                config.getSubsystem().getPingPeriodSecs());
+                config.getSubsystem().getPingPeriodSecs(),
+                config.getSubsystem().getMaxConcurrentDiscoveryScans(),
+                config.getSubsystem().getInventorySnapshotDir(),
+                config.getSubsystem().getFastStart(),
+                config.getSubsystem().getVirtualThreads(),
+                AgentCoreEngineConfiguration.CollectionPhaseSpreading
+                        .valueOf(config.getSubsystem().getPhaseSpreading().name()),
+                AgentCoreEngineConfiguration.CollectionOverrunPolicy
+                        .valueOf(config.getSubsystem().getMetricOverrunPolicy().name()),
+                AgentCoreEngineConfiguration.CollectionOverrunPolicy
+                        .valueOf(config.getSubsystem().getAvailOverrunPolicy().name()),
+                config.getSubsystem().getMaxCatchUpRounds(),
+                config.getSubsystem().getRequestTimeoutSecs(),
+                config.getSubsystem().getCircuitBreakerFailures(),
+                config.getSubsystem().getCircuitBreakerOpenSecs(),
+                AgentCoreEngineConfiguration.DispatcherDropPolicy
+                        .valueOf(config.getSubsystem().getMetricDispatcherDropPolicy().name()),
+                AgentCoreEngineConfiguration.DispatcherDropPolicy
+                        .valueOf(config.getSubsystem().getAvailDispatcherDropPolicy().name()),
+                config.getSubsystem().getMetricDispatcherLingerMillis(),
+                config.getSubsystem().getAvailDispatcherLingerMillis(),
+                config.getSubsystem().getDispatcherTargetLatencyMillis());
 
         DiagnosticsConfiguration diagnostics = new DiagnosticsConfiguration(
                 config.getDiagnostics().getEnabled(),
@@ -125,7 +148,11 @@ public class ConfigConverter {
                 null, // we use security realm exclusively
                 config.getStorageAdapter().getSecurityRealmName(),
                 config.getStorageAdapter().getConnectTimeoutSecs(),
-                config.getStorageAdapter().getReadTimeoutSecs());
+                config.getStorageAdapter().getReadTimeoutSecs(),
+                config.getStorageAdapter().getDataReadTimeoutSecs(),
+                config.getStorageAdapter().getInventoryReadTimeoutSecs(),
+                config.getStorageAdapter().getHttp2(),
+                config.getStorageAdapter().getKeepAliveIntervalSecs());
 
         ProtocolConfiguration<DMRNodeLocation> dmrConfiguration = buildDmrConfiguration(config);
         ProtocolConfiguration<JMXNodeLocation> jmxConfiguration = buildJmxConfiguration(config);
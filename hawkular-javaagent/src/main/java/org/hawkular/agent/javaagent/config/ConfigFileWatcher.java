@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.javaagent.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+import org.hawkular.agent.monitor.log.AgentLoggers;
+import org.hawkular.agent.monitor.log.MsgLogger;
+import org.hawkular.agent.monitor.util.ThreadFactoryGenerator;
+
+/**
+ * Watches the configuration file and notifies a listener when the file has been created or modified.
+ * The listener is called on the watcher's own daemon thread.
+ *
+ * Note that the listener is also notified when the agent itself writes the file - the listener should use
+ * {@link ConfigManager#reloadIfChanged()} to ignore those.
+ */
+public class ConfigFileWatcher {
+    private static final MsgLogger log = AgentLoggers.getLogger(ConfigFileWatcher.class);
+
+    // editors and tools often write a file in several steps - wait for them to finish before notifying
+    private static final long SETTLE_MILLIS = 500L;
+
+    private final File configFile;
+    private final Runnable listener;
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * @param configFile the file to watch
+     * @param listener notified when the file has been created or modified
+     */
+    public ConfigFileWatcher(File configFile, Runnable listener) {
+        if (configFile == null) {
+            throw new IllegalArgumentException("configFile must not be null");
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        this.configFile = configFile.getAbsoluteFile();
+        this.listener = listener;
+    }
+
+    /**
+     * Starts watching the file. Does nothing if already started.
+     *
+     * @throws IOException if the directory of the file cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+        Path directory = configFile.getParentFile().toPath();
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = ThreadFactoryGenerator.generateFactory(true, "Hawkular-Java-Agent-Config-Watcher")
+                .newThread(this::watch);
+        thread.start();
+        log.debugf("Watching config file [%s] for changes", configFile);
+    }
+
+    /**
+     * Stops watching the file. Does nothing if not started.
+     */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.debugf(e, "Cannot close watch service for config file [%s]", configFile);
+        }
+        thread.interrupt();
+        try {
+            thread.join(5000L);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        watchService = null;
+    }
+
+    private void watch() {
+        Path fileName = configFile.toPath().getFileName();
+        WatchService ws = this.watchService;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = ws.take();
+                boolean changed = isFileChanged(key, fileName);
+                if (!key.reset()) {
+                    log.warnf("Config file directory [%s] can no longer be watched", configFile.getParentFile());
+                    return;
+                }
+                if (!changed) {
+                    continue;
+                }
+
+                // swallow the other events caused by the same write
+                Thread.sleep(SETTLE_MILLIS);
+                for (WatchKey more = ws.poll(); more != null; more = ws.poll()) {
+                    more.pollEvents();
+                    more.reset();
+                }
+
+                log.debugf("Config file [%s] changed", configFile);
+                try {
+                    listener.run();
+                } catch (Throwable t) {
+                    log.warnf(t, "Failed to process change of config file [%s]", configFile);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // we are being stopped
+        }
+    }
+
+    private boolean isFileChanged(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -39,8 +40,10 @@ public class ConfigManager {
     private static final MsgLogger log = AgentLoggers.getLogger(ConfigManager.class);
 
     private final File configFile;
+    private final ConfigCache configCache;
     private final ReadWriteLock configurationLock = new ReentrantReadWriteLock(true);
     private Configuration configuration;
+    private byte[] contentHash; // hash of the file content that was last loaded or written by this manager
 
     /**
      * Creates a manager. This does not load the configuration, since it might not exist yet.
@@ -50,7 +53,19 @@ public class ConfigManager {
      * @param file the configuration file
      */
     public ConfigManager(File file) {
+        this(file, null);
+    }
+
+    /**
+     * Creates a manager that keeps the parsed configuration in a cache so it does not have to be
+     * parsed again the next time it is loaded. See {@link ConfigCache}.
+     *
+     * @param file the configuration file
+     * @param cache the cache of the parsed configuration; if null, the configuration is always parsed from the file
+     */
+    public ConfigManager(File file, ConfigCache cache) {
         this.configFile = file;
+        this.configCache = cache;
     }
 
     /**
@@ -110,6 +125,30 @@ public class ConfigManager {
         }
     }
 
+    /**
+     * Reloads the configuration from the {@link #getConfigFile() file}, but only if the file content changed since
+     * the configuration was last loaded from or written to it by this manager.
+     *
+     * @return a copy of the reloaded configuration, or null if the file content did not change
+     * @throws Exception if the configuration file cannot be read or is invalid
+     */
+    public Configuration reloadIfChanged() throws Exception {
+        Lock lock = this.configurationLock.writeLock();
+        lock.lock();
+        try {
+            byte[] hash = ConfigCache.hash(Files.readAllBytes(this.configFile.toPath()));
+            if (Arrays.equals(hash, this.contentHash)) {
+                return null;
+            }
+            Configuration newConfig = load(this.configFile);
+            newConfig.validate();
+            this.configuration = newConfig;
+            return new Configuration(this.configuration);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Updates the configuration and writes it to the {@link #getConfigFile() file}, overwriting
      * the previous content of the file.
@@ -146,7 +185,9 @@ public class ConfigManager {
         }
 
         ObjectMapper mapper = createObjectMapper();
-        mapper.writeValue(file, config);
+        byte[] content = mapper.writeValueAsBytes(config);
+        Files.write(file.toPath(), content);
+        this.contentHash = ConfigCache.hash(content);
     }
 
     private Configuration load(File file) throws Exception {
@@ -154,8 +195,24 @@ public class ConfigManager {
             throw new FileNotFoundException("Config file [" + file + "] does not exist or cannot be read");
         }
 
-        ObjectMapper mapper = createObjectMapper();
-        Configuration config = mapper.readValue(file, Configuration.class);
+        byte[] content = Files.readAllBytes(file.toPath());
+        byte[] hash = ConfigCache.hash(content);
+        this.contentHash = hash;
+
+        if (configCache == null) {
+            ObjectMapper mapper = createObjectMapper();
+            Configuration config = mapper.readValue(content, Configuration.class);
+            return config;
+        }
+
+        Configuration config = configCache.load(hash);
+        if (config == null) {
+            ObjectMapper mapper = createObjectMapper();
+            config = mapper.readValue(content, Configuration.class);
+            configCache.store(hash, config);
+        } else {
+            log.debugf("Loaded config file [%s] from cache [%s]", file, configCache.getCacheFile());
+        }
         return config;
     }
 
@@ -74,6 +74,18 @@ public class StorageAdapter implements Validatable {
     @JsonProperty("read-timeout-secs")
     private Integer readTimeoutSecs = 120;
 
+    @JsonProperty("data-read-timeout-secs")
+    private Integer dataReadTimeoutSecs = 30;
+
+    @JsonProperty("inventory-read-timeout-secs")
+    private Integer inventoryReadTimeoutSecs = 300;
+
+    @JsonProperty("http2")
+    private Boolean http2 = Boolean.TRUE;
+
+    @JsonProperty("keep-alive-interval-secs")
+    private Integer keepAliveIntervalSecs = 60;
+
     public StorageAdapter() {
     }
 
@@ -90,6 +102,10 @@ public class StorageAdapter implements Validatable {
         this.hawkularContext = original.hawkularContext;
         this.connectTimeoutSecs = original.connectTimeoutSecs;
         this.readTimeoutSecs = original.readTimeoutSecs;
+        this.dataReadTimeoutSecs = original.dataReadTimeoutSecs;
+        this.inventoryReadTimeoutSecs = original.inventoryReadTimeoutSecs;
+        this.http2 = original.http2;
+        this.keepAliveIntervalSecs = original.keepAliveIntervalSecs;
     }
 
     /**
@@ -121,6 +137,18 @@ public class StorageAdapter implements Validatable {
         if (readTimeoutSecs != null && readTimeoutSecs <= 0) {
             throw new Exception("storage-adapter read-timeout-secs must be greater than or equal to 0");
         }
+
+        if (dataReadTimeoutSecs != null && dataReadTimeoutSecs <= 0) {
+            throw new Exception("storage-adapter data-read-timeout-secs must be greater than 0");
+        }
+
+        if (inventoryReadTimeoutSecs != null && inventoryReadTimeoutSecs <= 0) {
+            throw new Exception("storage-adapter inventory-read-timeout-secs must be greater than 0");
+        }
+
+        if (keepAliveIntervalSecs != null && keepAliveIntervalSecs < 0) {
+            throw new Exception("storage-adapter keep-alive-interval-secs must be greater than or equal to 0");
+        }
     }
 
     public Type getType() {
@@ -246,4 +274,36 @@ public class StorageAdapter implements Validatable {
     public void setReadTimeoutSecs(Integer readTimeoutSecs) {
         this.readTimeoutSecs = readTimeoutSecs;
     }
+
+    public Integer getDataReadTimeoutSecs() {
+        return dataReadTimeoutSecs;
+    }
+
+    public void setDataReadTimeoutSecs(Integer dataReadTimeoutSecs) {
+        this.dataReadTimeoutSecs = dataReadTimeoutSecs;
+    }
+
+    public Integer getInventoryReadTimeoutSecs() {
+        return inventoryReadTimeoutSecs;
+    }
+
+    public void setInventoryReadTimeoutSecs(Integer inventoryReadTimeoutSecs) {
+        this.inventoryReadTimeoutSecs = inventoryReadTimeoutSecs;
+    }
+
+    public Boolean getHttp2() {
+        return http2;
+    }
+
+    public void setHttp2(Boolean http2) {
+        this.http2 = http2;
+    }
+
+    public Integer getKeepAliveIntervalSecs() {
+        return keepAliveIntervalSecs;
+    }
+
+    public void setKeepAliveIntervalSecs(Integer keepAliveIntervalSecs) {
+        this.keepAliveIntervalSecs = keepAliveIntervalSecs;
+    }
 }
@@ -16,6 +16,8 @@
  */
 package org.hawkular.agent.javaagent.config;
 
+import org.hawkular.agent.javaagent.config.StringExpression.StringValue;
+
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -27,12 +29,30 @@ import com.fasterxml.jackson.annotation.JsonProperty;
         isGetterVisibility = Visibility.NONE)
 public class Subsystem implements Validatable {
 
+    public enum PhaseSpreading {
+        NONE, HASH, RANDOM
+    };
+
+    public enum OverrunPolicy {
+        SKIP, COALESCE, CATCH_UP
+    };
+
+    public enum DropPolicy {
+        DROP_OLDEST, DROP_NEWEST, SAMPLE
+    };
+
     @JsonProperty
     private BooleanExpression enabled = new BooleanExpression(Boolean.TRUE);
 
     @JsonProperty("auto-discovery-scan-period-secs")
     private IntegerExpression autoDiscoveryScanPeriodSecs = new IntegerExpression(600);
 
+    @JsonProperty("auto-discovery-scan-period-min-secs")
+    private IntegerExpression autoDiscoveryScanPeriodMinSecs = new IntegerExpression(60);
+
+    @JsonProperty("auto-discovery-scan-period-max-secs")
+    private IntegerExpression autoDiscoveryScanPeriodMaxSecs = new IntegerExpression(3600);
+
     @JsonProperty("min-collection-interval-secs")
     private IntegerExpression minCollectionIntervalSecs = new IntegerExpression(30);
 
@@ -54,9 +74,63 @@ public class Subsystem implements Validatable {
     @JsonProperty("avail-dispatcher-max-batch-size")
     private Integer availDispatcherMaxBatchSize = 50;
 
+    @JsonProperty("metric-dispatcher-linger-millis")
+    private Integer metricDispatcherLingerMillis = 500;
+
+    @JsonProperty("avail-dispatcher-linger-millis")
+    private Integer availDispatcherLingerMillis = 500;
+
+    @JsonProperty("dispatcher-target-latency-millis")
+    private Integer dispatcherTargetLatencyMillis = 1000;
+
+    @JsonProperty("metric-dispatcher-drop-policy")
+    private DropPolicy metricDispatcherDropPolicy = DropPolicy.DROP_NEWEST;
+
+    @JsonProperty("avail-dispatcher-drop-policy")
+    private DropPolicy availDispatcherDropPolicy = DropPolicy.DROP_OLDEST;
+
     @JsonProperty("ping-period-secs")
     private IntegerExpression pingPeriodSecs = new IntegerExpression(60);
 
+    @JsonProperty("max-concurrent-discovery-scans")
+    private Integer maxConcurrentDiscoveryScans = 4;
+
+    @JsonProperty("num-scheduler-threads")
+    private Integer numSchedulerThreads = 4;
+
+    @JsonProperty("inventory-snapshot-dir")
+    private StringExpression inventorySnapshotDir;
+
+    @JsonProperty("fast-start")
+    private BooleanExpression fastStart = new BooleanExpression(Boolean.FALSE);
+
+    @JsonProperty("virtual-threads")
+    private BooleanExpression virtualThreads = new BooleanExpression(Boolean.FALSE);
+
+    @JsonProperty("phase-spreading")
+    private PhaseSpreading phaseSpreading = PhaseSpreading.HASH;
+
+    @JsonProperty("metric-overrun-policy")
+    private OverrunPolicy metricOverrunPolicy = OverrunPolicy.COALESCE;
+
+    @JsonProperty("avail-overrun-policy")
+    private OverrunPolicy availOverrunPolicy = OverrunPolicy.COALESCE;
+
+    @JsonProperty("max-catch-up-rounds")
+    private Integer maxCatchUpRounds = 3;
+
+    @JsonProperty("request-timeout-secs")
+    private Integer requestTimeoutSecs = 30;
+
+    @JsonProperty("circuit-breaker-failures")
+    private Integer circuitBreakerFailures = 3;
+
+    @JsonProperty("circuit-breaker-open-secs")
+    private Integer circuitBreakerOpenSecs = 30;
+
+    @JsonProperty("watch-config-file")
+    private BooleanExpression watchConfigFile = new BooleanExpression(Boolean.FALSE);
+
     public Subsystem() {
     }
 
@@ -64,6 +138,10 @@ public class Subsystem implements Validatable {
         this.enabled = original.enabled == null ? null : new BooleanExpression(original.enabled);
         this.autoDiscoveryScanPeriodSecs = original.autoDiscoveryScanPeriodSecs == null ? null
                 : new IntegerExpression(original.autoDiscoveryScanPeriodSecs);
+        this.autoDiscoveryScanPeriodMinSecs = original.autoDiscoveryScanPeriodMinSecs == null ? null
+                : new IntegerExpression(original.autoDiscoveryScanPeriodMinSecs);
+        this.autoDiscoveryScanPeriodMaxSecs = original.autoDiscoveryScanPeriodMaxSecs == null ? null
+                : new IntegerExpression(original.autoDiscoveryScanPeriodMaxSecs);
         this.minCollectionIntervalSecs = original.minCollectionIntervalSecs == null ? null
                 : new IntegerExpression(original.minCollectionIntervalSecs);
         this.immutable = original.immutable == null ? null : new BooleanExpression(original.immutable);
@@ -72,8 +150,29 @@ public class Subsystem implements Validatable {
         this.metricDispatcherMaxBatchSize = original.metricDispatcherMaxBatchSize;
         this.availDispatcherBufferSize = original.availDispatcherBufferSize;
         this.availDispatcherMaxBatchSize = original.availDispatcherMaxBatchSize;
+        this.metricDispatcherLingerMillis = original.metricDispatcherLingerMillis;
+        this.availDispatcherLingerMillis = original.availDispatcherLingerMillis;
+        this.dispatcherTargetLatencyMillis = original.dispatcherTargetLatencyMillis;
+        this.metricDispatcherDropPolicy = original.metricDispatcherDropPolicy;
+        this.availDispatcherDropPolicy = original.availDispatcherDropPolicy;
         this.pingPeriodSecs = original.pingPeriodSecs == null ? null
                 : new IntegerExpression(original.pingPeriodSecs);
+        this.maxConcurrentDiscoveryScans = original.maxConcurrentDiscoveryScans;
+        this.numSchedulerThreads = original.numSchedulerThreads;
+        this.inventorySnapshotDir = original.inventorySnapshotDir == null ? null
+                : new StringExpression(original.inventorySnapshotDir);
+        this.fastStart = original.fastStart == null ? null : new BooleanExpression(original.fastStart);
+        this.virtualThreads = original.virtualThreads == null ? null
+                : new BooleanExpression(original.virtualThreads);
+        this.phaseSpreading = original.phaseSpreading;
+        this.metricOverrunPolicy = original.metricOverrunPolicy;
+        this.availOverrunPolicy = original.availOverrunPolicy;
+        this.maxCatchUpRounds = original.maxCatchUpRounds;
+        this.requestTimeoutSecs = original.requestTimeoutSecs;
+        this.circuitBreakerFailures = original.circuitBreakerFailures;
+        this.circuitBreakerOpenSecs = original.circuitBreakerOpenSecs;
+        this.watchConfigFile = original.watchConfigFile == null ? null
+                : new BooleanExpression(original.watchConfigFile);
     }
 
     @Override
@@ -81,6 +180,14 @@ public class Subsystem implements Validatable {
         if (autoDiscoveryScanPeriodSecs != null && autoDiscoveryScanPeriodSecs.get() <= 0) {
             throw new Exception("subsystem auto-discovery-scan-period-secs must be greater than 0");
         }
+        if (autoDiscoveryScanPeriodMinSecs != null && autoDiscoveryScanPeriodMinSecs.get() <= 0) {
+            throw new Exception("subsystem auto-discovery-scan-period-min-secs must be greater than 0");
+        }
+        if (autoDiscoveryScanPeriodMinSecs != null && autoDiscoveryScanPeriodMaxSecs != null
+                && autoDiscoveryScanPeriodMaxSecs.get() < autoDiscoveryScanPeriodMinSecs.get()) {
+            throw new Exception("subsystem auto-discovery-scan-period-max-secs must not be less than "
+                    + "auto-discovery-scan-period-min-secs");
+        }
         if (minCollectionIntervalSecs != null && minCollectionIntervalSecs.get() <= 0) {
             throw new Exception("subsystem min-collection-interval-secs must be greater than 0");
         }
@@ -96,9 +203,51 @@ public class Subsystem implements Validatable {
         if (availDispatcherMaxBatchSize != null && availDispatcherMaxBatchSize <= 0) {
             throw new Exception("subsystem avail-dispatcher-max-batch-size must be greater than 0");
         }
+        if (metricDispatcherLingerMillis == null || metricDispatcherLingerMillis < 0) {
+            throw new Exception("subsystem metric-dispatcher-linger-millis must be greater than or equal to 0");
+        }
+        if (availDispatcherLingerMillis == null || availDispatcherLingerMillis < 0) {
+            throw new Exception("subsystem avail-dispatcher-linger-millis must be greater than or equal to 0");
+        }
+        if (dispatcherTargetLatencyMillis == null || dispatcherTargetLatencyMillis <= 0) {
+            throw new Exception("subsystem dispatcher-target-latency-millis must be greater than 0");
+        }
+        if (metricDispatcherDropPolicy == null) {
+            throw new Exception("subsystem metric-dispatcher-drop-policy must be specified");
+        }
+        if (availDispatcherDropPolicy == null) {
+            throw new Exception("subsystem avail-dispatcher-drop-policy must be specified");
+        }
         if (pingPeriodSecs != null && pingPeriodSecs.get() < 0) {
             throw new Exception("subsystem ping-period-secs must be greater than or equal to 0");
         }
+        if (maxConcurrentDiscoveryScans != null && maxConcurrentDiscoveryScans <= 0) {
+            throw new Exception("subsystem max-concurrent-discovery-scans must be greater than 0");
+        }
+        if (numSchedulerThreads != null && numSchedulerThreads <= 0) {
+            throw new Exception("subsystem num-scheduler-threads must be greater than 0");
+        }
+        if (phaseSpreading == null) {
+            throw new Exception("subsystem phase-spreading must be specified");
+        }
+        if (metricOverrunPolicy == null) {
+            throw new Exception("subsystem metric-overrun-policy must be specified");
+        }
+        if (availOverrunPolicy == null) {
+            throw new Exception("subsystem avail-overrun-policy must be specified");
+        }
+        if (maxCatchUpRounds == null || maxCatchUpRounds < 0) {
+            throw new Exception("subsystem max-catch-up-rounds must be greater than or equal to 0");
+        }
+        if (requestTimeoutSecs == null || requestTimeoutSecs <= 0) {
+            throw new Exception("subsystem request-timeout-secs must be greater than 0");
+        }
+        if (circuitBreakerFailures == null || circuitBreakerFailures < 0) {
+            throw new Exception("subsystem circuit-breaker-failures must be greater than or equal to 0");
+        }
+        if (circuitBreakerOpenSecs == null || circuitBreakerOpenSecs <= 0) {
+            throw new Exception("subsystem circuit-breaker-open-secs must be greater than 0");
+        }
     }
 
     public Boolean getEnabled() {
@@ -125,6 +274,30 @@ public class Subsystem implements Validatable {
         }
     }
 
+    public Integer getAutoDiscoveryScanPeriodMinSecs() {
+        return autoDiscoveryScanPeriodMinSecs == null ? null : autoDiscoveryScanPeriodMinSecs.get();
+    }
+
+    public void setAutoDiscoveryScanPeriodMinSecs(Integer autoDiscoveryScanPeriodMinSecs) {
+        if (this.autoDiscoveryScanPeriodMinSecs != null) {
+            this.autoDiscoveryScanPeriodMinSecs.set(autoDiscoveryScanPeriodMinSecs);
+        } else {
+            this.autoDiscoveryScanPeriodMinSecs = new IntegerExpression(autoDiscoveryScanPeriodMinSecs);
+        }
+    }
+
+    public Integer getAutoDiscoveryScanPeriodMaxSecs() {
+        return autoDiscoveryScanPeriodMaxSecs == null ? null : autoDiscoveryScanPeriodMaxSecs.get();
+    }
+
+    public void setAutoDiscoveryScanPeriodMaxSecs(Integer autoDiscoveryScanPeriodMaxSecs) {
+        if (this.autoDiscoveryScanPeriodMaxSecs != null) {
+            this.autoDiscoveryScanPeriodMaxSecs.set(autoDiscoveryScanPeriodMaxSecs);
+        } else {
+            this.autoDiscoveryScanPeriodMaxSecs = new IntegerExpression(autoDiscoveryScanPeriodMaxSecs);
+        }
+    }
+
     public Integer getMinCollectionIntervalSecs() {
         return minCollectionIntervalSecs == null ? null : minCollectionIntervalSecs.get();
     }
@@ -193,6 +366,46 @@ public class Subsystem implements Validatable {
         this.availDispatcherMaxBatchSize = availDispatcherMaxBatchSize;
     }
 
+    public Integer getMetricDispatcherLingerMillis() {
+        return metricDispatcherLingerMillis;
+    }
+
+    public void setMetricDispatcherLingerMillis(Integer metricDispatcherLingerMillis) {
+        this.metricDispatcherLingerMillis = metricDispatcherLingerMillis;
+    }
+
+    public Integer getAvailDispatcherLingerMillis() {
+        return availDispatcherLingerMillis;
+    }
+
+    public void setAvailDispatcherLingerMillis(Integer availDispatcherLingerMillis) {
+        this.availDispatcherLingerMillis = availDispatcherLingerMillis;
+    }
+
+    public Integer getDispatcherTargetLatencyMillis() {
+        return dispatcherTargetLatencyMillis;
+    }
+
+    public void setDispatcherTargetLatencyMillis(Integer dispatcherTargetLatencyMillis) {
+        this.dispatcherTargetLatencyMillis = dispatcherTargetLatencyMillis;
+    }
+
+    public DropPolicy getMetricDispatcherDropPolicy() {
+        return metricDispatcherDropPolicy;
+    }
+
+    public void setMetricDispatcherDropPolicy(DropPolicy metricDispatcherDropPolicy) {
+        this.metricDispatcherDropPolicy = metricDispatcherDropPolicy;
+    }
+
+    public DropPolicy getAvailDispatcherDropPolicy() {
+        return availDispatcherDropPolicy;
+    }
+
+    public void setAvailDispatcherDropPolicy(DropPolicy availDispatcherDropPolicy) {
+        this.availDispatcherDropPolicy = availDispatcherDropPolicy;
+    }
+
     public Integer getPingPeriodSecs() {
         return pingPeriodSecs == null ? null : pingPeriodSecs.get();
     }
@@ -204,4 +417,124 @@ public class Subsystem implements Validatable {
             this.pingPeriodSecs = new IntegerExpression(pingPeriodSecs);
         }
     }
+
+    public Integer getMaxConcurrentDiscoveryScans() {
+        return maxConcurrentDiscoveryScans;
+    }
+
+    public void setMaxConcurrentDiscoveryScans(Integer maxConcurrentDiscoveryScans) {
+        this.maxConcurrentDiscoveryScans = maxConcurrentDiscoveryScans;
+    }
+
+    public Integer getNumSchedulerThreads() {
+        return numSchedulerThreads;
+    }
+
+    public void setNumSchedulerThreads(Integer numSchedulerThreads) {
+        this.numSchedulerThreads = numSchedulerThreads;
+    }
+
+    public String getInventorySnapshotDir() {
+        return inventorySnapshotDir == null ? null : inventorySnapshotDir.get().toString();
+    }
+
+    public void setInventorySnapshotDir(String inventorySnapshotDir) {
+        if (this.inventorySnapshotDir != null) {
+            this.inventorySnapshotDir.set(new StringValue(inventorySnapshotDir));
+        } else {
+            this.inventorySnapshotDir = new StringExpression(new StringValue(inventorySnapshotDir));
+        }
+    }
+
+    public Boolean getFastStart() {
+        return fastStart == null ? null : fastStart.get();
+    }
+
+    public void setFastStart(Boolean fastStart) {
+        if (this.fastStart != null) {
+            this.fastStart.set(fastStart);
+        } else {
+            this.fastStart = new BooleanExpression(fastStart);
+        }
+    }
+
+    public Boolean getVirtualThreads() {
+        return virtualThreads == null ? null : virtualThreads.get();
+    }
+
+    public void setVirtualThreads(Boolean virtualThreads) {
+        if (this.virtualThreads != null) {
+            this.virtualThreads.set(virtualThreads);
+        } else {
+            this.virtualThreads = new BooleanExpression(virtualThreads);
+        }
+    }
+
+    public PhaseSpreading getPhaseSpreading() {
+        return phaseSpreading;
+    }
+
+    public void setPhaseSpreading(PhaseSpreading phaseSpreading) {
+        this.phaseSpreading = phaseSpreading;
+    }
+
+    public OverrunPolicy getMetricOverrunPolicy() {
+        return metricOverrunPolicy;
+    }
+
+    public void setMetricOverrunPolicy(OverrunPolicy metricOverrunPolicy) {
+        this.metricOverrunPolicy = metricOverrunPolicy;
+    }
+
+    public OverrunPolicy getAvailOverrunPolicy() {
+        return availOverrunPolicy;
+    }
+
+    public void setAvailOverrunPolicy(OverrunPolicy availOverrunPolicy) {
+        this.availOverrunPolicy = availOverrunPolicy;
+    }
+
+    public Integer getMaxCatchUpRounds() {
+        return maxCatchUpRounds;
+    }
+
+    public void setMaxCatchUpRounds(Integer maxCatchUpRounds) {
+        this.maxCatchUpRounds = maxCatchUpRounds;
+    }
+
+    public Integer getRequestTimeoutSecs() {
+        return requestTimeoutSecs;
+    }
+
+    public void setRequestTimeoutSecs(Integer requestTimeoutSecs) {
+        this.requestTimeoutSecs = requestTimeoutSecs;
+    }
+
+    public Integer getCircuitBreakerFailures() {
+        return circuitBreakerFailures;
+    }
+
+    public void setCircuitBreakerFailures(Integer circuitBreakerFailures) {
+        this.circuitBreakerFailures = circuitBreakerFailures;
+    }
+
+    public Integer getCircuitBreakerOpenSecs() {
+        return circuitBreakerOpenSecs;
+    }
+
+    public void setCircuitBreakerOpenSecs(Integer circuitBreakerOpenSecs) {
+        this.circuitBreakerOpenSecs = circuitBreakerOpenSecs;
+    }
+
+    public Boolean getWatchConfigFile() {
+        return watchConfigFile == null ? null : watchConfigFile.get();
+    }
+
+    public void setWatchConfigFile(Boolean watchConfigFile) {
+        if (this.watchConfigFile != null) {
+            this.watchConfigFile.set(watchConfigFile);
+        } else {
+            this.watchConfigFile = new BooleanExpression(watchConfigFile);
+        }
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.javaagent;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.management.ObjectName;
+
+import org.hawkular.agent.javaagent.config.ConfigConverter;
+import org.hawkular.agent.javaagent.config.ConfigManager;
+import org.hawkular.agent.monitor.log.AgentLoggers;
+import org.hawkular.agent.monitor.log.MsgLogger;
+import org.hawkular.agent.monitor.service.StartupPhases;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+public class JavaAgentEngineStartupTest {
+    private static final MsgLogger log = AgentLoggers.getLogger(JavaAgentEngineStartupTest.class);
+
+    @Test
+    public void testCreationPhasesAreTimed() throws Exception {
+        JavaAgentEngine engine = new JavaAgentEngine(getTestConfigFile("/real-config.yaml"));
+        try {
+            Map<String, Long> durations = engine.getCreationPhases().getDurations();
+            Assert.assertTrue(durations.toString(), durations.containsKey("convert configuration"));
+            Assert.assertTrue(engine.getCreationPhases().getElapsed() >= durations.get("convert configuration"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer()
+                    .unregisterMBean(new ObjectName("org.hawkular:type=hawkular-javaagent"));
+        }
+    }
+
+    @Test
+    public void testParallelPhasesAreAllTimed() throws Exception {
+        StartupPhases phases = new StartupPhases();
+        Map<String, Callable<?>> work = new LinkedHashMap<>();
+        work.put("one", () -> {
+            Thread.sleep(50);
+            return null;
+        });
+        work.put("two", () -> {
+            Thread.sleep(50);
+            return null;
+        });
+        phases.timeInParallel(work);
+        Assert.assertEquals(2, phases.getDurations().size());
+        Assert.assertTrue(phases.getDurations().get("one") >= 50);
+        Assert.assertTrue(phases.getDurations().get("two") >= 50);
+    }
+
+    // this is a simple benchmark of the configuration phase of the startup; it is helpful for
+    // developing more than testing
+    @Ignore("Benchmark, run manually when working on the agent startup")
+    @Test
+    public void benchmarkConfigurationPhase() throws Exception {
+        File configFile = getTestConfigFile("/real-config.yaml");
+        int warmups = 5;
+        int iterations = 20;
+        long total = 0L;
+        for (int i = 0; i < warmups + iterations; i++) {
+            long start = System.nanoTime();
+            new ConfigConverter(new ConfigManager(configFile).getConfiguration(true)).convert();
+            if (i >= warmups) {
+                total += System.nanoTime() - start;
+            }
+        }
+        log.infof("Loading and converting [%s] took [%d] microseconds on average", configFile.getName(),
+                total / iterations / 1000L);
+    }
+
+    private File getTestConfigFile(String path) throws Exception {
+        URL url = JavaAgentEngineStartupTest.class.getResource(path);
+        Assert.assertNotNull("yaml config file not found", url);
+        return new File(url.toURI());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.agent.javaagent.config;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.hawkular.agent.monitor.config.AgentCoreEngineConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ConfigCacheTest {
+
+    @Test
+    public void testCacheIsUsedAndRefreshed() throws Exception {
+        File dir = Files.createTempDirectory("hawkular-config-cache").toFile();
+        try {
+            File configFile = new File(dir, "config.yaml");
+            File cacheFile = new File(dir, "config.yaml.cache");
+            copyTestConfigFile("/real-config.yaml", configFile);
+
+            // the first load parses the yaml and creates the cache
+            Configuration parsed = new ConfigManager(configFile, new ConfigCache(cacheFile)).getConfiguration(true);
+            Assert.assertTrue(cacheFile.exists());
+
+            // the cached configuration is the same as the parsed one
+            byte[] hash = ConfigCache.hash(Files.readAllBytes(configFile.toPath()));
+            Configuration cached = new ConfigCache(cacheFile).load(hash);
+            Assert.assertNotNull(cached);
+            ObjectMapper mapper = new ObjectMapper();
+            Assert.assertEquals(mapper.writeValueAsString(parsed), mapper.writeValueAsString(cached));
+            AgentCoreEngineConfiguration converted = new ConfigConverter(
+                    new ConfigManager(configFile, new ConfigCache(cacheFile)).getConfiguration(true)).convert();
+            Assert.assertTrue(converted.getGlobalConfiguration().isSubsystemEnabled());
+
+            // a changed config file makes the cache stale; the next load refreshes it
+            copyTestConfigFile("/real-config-jmx.yaml", configFile);
+            byte[] newHash = ConfigCache.hash(Files.readAllBytes(configFile.toPath()));
+            Assert.assertNull(new ConfigCache(cacheFile).load(newHash));
+            new ConfigManager(configFile, new ConfigCache(cacheFile)).getConfiguration(true);
+            Assert.assertNotNull(new ConfigCache(cacheFile).load(newHash));
+            Assert.assertNull(new ConfigCache(cacheFile).load(hash));
+        } finally {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testCacheOfOtherAgentVersionIsIgnored() throws Exception {
+        File dir = Files.createTempDirectory("hawkular-config-cache").toFile();
+        try {
+            File configFile = new File(dir, "config.yaml");
+            File cacheFile = new File(dir, "config.yaml.cache");
+            copyTestConfigFile("/real-config.yaml", configFile);
+            byte[] hash = ConfigCache.hash(Files.readAllBytes(configFile.toPath()));
+
+            Configuration parsed = new ConfigManager(configFile).getConfiguration(true);
+            new ConfigCache(cacheFile, "1.0.0").store(hash, parsed);
+            Assert.assertNotNull(new ConfigCache(cacheFile, "1.0.0").load(hash));
+            Assert.assertNull(new ConfigCache(cacheFile, "1.1.0").load(hash));
+        } finally {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testCorruptCacheIsIgnored() throws Exception {
+        File cacheFile = File.createTempFile("hawkular-config", ".cache");
+        try {
+            Files.write(cacheFile.toPath(), new byte[] { 1, 2, 3 });
+            Assert.assertNull(new ConfigCache(cacheFile).load(ConfigCache.hash(new byte[0])));
+        } finally {
+            cacheFile.delete();
+        }
+    }
+
+    private void copyTestConfigFile(String path, File destination) throws Exception {
+        URL url = ConfigCacheTest.class.getResource(path);
+        Assert.assertNotNull("yaml config file not found", url);
+        Files.copy(new File(url.toURI()).toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}